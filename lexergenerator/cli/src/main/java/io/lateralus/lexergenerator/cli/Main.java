@@ -2,6 +2,7 @@ package io.lateralus.lexergenerator.cli;
 
 import io.lateralus.lexergenerator.codegenerator.simple.BasicLexerCodeGenerator;
 import io.lateralus.lexergenerator.codegenerator.simple.BasicLexerCodeGenerator.Properties;
+import io.lateralus.lexergenerator.core.definition.LexerDefinitionBuilder.Engine;
 import io.lateralus.lexergenerator.main.LexerGenerator;
 import io.lateralus.shared.generator.GeneratorException;
 import io.lateralus.shared.generator.SourceFileSaver;
@@ -26,6 +27,32 @@ public class Main implements Runnable {
 	@Option(names = {"-f", "--force"}, description = "Overwrite files if they already exist")
 	private boolean force;
 
+	@Option(names = {"-c", "--compress-transitions"}, description = "Compress the transition table of the lexer")
+	private boolean compressTransitions;
+
+	@Option(names = {"-r", "--table-resource"}, paramLabel = "DIRECTORY",
+			description = "Write the tables of the lexer as a resource to the given DIRECTORY instead of inlining them")
+	private String tableResourceDirectory;
+
+	@Option(names = {"--fuse-reader"},
+			description = "Let the lexer read into its own buffer instead of using a LexerReader")
+	private boolean fuseReader;
+
+	@Option(names = {"--lazy-positions"},
+			description = "Determine the line and column numbers of the tokens only when they are requested")
+	private boolean lazyPositions;
+
+	@Option(names = {"--push-lexer"},
+			description = "Generate a push lexer, to which the input is fed in chunks, next to the lexer")
+	private boolean pushLexer;
+
+	@Option(names = {"--utf8"}, description = "Generate a lexer that reads the UTF-8 encoded bytes of its input")
+	private boolean utf8;
+
+	@Option(names = {"--engine"}, paramLabel = "ENGINE",
+			description = "The engine that constructs the DFA: THOMPSON (the default), FOLLOWPOS or DERIVATIVES")
+	private Engine engine = Engine.THOMPSON;
+
 	@Parameters(index = "0", paramLabel = "DEFINITION", description = "The file holding the lexer definition")
 	private File definitionFile;
 
@@ -46,9 +73,15 @@ public class Main implements Runnable {
 	@Override
 	public void run() {
 		SourceFileSaver sourceFileSaver = new SourceFileSaver(targetDirectory, force);
-		LexerGenerator lexerGenerator = new LexerGenerator(sourceFileSaver);
+		LexerGenerator lexerGenerator = new LexerGenerator(sourceFileSaver).engine(engine).utf8(utf8);
 		try {
-			lexerGenerator.generate(new BasicLexerCodeGenerator(new Properties(lexerName, packageName)), definitionFile);
+			Properties properties = new Properties(lexerName, packageName)
+					.compressTransitions(compressTransitions)
+					.tableResourceDirectory(tableResourceDirectory)
+					.fuseReader(fuseReader)
+					.lazyPositions(lazyPositions)
+					.pushLexer(pushLexer);
+			lexerGenerator.generate(new BasicLexerCodeGenerator(properties), definitionFile);
 			System.out.println("Generated a lexer in '" + targetDirectory + "'.");
 		} catch (GeneratorException e) {
 			System.err.println("Error while generating the lexer: " + e.getMessage());
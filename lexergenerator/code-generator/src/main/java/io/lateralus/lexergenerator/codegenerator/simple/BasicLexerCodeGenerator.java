@@ -3,18 +3,25 @@ package io.lateralus.lexergenerator.codegenerator.simple;
 import freemarker.cache.ClassTemplateLoader;
 import io.lateralus.lexergenerator.core.automaton.Automaton;
 import io.lateralus.lexergenerator.core.definition.LexerDefinition;
+import io.lateralus.shared.codegenerator.ByteArraySourceFile;
 import io.lateralus.shared.codegenerator.CodeGenerationException;
+import io.lateralus.shared.codegenerator.ElementType;
 import io.lateralus.shared.codegenerator.SourceFile;
+import io.lateralus.shared.codegenerator.VarIntEncoder;
 import io.lateralus.shared.codegenerator.freemarker.AbstractFreeMarkerCodeGenerator;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -29,6 +36,16 @@ public class BasicLexerCodeGenerator extends AbstractFreeMarkerCodeGenerator<Lex
 
 		final private String packageName;
 
+		private boolean compressTransitions;
+
+		private String tableResourceDirectory;
+
+		private boolean fuseReader;
+
+		private boolean lazyPositions;
+
+		private boolean pushLexer;
+
 		public Properties(String lexerName, String packageName) {
 			this.lexerName = lexerName;
 			this.packageName = packageName;
@@ -41,8 +58,124 @@ public class BasicLexerCodeGenerator extends AbstractFreeMarkerCodeGenerator<Lex
 		public String getPackageName() {
 			return packageName;
 		}
+
+		/**
+		 * Sets whether the transition table of the generated lexer is compressed using row displacement, the default
+		 * is {@code false}. A compressed table takes memory in proportion to the number of transitions that do not
+		 * lead to the default target of their state, at the cost of a somewhat slower lookup.
+		 * @param compressTransitions Whether to compress the transition table.
+		 * @return These properties.
+		 */
+		public Properties compressTransitions(boolean compressTransitions) {
+			this.compressTransitions = compressTransitions;
+			return this;
+		}
+
+		public boolean isCompressTransitions() {
+			return compressTransitions;
+		}
+
+		/**
+		 * Sets the directory to write the tables of the generated lexer to, as a binary resource named
+		 * {@value BasicLexerCodeGenerator#TABLE_RESOURCE_NAME} in the directory of the package. By default the
+		 * directory is {@code null} and the tables are inlined in the generated code instead, which is limited by the
+		 * maximum size of the static initializer of a class. A relative directory is resolved against the directory
+		 * the sources are written to.
+		 * @param tableResourceDirectory The directory for the resource, or {@code null} to inline the tables.
+		 * @return These properties.
+		 */
+		public Properties tableResourceDirectory(String tableResourceDirectory) {
+			this.tableResourceDirectory = tableResourceDirectory;
+			return this;
+		}
+
+		public String getTableResourceDirectory() {
+			return tableResourceDirectory;
+		}
+
+		/**
+		 * Sets whether the generated lexer reads from a {@link java.io.Reader} into its own buffer, the default is
+		 * {@code false}. Such a lexer scans the buffer directly instead of calling a {@code LexerReader} for every
+		 * code point, and only keeps track of the line and column numbers when it creates a token. Next to the
+		 * {@code Lexer} interface such a lexer offers an {@code advance()} method, which moves to the next token
+		 * without allocating a {@code Token} or a {@code String} for it, and a {@code tokenizeInto(TokenBuffer)}
+		 * method, which reads all tokens into arrays of primitives.
+		 * @param fuseReader Whether to fuse the reader into the lexer.
+		 * @return These properties.
+		 */
+		public Properties fuseReader(boolean fuseReader) {
+			this.fuseReader = fuseReader;
+			return this;
+		}
+
+		public boolean isFuseReader() {
+			return fuseReader;
+		}
+
+		/**
+		 * Sets whether the generated lexer determines the line and column numbers of the tokens lazily, the default is
+		 * {@code false}. Such a lexer only keeps track of the offsets of the tokens, and builds an index of the offsets
+		 * at which the lines start while it reads the input. The line and column numbers are looked up in the index
+		 * when they are requested. Note that the column numbers then count chars instead of code points.
+		 * @param lazyPositions Whether to determine the line and column numbers lazily.
+		 * @return These properties.
+		 */
+		public Properties lazyPositions(boolean lazyPositions) {
+			this.lazyPositions = lazyPositions;
+			return this;
+		}
+
+		public boolean isLazyPositions() {
+			return lazyPositions;
+		}
+
+		/**
+		 * Sets whether a push lexer is generated next to the lexer, the default is {@code false}. The input is fed to
+		 * a push lexer in chunks, it passes every token that is complete to a consumer and keeps the state of the
+		 * token in progress until the next chunk arrives. The chunks are chars, or bytes for a lexer on UTF-8 bytes.
+		 * @param pushLexer Whether to generate a push lexer.
+		 * @return These properties.
+		 */
+		public Properties pushLexer(boolean pushLexer) {
+			this.pushLexer = pushLexer;
+			return this;
+		}
+
+		public boolean isPushLexer() {
+			return pushLexer;
+		}
 	}
 
+	/**
+	 * The name of the resource that holds the tables, if they are not inlined.
+	 */
+	public static final String TABLE_RESOURCE_NAME = "lexer.table";
+
+	/**
+	 * The number of unicode code points.
+	 */
+	private static final int CODE_POINT_COUNT = 0x110000;
+
+	/**
+	 * The number of byte values.
+	 */
+	private static final int BYTE_COUNT = 256;
+
+	/**
+	 * The number of code points per block of the alphabet map, must be a power of two.
+	 */
+	private static final int BLOCK_SIZE = 256;
+
+	/**
+	 * The maximum number of ranges of chars (or bytes) that are tested to skip a self-loop.
+	 */
+	private static final int MAX_SELF_LOOP_RANGES = 6;
+
+	/**
+	 * The maximum number of bytes that are tested to skip a self-loop eight bytes at a time.
+	 */
+	private static final int MAX_SWAR_BYTES = 4;
+
 	private final Properties properties;
 
 	public BasicLexerCodeGenerator(Properties properties) {
@@ -53,76 +186,202 @@ public class BasicLexerCodeGenerator extends AbstractFreeMarkerCodeGenerator<Lex
 	@Override
 	public Set<SourceFile> generate(LexerDefinition lexerDefinition) throws CodeGenerationException {
 
+		// A lexer on UTF-8 bytes reads its input from a byte buffer.
+		if (lexerDefinition.isUtf8() && (properties.isFuseReader() || properties.isLazyPositions())) {
+			throw new CodeGenerationException("A lexer on UTF-8 bytes can not fuse a reader or have lazy positions.");
+		}
+
 		// Create a Set for the source files.
 		Set<SourceFile> sourceFiles = new HashSet<>();
 
-		sourceFiles.add(createBasicLexer(lexerDefinition));
+		sourceFiles.addAll(createBasicLexer(lexerDefinition));
 		sourceFiles.add(createTokenTypes(lexerDefinition));
 
 		Map<String, Object> model = createBaseModel();
+		model.put("utf8", lexerDefinition.isUtf8());
 		sourceFiles.add(createSourceFile("lexer-exception.ftl", "LexerException.java", model));
-		sourceFiles.add(createSourceFile("lexer-reader.ftl", "LexerReader.java", model));
-		sourceFiles.add(createSourceFile("lexer-reader-impl.ftl", "LexerReaderImpl.java", model));
+		if (!lexerDefinition.isUtf8()) {
+			sourceFiles.add(createSourceFile("lexer-reader.ftl", "LexerReader.java", model));
+			sourceFiles.add(createSourceFile("lexer-reader-impl.ftl", "LexerReaderImpl.java", model));
+		}
 		sourceFiles.add(createSourceFile("lexer.ftl", "Lexer.java", model));
 		sourceFiles.add(createSourceFile("token.ftl", "Token.java", model));
+		if (properties.isLazyPositions()) {
+			sourceFiles.add(createSourceFile("line-index.ftl", "LineIndex.java", model));
+		}
+		if (properties.isFuseReader() || lexerDefinition.isUtf8()) {
+			sourceFiles.add(createSourceFile("token-buffer.ftl", "TokenBuffer.java", model));
+		}
 		return sourceFiles;
 	}
 
-	private SourceFile createBasicLexer(LexerDefinition lexerDefinition) throws CodeGenerationException {
+	private Set<SourceFile> createBasicLexer(LexerDefinition lexerDefinition) throws CodeGenerationException {
+		Set<SourceFile> result = new HashSet<>();
+
+		// The tables are written to the resource in the order in which they are declared in the template.
+		boolean tableResource = properties.getTableResourceDirectory() != null;
+		ByteArrayOutputStream tableData = tableResource ? new ByteArrayOutputStream() : null;
 
 		Map<String, Object> model = createBaseModel();
+		model.put("tableResource", tableResource);
+		model.put("fuseReader", properties.isFuseReader());
+		model.put("pushLexer", properties.isPushLexer());
+		model.put("utf8", lexerDefinition.isUtf8());
 		model.put("startState", lexerDefinition.getDfa().getStartState());
 		model.put("errorState", lexerDefinition.getErrorState());
-		model.put("transitions", createTransitionsString(lexerDefinition));
-		model.put("intervals", createIntervalsString(lexerDefinition));
+		model.put("skipTokens", lexerDefinition.hasSkipTokens());
+		putTable(model, tableData, "tokenTypes", createTokenTypeOrdinals(lexerDefinition));
+		createTransitions(lexerDefinition, model, tableData);
+		if (lexerDefinition.isUtf8()) {
+			createByteMap(lexerDefinition, model, tableData);
+		} else {
+			createAlphabetMap(lexerDefinition, model, tableData);
+		}
+		if (properties.isFuseReader() || lexerDefinition.isUtf8()) {
+			createSelfLoops(lexerDefinition, model, tableData);
+		}
 		model.put("startLexerState", lexerDefinition.getStartLexerState() + 1);
 		model.put("stateCount", lexerDefinition.getDfa().getStateCount());
 		model.put("alphabetSize", lexerDefinition.getDfa().getAlphabetSize() + 1);
-		model.put("isEndState", createIsEndStateString(lexerDefinition));
-		model.put("tokenTypes", createTokenTypesString(lexerDefinition));
-
 
 		String fileName = properties.getLexerName() + "Lexer.java";
-		return createSourceFile("basic-lexer.ftl", fileName, model);
+		result.add(createSourceFile("basic-lexer.ftl", fileName, model));
+		if (properties.isPushLexer()) {
+			result.add(createSourceFile("push-lexer.ftl", properties.getLexerName() + "PushLexer.java", model));
+		}
+
+		if (tableResource) {
+			String name = properties.getTableResourceDirectory() + File.separator + packageDirectoryName() +
+					File.separator + TABLE_RESOURCE_NAME;
+			result.add(new ByteArraySourceFile(name, tableData.toByteArray()));
+		}
+
+		return result;
 	}
 
-	private String createTokenTypesString(LexerDefinition lexerDefinition) {
+	/**
+	 * Creates per state the ordinal of the token type it accepts in the generated {@code TokenType} enum, or 0 if the
+	 * state does not accept. Ordinal 0 belongs to {@code EOF}, which is never accepted by a state.
+	 * @param lexerDefinition The lexer definition.
+	 * @return The ordinals.
+	 */
+	private static int[] createTokenTypeOrdinals(LexerDefinition lexerDefinition) {
 		return IntStream.range(0, lexerDefinition.getDfa().getStateCount())
 				.mapToObj(i -> lexerDefinition.getAcceptingStateTokenTypes().get(i))
-				.map(t -> t == null ? "null" : "TokenType." + t.getName())
-				.collect(Collectors.joining(", "));
+				.mapToInt(t -> t == null ? 0 : t.ordinal() + 1)
+				.toArray();
 	}
 
-	private String createIsEndStateString(LexerDefinition lexerDefinition) {
-		return IntStream.range(0, lexerDefinition.getDfa().getStateCount())
-				.mapToObj(i -> lexerDefinition.getDfa().getAcceptingStates().contains(i))
-				.map(b -> b ? "true" : "false")
-				.collect(Collectors.joining(", "));
+	/**
+	 * Creates the transition table, either as a dense table or compressed using row displacement.
+	 * @param lexerDefinition The lexer definition.
+	 * @param model The model to add the table to.
+	 * @param tableData The stream to write the table to, or {@code null} if the table is inlined.
+	 */
+	private void createTransitions(LexerDefinition lexerDefinition, Map<String, Object> model,
+			ByteArrayOutputStream tableData) {
+		int[][] table = createTransitionTable(lexerDefinition);
+		int stateCount = table.length;
+		int width = lexerDefinition.getDfa().getAlphabetSize() + 1;
+
+		model.put("compressTransitions", properties.isCompressTransitions());
+		if (properties.isCompressTransitions()) {
+			RowDisplacementTable compressedTable = new RowDisplacementTable(table);
+			putTable(model, tableData, "defaults", compressedTable.getDefaults());
+			putTable(model, tableData, "bases", compressedTable.getBases());
+			putTable(model, tableData, "next", compressedTable.getNext());
+			putTable(model, tableData, "check", compressedTable.getCheck());
+			model.put("tableLength", compressedTable.getNext().length);
+		} else {
+			// The dense table is stored by input, so the index of a transition is state + stateCount * input.
+			int[] resultStateArray = new int[stateCount * width];
+			for (int state = 0; state < stateCount; state++) {
+				for (int input = 0; input < width; input++) {
+					resultStateArray[state + stateCount * input] = table[state][input];
+				}
+			}
+			putTable(model, tableData, "transitions", resultStateArray);
+		}
 	}
 
-	private String createTransitionsString(LexerDefinition lexerDefinition) {
+	/**
+	 * Creates the full transition table; per state the target for every input. Input 0 is reserved for code points
+	 * that are not in the alphabet, the inputs of the DFA are shifted by one.
+	 * @param lexerDefinition The lexer definition.
+	 * @return The transition table.
+	 */
+	static int[][] createTransitionTable(LexerDefinition lexerDefinition) {
 		int stateCount = lexerDefinition.getDfa().getStateCount();
 		int alphabetSize = lexerDefinition.getDfa().getAlphabetSize();
-		int[] resultStateArray = new int[stateCount * (alphabetSize + 1)];
+		int[][] table = new int[stateCount][alphabetSize + 1];
 
-		// Initialize the table here with the error state. Because an input of 0 should lead to the error state.
-		for (int i = 0; i < stateCount; i++) {
-			resultStateArray[i] = lexerDefinition.getErrorState();
+		// Initialize the table here with the error state. Because an input of 0 should lead to the error state, and all
+		// transitions that are missing from the (partial) automaton as well.
+		for (int[] row : table) {
+			Arrays.fill(row, lexerDefinition.getErrorState());
 		}
 
-		// Since the automaton is complete, we fill the rest of the table here.
-		for (Automaton.Transition t : lexerDefinition.getDfa().getTransitions()) {
-			resultStateArray[t.fromState + stateCount * (t.input + 1)] = t.toState;
+		// Fill the existing transitions.
+		Automaton dfa = lexerDefinition.getDfa();
+		int[] offsets = dfa.getOffsets();
+		int[] targets = dfa.getTargets();
+		int[] inputs = dfa.getInputs();
+		for (int state = 0; state < stateCount; state++) {
+			for (int i = offsets[state]; i < offsets[state + 1]; i++) {
+				table[state][inputs[i] + 1] = targets[i];
+			}
 		}
 
+		return table;
+	}
+
+	/**
+	 * Adds a table to the model, under the given name as run length encoded string and with the name suffixed by
+	 * {@code Type} as the smallest {@link ElementType} that can hold all values of the table. The element types of all
+	 * tables are collected in {@code elementTypes}, so the template can generate the methods to inflate them.
+	 * <br/>
+	 * If the tables are written to a resource, the run length encoded table is written to the given stream instead;
+	 * the number of values followed by the values, all as variable length integers.
+	 * @param model The model.
+	 * @param tableData The stream to write the table to, or {@code null} if the table is inlined.
+	 * @param name The name of the table.
+	 * @param table The table.
+	 */
+	@SuppressWarnings("unchecked")
+	private static void putTable(Map<String, Object> model, ByteArrayOutputStream tableData, String name,
+			int[] table) {
+		ElementType elementType = ElementType.of(table);
+		int[] runLengths = runLengthEncode(table);
+		if (tableData != null) {
+			VarIntEncoder.encode(runLengths.length, tableData);
+			for (int value : runLengths) {
+				VarIntEncoder.encode(value, tableData);
+			}
+		} else {
+			model.put(name, Arrays.stream(runLengths)
+					.mapToObj(Integer::toString)
+					.collect(Collectors.joining(", ")));
+		}
+		model.put(name + "Type", elementType);
+		((Set<ElementType>) model.computeIfAbsent("elementTypes", key -> EnumSet.noneOf(ElementType.class)))
+				.add(elementType);
+	}
+
+	/**
+	 * Encodes the given array as (count, value) pairs. The generated code inflates these pairs again when the lexer
+	 * class is initialized.
+	 * @param array The array to encode.
+	 * @return The encoded array.
+	 */
+	private static int[] runLengthEncode(int[] array) {
 		List<Integer> list = new ArrayList<>();
 		list.add(1);
-		list.add(resultStateArray[0]);
+		list.add(array[0]);
 
-		int last = resultStateArray[0];
-		for (int i = 1; i < resultStateArray.length; i++) {
-			if (resultStateArray[i] != last) {
-				last = resultStateArray[i];
+		int last = array[0];
+		for (int i = 1; i < array.length; i++) {
+			if (array[i] != last) {
+				last = array[i];
 				list.add(1);
 				list.add(last);
 			} else {
@@ -132,23 +391,246 @@ public class BasicLexerCodeGenerator extends AbstractFreeMarkerCodeGenerator<Lex
 		}
 
 		return list.stream()
-				.map(Objects::toString)
-				.collect(Collectors.joining(", "));
+				.mapToInt(Integer::intValue)
+				.toArray();
+	}
+
+	/**
+	 * Creates the map that translates bytes to inputs, for a lexer on UTF-8 bytes. The map has an entry for every byte.
+	 * @param lexerDefinition The lexer definition.
+	 * @param model The model to add the map to.
+	 * @param tableData The stream to write the tables to, or {@code null} if the tables are inlined.
+	 */
+	private void createByteMap(LexerDefinition lexerDefinition, Map<String, Object> model,
+			ByteArrayOutputStream tableData) {
+		int[] intervals = lexerDefinition.getAlphabetIntervals();
+		int[] classes = lexerDefinition.getAlphabetClasses();
+
+		// The input is the class of the interval plus one (0 input will lead to the error state).
+		int[] byteMap = new int[BYTE_COUNT];
+		for (int i = 0; i < classes.length; i++) {
+			Arrays.fill(byteMap, intervals[2 * i], intervals[2 * i + 1] + 1, classes[i] + 1);
+		}
+
+		putTable(model, tableData, "byteMap", byteMap);
+	}
+
+	/**
+	 * Creates the map that translates code points to inputs. The map is a two-stage table; the code points are divided
+	 * in blocks of {@value #BLOCK_SIZE} and the block index holds per block the offset of its inputs in the blocks
+	 * array. Blocks with the same inputs (e.g. all blocks of unassigned code points) are stored only once, so the table
+	 * is only a fraction of the size of a flat map with an entry for every code point.
+	 * @param lexerDefinition The lexer definition.
+	 * @param model The model to add the block index and the blocks to.
+	 * @param tableData The stream to write the tables to, or {@code null} if the tables are inlined.
+	 */
+	private void createAlphabetMap(LexerDefinition lexerDefinition, Map<String, Object> model,
+			ByteArrayOutputStream tableData) {
+		int[] intervals = lexerDefinition.getAlphabetIntervals();
+		int[] classes = lexerDefinition.getAlphabetClasses();
+
+		// Create the flat map, the input is the class of the interval plus one (0 input will lead to the error state).
+		int[] alphabetMap = new int[CODE_POINT_COUNT];
+		for (int i = 0; i < classes.length; i++) {
+			Arrays.fill(alphabetMap, intervals[2 * i], intervals[2 * i + 1] + 1, classes[i] + 1);
+		}
+
+		// Split the map in blocks and store every distinct block once. The block index holds the number of the block.
+		int[] blockIndex = new int[CODE_POINT_COUNT / BLOCK_SIZE];
+		Map<IntBuffer, Integer> blockOffsets = new HashMap<>();
+		int[] blocks = new int[CODE_POINT_COUNT];
+		int blocksLength = 0;
+		for (int block = 0; block < blockIndex.length; block++) {
+			int[] inputs = Arrays.copyOfRange(alphabetMap, block * BLOCK_SIZE, (block + 1) * BLOCK_SIZE);
+			Integer offset = blockOffsets.putIfAbsent(IntBuffer.wrap(inputs), blocksLength);
+			if (offset == null) {
+				offset = blocksLength;
+				System.arraycopy(inputs, 0, blocks, blocksLength, BLOCK_SIZE);
+				blocksLength += BLOCK_SIZE;
+			}
+			blockIndex[block] = offset / BLOCK_SIZE;
+		}
+
+		model.put("blockShift", Integer.numberOfTrailingZeros(BLOCK_SIZE));
+		model.put("blockMask", BLOCK_SIZE - 1);
+		model.put("blockIndexLength", blockIndex.length);
+		putTable(model, tableData, "blockIndex", blockIndex);
+		model.put("blocksLength", blocksLength);
+		putTable(model, tableData, "blocks", Arrays.copyOf(blocks, blocksLength));
 	}
 
-	private Object createIntervalsString(LexerDefinition lexerDefinition) {
+	/**
+	 * Finds the states that loop to themselves on a run of chars, or bytes for a lexer on UTF-8 bytes. A lexer that
+	 * scans its own buffer skips such a run in a tight loop. This is only done for runs that can be tested with a few
+	 * comparisons; the run or its complement must consist of at most {@value #MAX_SELF_LOOP_RANGES} ranges. For a
+	 * lexer on chars these ranges must also lie below the surrogates, so the run can be tested char by char.
+	 * <br/>
+	 * The states that share the same run share a {@link SelfLoop}, the loops are added to the model together with a
+	 * table that flags per state whether it has a loop.
+	 * @param lexerDefinition The lexer definition.
+	 * @param model The model to add the loops to.
+	 * @param tableData The stream to write the table to, or {@code null} if the table is inlined.
+	 */
+	private void createSelfLoops(LexerDefinition lexerDefinition, Map<String, Object> model,
+			ByteArrayOutputStream tableData) {
+		boolean utf8 = lexerDefinition.isUtf8();
 		int[] intervals = lexerDefinition.getAlphabetIntervals();
+		int[] classes = lexerDefinition.getAlphabetClasses();
+		Automaton dfa = lexerDefinition.getDfa();
+		int[] offsets = dfa.getOffsets();
+		int[] targets = dfa.getTargets();
+		int[] inputs = dfa.getInputs();
+
+		int[] selfLoopStates = new int[dfa.getStateCount()];
+		Map<String, SelfLoop> selfLoops = new LinkedHashMap<>();
+		BitSet loopClasses = new BitSet();
+		for (int state = 0; state < dfa.getStateCount(); state++) {
+			// The transitions of the start state are on lexer classes, the error state is never entered by the scan.
+			if (state == dfa.getStartState() || state == lexerDefinition.getErrorState()) {
+				continue;
+			}
+
+			loopClasses.clear();
+			for (int i = offsets[state]; i < offsets[state + 1]; i++) {
+				if (targets[i] == state) {
+					loopClasses.set(inputs[i]);
+				}
+			}
+			if (loopClasses.isEmpty()) {
+				continue;
+			}
+
+			// The intervals of the alphabet are sorted, merge the adjacent ones into ranges.
+			List<int[]> ranges = new ArrayList<>();
+			for (int i = 0; i < classes.length; i++) {
+				if (loopClasses.get(classes[i])) {
+					addRange(ranges, intervals[2 * i], intervals[2 * i + 1]);
+				}
+			}
+			List<int[]> exitRanges = complementRanges(ranges, utf8 ? BYTE_COUNT : CODE_POINT_COUNT);
+
+			// Test on the ranges that leave the loop, or on the ranges of the loop itself if there are fewer of them.
+			boolean testExits = isTestable(exitRanges, utf8);
+			boolean testLoop = isTestable(ranges, utf8);
+			SelfLoop selfLoop;
+			if (testExits && (!testLoop || exitRanges.size() <= ranges.size())) {
+				selfLoop = selfLoops.computeIfAbsent(rangesTest(exitRanges, utf8),
+						exit -> new SelfLoop(exit, utf8 ? createSwarTest(exitRanges) : null));
+			} else if (testLoop) {
+				String exit = ranges.size() == 1 ? rangeExitTest(ranges.get(0)) : "!(" + rangesTest(ranges, utf8) + ")";
+				selfLoop = selfLoops.computeIfAbsent(exit, key -> new SelfLoop(key, null));
+			} else {
+				continue;
+			}
+			selfLoop.getStates().add(state);
+			selfLoopStates[state] = 1;
+		}
+
+		if (!selfLoops.isEmpty()) {
+			model.put("selfLoops", new ArrayList<>(selfLoops.values()));
+			model.put("swar", selfLoops.values().stream().anyMatch(selfLoop -> selfLoop.getSwar() != null));
+			putTable(model, tableData, "selfLoopStates", selfLoopStates);
+		}
+	}
+
+	/**
+	 * Adds the given range to the sorted list of ranges, merging it with the last range if they are adjacent.
+	 */
+	private static void addRange(List<int[]> ranges, int first, int last) {
+		if (!ranges.isEmpty() && ranges.get(ranges.size() - 1)[1] + 1 == first) {
+			ranges.get(ranges.size() - 1)[1] = last;
+		} else {
+			ranges.add(new int[] { first, last });
+		}
+	}
+
+	/**
+	 * Returns the ranges of the values from 0 up to the given count that are not in the given sorted ranges.
+	 */
+	private static List<int[]> complementRanges(List<int[]> ranges, int count) {
+		List<int[]> complement = new ArrayList<>();
+		int next = 0;
+		for (int[] range : ranges) {
+			if (range[0] > next) {
+				complement.add(new int[] { next, range[0] - 1 });
+			}
+			next = range[1] + 1;
+		}
+		if (next < count) {
+			complement.add(new int[] { next, count - 1 });
+		}
+		return complement;
+	}
+
+	/**
+	 * Returns whether the given ranges can be tested on a single char (or byte) with a few comparisons.
+	 */
+	private static boolean isTestable(List<int[]> ranges, boolean utf8) {
+		return ranges.size() <= MAX_SELF_LOOP_RANGES &&
+				(utf8 || ranges.isEmpty() || ranges.get(ranges.size() - 1)[1] < Character.MIN_SURROGATE);
+	}
+
+	/**
+	 * Returns the Java expression that is true if the char (or byte) {@code c} is in one of the given ranges.
+	 */
+	private static String rangesTest(List<int[]> ranges, boolean utf8) {
+		if (ranges.isEmpty()) {
+			return "false";
+		}
+
+		int max = utf8 ? BYTE_COUNT - 1 : Character.MAX_VALUE;
+		return ranges.stream()
+				.map(range -> range[0] == range[1] ? "c == " + unitLiteral(range[0])
+						: range[0] == 0 ? "c <= " + unitLiteral(range[1])
+						: range[1] == max ? "c >= " + unitLiteral(range[0])
+						: "c >= " + unitLiteral(range[0]) + " && c <= " + unitLiteral(range[1]))
+				.collect(Collectors.joining(" || "));
+	}
 
-		// Fill the array that translates unicode codepoints.
-		for (int i = 0; i < intervals.length; i+=2) {
-			// Add one to the end, because the value is now the end of the range including, but will be used as a non-
-			// including end of the range.
-			intervals[i + 1] += 1;
+	/**
+	 * Returns the Java expression that is true if the char (or byte) {@code c} is not in the given range.
+	 */
+	private static String rangeExitTest(int[] range) {
+		if (range[0] == range[1]) {
+			return "c != " + unitLiteral(range[0]);
 		}
+		String above = "c > " + unitLiteral(range[1]);
+		return range[0] == 0 ? above : "c < " + unitLiteral(range[0]) + " || " + above;
+	}
 
-		return Arrays.stream(intervals)
-				.mapToObj(Objects::toString)
-				.collect(Collectors.joining(", "));
+	/**
+	 * Returns the Java expression that is not 0 if one of the eight bytes of the long {@code word} may be in one of
+	 * the given byte ranges, or {@code null} if there is no such expression. The expression tests the high bit of the
+	 * bytes for the bytes from 0x80, and tests for the presence of every byte below it; this is done for at most
+	 * {@value #MAX_SWAR_BYTES} bytes.
+	 */
+	private static String createSwarTest(List<int[]> ranges) {
+		List<String> terms = new ArrayList<>();
+		boolean highBit = false;
+		for (int[] range : ranges) {
+			for (int b = range[0]; b <= Math.min(range[1], 0x7F); b++) {
+				terms.add("hasByte(word, " + unitLiteral(b) + ")");
+			}
+			highBit |= range[1] >= 0x80;
+		}
+		if (terms.size() > MAX_SWAR_BYTES || (terms.isEmpty() && !highBit)) {
+			return null;
+		}
+		if (highBit) {
+			terms.add(0, "word & 0x8080808080808080L");
+		}
+		return String.join(" | ", terms);
+	}
+
+	/**
+	 * Returns the Java expression for a char or byte; a character literal for printable ASCII, otherwise a hexadecimal
+	 * number.
+	 */
+	private static String unitLiteral(int unit) {
+		if (unit >= 0x20 && unit < 0x7F && unit != '\'' && unit != '\\') {
+			return "'" + (char) unit + "'";
+		}
+		return String.format("0x%X", unit);
 	}
 
 	private SourceFile createTokenTypes(LexerDefinition lexerDefinition)
@@ -168,12 +650,16 @@ public class BasicLexerCodeGenerator extends AbstractFreeMarkerCodeGenerator<Lex
 		Map<String, Object> model = new HashMap<>();
 		model.put("packageName", properties.getPackageName());
 		model.put("lexerName", properties.getLexerName());
+		model.put("lazyPositions", properties.isLazyPositions());
 		return model;
 	}
 
 	private SourceFile createSourceFile(String templateName, String sourceFileName, Map<String, Object> model)
 			throws CodeGenerationException {
-		String dirName = properties.getPackageName().replaceAll("\\.", File.separator);
-		return createSourceFile(templateName, sourceFileName, dirName, model);
+		return createSourceFile(templateName, sourceFileName, packageDirectoryName(), model);
+	}
+
+	private String packageDirectoryName() {
+		return properties.getPackageName().replaceAll("\\.", File.separator);
 	}
 }
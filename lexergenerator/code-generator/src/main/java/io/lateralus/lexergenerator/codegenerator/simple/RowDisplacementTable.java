@@ -0,0 +1,151 @@
+package io.lateralus.lexergenerator.codegenerator.simple;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Compresses a transition table using row displacement (also known as a comb vector), as done by e.g. yacc and flex.
+ * <br/>
+ * Every state gets a default target, which is the most common target of its row. The transitions that do not lead to
+ * the default target are stored in the next array, starting at the base of the state; the check array holds the state
+ * that owns an entry of the next array. The rows are placed such that their entries do not overlap, thus the target of
+ * a state on some input is found by:
+ * <pre>
+ *     int index = BASE[state] + input;
+ *     int target = CHECK[index] == state ? NEXT[index] : DEFAULT[state];
+ * </pre>
+ * Since most states only have a handful of transitions that do not lead to the error state, the size of the compressed
+ * table scales with the number of (non default) transitions instead of with the number of states times the size of
+ * the alphabet.
+ */
+class RowDisplacementTable {
+
+	private final int[] defaults;
+
+	private final int[] bases;
+
+	private int[] next;
+
+	private int[] check;
+
+	/**
+	 * Compresses the given table.
+	 * @param table The table, per state the targets for every input.
+	 */
+	RowDisplacementTable(int[][] table) {
+		int stateCount = table.length;
+		int width = stateCount > 0 ? table[0].length : 0;
+
+		defaults = new int[stateCount];
+		bases = new int[stateCount];
+		next = new int[Math.max(16, width)];
+		check = new int[next.length];
+		Arrays.fill(check, -1);
+
+		// Determine per state the inputs that do not lead to the default target.
+		int[][] rowInputs = new int[stateCount][];
+		for (int state = 0; state < stateCount; state++) {
+			defaults[state] = mostCommonTarget(table[state]);
+			int defaultTarget = defaults[state];
+			int[] row = table[state];
+			rowInputs[state] = IntStream.range(0, width).filter(input -> row[input] != defaultTarget).toArray();
+		}
+
+		// Place the rows with the most entries first, since they are the hardest to fit.
+		Integer[] order = IntStream.range(0, stateCount).boxed().toArray(Integer[]::new);
+		Arrays.sort(order, Comparator.comparingInt((Integer state) -> -rowInputs[state].length));
+
+		int length = 0;
+		int firstFree = 0;
+		for (int state : order) {
+			int[] inputs = rowInputs[state];
+			if (inputs.length == 0) {
+				// The check array never holds this state, so any base will do.
+				continue;
+			}
+
+			// Find the lowest base for which all entries of the row are free.
+			int base = Math.max(0, firstFree - inputs[0]);
+			while (!fits(inputs, base)) {
+				base++;
+			}
+
+			bases[state] = base;
+			for (int input : inputs) {
+				next[base + input] = table[state][input];
+				check[base + input] = state;
+			}
+			length = Math.max(length, base + inputs[inputs.length - 1] + 1);
+
+			while (firstFree < check.length && check[firstFree] != -1) {
+				firstFree++;
+			}
+		}
+
+		// Every base plus any input must be within the arrays.
+		int maxBase = Arrays.stream(bases).max().orElse(0);
+		length = Math.max(length, maxBase + width);
+		next = Arrays.copyOf(next, length);
+		check = Arrays.copyOf(check, length);
+		for (int i = 0; i < length; i++) {
+			if (check[i] == -1) {
+				// Free entries are never used, but must not match any state.
+				next[i] = 0;
+			}
+		}
+	}
+
+	private boolean fits(int[] inputs, int base) {
+		int end = base + inputs[inputs.length - 1] + 1;
+		if (end > check.length) {
+			int newLength = Math.max(end, check.length * 2);
+			next = Arrays.copyOf(next, newLength);
+			int oldLength = check.length;
+			check = Arrays.copyOf(check, newLength);
+			Arrays.fill(check, oldLength, newLength, -1);
+		}
+		for (int input : inputs) {
+			if (check[base + input] != -1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int mostCommonTarget(int[] row) {
+		int[] sorted = row.clone();
+		Arrays.sort(sorted);
+
+		int target = sorted.length > 0 ? sorted[0] : 0;
+		int count = 0;
+		for (int i = 0; i < sorted.length; ) {
+			int j = i;
+			while (j < sorted.length && sorted[j] == sorted[i]) {
+				j++;
+			}
+			if (j - i > count) {
+				count = j - i;
+				target = sorted[i];
+			}
+			i = j;
+		}
+		return target;
+	}
+
+	int[] getDefaults() {
+		return defaults;
+	}
+
+	int[] getBases() {
+		return bases;
+	}
+
+	int[] getNext() {
+		return next;
+	}
+
+	int[] getCheck() {
+		return check;
+	}
+}
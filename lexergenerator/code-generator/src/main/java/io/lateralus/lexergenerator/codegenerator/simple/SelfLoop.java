@@ -0,0 +1,38 @@
+package io.lateralus.lexergenerator.codegenerator.simple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A self-loop of one or more states of the DFA; the run of chars (or bytes) on which the states loop to themselves,
+ * like the bodies of white space, identifiers, strings and comments. The generated lexer skips such a run in a tight
+ * loop that only tests whether the next char leaves the run, instead of making a transition for every code point.
+ */
+public class SelfLoop {
+	private final List<Integer> states = new ArrayList<>();
+	private final String exit;
+	private final String swar;
+
+	/**
+	 * Constructor.
+	 * @param exit The Java expression that is true if the char (or byte) {@code c} leaves the run.
+	 * @param swar The Java expression that is not 0 if one of the eight bytes of the long {@code word} may leave the
+	 *             run, or {@code null} if the run can not be tested eight bytes at a time.
+	 */
+	SelfLoop(String exit, String swar) {
+		this.exit = exit;
+		this.swar = swar;
+	}
+
+	public List<Integer> getStates() {
+		return states;
+	}
+
+	public String getExit() {
+		return exit;
+	}
+
+	public String getSwar() {
+		return swar;
+	}
+}
@@ -1,61 +1,1042 @@
+<#-- The run lengths of a table, either inlined or read from the table resource. -->
+<#macro runLengths name><#if tableResource>readRunLengths()<#else>new int[] { ${.vars[name]} }</#if></#macro>
+<#-- The arguments for the position of a token that is created from the reader. -->
+<#macro position><#if lazyPositions>offset, reader.getLineIndex()<#else>lineNumber, columnNumber</#if></#macro>
+<#-- The access modifier of the tables and methods that the push lexer shares. -->
+<#assign shared = pushLexer?then("", "private ")>
 package ${packageName};
 
+<#if !utf8 || tableResource>
 import java.io.IOException;
+</#if>
+<#if tableResource>
+import java.io.InputStream;
+</#if>
+<#if fuseReader>
+import java.io.Reader;
+</#if>
+<#if utf8>
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+</#if>
 import java.util.Arrays;
+<#if utf8>
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+</#if>
+<#if skipTokens>
+import java.util.function.Consumer;
+</#if>
 
 /**
  * Basic {@link Lexer} implementation.
  */
 public class ${lexerName}Lexer implements Lexer {
 
-	private static final int START_STATE = ${startState};
+	${shared}static final int START_STATE = ${startState?c};
 
-	private static final int ERROR_STATE = ${errorState};
+	${shared}static final int ERROR_STATE = ${errorState?c};
 
-	private static final boolean[] IS_END_STATE = new boolean[] { ${isEndState} };
+	private static final TokenType[] TOKEN_TYPE_VALUES = TokenType.values();
+<#if tableResource>
 
-	private static final TokenType[] TOKEN_TYPES = new TokenType[] { ${tokenTypes} };
+	// The contents of the table resource, the tables are read from it in the order in which they are declared.
+	private static final byte[] TABLE_DATA = readTableData();
 
-	private static final int[] TRANSITIONS;
+	private static int tableDataIndex;
+</#if>
 
-	static {
-		int[] transitions = new int[] { ${transitions} };
+	// Per state the ordinal of the token type it accepts, or 0 (the ordinal of EOF) if the state does not accept.
+	${shared}static final ${tokenTypesType}[] TOKEN_TYPES =
+			inflate${tokenTypesType?cap_first}s(<@runLengths "tokenTypes"/>, ${stateCount?c});
 
-		TRANSITIONS = new int[${stateCount} * ${alphabetSize}];
+<#if compressTransitions>
+	// The transition table, compressed using row displacement. The transitions of a state that do not lead to its
+	// default target are stored in NEXT starting at the base of the state, CHECK holds the state that owns an entry.
+	private static final ${defaultsType}[] DEFAULTS =
+			inflate${defaultsType?cap_first}s(<@runLengths "defaults"/>, ${stateCount?c});
 
-		int k = 0;
-		for (int i = 0; i < transitions.length; i+=2) {
-			for (int j = 0; j < transitions[i]; j++) {
-				TRANSITIONS[k++] = transitions[i + 1];
+	private static final ${basesType}[] BASES = inflate${basesType?cap_first}s(<@runLengths "bases"/>, ${stateCount?c});
+
+	private static final ${nextType}[] NEXT = inflate${nextType?cap_first}s(<@runLengths "next"/>, ${tableLength?c});
+
+	private static final ${checkType}[] CHECK =
+			inflate${checkType?cap_first}s(<@runLengths "check"/>, ${tableLength?c});
+<#else>
+	private static final ${transitionsType}[] TRANSITIONS =
+			inflate${transitionsType?cap_first}s(<@runLengths "transitions"/>, ${stateCount?c} * ${alphabetSize?c});
+</#if>
+
+<#if utf8>
+	// Translates a byte to the correct input element from the alphabet.
+	private static final ${byteMapType}[] BYTE_MAP = inflate${byteMapType?cap_first}s(<@runLengths "byteMap"/>, 256);
+<#else>
+	// Translates a unicode codepoint to the correct input element from the alphabet, using a two-stage table. The block
+	// index holds per block of code points the number of the block in the blocks array that holds its inputs.
+	private static final ${blockIndexType}[] BLOCK_INDEX =
+			inflate${blockIndexType?cap_first}s(<@runLengths "blockIndex"/>, ${blockIndexLength?c});
+
+	private static final ${blocksType}[] BLOCKS =
+			inflate${blocksType?cap_first}s(<@runLengths "blocks"/>, ${blocksLength?c});
+</#if>
+<#if selfLoops??>
+
+	// Per state 1 if the state loops to itself on a run of <#if utf8>bytes<#else>chars</#if> that is skipped at once,
+	// see skipSelfLoop.
+	private static final ${selfLoopStatesType}[] SELF_LOOP_STATES =
+			inflate${selfLoopStatesType?cap_first}s(<@runLengths "selfLoopStates"/>, ${stateCount?c});
+</#if>
+
+<#if utf8>
+	// The size of the chunks in which the input is split for parallel lexing.
+	private static final int CHUNK_SIZE = 1 << 20;
+
+	// The input, the lexer reads it from its position up to its limit.
+	private final ByteBuffer input;
+
+	// The current token, as the indices of its first byte and the byte after its last byte in the input.
+	private int tokenStart;
+
+	private int tokenEnd;
+
+	// The position of tokenStart in the input.
+	private int lineNumber = 1;
+
+	private int columnNumber = 1;
+
+	private boolean skipLF;
+
+	private int lexerState = ${startLexerState?c};
+
+	// The ordinal of the type of the current token.
+	private int tokenType;
+<#if skipTokens>
+
+	// Receives the skip tokens, or null if they are dropped.
+	private Consumer<Token> triviaConsumer;
+</#if>
+
+	/**
+	 * Creates a lexer on the UTF-8 encoded bytes of the given buffer, from its position up to its limit. The position
+	 * of the buffer is not changed, a mapped file can be passed as is.
+	 * @param input The input.
+	 */
+	public ${lexerName}Lexer(final ByteBuffer input) {
+		this.input = input;
+		tokenStart = input.position();
+		tokenEnd = tokenStart;
+	}
+
+	/**
+	 * Creates a lexer on the given UTF-8 encoded bytes.
+	 * @param input The input.
+	 */
+	public ${lexerName}Lexer(final byte[] input) {
+		this(ByteBuffer.wrap(input));
+	}
+
+	/**
+	 * Creates a lexer that starts at the given index of the input, in the given lexer state. The positions are counted
+	 * from that index.
+	 */
+	private ${lexerName}Lexer(final ByteBuffer input, int start, int lexerState, boolean skipLF) {
+		this(input);
+		tokenStart = start;
+		tokenEnd = start;
+		this.lexerState = lexerState;
+		this.skipLF = skipLF;
+	}
+
+	@Override
+	public Token nextToken() throws LexerException {
+		advance();
+		return createToken();
+	}
+
+	/**
+	 * Moves to the next token without creating any objects for it. The token can be inspected with the accessors of
+	 * this lexer, until the next token is requested.
+	 * @return The ordinal of the type of the token.
+	 */
+	public int advance() throws LexerException {
+<#if skipTokens>
+		int ordinal = scan();
+
+		// Consume the skip tokens, they are only passed to the trivia consumer.
+		while (TOKEN_TYPE_VALUES[ordinal].isSkip()) {
+			if (triviaConsumer != null) {
+				triviaConsumer.accept(createToken());
+			}
+			ordinal = scan();
+		}
+		return ordinal;
+<#else>
+		return scan();
+</#if>
+	}
+
+	/**
+	 * Moves to the next token, the skip tokens included.
+	 */
+	private int scan() throws LexerException {
+		moveTokenStart(tokenEnd);
+
+		// Bring the state to the starting state for the current lexer state.
+		int state = nextState(START_STATE, lexerState);
+		int lastMatchState = -1;
+		int lastMatchEnd = tokenStart;
+
+		// The scan works on local copies, the fields are only updated when the token has been found.
+		ByteBuffer input = this.input;
+		int limit = input.limit();
+		int index = tokenStart;
+
+		int b = -1;
+		while (index < limit) {
+			b = input.get(index) & 0xFF;
+
+			// Determine the next state.
+			int newState = nextState(state, translate(b));
+
+			// If we have come in the error state we can stop this loop.
+			if (newState == ERROR_STATE) {
+				break;
+			}
+
+			index++;
+			state = newState;
+<#if selfLoops??>
+
+			// Skip the run of bytes on which the state loops to itself.
+			if (SELF_LOOP_STATES[state] != 0) {
+				index = skipSelfLoop(state, input, index, limit);
+			}
+</#if>
+
+			// Check whether the state is an accepting state.
+			if (TOKEN_TYPES[state] != 0) {
+				lastMatchState = state;
+				lastMatchEnd = index;
+			}
+		}
+
+		// There are three reasons for the above loop to end:
+		// - if a match was found,
+		// - if there are no more items in the input,
+		// - if we ended in an error state.
+
+		if (lastMatchState != -1) {
+			tokenType = TOKEN_TYPES[lastMatchState];
+			tokenEnd = lastMatchEnd;
+			lexerState = TOKEN_TYPE_VALUES[tokenType].lexerState();
+			return tokenType;
+		} else if (index == limit) {
+			tokenType = TokenType.EOF.ordinal();
+			return tokenType;
+		}
+
+		moveTokenStart(index);
+		tokenEnd = index;
+		throw new LexerException(String.format("Unexpected byte 0x%02X.", b), lineNumber, columnNumber);
+	}
+
+	/**
+	 * Creates a token object for the current token.
+	 */
+	private Token createToken() {
+		return new Token(lineNumber, columnNumber, getLexeme(), TOKEN_TYPE_VALUES[tokenType]);
+	}
+
+	/**
+	 * Returns the type of the current token.
+	 * @return The token type.
+	 */
+	public TokenType getTokenType() {
+		return TOKEN_TYPE_VALUES[tokenType];
+	}
+
+	/**
+	 * Returns the index of the first byte of the current token in the input.
+	 * @return The index.
+	 */
+	public int getTokenStart() {
+		return tokenStart;
+	}
+
+	/**
+	 * Returns the index after the last byte of the current token in the input.
+	 * @return The index.
+	 */
+	public int getTokenEnd() {
+		return tokenEnd;
+	}
+
+	/**
+	 * Returns the line number of the start of the current token. Is 1-indexed.
+	 * @return The line number.
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Returns the column number of the start of the current token, in code points. Is 1-indexed.
+	 * @return The column number.
+	 */
+	public int getColumnNumber() {
+		return columnNumber;
+	}
+
+	/**
+	 * Decodes the lexeme of the current token.
+	 * @return The lexeme.
+	 */
+	public String getLexeme() {
+		if (input.hasArray()) {
+			return new String(input.array(), input.arrayOffset() + tokenStart, tokenEnd - tokenStart,
+					StandardCharsets.UTF_8);
+		}
+		ByteBuffer lexeme = input.duplicate();
+		lexeme.limit(tokenEnd).position(tokenStart);
+		return StandardCharsets.UTF_8.decode(lexeme).toString();
+	}
+
+	/**
+	 * Copies the bytes of the lexeme of the current token to the given array.
+	 * @param destination The array to copy the bytes to.
+	 * @param offset The index in the array for the first byte of the lexeme.
+	 * @return The length of the lexeme in bytes.
+	 */
+	public int copyLexemeTo(byte[] destination, int offset) {
+		int length = tokenEnd - tokenStart;
+		ByteBuffer lexeme = input.duplicate();
+		lexeme.limit(tokenEnd).position(tokenStart);
+		lexeme.get(destination, offset, length);
+		return length;
+	}
+
+	/**
+	 * Reads all remaining tokens, up to and including the EOF token.
+	 * @return A buffer with the tokens.
+	 */
+	public TokenBuffer tokenizeAll() throws LexerException {
+		TokenBuffer tokenBuffer = new TokenBuffer();
+		tokenizeInto(tokenBuffer);
+		return tokenBuffer;
+	}
+
+	/**
+	 * Reads all remaining tokens into the given buffer, up to and including the EOF token. The buffer is cleared
+	 * first.
+<#if skipTokens>
+	 * The skip tokens are read into the buffer as well, so the buffer covers the complete input.
+</#if>
+	 * @param tokenBuffer The buffer to fill.
+	 */
+	public void tokenizeInto(TokenBuffer tokenBuffer) throws LexerException {
+		tokenBuffer.clear(input);
+		int eof = TokenType.EOF.ordinal();
+		int tokenType;
+		do {
+			tokenType = scan();
+			tokenBuffer.add(tokenType, tokenStart, tokenEnd - tokenStart, lineNumber, columnNumber);
+		} while (tokenType != eof);
+	}
+
+	/**
+	 * Reads all remaining tokens in parallel on the common pool, in chunks of {@value #CHUNK_SIZE} bytes.
+	 * @return A buffer with the tokens.
+	 * @see #tokenizeParallel(TokenBuffer, ForkJoinPool, int)
+	 */
+	public TokenBuffer tokenizeParallel() throws LexerException {
+		TokenBuffer tokenBuffer = new TokenBuffer();
+		tokenizeParallel(tokenBuffer, ForkJoinPool.commonPool(), CHUNK_SIZE);
+		return tokenBuffer;
+	}
+
+	/**
+	 * Reads all remaining tokens into the given buffer in parallel, with the same result as
+	 * {@link #tokenizeInto(TokenBuffer)}. The input is split into chunks that are lexed speculatively on the given
+	 * pool, each chunk but the first starting in the initial lexer state. The chunks are then stitched together in
+	 * order; from the end of the tokens so far the input is lexed again until it reaches a token of the next chunk that
+	 * starts at the same index in the same lexer state, from there on the tokens of the chunk are taken as they are.
+	 * The buffer is cleared first.
+	 * @param tokenBuffer The buffer to fill.
+	 * @param pool The pool to lex the chunks on.
+	 * @param chunkSize The size of the chunks in bytes.
+	 */
+	public void tokenizeParallel(TokenBuffer tokenBuffer, ForkJoinPool pool, int chunkSize) throws LexerException {
+		moveTokenStart(tokenEnd);
+		int limit = input.limit();
+
+		// Split the remaining input in chunks that start at the start of a code point, and lex them.
+		List<Chunk> chunks = new ArrayList<>();
+		List<ForkJoinTask<?>> tasks = new ArrayList<>();
+		int start = tokenStart;
+		do {
+			int end = limit - start > chunkSize ? start + chunkSize : limit;
+			while (end < limit && (input.get(end) & 0xC0) == 0x80) {
+				end++;
 			}
+			Chunk chunk = chunks.isEmpty()
+					? new Chunk(start, end, lexerState, skipLF)
+					: new Chunk(start, end, ${startLexerState?c}, input.get(start - 1) == '\r');
+			chunks.add(chunk);
+			tasks.add(pool.submit(() -> chunk.lex(input)));
+			start = end;
+		} while (start < limit);
+
+		tokenBuffer.clear(input);
+		int eof = TokenType.EOF.ordinal();
+		boolean done = false;
+		try {
+			for (int i = 0; i < chunks.size(); i++) {
+				Chunk chunk = chunks.get(i);
+				tasks.get(i).join();
+
+				// Lex from the end of the tokens so far, until the tokens converge with the tokens of the chunk.
+				TokenBuffer tokens = chunk.tokens;
+				int k = 0;
+				while (!done && (tokenEnd < chunk.end || chunk.end == limit)) {
+					moveTokenStart(tokenEnd);
+					while (k < tokens.size() && tokens.getStart(k) < tokenStart) {
+						k++;
+					}
+
+					if (k < tokens.size() && tokens.getStart(k) == tokenStart && chunk.lexerStateAt(k) == lexerState) {
+						tokenBuffer.addAll(tokens, k, lineNumber, columnNumber);
+						skipTokens(tokens, k);
+						k = tokens.size();
+					} else {
+						tokenType = scan();
+						tokenBuffer.add(tokenType, tokenStart, tokenEnd - tokenStart, lineNumber, columnNumber);
+					}
+					done = tokenType == eof;
+				}
+			}
+		} catch (LexerException e) {
+			tasks.forEach(task -> task.cancel(false));
+			throw e;
+		}
+	}
+
+	/**
+	 * Moves the token start to the given index, while keeping track of the line and column number.
+	 */
+	private void moveTokenStart(int index) {
+		for (int i = tokenStart; i < index; i++) {
+			byte b = input.get(i);
+			switch (b) {
+				case '\r':
+					skipLF = true;
+					lineNumber++;
+					columnNumber = 1;
+					break;
+				case '\n':
+					if (!skipLF) {
+						lineNumber++;
+					}
+					columnNumber = 1;
+					skipLF = false;
+					break;
+				default:
+					// The continuation bytes are part of the same code point as the byte that starts it.
+					if ((b & 0xC0) != 0x80) {
+						columnNumber++;
+					}
+					skipLF = false;
+					break;
+			}
+		}
+		tokenStart = index;
+	}
+
+	/**
+	 * Moves past the tokens of the given chunk from the given index on, the first of which starts at the token start.
+	 */
+	private void skipTokens(TokenBuffer tokens, int from) {
+		int last = tokens.size() - 1;
+
+		// The positions in the chunk are relative, they change like the positions in the input.
+		int firstLineNumber = tokens.getLineNumber(from);
+		int lastLineNumber = tokens.getLineNumber(last);
+		if (lastLineNumber == firstLineNumber) {
+			columnNumber += tokens.getColumnNumber(last) - tokens.getColumnNumber(from);
+		} else {
+			lineNumber += lastLineNumber - firstLineNumber;
+			columnNumber = tokens.getColumnNumber(last);
+		}
+		if (last > from) {
+			tokenStart = tokens.getStart(last);
+			skipLF = input.get(tokenStart - 1) == '\r';
+		}
+		tokenEnd = tokenStart + tokens.getLength(last);
+
+		tokenType = tokens.getTokenTypeOrdinal(last);
+		if (tokenType != TokenType.EOF.ordinal()) {
+			lexerState = TOKEN_TYPE_VALUES[tokenType].lexerState();
 		}
 	}
 
-	private static final int[] ALPHABET_MAP;
+	/**
+	 * A chunk of the input, with the tokens that start in it as lexed speculatively.
+	 */
+	private static class Chunk {
 
-	static {
-		int[] intervals = new int[] { ${intervals} };
+		private final int start;
 
-		// Translates a unicode codepoint to the correct input element from the alphabet.
-		ALPHABET_MAP = new int[0x110000];
+		private final int end;
 
-		// Fill the array that translates unicode codepoints.
-		for (int i = 0; i < intervals.length; i+=2) {
-			// Get the start and end from the ranges array.
-			int fromIndex = intervals[i];
-			int toIndex = intervals[i + 1];
+		// The lexer state and the carriage return state in which the chunk is lexed.
+		private final int lexerState;
 
-			// The input is the number of the current range plus one (0 input will lead to the error state).
-			int input = (i >> 1) + 1;
+		private final boolean skipLF;
 
-			// Fill the range.
-			Arrays.fill(ALPHABET_MAP, fromIndex, toIndex, input);
+		// The tokens, with their positions relative to the start of the chunk. Lexing stops early at an error, the
+		// stitching then lexes the rest of the chunk again.
+		private final TokenBuffer tokens;
+
+		Chunk(int start, int end, int lexerState, boolean skipLF) {
+			this.start = start;
+			this.end = end;
+			this.lexerState = lexerState;
+			this.skipLF = skipLF;
+			tokens = new TokenBuffer(Math.min(1024, end - start + 1), true);
 		}
+
+		/**
+		 * Lexes the tokens that start in the chunk, or all remaining tokens for the last chunk.
+		 */
+		void lex(ByteBuffer input) {
+			${lexerName}Lexer lexer = new ${lexerName}Lexer(input, start, lexerState, skipLF);
+			tokens.clear(input);
+			int eof = TokenType.EOF.ordinal();
+			try {
+				int tokenType;
+				do {
+					tokenType = lexer.scan();
+					tokens.add(tokenType, lexer.tokenStart, lexer.tokenEnd - lexer.tokenStart, lexer.lineNumber,
+							lexer.columnNumber);
+				} while (tokenType != eof && (lexer.tokenEnd < end || end == input.limit()));
+			} catch (LexerException e) {
+				// The error may be caused by the speculative start, the stitching reports it if it is not.
+			}
+		}
+
+		/**
+		 * Returns the lexer state in which the given token was lexed.
+		 */
+		int lexerStateAt(int index) {
+			return index == 0 ? lexerState : TOKEN_TYPE_VALUES[tokens.getTokenTypeOrdinal(index - 1)].lexerState();
+		}
+	}
+
+<#elseif fuseReader>
+	private final Reader reader;
+
+	// The buffer holds the current token from tokenStart to tokenEnd, followed by the input that has been read ahead up
+	// to end.
+	private char[] buffer;
+
+	private int tokenStart;
+
+	private int tokenEnd;
+
+	private int end;
+
+	private boolean endOfInput;
+
+	// The offset of the start of the buffer in the input.
+	private int bufferOffset;
+
+<#if lazyPositions>
+	private final LineIndex lineIndex = new LineIndex();
+<#else>
+	// The position of tokenStart in the input.
+	private int lineNumber = 1;
+
+	private int columnNumber = 1;
+
+	private boolean skipLF;
+</#if>
+
+	private int lexerState = ${startLexerState?c};
+
+	// The ordinal of the type of the current token.
+	private int tokenType;
+
+	// The offset after the last char that the scan for the current token has seen.
+	private int scanEnd;
+
+	private final CharSequence lexeme = new Lexeme();
+<#if skipTokens>
+
+	// Receives the skip tokens, or null if they are dropped.
+	private Consumer<Token> triviaConsumer;
+</#if>
+
+	public ${lexerName}Lexer(final Reader reader) {
+		this.reader = reader;
+		buffer = new char[8192];
+	}
+
+	/**
+	 * Creates a lexer on the given chars, which hold the complete input from the given offset on. The lexer starts at
+	 * the given index of the chars.
+	 */
+	private ${lexerName}Lexer(final char[] chars, int start, int length, int offset) {
+		reader = null;
+		buffer = chars;
+		tokenStart = start;
+		tokenEnd = start;
+		end = length;
+		endOfInput = true;
+		bufferOffset = offset;
 	}
 
+	@Override
+	public Token nextToken() throws LexerException {
+		advance();
+		return createToken();
+	}
+
+	/**
+	 * Moves to the next token without creating any objects for it. The token can be inspected with the accessors of
+	 * this lexer, until the next token is requested.
+	 * @return The ordinal of the type of the token.
+	 */
+	public int advance() throws LexerException {
+<#if skipTokens>
+		int ordinal = scan();
+
+		// Consume the skip tokens, they are only passed to the trivia consumer.
+		while (TOKEN_TYPE_VALUES[ordinal].isSkip()) {
+			if (triviaConsumer != null) {
+				triviaConsumer.accept(createToken());
+			}
+			ordinal = scan();
+		}
+		return ordinal;
+<#else>
+		return scan();
+</#if>
+	}
+
+	/**
+	 * Moves to the next token, the skip tokens included.
+	 */
+	private int scan() throws LexerException {
+		try {
+			return determineNextToken();
+		} catch (IOException e) {
+			throw new LexerException("An exception has occurred while reading.", getLineNumber(), getColumnNumber(), e);
+		}
+	}
+
+	/**
+	 * Creates a token object for the current token.
+	 */
+	private Token createToken() {
+<#if lazyPositions>
+		return new Token(getTokenStart(), lineIndex, lexeme.toString(), TOKEN_TYPE_VALUES[tokenType]);
+<#else>
+		return new Token(lineNumber, columnNumber, lexeme.toString(), TOKEN_TYPE_VALUES[tokenType]);
+</#if>
+	}
+
+	/**
+	 * Returns the type of the current token.
+	 * @return The token type.
+	 */
+	public TokenType getTokenType() {
+		return TOKEN_TYPE_VALUES[tokenType];
+	}
+
+	/**
+	 * Returns the offset of the start of the current token, in chars from the start of the input.
+	 * @return The offset.
+	 */
+	public int getTokenStart() {
+		return bufferOffset + tokenStart;
+	}
+
+	/**
+	 * Returns the offset after the end of the current token, in chars from the start of the input.
+	 * @return The offset.
+	 */
+	public int getTokenEnd() {
+		return bufferOffset + tokenEnd;
+	}
+
+	/**
+	 * Returns the line number of the start of the current token. Is 1-indexed.
+	 * @return The line number.
+	 */
+	public int getLineNumber() {
+<#if lazyPositions>
+		return lineIndex.getLineNumber(getTokenStart());
+<#else>
+		return lineNumber;
+</#if>
+	}
+
+	/**
+	 * Returns the column number of the start of the current token. Is 1-indexed.
+	 * @return The column number.
+	 */
+	public int getColumnNumber() {
+<#if lazyPositions>
+		return lineIndex.getColumnNumber(getTokenStart());
+<#else>
+		return columnNumber;
+</#if>
+	}
+
+	/**
+	 * Returns a view on the lexeme of the current token. The view does not copy the lexeme, it always shows the lexeme
+	 * of the current token.
+	 * @return The lexeme.
+	 */
+	public CharSequence getLexeme() {
+		return lexeme;
+	}
+
+	/**
+	 * Copies the lexeme of the current token to the given array.
+	 * @param destination The array to copy the lexeme to.
+	 * @param offset The index in the array for the first char of the lexeme.
+	 * @return The length of the lexeme.
+	 */
+	public int copyLexemeTo(char[] destination, int offset) {
+		int length = tokenEnd - tokenStart;
+		System.arraycopy(buffer, tokenStart, destination, offset, length);
+		return length;
+	}
+
+	/**
+	 * Reads all remaining tokens, up to and including the EOF token.
+	 * @return A buffer with the tokens.
+	 */
+	public TokenBuffer tokenizeAll() throws LexerException {
+		TokenBuffer tokenBuffer = new TokenBuffer();
+		tokenizeInto(tokenBuffer);
+		return tokenBuffer;
+	}
+
+	/**
+	 * Reads all remaining tokens into the given buffer, up to and including the EOF token. The buffer is cleared
+	 * first.
+<#if skipTokens>
+	 * The skip tokens are read into the buffer as well, so the buffer covers the complete input.
+</#if>
+	 * @param tokenBuffer The buffer to fill.
+	 */
+	public void tokenizeInto(TokenBuffer tokenBuffer) throws LexerException {
+<#if lazyPositions>
+		tokenBuffer.clear(getTokenEnd(), lineIndex);
+<#else>
+		tokenBuffer.clear(getTokenEnd());
+</#if>
+		int eof = TokenType.EOF.ordinal();
+		int tokenType;
+		do {
+			tokenType = scan();
+<#if lazyPositions>
+			tokenBuffer.add(tokenType, buffer, tokenStart, tokenEnd - tokenStart, scanEnd);
+<#else>
+			tokenBuffer.add(tokenType, buffer, tokenStart, tokenEnd - tokenStart, lineNumber, columnNumber, scanEnd);
+</#if>
+		} while (tokenType != eof);
+	}
+
+	/**
+	 * Updates the tokens of the given buffer after an edit of its input. Only the tokens whose scan has seen the edit
+	 * are lexed again, starting in the lexer state in which they were lexed before. As soon as a new token ends where
+	 * an old token after the edit starts, in the same lexer state, the old tokens from there on are kept and only
+	 * moved. If the edited input can not be lexed the edit is undone before the exception is thrown, so the buffer
+	 * still holds the text and tokens from before the edit.
+	 * @param tokenBuffer The tokens of the complete input, as filled by {@link #tokenizeInto(TokenBuffer)} on a new
+	 * lexer.
+	 * @param offset The offset of the edit in the input.
+	 * @param removedLength The number of chars that the edit removes.
+	 * @param inserted The chars that the edit inserts.
+	 */
+	public static void relex(TokenBuffer tokenBuffer, int offset, int removedLength, CharSequence inserted)
+			throws LexerException {
+		int removedEnd = offset + removedLength;
+		int delta = inserted.length() - removedLength;
+		String removed = tokenBuffer.replaceText(offset, removedLength, inserted);
+
+		// Lex again from the first token whose scan has seen the edit.
+		int first = tokenBuffer.findFirstAffected(offset);
+		int start = tokenBuffer.getStart(first);
+		int textOffset = tokenBuffer.getTextOffset();
+		char[] text = tokenBuffer.getText();
+		${lexerName}Lexer lexer =
+				new ${lexerName}Lexer(text, start - textOffset, tokenBuffer.getTextLength(), textOffset);
+		lexer.lexerState = lexerStateAt(tokenBuffer, first);
+<#if !lazyPositions>
+		lexer.lineNumber = tokenBuffer.getLineNumber(first);
+		lexer.columnNumber = tokenBuffer.getColumnNumber(first);
+		lexer.skipLF = start > textOffset && text[start - textOffset - 1] == '\r';
+</#if>
+
+<#if lazyPositions>
+		TokenBuffer tokens = new TokenBuffer(16);
+		tokens.clear(start, null);
+<#else>
+		TokenBuffer tokens = new TokenBuffer(16, tokenBuffer.isRecordingPositions());
+		tokens.clear(start);
+</#if>
+		int eof = TokenType.EOF.ordinal();
+		int size = tokenBuffer.size();
+		int old = first;
+		try {
+			while (true) {
+				lexer.moveTokenStart(lexer.tokenEnd);
+				int tokenStart = lexer.getTokenStart();
+
+				// Skip the old tokens that can not be kept, they start in the edit or before the new token start.
+				while (old < size && (tokenBuffer.getStart(old) < removedEnd
+						|| tokenBuffer.getStart(old) + delta < tokenStart)) {
+					old++;
+				}
+				if (old < size && tokenBuffer.getStart(old) + delta == tokenStart
+						&& lexerStateAt(tokenBuffer, old) == lexer.lexerState) {
+					break;
+				}
+
+				int tokenType = lexer.scan();
+<#if lazyPositions>
+				tokens.add(tokenType, text, lexer.tokenStart, lexer.tokenEnd - lexer.tokenStart, lexer.scanEnd);
+<#else>
+				tokens.add(tokenType, text, lexer.tokenStart, lexer.tokenEnd - lexer.tokenStart, lexer.lineNumber,
+						lexer.columnNumber, lexer.scanEnd);
+</#if>
+				if (tokenType == eof) {
+					old = size;
+					break;
+				}
+			}
+		} catch (LexerException e) {
+			// The tokens have not been changed yet, so restoring the text brings the buffer back to its old state.
+			tokenBuffer.replaceText(offset, inserted.length(), removed);
+			throw e;
+		}
+
+<#if lazyPositions>
+		tokenBuffer.replaceTokens(first, old, tokens, delta);
+<#else>
+		tokenBuffer.replaceTokens(first, old, tokens, delta, lexer.lineNumber, lexer.columnNumber);
+</#if>
+	}
+
+	/**
+	 * Returns the lexer state in which the given token of the given buffer was lexed, which follows from the type of
+	 * the token before it.
+	 */
+	private static int lexerStateAt(TokenBuffer tokenBuffer, int index) {
+		return index == 0
+				? ${startLexerState?c}
+				: TOKEN_TYPE_VALUES[tokenBuffer.getTokenTypeOrdinal(index - 1)].lexerState();
+	}
+
+	private int determineNextToken() throws IOException, LexerException {
+		moveTokenStart(tokenEnd);
+
+		// Bring the state to the starting state for the current lexer state.
+		int state = nextState(START_STATE, lexerState);
+		int lastMatchState = -1;
+		int lastMatchEnd = tokenStart;
+
+		// The scan works on local copies, the fields are only updated when the token has been found.
+		char[] buffer = this.buffer;
+		int index = tokenStart;
+
+		int t = -1;
+		while (true) {
+
+			// Make sure that the buffer holds a complete code point, reading moves the token to the buffer start.
+			if (end - index < 2 && !endOfInput) {
+				int shift = fillBuffer();
+				buffer = this.buffer;
+				index -= shift;
+				lastMatchEnd -= shift;
+				continue;
+			}
+
+			if (index >= end) {
+				t = -1;
+				break;
+			}
+
+			t = buffer[index];
+			int length = 1;
+			if (Character.isHighSurrogate((char) t)) {
+				t = Character.codePointAt(buffer, index, end);
+				length = Character.charCount(t);
+			}
+
+			// Determine the next state.
+			int newState = nextState(state, translate(t));
+
+			// If we have come in the error state we can stop this loop.
+			if (newState == ERROR_STATE) {
+				break;
+			}
+
+			index += length;
+			state = newState;
+<#if selfLoops??>
+
+			// Skip the run of chars on which the state loops to itself, the buffer is filled again afterwards.
+			if (SELF_LOOP_STATES[state] != 0) {
+				index = skipSelfLoop(state, buffer, index, end);
+			}
+</#if>
+
+			// Check whether the state is an accepting state.
+			if (TOKEN_TYPES[state] != 0) {
+				lastMatchState = state;
+				lastMatchEnd = index;
+			}
+		}
+
+		// There are three reasons for the above loop to end:
+		// - if a match was found,
+		// - if there are no more items in the input,
+		// - if we ended in an error state.
+
+		// The scan has seen the code point at index, which takes at most two chars.
+		scanEnd = bufferOffset + index + 2;
+
+		if (lastMatchState != -1) {
+			tokenType = TOKEN_TYPES[lastMatchState];
+			tokenEnd = lastMatchEnd;
+			lexerState = TOKEN_TYPE_VALUES[tokenType].lexerState();
+			return tokenType;
+		} else if (t == -1) {
+			tokenType = TokenType.EOF.ordinal();
+			return tokenType;
+		}
+
+		moveTokenStart(index);
+		tokenEnd = index;
+		throw new LexerException("Unexpected codepoint '" + new String(Character.toChars(t)) + "'.", getLineNumber(),
+				getColumnNumber());
+	}
+
+<#if lazyPositions>
+	/**
+	 * Moves the token start to the given index.
+	 */
+	private void moveTokenStart(int index) {
+		tokenStart = index;
+	}
+<#else>
+	/**
+	 * Moves the token start to the given index, while keeping track of the line and column number.
+	 */
+	private void moveTokenStart(int index) {
+		for (int i = tokenStart; i < index; i++) {
+			char c = buffer[i];
+			switch (c) {
+				case '\r':
+					skipLF = true;
+					lineNumber++;
+					columnNumber = 1;
+					break;
+				case '\n':
+					if (!skipLF) {
+						lineNumber++;
+					}
+					columnNumber = 1;
+					skipLF = false;
+					break;
+				default:
+					// The low surrogate of a surrogate pair is part of the same code point as the high surrogate.
+					if (!Character.isLowSurrogate(c) || i == tokenStart || !Character.isHighSurrogate(buffer[i - 1])) {
+						columnNumber++;
+					}
+					skipLF = false;
+					break;
+			}
+		}
+		tokenStart = index;
+	}
+</#if>
+
+	/**
+	 * Reads more input into the buffer. The current token is moved to the start of the buffer first, and the buffer
+	 * grows if it is full.
+	 * @return The number of chars that the contents of the buffer have moved towards the start.
+	 */
+	private int fillBuffer() throws IOException {
+		int shift = tokenStart;
+		if (shift > 0) {
+			System.arraycopy(buffer, tokenStart, buffer, 0, end - tokenStart);
+			tokenStart = 0;
+			tokenEnd -= shift;
+			end -= shift;
+			bufferOffset += shift;
+		}
+
+		if (end == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+
+		int length = reader.read(buffer, end, buffer.length - end);
+		if (length < 0) {
+			endOfInput = true;
+		} else {
+<#if lazyPositions>
+			lineIndex.scan(buffer, end, end + length, bufferOffset + end);
+</#if>
+			end += length;
+		}
+		return shift;
+	}
+
+	/**
+	 * A view on the lexeme of the current token.
+	 */
+	private class Lexeme implements CharSequence {
+
+		@Override
+		public int length() {
+			return tokenEnd - tokenStart;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= length()) {
+				throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for length " + length());
+			}
+			return buffer[tokenStart + index];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return toString().subSequence(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return new String(buffer, tokenStart, tokenEnd - tokenStart);
+		}
+	}
+
+<#else>
 	private final LexerReader reader;
 
-	private int lexerState = ${startLexerState};
+	private int lexerState = ${startLexerState?c};
+<#if skipTokens>
+
+	// Receives the skip tokens, or null if they are dropped.
+	private Consumer<Token> triviaConsumer;
+</#if>
 
 	public ${lexerName}Lexer(final LexerReader reader) {
 		this.reader = reader;
@@ -64,28 +1045,46 @@ public class ${lexerName}Lexer implements Lexer {
 	@Override
 	public Token nextToken() throws LexerException {
 		try {
+<#if skipTokens>
+			// The skip tokens are consumed while they are determined.
+			Token token;
+			do {
+				token = determineNextToken();
+			} while (token == null);
+			return token;
+<#else>
 			return determineNextToken();
+</#if>
 		} catch (IOException e) {
 			throw new LexerException("An exception has occurred while reading.", reader.getCurrentLineNumber(),
 					reader.getCurrentColumnNumber(), e);
 		}
 	}
 
+<#if skipTokens>
+	/**
+	 * Determines the next token, or returns null if it is a skip token.
+	 */
+</#if>
 	private Token determineNextToken() throws IOException, LexerException {
 		reader.markStart();
 
+<#if lazyPositions>
+		int offset = reader.getCurrentOffset();
+<#else>
 		int lineNumber = reader.getCurrentLineNumber();
 		int columnNumber = reader.getCurrentColumnNumber();
+</#if>
 
 		// Bring the state to the starting state for the current lexer state.
-		int state = TRANSITIONS[START_STATE + ${stateCount} * lexerState];
+		int state = nextState(START_STATE, lexerState);
 		int lastMatchState = -1;
 
 		int t;
 		while ((t = reader.peek()) != -1) {
 
 			// Determine the next state.
-			int newState = TRANSITIONS[state + ${stateCount} * ALPHABET_MAP[t]];
+			int newState = nextState(state, translate(t));
 
 			// If we have come in the error state we can stop this loop.
 			if (newState == ERROR_STATE) {
@@ -98,7 +1097,7 @@ public class ${lexerName}Lexer implements Lexer {
 			state = newState;
 
 			// Check whether the state is an accepting state.
-			if (IS_END_STATE[state]) {
+			if (TOKEN_TYPES[state] != 0) {
 				lastMatchState = state;
 				reader.markEnd();
 			}
@@ -110,14 +1109,197 @@ public class ${lexerName}Lexer implements Lexer {
 		// - if we ended in an error state.
 
 		if (lastMatchState != -1) {
-			TokenType tokenType = TOKEN_TYPES[lastMatchState];
+			TokenType tokenType = TOKEN_TYPE_VALUES[TOKEN_TYPES[lastMatchState]];
 			lexerState = tokenType.lexerState();
-			return new Token(lineNumber, columnNumber, reader.readLexeme(), tokenType);
+<#if skipTokens>
+			if (tokenType.isSkip()) {
+				if (triviaConsumer != null) {
+					triviaConsumer.accept(new Token(<@position/>, reader.readLexeme(), tokenType));
+				} else {
+					reader.skipLexeme();
+				}
+				return null;
+			}
+</#if>
+			return new Token(<@position/>, reader.readLexeme(), tokenType);
 		} else if (t == -1) {
-			return new Token(lineNumber, columnNumber, reader.readLexeme(), TokenType.EOF);
+			return new Token(<@position/>, reader.readLexeme(), TokenType.EOF);
 		}
 
 		throw new LexerException("Unexpected codepoint '" + new String(Character.toChars(t)) + "'.",
 				reader.getCurrentLineNumber(), reader.getCurrentColumnNumber());
 	}
+
+</#if>
+<#if skipTokens>
+	/**
+	 * Sets the consumer of the skip tokens. The lexer consumes the skip tokens instead of returning them, without
+	 * creating a token object for them unless a consumer is set. The consumer is called for every skip token before the
+	 * next token is returned, for tools that need the trivia (like white space and comments) of the input.
+	 * @param triviaConsumer The consumer, or {@code null} to drop the skip tokens.
+	 */
+	public void setTriviaConsumer(Consumer<Token> triviaConsumer) {
+		this.triviaConsumer = triviaConsumer;
+	}
+
+</#if>
+	/**
+	 * Returns the state that is reached from the given state on the given input.
+	 */
+	${shared}static int nextState(int state, int input) {
+<#if compressTransitions>
+		int index = BASES[state] + input;
+		return CHECK[index] == state ? NEXT[index] : DEFAULTS[state];
+<#else>
+		return TRANSITIONS[state + ${stateCount?c} * input];
+</#if>
+	}
+
+<#if utf8>
+	/**
+	 * Translates a byte to the correct input element from the alphabet.
+	 */
+	${shared}static int translate(int b) {
+		return BYTE_MAP[b];
+	}
+<#else>
+	/**
+	 * Translates a unicode codepoint to the correct input element from the alphabet.
+	 */
+	${shared}static int translate(int codePoint) {
+		return BLOCKS[(BLOCK_INDEX[codePoint >>> ${blockShift}] << ${blockShift}) + (codePoint & ${blockMask})];
+	}
+</#if>
+<#if selfLoops??>
+<#if utf8>
+
+	/**
+	 * Skips the run of bytes from the given index on which the given state loops to itself. Where possible the bytes
+	 * are first tested eight at a time, as long as none of them can leave the run.
+	 * @return The index of the first byte that leaves the run, or the limit.
+	 */
+	private static int skipSelfLoop(int state, ByteBuffer input, int index, int limit) {
+		switch (state) {
+<#list selfLoops as selfLoop>
+<#list selfLoop.states as loopState>
+			case ${loopState?c}:
+</#list>
+<#if selfLoop.swar??>
+				while (limit - index >= 8) {
+					long word = input.getLong(index);
+					if ((${selfLoop.swar}) != 0) {
+						break;
+					}
+					index += 8;
+				}
+</#if>
+				while (index < limit) {
+					int c = input.get(index) & 0xFF;
+					if (${selfLoop.exit}) {
+						break;
+					}
+					index++;
+				}
+				return index;
+</#list>
+			default:
+				return index;
+		}
+	}
+<#if swar>
+
+	/**
+	 * Returns a value that is not 0 if one of the eight bytes of the given word is the given byte.
+	 */
+	private static long hasByte(long word, int b) {
+		long x = word ^ (b * 0x0101010101010101L);
+		return (x - 0x0101010101010101L) & ~x & 0x8080808080808080L;
+	}
+</#if>
+<#else>
+
+	/**
+	 * Skips the run of chars from the given index on which the given state loops to itself.
+	 * @return The index of the first char that leaves the run, or the end.
+	 */
+	private static int skipSelfLoop(int state, char[] buffer, int index, int end) {
+		switch (state) {
+<#list selfLoops as selfLoop>
+<#list selfLoop.states as loopState>
+			case ${loopState?c}:
+</#list>
+				while (index < end) {
+					char c = buffer[index];
+					if (${selfLoop.exit}) {
+						break;
+					}
+					index++;
+				}
+				return index;
+</#list>
+			default:
+				return index;
+		}
+	}
+</#if>
+</#if>
+
+<#if tableResource>
+	/**
+	 * Reads the table resource at once.
+	 */
+	private static byte[] readTableData() {
+		try (InputStream is = ${lexerName}Lexer.class.getResourceAsStream("lexer.table")) {
+			if (is == null) {
+				throw new IllegalArgumentException("Could not find lexer table");
+			}
+			return is.readAllBytes();
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Could not load lexer table", e);
+		}
+	}
+
+	/**
+	 * Reads the run lengths of the next table from the table data; their number followed by the run lengths.
+	 */
+	private static int[] readRunLengths() {
+		int[] runLengths = new int[readInt()];
+		for (int i = 0; i < runLengths.length; i++) {
+			runLengths[i] = readInt();
+		}
+		return runLengths;
+	}
+
+	/**
+	 * Reads a zigzag encoded variable length int from the table data.
+	 */
+	private static int readInt() {
+		byte b = TABLE_DATA[tableDataIndex++];
+		int value = b & 0x7F;
+		while ((b & 0x80) != 0) {
+			b = TABLE_DATA[tableDataIndex++];
+			value <<= 7;
+			value |= (b & 0x7F);
+		}
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+</#if>
+<#list elementTypes as elementType>
+	/**
+	 * Inflates an array that is encoded as (count, value) pairs.
+	 */
+	private static ${elementType}[] inflate${elementType?cap_first}s(int[] runLengths, int length) {
+		${elementType}[] array = new ${elementType}[length];
+
+		int k = 0;
+		for (int i = 0; i < runLengths.length; i+=2) {
+			Arrays.fill(array, k, k += runLengths[i], (${elementType}) runLengths[i + 1]);
+		}
+		return array;
+	}
+<#sep>
+
+</#sep>
+</#list>
 }
@@ -17,12 +17,19 @@ public class LexerReaderImpl implements LexerReader {
 	private int end;
 	private int endRead;
 
+<#if lazyPositions>
+	// The offset of the start of the buffer in the input.
+	private int bufferOffset;
+
+	private final LineIndex lineIndex = new LineIndex();
+<#else>
 	private boolean skipLF;
 
 	private int currentLineNumber = 1;
 	private int currentColumnNumber = 1;
 	private int endLineNumber;
 	private int endColumnNumber;
+</#if>
 
 	public LexerReaderImpl(final Reader delegate) {
 		this.delegate = delegate;
@@ -45,11 +52,10 @@ public class LexerReaderImpl implements LexerReader {
 	public void eat() throws IOException {
 		int codePoint = peek();
 		index += Character.charCount(codePoint);
+<#if !lazyPositions>
 
-		currentColumnNumber++;
 		switch (codePoint) {
 			case -1:
-				currentColumnNumber--;
 				break;
 			case '\r':
 				skipLF = true;
@@ -57,18 +63,42 @@ public class LexerReaderImpl implements LexerReader {
 				currentColumnNumber = 1;
 				break;
 			case '\n':
+				// A line feed directly after a carriage return does not start another line.
 				if (!skipLF) {
 					currentLineNumber++;
-					currentColumnNumber = 1;
 				}
+				currentColumnNumber = 1;
 				skipLF = false;
 				break;
 			default:
-				// Default do nothing.
+				currentColumnNumber++;
+				skipLF = false;
 				break;
 		}
+</#if>
+	}
+
+<#if lazyPositions>
+	@Override
+	public int getCurrentLineNumber() {
+		return lineIndex.getLineNumber(getCurrentOffset());
+	}
+
+	@Override
+	public int getCurrentColumnNumber() {
+		return lineIndex.getColumnNumber(getCurrentOffset());
 	}
 
+	@Override
+	public int getCurrentOffset() {
+		return bufferOffset + index;
+	}
+
+	@Override
+	public LineIndex getLineIndex() {
+		return lineIndex;
+	}
+<#else>
 	@Override
 	public int getCurrentLineNumber() {
 		return currentLineNumber;
@@ -78,13 +108,21 @@ public class LexerReaderImpl implements LexerReader {
 	public int getCurrentColumnNumber() {
 		return currentColumnNumber;
 	}
+</#if>
 
 	@Override
 	public String readLexeme() {
+		skipLexeme();
+		return new String(buffer, markStart, markEnd - markStart);
+	}
+
+	@Override
+	public void skipLexeme() {
 		index = markEnd;
+<#if !lazyPositions>
 		currentLineNumber = endLineNumber;
 		currentColumnNumber = endColumnNumber;
-		return new String(buffer, markStart, markEnd - markStart);
+</#if>
 	}
 
 	@Override
@@ -95,8 +133,10 @@ public class LexerReaderImpl implements LexerReader {
 	@Override
 	public void markEnd() {
 		markEnd = index;
+<#if !lazyPositions>
 		endLineNumber = currentLineNumber;
 		endColumnNumber = currentColumnNumber;
+</#if>
 	}
 
 	private void fillBuffer() throws IOException {
@@ -111,6 +151,11 @@ public class LexerReaderImpl implements LexerReader {
 		if (len < 0) {
 			return;
 		}
+<#if lazyPositions>
+
+		// Index the lines in the chars that have just been read.
+		lineIndex.scan(buffer, endRead, endRead + len, bufferOffset + endRead);
+</#if>
 
 		end = endRead += len;
 		if (Character.isHighSurrogate(buffer[endRead - 1])) {
@@ -127,7 +172,11 @@ public class LexerReaderImpl implements LexerReader {
 		// If the markStart is higher then 0, we can shift the contents of the array towards 0.
 		if (markStart > 0) {
 			System.arraycopy(buffer, markStart, buffer, 0, endRead - markStart);
+<#if lazyPositions>
+			bufferOffset += markStart;
+</#if>
 			index -= markStart;
+			markEnd -= markStart;
 			end -= markStart;
 			endRead -= markStart;
 			markStart = 0; // markStart -= markStart
@@ -30,6 +30,20 @@ public interface LexerReader {
 	 * @return the column number.
 	 */
 	int getCurrentColumnNumber();
+<#if lazyPositions>
+
+	/**
+	 * Returns the offset of the next codepoint to be read, in chars from the start of the input.
+	 * @return the offset.
+	 */
+	int getCurrentOffset();
+
+	/**
+	 * Returns the index of the lines of the input that has been read so far.
+	 * @return the line index.
+	 */
+	LineIndex getLineIndex();
+</#if>
 
 	/**
 	 * Returns the actual matched lexeme.
@@ -37,6 +51,13 @@ public interface LexerReader {
 	 */
 	String readLexeme();
 
+	/**
+	 * Moves past the actual matched lexeme, like {@link #readLexeme()} but without returning it.
+	 */
+	default void skipLexeme() {
+		readLexeme();
+	}
+
 	/**
 	 * Marks the start of a new lexeme.
 	 */
@@ -0,0 +1,150 @@
+package ${packageName};
+
+import java.util.Arrays;
+
+/**
+ * Holds the offsets at which the lines of the input start, so the line and column numbers of an offset can be looked
+ * up when they are needed. A line ends at a carriage return, a line feed or a carriage return followed by a line feed.
+ * The column numbers count chars, so a surrogate pair takes two columns.
+ */
+public class LineIndex {
+
+	// The offsets at which the lines start, in increasing order. The first line starts at offset 0.
+	private int[] lineStarts = new int[256];
+	private int lineCount = 1;
+
+	private boolean skipLF;
+
+	/**
+	 * Creates an empty index, which holds the start of the first line.
+	 */
+	public LineIndex() {
+	}
+
+	/**
+	 * Creates a copy of the given index.
+	 */
+	LineIndex(LineIndex lineIndex) {
+		lineStarts = Arrays.copyOf(lineIndex.lineStarts, lineIndex.lineStarts.length);
+		lineCount = lineIndex.lineCount;
+		skipLF = lineIndex.skipLF;
+	}
+
+	/**
+	 * Adds the lines that start in the given range of chars to the index. The ranges must be added in the order of the
+	 * input, without gaps.
+	 * @param chars The chars.
+	 * @param start The index of the first char of the range.
+	 * @param end The index after the last char of the range.
+	 * @param offset The offset of the first char of the range in the input.
+	 */
+	public void scan(char[] chars, int start, int end, int offset) {
+		int delta = offset - start;
+		for (int i = start; i < end; i++) {
+			char c = chars[i];
+			if (c > '\r') {
+				skipLF = false;
+			} else if (c == '\r') {
+				addLineStart(i + 1 + delta);
+				skipLF = true;
+			} else if (c == '\n') {
+				// A line feed directly after a carriage return moves the start of the line past the line feed.
+				if (skipLF) {
+					lineStarts[lineCount - 1] = i + 1 + delta;
+				} else {
+					addLineStart(i + 1 + delta);
+				}
+				skipLF = false;
+			} else {
+				skipLF = false;
+			}
+		}
+	}
+
+	/**
+	 * Updates the index after an edit of the input, which replaced the given number of chars at the given offset. The
+	 * line starts after the edit move by the change in length, only the chars around the edit are scanned again.
+	 * @param chars The chars of the input after the edit.
+	 * @param charsOffset The offset of the first of the chars in the input.
+	 * @param length The number of chars.
+	 * @param offset The offset of the edit in the input.
+	 * @param removedLength The number of chars that the edit removed.
+	 * @param insertedLength The number of chars that the edit inserted.
+	 */
+	void replace(char[] chars, int charsOffset, int length, int offset, int removedLength, int insertedLength) {
+		// A line start depends on the char before it and on the char at it, as a carriage return followed by a line
+		// feed is one line break. The line starts from the edit up to and including its end may change.
+		int from = Math.max(offset, charsOffset + 1);
+		int to = Math.min(offset + insertedLength, charsOffset + length);
+		int first = indexOf(from);
+		int after = indexOf(offset + removedLength + 1);
+
+		int count = 0;
+		for (int i = from; i <= to; i++) {
+			if (isLineStart(chars, charsOffset, length, i)) {
+				count++;
+			}
+		}
+
+		int tailLength = lineCount - after;
+		int tail = first + count;
+		if (tail + tailLength > lineStarts.length) {
+			lineStarts = Arrays.copyOf(lineStarts, Math.max(tail + tailLength, lineStarts.length * 2));
+		}
+		System.arraycopy(lineStarts, after, lineStarts, tail, tailLength);
+		int delta = insertedLength - removedLength;
+		for (int i = tail; i < tail + tailLength; i++) {
+			lineStarts[i] += delta;
+		}
+		lineCount = tail + tailLength;
+
+		int index = first;
+		for (int i = from; i <= to; i++) {
+			if (isLineStart(chars, charsOffset, length, i)) {
+				lineStarts[index++] = i;
+			}
+		}
+	}
+
+	/**
+	 * Returns the line number of the given offset. Is 1-indexed.
+	 * @param offset The offset in the input.
+	 * @return The line number.
+	 */
+	public int getLineNumber(int offset) {
+		int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+		return index >= 0 ? index + 1 : -(index + 1);
+	}
+
+	/**
+	 * Returns the column number of the given offset. Is 1-indexed.
+	 * @param offset The offset in the input.
+	 * @return The column number.
+	 */
+	public int getColumnNumber(int offset) {
+		return offset - lineStarts[getLineNumber(offset) - 1] + 1;
+	}
+
+	/**
+	 * Returns the index of the first line start at or after the given offset.
+	 */
+	private int indexOf(int offset) {
+		int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+		return index >= 0 ? index : -(index + 1);
+	}
+
+	/**
+	 * Returns whether a line starts at the given offset, which is after the first of the given chars.
+	 */
+	private static boolean isLineStart(char[] chars, int charsOffset, int length, int offset) {
+		char c = chars[offset - 1 - charsOffset];
+		return c == '\n' || c == '\r' && (offset == charsOffset + length || chars[offset - charsOffset] != '\n');
+	}
+
+	private void addLineStart(int offset) {
+		if (lineCount == lineStarts.length) {
+			lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+		}
+		lineStarts[lineCount++] = offset;
+	}
+}
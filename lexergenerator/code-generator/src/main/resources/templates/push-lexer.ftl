@@ -0,0 +1,299 @@
+<#-- The type of the units of the input. -->
+<#assign unit = utf8?then("byte", "char")>
+package ${packageName};
+
+<#if utf8>
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+</#if>
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Lexer to which the input is fed in chunks, for input that arrives piece by piece. Every token that is complete is
+ * passed to a consumer, the state of the token in progress is kept until the next chunk arrives. A token is complete
+ * when the next <#if utf8>byte<#else>code point</#if> can not extend it, so the tokens are the same as those of
+ * {@link ${lexerName}Lexer} on the complete input. The lexer uses the tables of {@link ${lexerName}Lexer}.
+ */
+public class ${lexerName}PushLexer {
+
+	private static final TokenType[] TOKEN_TYPE_VALUES = TokenType.values();
+
+	private final Consumer<Token> consumer;
+<#if skipTokens>
+
+	// Receives the skip tokens, or null if they are dropped.
+	private Consumer<Token> triviaConsumer;
+</#if>
+
+	// The buffer holds the current token from tokenStart, followed by the input that has been fed after it up to end.
+	private ${unit}[] buffer = new ${unit}[1024];
+
+	private int tokenStart;
+
+	private int end;
+
+	private boolean endOfInput;
+
+	// The offset of the start of the buffer in the input.
+	private int bufferOffset;
+
+<#if lazyPositions>
+	private final LineIndex lineIndex = new LineIndex();
+<#else>
+	// The position of tokenStart in the input.
+	private int lineNumber = 1;
+
+	private int columnNumber = 1;
+
+	private boolean skipLF;
+</#if>
+
+	private int lexerState = ${startLexerState?c};
+
+	// The state of the scan for the current token, which continues where it stopped when the next chunk arrives. The
+	// state is -1 if the scan has not started yet.
+	private int state = -1;
+
+	private int index;
+
+	private int lastMatchState;
+
+	private int lastMatchEnd;
+
+	/**
+	 * Creates a push lexer.
+	 * @param consumer The consumer of the tokens, which is called from {@link #feed} and {@link #endOfInput()}.
+	 */
+	public ${lexerName}PushLexer(final Consumer<Token> consumer) {
+		this.consumer = consumer;
+	}
+<#if skipTokens>
+
+	/**
+	 * Sets the consumer of the skip tokens. The skip tokens are not passed to the consumer of the tokens, and no token
+	 * object is created for them unless this consumer is set.
+	 * @param triviaConsumer The consumer, or {@code null} to drop the skip tokens.
+	 */
+	public void setTriviaConsumer(final Consumer<Token> triviaConsumer) {
+		this.triviaConsumer = triviaConsumer;
+	}
+</#if>
+<#if utf8>
+
+	/**
+	 * Feeds the next chunk of the input, the UTF-8 encoded bytes of the given buffer from its position up to its limit.
+	 * The bytes are copied, the position of the buffer moves to its limit.
+	 * @param chunk The chunk.
+	 */
+	public void feed(final ByteBuffer chunk) throws LexerException {
+		int length = chunk.remaining();
+		ensureCapacity(length);
+		chunk.get(buffer, end, length);
+		end += length;
+		scan();
+	}
+<#else>
+
+	/**
+	 * Feeds the next chunk of the input. The chars are copied, so the array can be reused for the next chunk.
+	 * @param chunk The array that holds the chunk.
+	 * @param offset The index of the first char of the chunk.
+	 * @param length The number of chars of the chunk.
+	 */
+	public void feed(final char[] chunk, int offset, int length) throws LexerException {
+		ensureCapacity(length);
+		System.arraycopy(chunk, offset, buffer, end, length);
+<#if lazyPositions>
+		lineIndex.scan(buffer, end, end + length, bufferOffset + end);
+</#if>
+		end += length;
+		scan();
+	}
+</#if>
+
+	/**
+	 * Marks the end of the input. The remaining tokens are passed to the consumer, the last of which is the EOF token.
+	 */
+	public void endOfInput() throws LexerException {
+		checkNotEnded();
+		endOfInput = true;
+		scan();
+	}
+
+	/**
+	 * Scans the buffer for complete tokens and passes them to the consumer. The scan stops when it reaches the end of
+	 * the buffer before the end of the input, in the middle of a token.
+	 */
+	private void scan() throws LexerException {
+		while (true) {
+			if (state == -1) {
+				// Bring the state to the starting state for the current lexer state.
+				state = ${lexerName}Lexer.nextState(${lexerName}Lexer.START_STATE, lexerState);
+				index = tokenStart;
+				lastMatchState = -1;
+				lastMatchEnd = tokenStart;
+			}
+
+			int t = -1;
+			while (index < end) {
+<#if utf8>
+				t = buffer[index] & 0xFF;
+				int length = 1;
+<#else>
+				t = buffer[index];
+				int length = 1;
+				if (Character.isHighSurrogate((char) t)) {
+					// Wait for the low surrogate.
+					if (index + 1 == end && !endOfInput) {
+						return;
+					}
+					t = Character.codePointAt(buffer, index, end);
+					length = Character.charCount(t);
+				}
+</#if>
+
+				// Determine the next state.
+				int newState = ${lexerName}Lexer.nextState(state, ${lexerName}Lexer.translate(t));
+
+				// If we have come in the error state the token is complete.
+				if (newState == ${lexerName}Lexer.ERROR_STATE) {
+					break;
+				}
+
+				index += length;
+				state = newState;
+
+				// Check whether the state is an accepting state.
+				if (${lexerName}Lexer.TOKEN_TYPES[state] != 0) {
+					lastMatchState = state;
+					lastMatchEnd = index;
+				}
+			}
+
+			// The token may continue in the next chunk.
+			if (index == end && !endOfInput) {
+				return;
+			}
+
+			state = -1;
+			if (lastMatchState != -1) {
+				TokenType tokenType = TOKEN_TYPE_VALUES[${lexerName}Lexer.TOKEN_TYPES[lastMatchState]];
+				lexerState = tokenType.lexerState();
+<#if skipTokens>
+				if (!tokenType.isSkip()) {
+					consumer.accept(createToken(lastMatchEnd, tokenType));
+				} else if (triviaConsumer != null) {
+					triviaConsumer.accept(createToken(lastMatchEnd, tokenType));
+				}
+<#else>
+				consumer.accept(createToken(lastMatchEnd, tokenType));
+</#if>
+				moveTokenStart(lastMatchEnd);
+			} else if (index == end) {
+				consumer.accept(createToken(tokenStart, TokenType.EOF));
+				return;
+			} else {
+				moveTokenStart(index);
+<#if utf8>
+				throw new LexerException(String.format("Unexpected byte 0x%02X.", t), lineNumber, columnNumber);
+<#elseif lazyPositions>
+				throw new LexerException("Unexpected codepoint '" + new String(Character.toChars(t)) + "'.",
+						lineIndex.getLineNumber(bufferOffset + tokenStart),
+						lineIndex.getColumnNumber(bufferOffset + tokenStart));
+<#else>
+				throw new LexerException("Unexpected codepoint '" + new String(Character.toChars(t)) + "'.", lineNumber,
+						columnNumber);
+</#if>
+			}
+		}
+	}
+
+	/**
+	 * Creates the token from the token start up to the given index.
+	 */
+	private Token createToken(int tokenEnd, TokenType tokenType) {
+<#if utf8>
+		String lexeme = new String(buffer, tokenStart, tokenEnd - tokenStart, StandardCharsets.UTF_8);
+<#else>
+		String lexeme = new String(buffer, tokenStart, tokenEnd - tokenStart);
+</#if>
+<#if lazyPositions>
+		return new Token(bufferOffset + tokenStart, lineIndex, lexeme, tokenType);
+<#else>
+		return new Token(lineNumber, columnNumber, lexeme, tokenType);
+</#if>
+	}
+
+<#if lazyPositions>
+	/**
+	 * Moves the token start to the given index.
+	 */
+	private void moveTokenStart(int index) {
+		tokenStart = index;
+	}
+<#else>
+	/**
+	 * Moves the token start to the given index, while keeping track of the line and column number.
+	 */
+	private void moveTokenStart(int index) {
+		for (int i = tokenStart; i < index; i++) {
+			${unit} c = buffer[i];
+			switch (c) {
+				case '\r':
+					skipLF = true;
+					lineNumber++;
+					columnNumber = 1;
+					break;
+				case '\n':
+					if (!skipLF) {
+						lineNumber++;
+					}
+					columnNumber = 1;
+					skipLF = false;
+					break;
+				default:
+<#if utf8>
+					// The continuation bytes are part of the same code point as the byte that starts it.
+					if ((c & 0xC0) != 0x80) {
+<#else>
+					// The low surrogate of a surrogate pair is part of the same code point as the high surrogate.
+					if (!Character.isLowSurrogate(c) || i == tokenStart || !Character.isHighSurrogate(buffer[i - 1])) {
+</#if>
+						columnNumber++;
+					}
+					skipLF = false;
+					break;
+			}
+		}
+		tokenStart = index;
+	}
+</#if>
+
+	/**
+	 * Makes room for the given number of ${unit}s at the end of the buffer. The current token is moved to the start of
+	 * the buffer first, and the buffer grows if it is still too small.
+	 */
+	private void ensureCapacity(int length) {
+		checkNotEnded();
+		int shift = tokenStart;
+		if (shift > 0) {
+			System.arraycopy(buffer, tokenStart, buffer, 0, end - tokenStart);
+			tokenStart = 0;
+			end -= shift;
+			index -= shift;
+			lastMatchEnd -= shift;
+			bufferOffset += shift;
+		}
+
+		if (end + length > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(end + length, buffer.length * 2));
+		}
+	}
+
+	private void checkNotEnded() {
+		if (endOfInput) {
+			throw new IllegalStateException("The end of the input has already been reached.");
+		}
+	}
+}
@@ -0,0 +1,493 @@
+package ${packageName};
+
+<#if utf8>
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+</#if>
+import java.util.Arrays;
+
+/**
+ * Holds the tokens of an input in parallel arrays of primitives, as filled by
+<#if utf8>
+ * {@link ${lexerName}Lexer#tokenizeInto(TokenBuffer)}. The tokens are numbered from 0 in the order of the input, the
+ * last token is the EOF token. The buffer refers to the input of the lexer, so the lexemes are only decoded when they
+ * are requested.
+<#else>
+ * {@link ${lexerName}Lexer#tokenizeInto(TokenBuffer)}. The tokens are numbered from 0 in the order of the input, the
+ * last token is the EOF token. The buffer also holds the text of the tokens, so the lexemes are only turned into
+ * strings when they are requested.
+</#if>
+ * <br/>
+ * The buffer also holds the skip tokens, which the lexer does not return. {@link TokenType#isSkip()} tells them apart.
+ */
+public class TokenBuffer {
+
+	private static final TokenType[] TOKEN_TYPE_VALUES = TokenType.values();
+
+	private int size;
+
+<#if utf8>
+	// Per token the ordinal of its type, the index of its first byte in the input and its length in bytes.
+<#else>
+	// Per token the ordinal of its type, the offset of its start in the input and its length in chars.
+</#if>
+	private int[] tokenTypes;
+	private int[] starts;
+	private int[] lengths;
+<#if lazyPositions>
+
+	private LineIndex lineIndex;
+
+	// Whether the line index is a copy of the index of the lexer, which the edits can update.
+	private boolean ownsLineIndex;
+<#else>
+
+	// Per token the line and column number of its start, or null if the positions are not recorded.
+	private int[] lineNumbers;
+	private int[] columnNumbers;
+</#if>
+<#if utf8>
+
+	// The input of the tokens.
+	private ByteBuffer input;
+<#else>
+
+	// The text of the tokens, the first char is at textOffset in the input.
+	private char[] text;
+	private int textOffset;
+	private int textLength;
+
+	// Per token the offset after the last char that the scans up to and including the token have seen.
+	private int[] scanEnds;
+</#if>
+
+	/**
+<#if lazyPositions>
+	 * Creates a buffer for 1024 tokens, the buffer grows when needed.
+<#else>
+	 * Creates a buffer for 1024 tokens that records the positions of the tokens, the buffer grows when needed.
+</#if>
+	 */
+	public TokenBuffer() {
+		this(1024<#if !lazyPositions>, true</#if>);
+	}
+
+	/**
+	 * Creates a buffer, the buffer grows when needed.
+	 * @param capacity The number of tokens that the buffer can initially hold.
+<#if !lazyPositions>
+	 * @param recordPositions Whether to record the line and column numbers of the tokens.
+</#if>
+	 */
+	public TokenBuffer(int capacity<#if !lazyPositions>, boolean recordPositions</#if>) {
+		tokenTypes = new int[capacity];
+		starts = new int[capacity];
+		lengths = new int[capacity];
+<#if !lazyPositions>
+		if (recordPositions) {
+			lineNumbers = new int[capacity];
+			columnNumbers = new int[capacity];
+		}
+</#if>
+<#if !utf8>
+		text = new char[capacity * 8];
+		scanEnds = new int[capacity];
+</#if>
+	}
+
+	/**
+	 * Returns the number of tokens in the buffer.
+	 * @return The number of tokens.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the type of the given token.
+	 * @param index The number of the token.
+	 * @return The token type.
+	 */
+	public TokenType getTokenType(int index) {
+		return TOKEN_TYPE_VALUES[tokenTypes[index]];
+	}
+
+	/**
+	 * Returns the ordinal of the type of the given token.
+	 * @param index The number of the token.
+	 * @return The ordinal of the token type.
+	 */
+	public int getTokenTypeOrdinal(int index) {
+		return tokenTypes[index];
+	}
+
+	/**
+<#if utf8>
+	 * Returns the index of the first byte of the given token in the input.
+<#else>
+	 * Returns the offset of the start of the given token, in chars from the start of the input.
+</#if>
+	 * @param index The number of the token.
+	 * @return The offset.
+	 */
+	public int getStart(int index) {
+		return starts[index];
+	}
+
+	/**
+	 * Returns the length of the given token in <#if utf8>bytes<#else>chars</#if>.
+	 * @param index The number of the token.
+	 * @return The length.
+	 */
+	public int getLength(int index) {
+		return lengths[index];
+	}
+
+	/**
+<#if lazyPositions>
+	 * Returns the line number of the start of the given token.
+<#else>
+	 * Returns the line number of the start of the given token, or 0 if the positions are not recorded.
+</#if>
+	 * @param index The number of the token.
+	 * @return The line number.
+	 */
+	public int getLineNumber(int index) {
+<#if lazyPositions>
+		return lineIndex.getLineNumber(starts[index]);
+<#else>
+		return lineNumbers != null ? lineNumbers[index] : 0;
+</#if>
+	}
+
+	/**
+<#if lazyPositions>
+	 * Returns the column number of the start of the given token.
+<#else>
+	 * Returns the column number of the start of the given token, or 0 if the positions are not recorded.
+</#if>
+	 * @param index The number of the token.
+	 * @return The column number.
+	 */
+	public int getColumnNumber(int index) {
+<#if lazyPositions>
+		return lineIndex.getColumnNumber(starts[index]);
+<#else>
+		return columnNumbers != null ? columnNumbers[index] : 0;
+</#if>
+	}
+
+	/**
+<#if utf8>
+	 * Decodes the lexeme of the given token.
+<#else>
+	 * Returns the lexeme of the given token.
+</#if>
+	 * @param index The number of the token.
+	 * @return The lexeme.
+	 */
+	public String getLexeme(int index) {
+<#if utf8>
+		if (input.hasArray()) {
+			return new String(input.array(), input.arrayOffset() + starts[index], lengths[index],
+					StandardCharsets.UTF_8);
+		}
+		ByteBuffer lexeme = input.duplicate();
+		lexeme.limit(starts[index] + lengths[index]).position(starts[index]);
+		return StandardCharsets.UTF_8.decode(lexeme).toString();
+<#else>
+		return new String(text, starts[index] - textOffset, lengths[index]);
+</#if>
+	}
+
+	/**
+<#if utf8>
+	 * Copies the bytes of the lexeme of the given token to the given array.
+	 * @param index The number of the token.
+	 * @param destination The array to copy the bytes to.
+	 * @param offset The index in the array for the first byte of the lexeme.
+	 * @return The length of the lexeme in bytes.
+	 */
+	public int copyLexemeTo(int index, byte[] destination, int offset) {
+		ByteBuffer lexeme = input.duplicate();
+		lexeme.limit(starts[index] + lengths[index]).position(starts[index]);
+		lexeme.get(destination, offset, lengths[index]);
+		return lengths[index];
+	}
+<#else>
+	 * Copies the lexeme of the given token to the given array.
+	 * @param index The number of the token.
+	 * @param destination The array to copy the lexeme to.
+	 * @param offset The index in the array for the first char of the lexeme.
+	 * @return The length of the lexeme.
+	 */
+	public int copyLexemeTo(int index, char[] destination, int offset) {
+		System.arraycopy(text, starts[index] - textOffset, destination, offset, lengths[index]);
+		return lengths[index];
+	}
+</#if>
+
+	/**
+	 * Creates a {@link Token} for the given token.
+	 * @param index The number of the token.
+	 * @return The token.
+	 */
+	public Token getToken(int index) {
+<#if lazyPositions>
+		return new Token(starts[index], lineIndex, getLexeme(index), getTokenType(index));
+<#else>
+		return new Token(getLineNumber(index), getColumnNumber(index), getLexeme(index), getTokenType(index));
+</#if>
+	}
+<#if !lazyPositions>
+
+	/**
+	 * Returns whether the buffer records the positions of the tokens.
+	 */
+	boolean isRecordingPositions() {
+		return lineNumbers != null;
+	}
+</#if>
+<#if utf8>
+
+	/**
+	 * Removes all tokens, the tokens that are added next are part of the given input.
+	 */
+	void clear(ByteBuffer input) {
+		size = 0;
+		this.input = input;
+	}
+
+	/**
+	 * Adds a token.
+	 */
+	void add(int tokenType, int start, int length, int lineNumber, int columnNumber) {
+		ensureCapacity(size + 1);
+
+		tokenTypes[size] = tokenType;
+		starts[size] = start;
+		lengths[size] = length;
+		if (lineNumbers != null) {
+			lineNumbers[size] = lineNumber;
+			columnNumbers[size] = columnNumber;
+		}
+		size++;
+	}
+
+	/**
+	 * Adds the tokens of the given buffer from the given index on. The positions of these tokens are relative; the
+	 * first of them moves to the given line and column number and the others move along, where the column numbers only
+	 * change on the line of the first token.
+	 */
+	void addAll(TokenBuffer tokens, int from, int lineNumber, int columnNumber) {
+		int count = tokens.size - from;
+		ensureCapacity(size + count);
+
+		System.arraycopy(tokens.tokenTypes, from, tokenTypes, size, count);
+		System.arraycopy(tokens.starts, from, starts, size, count);
+		System.arraycopy(tokens.lengths, from, lengths, size, count);
+		if (lineNumbers != null) {
+			int firstLineNumber = tokens.lineNumbers[from];
+			int columnDelta = columnNumber - tokens.columnNumbers[from];
+			for (int i = 0; i < count; i++) {
+				int line = tokens.lineNumbers[from + i];
+				lineNumbers[size + i] = lineNumber + line - firstLineNumber;
+				columnNumbers[size + i] = tokens.columnNumbers[from + i] + (line == firstLineNumber ? columnDelta : 0);
+			}
+		}
+		size += count;
+	}
+<#else>
+
+	/**
+	 * Returns the text of the tokens, the first char is at the text offset in the input.
+	 */
+	char[] getText() {
+		return text;
+	}
+
+	int getTextOffset() {
+		return textOffset;
+	}
+
+	int getTextLength() {
+		return textLength;
+	}
+
+	/**
+	 * Returns the index of the first token whose scan, or the scan of a token before it, has seen the char at the given
+	 * offset or a char after it.
+	 */
+	int findFirstAffected(int offset) {
+		int low = 0;
+		int high = size - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (scanEnds[middle] > offset) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Removes all tokens, the next token that is added starts at the given offset.
+	 */
+	void clear(int offset<#if lazyPositions>, LineIndex lineIndex</#if>) {
+		size = 0;
+		textOffset = offset;
+		textLength = 0;
+<#if lazyPositions>
+		this.lineIndex = lineIndex;
+		ownsLineIndex = false;
+</#if>
+	}
+
+	/**
+	 * Adds a token, which starts directly after the previous token.
+	 */
+<#if lazyPositions>
+	void add(int tokenType, char[] chars, int start, int length, int scanEnd) {
+<#else>
+	void add(int tokenType, char[] chars, int start, int length, int lineNumber, int columnNumber, int scanEnd) {
+</#if>
+		ensureCapacity(size + 1);
+		if (textLength + length > text.length) {
+			text = Arrays.copyOf(text, Math.max(textLength + length, text.length * 2));
+		}
+
+		tokenTypes[size] = tokenType;
+		starts[size] = textOffset + textLength;
+		lengths[size] = length;
+<#if !lazyPositions>
+		if (lineNumbers != null) {
+			lineNumbers[size] = lineNumber;
+			columnNumbers[size] = columnNumber;
+		}
+</#if>
+		scanEnds[size] = size > 0 ? Math.max(scanEnds[size - 1], scanEnd) : scanEnd;
+		size++;
+
+		System.arraycopy(chars, start, text, textLength, length);
+		textLength += length;
+	}
+
+	/**
+	 * Replaces the chars of the text in the given range by the given chars, the tokens are not changed.
+	 * @return The chars that have been removed.
+	 */
+	String replaceText(int offset, int removedLength, CharSequence inserted) {
+		int index = offset - textOffset;
+		if (index < 0 || removedLength < 0 || index + removedLength > textLength) {
+			throw new IndexOutOfBoundsException("Range [" + offset + ", " + (offset + removedLength)
+					+ ") is out of bounds for the text [" + textOffset + ", " + (textOffset + textLength) + ")");
+		}
+
+		String removed = new String(text, index, removedLength);
+		int insertedLength = inserted.length();
+		int length = textLength - removedLength + insertedLength;
+		if (length > text.length) {
+			text = Arrays.copyOf(text, Math.max(length, text.length * 2));
+		}
+		System.arraycopy(text, index + removedLength, text, index + insertedLength, textLength - index - removedLength);
+		for (int i = 0; i < insertedLength; i++) {
+			text[index + i] = inserted.charAt(i);
+		}
+		textLength = length;
+<#if lazyPositions>
+
+		// The index of the lexer is copied on the first edit, from then on only the lines of the edit are scanned.
+		if (!ownsLineIndex) {
+			lineIndex = new LineIndex(lineIndex);
+			ownsLineIndex = true;
+		}
+		lineIndex.replace(text, textOffset, textLength, offset, removedLength, insertedLength);
+</#if>
+		return removed;
+	}
+
+	/**
+	 * Replaces the tokens from the given index up to the other given index by the given tokens. The tokens after them
+<#if lazyPositions>
+	 * move by the given number of chars.
+<#else>
+	 * move by the given number of chars; the first of them moves to the given line and column number and the others
+	 * move along, where the column numbers only change on the line of the first of them.
+</#if>
+	 */
+<#if lazyPositions>
+	void replaceTokens(int from, int to, TokenBuffer tokens, int delta) {
+<#else>
+	void replaceTokens(int from, int to, TokenBuffer tokens, int delta, int lineNumber, int columnNumber) {
+</#if>
+		int count = tokens.size;
+		int tailLength = size - to;
+		int tail = from + count;
+		ensureCapacity(tail + tailLength);
+
+		System.arraycopy(tokenTypes, to, tokenTypes, tail, tailLength);
+		System.arraycopy(starts, to, starts, tail, tailLength);
+		System.arraycopy(lengths, to, lengths, tail, tailLength);
+		System.arraycopy(scanEnds, to, scanEnds, tail, tailLength);
+		for (int i = tail; i < tail + tailLength; i++) {
+			starts[i] += delta;
+			scanEnds[i] += delta;
+		}
+<#if !lazyPositions>
+		if (lineNumbers != null && tailLength > 0) {
+			System.arraycopy(lineNumbers, to, lineNumbers, tail, tailLength);
+			System.arraycopy(columnNumbers, to, columnNumbers, tail, tailLength);
+			int firstLineNumber = lineNumbers[tail];
+			int columnDelta = columnNumber - columnNumbers[tail];
+			for (int i = tail; i < tail + tailLength; i++) {
+				int line = lineNumbers[i];
+				lineNumbers[i] = lineNumber + line - firstLineNumber;
+				if (line == firstLineNumber) {
+					columnNumbers[i] += columnDelta;
+				}
+			}
+		}
+</#if>
+
+		System.arraycopy(tokens.tokenTypes, 0, tokenTypes, from, count);
+		System.arraycopy(tokens.starts, 0, starts, from, count);
+		System.arraycopy(tokens.lengths, 0, lengths, from, count);
+		System.arraycopy(tokens.scanEnds, 0, scanEnds, from, count);
+<#if !lazyPositions>
+		if (lineNumbers != null) {
+			System.arraycopy(tokens.lineNumbers, 0, lineNumbers, from, count);
+			System.arraycopy(tokens.columnNumbers, 0, columnNumbers, from, count);
+		}
+</#if>
+		size = tail + tailLength;
+
+		// The scan ends hold the maximum up to each token, which may have changed from the new tokens on.
+		for (int i = Math.max(from, 1); i < size; i++) {
+			if (scanEnds[i] >= scanEnds[i - 1] && i >= tail) {
+				break;
+			}
+			scanEnds[i] = Math.max(scanEnds[i], scanEnds[i - 1]);
+		}
+	}
+</#if>
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > tokenTypes.length) {
+			capacity = Math.max(capacity, Math.max(16, tokenTypes.length * 2));
+			tokenTypes = Arrays.copyOf(tokenTypes, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+<#if !lazyPositions>
+			if (lineNumbers != null) {
+				lineNumbers = Arrays.copyOf(lineNumbers, capacity);
+				columnNumbers = Arrays.copyOf(columnNumbers, capacity);
+			}
+</#if>
+<#if !utf8>
+			scanEnds = Arrays.copyOf(scanEnds, capacity);
+</#if>
+		}
+	}
+}
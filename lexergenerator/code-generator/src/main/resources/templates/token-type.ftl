@@ -5,16 +5,32 @@ package ${packageName};
  */
 public enum TokenType {
 	EOF(-1),
-<#list tokenTypes as tokenType>	${tokenType.name}(${tokenType.lexerClass + 1})<#sep>,
+<#list tokenTypes as tokenType>	${tokenType.name}(${tokenType.lexerClass + 1}<#if tokenType.skip>, true</#if>)<#sep>,
 </#list>;
 
 	private final int lexerState;
 
+	private final boolean skip;
+
 	TokenType(final int lexerState) {
+		this(lexerState, false);
+	}
+
+	TokenType(final int lexerState, final boolean skip) {
 		this.lexerState = lexerState;
+		this.skip = skip;
 	}
 
 	public int lexerState() {
 		return lexerState;
 	}
+
+	/**
+	 * Returns whether the tokens of this type are skipped; the lexer consumes them instead of returning them, and only
+	 * passes them to its trivia consumer.
+	 * @return Whether the tokens are skipped.
+	 */
+	public boolean isSkip() {
+		return skip;
+	}
 }
@@ -4,16 +4,31 @@ import java.util.Arrays;
 
 /**
  * Represents a token (lexeme).
+<#if lazyPositions>
+ * <br/>
+ * The line and column numbers are looked up in the {@link LineIndex} of the input when they are requested.
+</#if>
  */
 public class Token {
+<#if lazyPositions>
+	private int offset;
+	private LineIndex lineIndex;
+<#else>
 	private int lineNumber;
 	private int columnNumber;
+</#if>
 	private String value;
 	private TokenType tokenType;
 
+<#if lazyPositions>
+	public Token(int offset, LineIndex lineIndex, String value, TokenType tokenType) {
+		this.offset = offset;
+		this.lineIndex = lineIndex;
+<#else>
 	public Token(int lineNumber, int columnNumber, String value, TokenType tokenType) {
 		this.lineNumber = lineNumber;
 		this.columnNumber = columnNumber;
+</#if>
 		this.value = value;
 		this.tokenType = tokenType;
 	}
@@ -37,6 +52,19 @@ public class Token {
 			.anyMatch(this::is);
 	}
 
+<#if lazyPositions>
+	public int getOffset() {
+		return offset;
+	}
+
+	public int getLineNumber() {
+		return lineIndex.getLineNumber(offset);
+	}
+
+	public int getColumnNumber() {
+		return lineIndex.getColumnNumber(offset);
+	}
+<#else>
 	public int getLineNumber() {
 		return lineNumber;
 	}
@@ -44,6 +72,7 @@ public class Token {
 	public int getColumnNumber() {
 		return columnNumber;
 	}
+</#if>
 
 	public String getValue() {
 		return value;
@@ -56,8 +85,8 @@ public class Token {
 	@Override
 	public String toString() {
 		return "Token{" +
-				"lineNumber=" + lineNumber +
-				", columnNumber=" + columnNumber +
+				"lineNumber=" + getLineNumber() +
+				", columnNumber=" + getColumnNumber() +
 				", value='" + value + '\'' +
 				", tokenType=" + tokenType +
 				'}';
@@ -0,0 +1,363 @@
+package io.lateralus.lexergenerator.codegenerator;
+
+import io.lateralus.lexergenerator.codegenerator.simple.BasicLexerCodeGenerator;
+import io.lateralus.lexergenerator.codegenerator.simple.BasicLexerCodeGenerator.Properties;
+import io.lateralus.lexergenerator.core.definition.LexerDefinition;
+import io.lateralus.lexergenerator.core.definition.LexerDefinitionBuilder;
+import io.lateralus.lexergenerator.core.description.LexerClassNodeBuilder;
+import io.lateralus.lexergenerator.core.description.LexerDescriptionBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Generates lexers in the different modes of the {@link BasicLexerCodeGenerator}, compiles them and checks that they
+ * find the same tokens as the plain lexer that reads from a {@code LexerReader}.
+ */
+public class BasicLexerCodeGeneratorTest {
+
+	private static final String INPUT = TestLexerDescription.createInput();
+
+	@Test
+	public void testReaderLexerFindsTheTokens() throws Exception {
+		// The code points of the input are in different blocks of the alphabet map, one is a supplementary one.
+		assertEquals(Arrays.asList("1:1 KW_CLASS 'class'", "1:6 WHITE_SPACE ' '", "1:7 IDENTIFIER 'Caf\u00e9\u0180'",
+				"1:12 WHITE_SPACE ' '", "1:13 SYMBOL '\u2203'", "1:14 SYMBOL '\ud835\udc9c'", "1:15 NEW_LINE '\r\n'",
+				"2:1 OPERATOR '\u20ac='", "2:3 EOF ''"),
+				reader().tokenize("class Caf\u00e9\u0180 \u2203\ud835\udc9c\r\n\u20ac="));
+
+		// A code point in the same block as the symbols, which is not part of the alphabet.
+		Exception exception = assertThrows(Exception.class, () -> reader().tokenize("x \ud835\udd00"));
+		assertEquals("LexerException", exception.getClass().getSimpleName());
+	}
+
+	@Test
+	public void testCompressedTransitions() throws Exception {
+		LexerDriver driver = reader("reader-compressed", createProperties().compressTransitions(true));
+		assertEquals(reader().tokenize(INPUT), driver.tokenize(INPUT));
+	}
+
+	@Test
+	public void testTableResource() throws Exception {
+		// The resource is written next to the classes of the lexer, where the class loader finds it.
+		List<String> expected = reader().tokenize(INPUT);
+		assertEquals(expected, reader("reader-resource", createProperties().tableResourceDirectory("."))
+				.tokenize(INPUT));
+		assertEquals(expected, reader("reader-compressed-resource",
+				createProperties().compressTransitions(true).tableResourceDirectory(".")).tokenize(INPUT));
+	}
+
+	@Test
+	public void testTableResourceOfALargeLexer() throws Exception {
+		// The random keywords give a lexer of some thousands of states, the literals of its tables do not fit in the
+		// static initializer of the lexer class.
+		LexerClassNodeBuilder lexerClass = new LexerDescriptionBuilder()
+				.lexerStartStateName("DEFAULT")
+				.startLexerClass("DEFAULT")
+					.addLexerToken("WHITE_SPACE", " ", "DEFAULT");
+		StringBuilder input = new StringBuilder();
+		List<String> expected = new ArrayList<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			String keyword = random.ints(8, 'a', 'z' + 1)
+					.collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
+					.toString();
+			lexerClass.addLexerToken("KEYWORD_" + i, keyword, "DEFAULT");
+			expected.add("1:" + (input.length() + 1) + " KEYWORD_" + i + " '" + keyword + "'");
+			expected.add("1:" + (input.length() + keyword.length() + 1) + " WHITE_SPACE ' '");
+			input.append(keyword).append(' ');
+		}
+		expected.add("1:" + (input.length() + 1) + " EOF ''");
+		LexerDefinition lexerDefinition = new LexerDefinitionBuilder().build(lexerClass.end().build());
+
+		Exception exception = assertThrows(IllegalStateException.class,
+				() -> compile("reader-large-inline", createProperties(), lexerDefinition, "ReaderDriver"));
+		assertTrue(exception.getMessage().contains("code too large"));
+
+		LexerDriver driver = compile("reader-large-resource", createProperties().tableResourceDirectory("."),
+				lexerDefinition, "ReaderDriver").getDriver("ReaderDriver");
+		assertEquals(expected, driver.tokenize(input.toString()));
+	}
+
+	@Test
+	public void testLargeTables() throws Exception {
+		// The keywords need more states than a byte can hold, so the tables get a wider element type.
+		LexerClassNodeBuilder lexerClass = new LexerDescriptionBuilder()
+				.lexerStartStateName("DEFAULT")
+				.startLexerClass("DEFAULT")
+					.addLexerToken("WHITE_SPACE", " ", "DEFAULT");
+		StringBuilder input = new StringBuilder();
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			String keyword = "keyword" + i + "_" + (char) ('a' + i % 26);
+			lexerClass.addLexerToken("KEYWORD_" + i, keyword, "DEFAULT");
+			expected.add("1:" + (input.length() + 1) + " KEYWORD_" + i + " '" + keyword + "'");
+			expected.add("1:" + (input.length() + keyword.length() + 1) + " WHITE_SPACE ' '");
+			input.append(keyword).append(' ');
+		}
+		expected.add("1:" + (input.length() + 1) + " EOF ''");
+		LexerDefinition lexerDefinition = new LexerDefinitionBuilder().build(lexerClass.end().build());
+		assertTrue(lexerDefinition.getDfa().getStateCount() > 256);
+
+		for (boolean compressTransitions : new boolean[] { false, true }) {
+			LexerDriver driver = compile("reader-large-" + compressTransitions,
+					createProperties().compressTransitions(compressTransitions), lexerDefinition, "ReaderDriver")
+					.getDriver("ReaderDriver");
+			assertEquals(expected, driver.tokenize(input.toString()));
+		}
+	}
+
+	@Test
+	public void testFusedReader() throws Exception {
+		// The driver reads the input in chunks, so the lexer refills its buffer in the middle of tokens.
+		assertEquals(reader().tokenize(INPUT), fused("fused", false).tokenize(INPUT));
+	}
+
+	@Test
+	public void testLazyPositions() throws Exception {
+		List<String> expected = reader().tokenize(INPUT);
+		assertEquals(expected, reader("reader-lazy", createProperties().lazyPositions(true)).tokenize(INPUT));
+		assertEquals(expected, fused("fused-lazy", true).tokenize(INPUT));
+
+		// The lazy positions count the columns in chars, a supplementary code point takes two columns.
+		String input = "\ud835\udc9c x";
+		assertEquals(Arrays.asList("1:1 SYMBOL '\ud835\udc9c'", "1:2 WHITE_SPACE ' '", "1:3 IDENTIFIER 'x'",
+				"1:4 EOF ''"), reader().tokenize(input));
+		assertEquals(Arrays.asList("1:1 SYMBOL '\ud835\udc9c'", "1:3 WHITE_SPACE ' '", "1:4 IDENTIFIER 'x'",
+				"1:5 EOF ''"), fused("fused-lazy", true).tokenize(input));
+	}
+
+	@Test
+	public void testAdvance() throws Exception {
+		List<String> expected = reader().tokenize(INPUT);
+		assertEquals(expected, fused("fused", false).advance(INPUT));
+		assertEquals(expected, fused("fused-lazy", true).advance(INPUT));
+	}
+
+	@Test
+	public void testTokenizeInto() throws Exception {
+		List<String> expected = reader().tokenize(INPUT);
+		assertEquals(expected, fused("fused", false).tokenizeInto(INPUT));
+		assertEquals(expected, fused("fused-lazy", true).tokenizeInto(INPUT));
+	}
+
+	@Test
+	public void testRelexGivesTheSameTokensAsLexingTheEditedText() throws Exception {
+		assertRelex(fused("fused", false));
+		assertRelex(fused("fused-lazy", true));
+	}
+
+	@Test
+	public void testRelexOfAnInvalidEditKeepsTheBuffer() throws Exception {
+		for (LexerDriver driver : new LexerDriver[] { fused("fused", false), fused("fused-lazy", true) }) {
+			Object tokenBuffer = driver.createTokenBuffer(INPUT);
+			List<String> tokens = driver.getTokens(tokenBuffer);
+
+			// An unclosed string can not be lexed.
+			int offset = INPUT.indexOf("x1 = ");
+			Exception exception = assertThrows(Exception.class, () -> driver.relex(tokenBuffer, offset, 0, "\""));
+			assertEquals("LexerException", exception.getClass().getSimpleName());
+			assertEquals(tokens, driver.getTokens(tokenBuffer));
+
+			// The buffer can still be edited.
+			String text = INPUT.substring(0, offset) + "\"a\" " + INPUT.substring(offset + 2);
+			assertEquals(driver.tokenizeInto(text), driver.relex(tokenBuffer, offset, 2, "\"a\" "));
+		}
+	}
+
+	@Test
+	public void testUtf8() throws Exception {
+		List<String> expected = reader().tokenize(INPUT);
+		for (LexerDriver driver : new LexerDriver[] { utf8("utf8", createProperties()), utf8("utf8-compressed-resource",
+				createProperties().compressTransitions(true).tableResourceDirectory(".")) }) {
+			assertEquals(expected, driver.tokenize(INPUT));
+			assertEquals(expected, driver.advance(INPUT));
+			assertEquals(expected, driver.tokenizeInto(INPUT));
+		}
+
+		// The code points take one to four bytes, the columns are still counted in code points.
+		String input = "class Caf\u00e9\u0180 \u2203\ud835\udc9c\r\n\u20ac=";
+		assertEquals(reader().tokenize(input), utf8("utf8", createProperties()).tokenize(input));
+
+		Exception exception = assertThrows(Exception.class,
+				() -> utf8("utf8", createProperties()).tokenize("x \ud835\udd00"));
+		assertEquals("LexerException", exception.getClass().getSimpleName());
+	}
+
+	@Test
+	public void testTokenizeParallel() throws Exception {
+		// The small chunks split the tokens and the code points, the chunks that start in a comment are lexed in the
+		// wrong lexer state first and run into unclosed strings there.
+		String input = INPUT + "/* \" \u20ac\u2203\ud835\udc9c */ x\r\n\"a \u20ac\" // \"\r";
+		List<String> expected = reader().tokenize(input);
+		LexerDriver driver = utf8("utf8", createProperties());
+		for (int chunkSize : new int[] { 1, 2, 7, 64, 1000, 4 * input.length() }) {
+			assertEquals(expected, driver.tokenizeParallel(input, chunkSize), "Chunk size " + chunkSize);
+		}
+
+		// An error that is not caused by a speculative start is reported.
+		for (int chunkSize : new int[] { 1, 7, 1000 }) {
+			Exception exception = assertThrows(Exception.class,
+					() -> driver.tokenizeParallel(INPUT + " \"x\n", chunkSize));
+			assertEquals("LexerException", exception.getClass().getSimpleName());
+		}
+	}
+	@Test
+	public void testPushLexer() throws Exception {
+		// The small chunks split the tokens, the line breaks and the surrogate pairs or the UTF-8 sequences.
+		String input = INPUT + "\u2203\ud835\udc9c\r\n\u20ac= x\r";
+		List<String> expected = reader().tokenize(input);
+		LexerDriver[] drivers = {
+				compile("push", createProperties().pushLexer(true), false, false, "PushDriver").getDriver("PushDriver"),
+				compile("push-fused", createProperties().fuseReader(true).pushLexer(true), false, false, "PushDriver")
+						.getDriver("PushDriver"),
+				compile("utf8-push", createProperties().pushLexer(true), false, true, "Utf8PushDriver")
+						.getDriver("Utf8PushDriver")
+		};
+		for (LexerDriver driver : drivers) {
+			for (int chunkSize : new int[] { 1, 3, 7, 1000, 4 * input.length() }) {
+				assertEquals(expected, driver.push(input, chunkSize), "Chunk size " + chunkSize);
+			}
+
+			// An unclosed string is reported when its line ends, at the end of the input it ends the tokens like it
+			// does for the reader lexer.
+			Exception exception = assertThrows(Exception.class, () -> driver.push("x = \"a\nb", 3));
+			assertEquals("LexerException", exception.getClass().getSimpleName());
+			assertEquals(reader().tokenize("x = \"a"), driver.push("x = \"a", 3));
+		}
+	}
+	@Test
+	public void testSelfLoops() throws Exception {
+		// Runs of every length up to a few words, which end at every byte of a word and at the end of the input, and
+		// runs that hold chars of two and three bytes.
+		StringBuilder input = new StringBuilder();
+		for (int n = 0; n < 20; n++) {
+			input.append("a").append("b".repeat(n)).append(" ".repeat(n + 1)).append("/*").append("c".repeat(n))
+					.append("\u20ac").append("d".repeat(n % 9)).append("*/\t").append("\"").append("e".repeat(n))
+					.append("\u00e9\" //").append("f".repeat(n)).append(n % 2 == 0 ? "\r\n" : "\n");
+		}
+		input.append("/*").append("g".repeat(17)).append("*/ ").append("h".repeat(13));
+		List<String> expected = reader().tokenize(input.toString());
+
+		LexerCompiler utf8 = compile("utf8", createProperties(), false, true, "Utf8Driver");
+		assertTrue(utf8.getSource("TestLexer").contains("hasByte("));
+		assertTrue(compile("fused", createProperties().fuseReader(true), false, false, "FusedDriver")
+				.getSource("TestLexer").contains("skipSelfLoop("));
+		for (LexerDriver driver : new LexerDriver[] { fused("fused", false), fused("fused-lazy", true),
+				utf8.getDriver("Utf8Driver") }) {
+			assertEquals(expected, driver.tokenize(input.toString()));
+			assertEquals(expected, driver.advance(input.toString()));
+		}
+	}
+	@Test
+	public void testSkipTokens() throws Exception {
+		// The skip tokens are dropped, or passed to the trivia consumer in between the other tokens.
+		List<String> allTokens = reader().tokenize(INPUT);
+		List<String> expected = TestLexerDescription.removeSkipTokens(allTokens);
+		assertTrue(expected.size() < allTokens.size());
+
+		LexerCompiler utf8 = compile("utf8-skip", createProperties().pushLexer(true), true, true, "Utf8Driver",
+				"Utf8PushDriver");
+		LexerDriver[] drivers = {
+				compile("reader-skip", createProperties(), true, false, "ReaderDriver").getDriver("ReaderDriver"),
+				compile("fused-skip", createProperties().fuseReader(true), true, false, "FusedDriver")
+						.getDriver("FusedDriver"),
+				compile("fused-lazy-skip", createProperties().fuseReader(true).lazyPositions(true), true, false,
+						"FusedDriver").getDriver("FusedDriver"),
+				utf8.getDriver("Utf8Driver")
+		};
+		for (LexerDriver driver : drivers) {
+			assertEquals(expected, driver.tokenize(INPUT));
+			assertEquals(allTokens, driver.tokenizeWithTrivia(INPUT));
+		}
+
+		// The token buffers cover the complete input, so they keep the skip tokens.
+		for (LexerDriver driver : Arrays.copyOfRange(drivers, 1, drivers.length)) {
+			assertEquals(expected, driver.advance(INPUT));
+			assertEquals(allTokens, driver.tokenizeInto(INPUT));
+		}
+		assertEquals(allTokens, drivers[3].tokenizeParallel(INPUT, 7));
+
+		LexerDriver[] pushDrivers = {
+				compile("push-skip", createProperties().pushLexer(true), true, false, "PushDriver")
+						.getDriver("PushDriver"),
+				utf8.getDriver("Utf8PushDriver")
+		};
+		for (LexerDriver driver : pushDrivers) {
+			assertEquals(expected, driver.push(INPUT, 7));
+			assertEquals(allTokens, driver.pushWithTrivia(INPUT, 7));
+		}
+	}
+
+	/**
+	 * Applies random edits to a token buffer, and checks after every edit that the buffer holds the tokens of the
+	 * edited text. The edits often join or split line breaks, comments and strings, and the edits that make the text
+	 * invalid must leave the buffer as it was.
+	 */
+	private static void assertRelex(LexerDriver driver) throws Exception {
+		String[] snippets = { "", "a", "1", " ", "\r", "\n", "\r\n", "*", "/", "/*", "*/", "\"", "\"b\"", "\u20ac",
+				"x\ny\rz", "\t\t\t" };
+		Random random = new Random(42);
+		String text = INPUT;
+		Object tokenBuffer = driver.createTokenBuffer(text);
+		for (int i = 0; i < 300; i++) {
+			int offset = random.nextInt(text.length() + 1);
+			int removedLength = random.nextInt(Math.min(4, text.length() - offset) + 1);
+			String inserted = snippets[random.nextInt(snippets.length)];
+			String editedText = text.substring(0, offset) + inserted + text.substring(offset + removedLength);
+
+			List<String> expected;
+			try {
+				expected = driver.tokenizeInto(editedText);
+			} catch (Exception e) {
+				List<String> tokens = driver.getTokens(tokenBuffer);
+				assertThrows(e.getClass(), () -> driver.relex(tokenBuffer, offset, removedLength, inserted));
+				assertEquals(tokens, driver.getTokens(tokenBuffer));
+				continue;
+			}
+			assertEquals(expected, driver.relex(tokenBuffer, offset, removedLength, inserted));
+			text = editedText;
+		}
+	}
+
+	/**
+	 * Returns the driver of the plain lexer, which reads from a {@code LexerReader}.
+	 */
+	private static LexerDriver reader() throws Exception {
+		return reader("reader", createProperties());
+	}
+
+	private static LexerDriver reader(String name, Properties properties) throws Exception {
+		return compile(name, properties, false, false, "ReaderDriver").getDriver("ReaderDriver");
+	}
+
+	private static LexerDriver fused(String name, boolean lazyPositions) throws Exception {
+		Properties properties = createProperties().fuseReader(true).lazyPositions(lazyPositions);
+		return compile(name, properties, false, false, "FusedDriver").getDriver("FusedDriver");
+	}
+
+	private static LexerDriver utf8(String name, Properties properties) throws Exception {
+		return compile(name, properties, false, true, "Utf8Driver").getDriver("Utf8Driver");
+	}
+
+	private static Properties createProperties() {
+		return new Properties(LexerCompiler.LEXER_NAME, LexerCompiler.PACKAGE_NAME);
+	}
+
+	private static LexerCompiler compile(String name, Properties properties, boolean skip, boolean utf8,
+			String... driverNames) throws Exception {
+		return compile(name, properties, TestLexerDescription.createDefinition(skip, utf8), driverNames);
+	}
+
+	private static LexerCompiler compile(String name, Properties properties, LexerDefinition lexerDefinition,
+			String... driverNames) throws Exception {
+		return LexerCompiler.compile(name, new BasicLexerCodeGenerator(properties), lexerDefinition, driverNames);
+	}
+}
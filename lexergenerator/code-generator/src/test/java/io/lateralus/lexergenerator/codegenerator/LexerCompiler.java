@@ -0,0 +1,151 @@
+package io.lateralus.lexergenerator.codegenerator;
+
+import io.lateralus.lexergenerator.core.definition.LexerDefinition;
+import io.lateralus.shared.codegenerator.CodeGenerator;
+import io.lateralus.shared.codegenerator.SourceFile;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates the source files of a lexer, compiles them together with the drivers for the lexer and loads the drivers,
+ * so a test can run the generated lexer. The files of a lexer are written to a directory of its own under
+ * {@code target/generated-test-lexers}, where they can be inspected when a test fails.
+ */
+public class LexerCompiler {
+
+	/**
+	 * The package of the generated lexers and of the drivers.
+	 */
+	public static final String PACKAGE_NAME = "generated";
+
+	/**
+	 * The name of the generated lexers, the lexer class is called {@code TestLexer}.
+	 */
+	public static final String LEXER_NAME = "Test";
+
+	private static final Path ROOT_DIRECTORY = Paths.get("target", "generated-test-lexers");
+
+	// The lexers that have been compiled, by name.
+	private static final Map<String, LexerCompiler> LEXERS = new HashMap<>();
+
+	private final Path directory;
+
+	private final ClassLoader classLoader;
+
+	/**
+	 * Generates and compiles a lexer, or returns the lexer of the same name if it has already been compiled.
+	 * @param name The name of the lexer, which is also the name of its directory.
+	 * @param generator The generator of the lexer.
+	 * @param lexerDefinition The definition of the lexer.
+	 * @param driverNames The names of the drivers, which are read from the {@code drivers} resources.
+	 * @return The compiled lexer.
+	 */
+	public static synchronized LexerCompiler compile(String name, CodeGenerator<LexerDefinition> generator,
+			LexerDefinition lexerDefinition, String... driverNames) throws Exception {
+		LexerCompiler lexer = LEXERS.get(name);
+		if (lexer == null) {
+			lexer = new LexerCompiler(name, generator, lexerDefinition, driverNames);
+			LEXERS.put(name, lexer);
+		}
+		return lexer;
+	}
+
+	private LexerCompiler(String name, CodeGenerator<LexerDefinition> generator, LexerDefinition lexerDefinition,
+			String... driverNames) throws Exception {
+		directory = ROOT_DIRECTORY.resolve(name);
+		deleteDirectory(directory);
+
+		for (SourceFile sourceFile : generator.generate(lexerDefinition)) {
+			write(directory.resolve(sourceFile.getName()), sourceFile.getContents());
+		}
+		for (String driverName : driverNames) {
+			String fileName = driverName + ".java";
+			try (InputStream inputStream = LexerCompiler.class.getResourceAsStream("/drivers/" + fileName)) {
+				write(directory.resolve(PACKAGE_NAME).resolve(fileName), inputStream.readAllBytes());
+			}
+		}
+
+		compile(directory);
+		classLoader = new URLClassLoader(new URL[] { directory.toUri().toURL() }, LexerCompiler.class.getClassLoader());
+	}
+
+	/**
+	 * Creates an instance of the given driver.
+	 * @param driverName The name of the driver.
+	 * @return The driver.
+	 */
+	public LexerDriver getDriver(String driverName) throws ReflectiveOperationException {
+		return (LexerDriver) classLoader.loadClass(PACKAGE_NAME + "." + driverName)
+				.getDeclaredConstructor()
+				.newInstance();
+	}
+
+	/**
+	 * Returns the generated source of the given class.
+	 * @param className The simple name of the class.
+	 * @return The source.
+	 */
+	public String getSource(String className) throws IOException {
+		Path path = directory.resolve(PACKAGE_NAME).resolve(className + ".java");
+		return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+	}
+
+	private static void compile(Path directory) throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+				Stream<Path> paths = Files.walk(directory)) {
+			List<Path> sources = paths.filter(path -> path.toString().endsWith(".java")).collect(Collectors.toList());
+
+			// The drivers implement the driver interface of the tests.
+			URL testClasses = LexerDriver.class.getProtectionDomain().getCodeSource().getLocation();
+			String classPath = Paths.get(testClasses.toURI()).toString();
+			List<String> options = Arrays.asList("-d", directory.toString(), "-classpath", classPath, "-nowarn",
+					"-encoding", "UTF-8");
+			boolean success = compiler.getTask(null, fileManager, diagnostics, options, null,
+					fileManager.getJavaFileObjectsFromPaths(sources)).call();
+			if (!success) {
+				throw new IllegalStateException("The generated lexer in " + directory + " does not compile:\n" +
+						diagnostics.getDiagnostics().stream()
+								.filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+								.map(Object::toString)
+								.collect(Collectors.joining("\n")));
+			}
+		}
+	}
+
+	private static void write(Path path, byte[] contents) throws IOException {
+		Files.createDirectories(path.getParent());
+		Files.write(path, contents);
+	}
+
+	private static void deleteDirectory(Path directory) throws IOException {
+		if (Files.exists(directory)) {
+			try (Stream<Path> paths = Files.walk(directory)) {
+				for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+					Files.delete(path);
+				}
+			}
+		}
+	}
+}
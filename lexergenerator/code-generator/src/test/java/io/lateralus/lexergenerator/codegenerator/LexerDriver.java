@@ -0,0 +1,102 @@
+package io.lateralus.lexergenerator.codegenerator;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Runs a generated lexer on an input. A driver is compiled together with the lexer by the {@link LexerCompiler}; the
+ * methods that the lexer does not support are not implemented by its driver. The tokens are returned formatted by
+ * {@link #format}, so the tokens of different lexers can be compared.
+ */
+public interface LexerDriver {
+
+	/**
+	 * Lexes the input with {@code nextToken()}, up to and including the EOF token.
+	 * @param input The input.
+	 * @return The tokens.
+	 */
+	default List<String> tokenize(String input) throws Exception {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Lexes the input like {@link #tokenize}, with a trivia consumer that adds the skip tokens in between the others.
+	 */
+	default List<String> tokenizeWithTrivia(String input) throws Exception {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Lexes the input with {@code advance()} and the accessors of the current token.
+	 */
+	default List<String> advance(String input) throws Exception {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Lexes the input into a token buffer with {@code tokenizeInto}.
+	 */
+	default List<String> tokenizeInto(String input) throws Exception {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Lexes the input into a token buffer with {@code tokenizeParallel}, in chunks of the given size.
+	 */
+	default List<String> tokenizeParallel(String input, int chunkSize) throws Exception {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Feeds the input to a push lexer in chunks of the given size.
+	 */
+	default List<String> push(String input, int chunkSize) throws Exception {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Feeds the input to a push lexer like {@link #push}, with a trivia consumer that adds the skip tokens in between
+	 * the others.
+	 */
+	default List<String> pushWithTrivia(String input, int chunkSize) throws Exception {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Lexes the input into a new token buffer, to be edited with {@link #relex}.
+	 * @return The token buffer.
+	 */
+	default Object createTokenBuffer(String input) throws Exception {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Applies an edit to the given token buffer with {@code relex}.
+	 * @return The tokens of the buffer after the edit.
+	 */
+	default List<String> relex(Object tokenBuffer, int offset, int removedLength, String inserted) throws Exception {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns the tokens of the given token buffer.
+	 */
+	default List<String> getTokens(Object tokenBuffer) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Formats a token.
+	 */
+	static String format(Object tokenType, Object lexeme, int lineNumber, int columnNumber) {
+		return lineNumber + ":" + columnNumber + " " + tokenType + " '" + lexeme + "'";
+	}
+
+	/**
+	 * Sets the trivia consumer of the given lexer. The method is only generated for a lexer with skip tokens, so the
+	 * drivers call it through this method.
+	 */
+	static void setTriviaConsumer(Object lexer, Consumer<?> triviaConsumer) throws ReflectiveOperationException {
+		lexer.getClass().getMethod("setTriviaConsumer", Consumer.class).invoke(lexer, triviaConsumer);
+	}
+}
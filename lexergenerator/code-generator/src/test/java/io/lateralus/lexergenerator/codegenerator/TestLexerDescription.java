@@ -0,0 +1,104 @@
+package io.lateralus.lexergenerator.codegenerator;
+
+import io.lateralus.lexergenerator.core.definition.LexerDefinition;
+import io.lateralus.lexergenerator.core.definition.LexerDefinitionBuilder;
+import io.lateralus.lexergenerator.core.description.LexerClassNodeBuilder;
+import io.lateralus.lexergenerator.core.description.LexerDescriptionBuilder;
+import io.lateralus.lexergenerator.core.parser.RegExException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A small lexer for a Java like language, and an input for it, on which the generated lexers are tested. The lexer has
+ * a lexer class for comments.
+ */
+public class TestLexerDescription {
+
+	// The token types that are skip tokens in the definition with skip tokens.
+	private static final List<String> SKIP_TOKEN_TYPES = Arrays.asList("NEW_LINE", "WHITE_SPACE", "LINE_COMMENT",
+			"COMMENT_START", "COMMENT_END", "COMMENT_TEXT", "COMMENT_STAR");
+
+	/**
+	 * Creates the definition of the lexer.
+	 * @param skip Whether the white space, the new lines and the comments are skip tokens.
+	 * @param utf8 Whether the lexer works on UTF-8 bytes.
+	 * @return The lexer definition.
+	 */
+	public static LexerDefinition createDefinition(boolean skip, boolean utf8) throws RegExException {
+		LexerDescriptionBuilder builder = new LexerDescriptionBuilder().lexerStartStateName("DEFAULT");
+
+		LexerClassNodeBuilder defaultClass = builder.startLexerClass("DEFAULT");
+		addToken(defaultClass, skip, "NEW_LINE", "\\r\\n|\\r|\\n", "DEFAULT");
+		addToken(defaultClass, skip, "WHITE_SPACE", "( |\\t)+", "DEFAULT");
+		defaultClass
+				.addLexerToken("KW_CLASS", "class", "DEFAULT")
+				.addLexerToken("KW_INT", "int", "DEFAULT")
+				.addLexerToken("KW_RETURN", "return", "DEFAULT")
+				.addLexerToken("IDENTIFIER", "[a-zA-Z_$\u00c0-\u024f][a-zA-Z0-9_$\u00c0-\u024f]*", "DEFAULT")
+				.addLexerToken("NUMBER", "[0-9]+(\\.[0-9]+)?([eE][+\\-]?[0-9]+)?", "DEFAULT")
+				.addLexerToken("STRING", "\"([^\"\\\\\\r\\n]|\\\\.)*\"", "DEFAULT")
+				// The slash and the star stand alone, so they do not swallow the start of a comment.
+				.addLexerToken("OPERATOR", "[+\\-%=!<>&|^~?:\u20ac]+|[*/]", "DEFAULT")
+				.addLexerToken("PUNCT", "[(){}\\[\\];,.]", "DEFAULT")
+				.addLexerToken("SYMBOL", "[\u2200-\u22ff\ud835\udc00-\ud835\udcff]", "DEFAULT");
+		addToken(defaultClass, skip, "LINE_COMMENT", "//[^\\r\\n]*", "DEFAULT");
+		addToken(defaultClass, skip, "COMMENT_START", "/\\*", "COMMENT");
+		defaultClass.end();
+
+		LexerClassNodeBuilder commentClass = builder.startLexerClass("COMMENT");
+		addToken(commentClass, skip, "COMMENT_END", "\\*+/", "DEFAULT");
+		addToken(commentClass, skip, "COMMENT_TEXT", "([^*]|\\*+[^*/])+", "COMMENT");
+		addToken(commentClass, skip, "COMMENT_STAR", "\\*", "COMMENT");
+		commentClass.end();
+
+		return new LexerDefinitionBuilder()
+				.utf8(utf8)
+				.build(builder.build());
+	}
+
+	private static void addToken(LexerClassNodeBuilder lexerClass, boolean skip, String name, String regex,
+			String className) throws RegExException {
+		if (skip) {
+			lexerClass.addSkipToken(name, regex, className);
+		} else {
+			lexerClass.addLexerToken(name, regex, className);
+		}
+	}
+
+	/**
+	 * Creates an input for the lexer of some kilobytes, with all kinds of line breaks and with chars of one, two and
+	 * three bytes in UTF-8. The input only holds chars of the basic multilingual plane, since the lexers with lazy
+	 * positions count the columns in chars instead of in code points.
+	 * @return The input.
+	 */
+	public static String createInput() {
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 40; i++) {
+			String lineBreak = i % 3 == 0 ? "\r\n" : i % 3 == 1 ? "\n" : "\r";
+			input.append("class Caf\u00e9").append(i).append(" {").append(lineBreak)
+					.append("\t/* A comment ** with stars *").append(lineBreak)
+					.append("\t   over ").append("*".repeat(i % 5)).append(" lines. */").append(lineBreak)
+					.append("\tint x").append(i).append(" = ").append(i * 31).append(".5e-3 + y\u00fc >= 12;")
+					.append(" // \u00fcber \u20ac").append(lineBreak)
+					.append("\treturn \"a \\\"string\\\" \u20ac").append(i).append("\" \u20ac= \u2200;")
+					.append(lineBreak)
+					.append(" ".repeat(i)).append("identifier_").append("x".repeat(i * 3)).append(lineBreak)
+					.append("/*").append(" text".repeat(i)).append("*/}").append(lineBreak)
+					.append(lineBreak);
+		}
+		return input.toString();
+	}
+
+	/**
+	 * Removes the skip tokens from the given tokens, as formatted by {@link LexerDriver#format}.
+	 * @param tokens The tokens of the lexer in which nothing is skipped.
+	 * @return The tokens that the lexer with skip tokens returns.
+	 */
+	public static List<String> removeSkipTokens(List<String> tokens) {
+		return tokens.stream()
+				.filter(token -> !SKIP_TOKEN_TYPES.contains(token.split(" ")[1]))
+				.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,94 @@
+package io.lateralus.lexergenerator.codegenerator.simple;
+
+import io.lateralus.lexergenerator.codegenerator.TestLexerDescription;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RowDisplacementTableTest {
+
+	@Test
+	public void testLookupGivesTheTargetsOfTheTable() {
+		int[][] table = {
+				{ 0, 0, 0, 0, 0 },
+				{ 0, 2, 3, 0, 0 },
+				{ 0, 2, 2, 2, 4 },
+				{ 1, 1, 1, 1, 1 },
+				{ 0, 0, 0, 0, 4 },
+		};
+		RowDisplacementTable compressedTable = new RowDisplacementTable(table);
+
+		assertArrayEquals(new int[] { 0, 0, 2, 1, 0 }, compressedTable.getDefaults());
+		assertLookup(table, compressedTable);
+	}
+
+	@Test
+	public void testLookupGivesTheTargetsOfRandomSparseTables() {
+		Random random = new Random(42);
+		for (int i = 0; i < 50; i++) {
+			int stateCount = 1 + random.nextInt(60);
+			int width = 1 + random.nextInt(40);
+			int[][] table = new int[stateCount][width];
+			int transitionCount = 0;
+			for (int[] row : table) {
+				for (int input = 0; input < width; input++) {
+					if (random.nextInt(8) == 0) {
+						row[input] = random.nextInt(stateCount);
+						transitionCount++;
+					}
+				}
+			}
+			RowDisplacementTable compressedTable = new RowDisplacementTable(table);
+
+			assertLookup(table, compressedTable);
+
+			// The rows are packed, so the arrays stay close to the number of transitions.
+			assertTrue(compressedTable.getNext().length <= transitionCount + 2 * width + 16);
+		}
+	}
+
+	@Test
+	public void testTableOfTheTestLexer() throws Exception {
+		int[][] table =
+				BasicLexerCodeGenerator.createTransitionTable(TestLexerDescription.createDefinition(false, false));
+		RowDisplacementTable compressedTable = new RowDisplacementTable(table);
+
+		assertLookup(table, compressedTable);
+
+		// Most transitions lead to the error state, so the four arrays are smaller than the dense table.
+		int compressedSize = compressedTable.getDefaults().length + compressedTable.getBases().length +
+				2 * compressedTable.getNext().length;
+		assertTrue(compressedSize < table.length * table[0].length);
+	}
+
+	@Test
+	public void testEmptyTable() {
+		RowDisplacementTable compressedTable = new RowDisplacementTable(new int[0][]);
+
+		assertEquals(0, compressedTable.getDefaults().length);
+		assertEquals(0, compressedTable.getBases().length);
+	}
+
+	/**
+	 * Asserts that every transition of the table is found by the lookup of the generated lexer.
+	 */
+	private static void assertLookup(int[][] table, RowDisplacementTable compressedTable) {
+		int[] defaults = compressedTable.getDefaults();
+		int[] bases = compressedTable.getBases();
+		int[] next = compressedTable.getNext();
+		int[] check = compressedTable.getCheck();
+		assertEquals(next.length, check.length);
+
+		for (int state = 0; state < table.length; state++) {
+			for (int input = 0; input < table[state].length; input++) {
+				int index = bases[state] + input;
+				int target = check[index] == state ? next[index] : defaults[state];
+				assertEquals(table[state][input], target, "state " + state + ", input " + input);
+			}
+		}
+	}
+}
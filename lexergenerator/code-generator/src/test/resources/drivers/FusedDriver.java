@@ -0,0 +1,110 @@
+package generated;
+
+import io.lateralus.lexergenerator.codegenerator.LexerDriver;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Driver for a lexer that has fused the reader.
+ */
+public class FusedDriver implements LexerDriver {
+
+	@Override
+	public List<String> tokenize(String input) throws Exception {
+		return tokenize(input, false);
+	}
+
+	@Override
+	public List<String> tokenizeWithTrivia(String input) throws Exception {
+		return tokenize(input, true);
+	}
+
+	private static List<String> tokenize(String input, boolean trivia) throws Exception {
+		List<String> tokens = new ArrayList<>();
+		TestLexer lexer = new TestLexer(new ChunkedReader(input));
+		if (trivia) {
+			LexerDriver.setTriviaConsumer(lexer, (Token token) -> tokens.add(format(token)));
+		}
+		Token token;
+		do {
+			token = lexer.nextToken();
+			tokens.add(format(token));
+		} while (!token.is(TokenType.EOF));
+		return tokens;
+	}
+
+	@Override
+	public List<String> advance(String input) throws Exception {
+		List<String> tokens = new ArrayList<>();
+		TestLexer lexer = new TestLexer(new ChunkedReader(input));
+		int eof = TokenType.EOF.ordinal();
+		int tokenType;
+		do {
+			tokenType = lexer.advance();
+			tokens.add(LexerDriver.format(TokenType.values()[tokenType], lexer.getLexeme(), lexer.getLineNumber(),
+					lexer.getColumnNumber()));
+		} while (tokenType != eof);
+		return tokens;
+	}
+
+	@Override
+	public List<String> tokenizeInto(String input) throws Exception {
+		TokenBuffer tokens = new TokenBuffer();
+		new TestLexer(new ChunkedReader(input)).tokenizeInto(tokens);
+		return format(tokens);
+	}
+
+	@Override
+	public Object createTokenBuffer(String input) throws Exception {
+		return new TestLexer(new ChunkedReader(input)).tokenizeAll();
+	}
+
+	@Override
+	public List<String> relex(Object tokenBuffer, int offset, int removedLength, String inserted) throws Exception {
+		TestLexer.relex((TokenBuffer) tokenBuffer, offset, removedLength, inserted);
+		return format((TokenBuffer) tokenBuffer);
+	}
+
+	@Override
+	public List<String> getTokens(Object tokenBuffer) {
+		return format((TokenBuffer) tokenBuffer);
+	}
+
+	static List<String> format(TokenBuffer tokens) {
+		List<String> result = new ArrayList<>();
+		for (int i = 0; i < tokens.size(); i++) {
+			result.add(LexerDriver.format(tokens.getTokenType(i), tokens.getLexeme(i), tokens.getLineNumber(i),
+					tokens.getColumnNumber(i)));
+		}
+		return result;
+	}
+
+	static String format(Token token) {
+		return LexerDriver.format(token.getTokenType(), token.getValue(), token.getLineNumber(),
+				token.getColumnNumber());
+	}
+
+	/**
+	 * Reads the input in small chunks, so the lexer has to refill its buffer in the middle of the tokens.
+	 */
+	private static class ChunkedReader extends Reader {
+		private final Reader reader;
+
+		ChunkedReader(String input) {
+			reader = new StringReader(input);
+		}
+
+		@Override
+		public int read(char[] chars, int offset, int length) throws java.io.IOException {
+			return reader.read(chars, offset, Math.min(length, 1000));
+		}
+
+		@Override
+		public void close() throws java.io.IOException {
+			reader.close();
+		}
+	}
+}
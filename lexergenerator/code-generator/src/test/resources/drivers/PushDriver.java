@@ -0,0 +1,41 @@
+package generated;
+
+import io.lateralus.lexergenerator.codegenerator.LexerDriver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Driver for a push lexer on chars.
+ */
+public class PushDriver implements LexerDriver {
+
+	@Override
+	public List<String> push(String input, int chunkSize) throws Exception {
+		return push(input, chunkSize, false);
+	}
+
+	@Override
+	public List<String> pushWithTrivia(String input, int chunkSize) throws Exception {
+		return push(input, chunkSize, true);
+	}
+
+	private static List<String> push(String input, int chunkSize, boolean trivia) throws Exception {
+		List<String> tokens = new ArrayList<>();
+		TestPushLexer lexer = new TestPushLexer(token -> tokens.add(format(token)));
+		if (trivia) {
+			LexerDriver.setTriviaConsumer(lexer, (Token token) -> tokens.add(format(token)));
+		}
+		char[] chars = input.toCharArray();
+		for (int i = 0; i < chars.length; i += chunkSize) {
+			lexer.feed(chars, i, Math.min(chunkSize, chars.length - i));
+		}
+		lexer.endOfInput();
+		return tokens;
+	}
+
+	static String format(Token token) {
+		return LexerDriver.format(token.getTokenType(), token.getValue(), token.getLineNumber(),
+				token.getColumnNumber());
+	}
+}
@@ -0,0 +1,42 @@
+package generated;
+
+import io.lateralus.lexergenerator.codegenerator.LexerDriver;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Driver for a lexer that reads from a {@link LexerReader}.
+ */
+public class ReaderDriver implements LexerDriver {
+
+	@Override
+	public List<String> tokenize(String input) throws Exception {
+		return tokenize(input, false);
+	}
+
+	@Override
+	public List<String> tokenizeWithTrivia(String input) throws Exception {
+		return tokenize(input, true);
+	}
+
+	private static List<String> tokenize(String input, boolean trivia) throws Exception {
+		List<String> tokens = new ArrayList<>();
+		TestLexer lexer = new TestLexer(new LexerReaderImpl(new StringReader(input)));
+		if (trivia) {
+			LexerDriver.setTriviaConsumer(lexer, (Token token) -> tokens.add(format(token)));
+		}
+		Token token;
+		do {
+			token = lexer.nextToken();
+			tokens.add(format(token));
+		} while (!token.is(TokenType.EOF));
+		return tokens;
+	}
+
+	static String format(Token token) {
+		return LexerDriver.format(token.getTokenType(), token.getValue(), token.getLineNumber(),
+				token.getColumnNumber());
+	}
+}
@@ -0,0 +1,86 @@
+package generated;
+
+import io.lateralus.lexergenerator.codegenerator.LexerDriver;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Driver for a lexer on UTF-8 bytes.
+ */
+public class Utf8Driver implements LexerDriver {
+
+	@Override
+	public List<String> tokenize(String input) throws Exception {
+		return tokenize(input, false);
+	}
+
+	@Override
+	public List<String> tokenizeWithTrivia(String input) throws Exception {
+		return tokenize(input, true);
+	}
+
+	private static List<String> tokenize(String input, boolean trivia) throws Exception {
+		List<String> tokens = new ArrayList<>();
+		TestLexer lexer = new TestLexer(input.getBytes(StandardCharsets.UTF_8));
+		if (trivia) {
+			LexerDriver.setTriviaConsumer(lexer, (Token token) -> tokens.add(format(token)));
+		}
+		Token token;
+		do {
+			token = lexer.nextToken();
+			tokens.add(format(token));
+		} while (!token.is(TokenType.EOF));
+		return tokens;
+	}
+
+	@Override
+	public List<String> advance(String input) throws Exception {
+		List<String> tokens = new ArrayList<>();
+		TestLexer lexer = new TestLexer(createDirectBuffer(input));
+		int eof = TokenType.EOF.ordinal();
+		int tokenType;
+		do {
+			tokenType = lexer.advance();
+			tokens.add(LexerDriver.format(TokenType.values()[tokenType], lexer.getLexeme(), lexer.getLineNumber(),
+					lexer.getColumnNumber()));
+		} while (tokenType != eof);
+		return tokens;
+	}
+
+	@Override
+	public List<String> tokenizeInto(String input) throws Exception {
+		return format(new TestLexer(input.getBytes(StandardCharsets.UTF_8)).tokenizeAll());
+	}
+
+	@Override
+	public List<String> tokenizeParallel(String input, int chunkSize) throws Exception {
+		TokenBuffer tokenBuffer = new TokenBuffer();
+		new TestLexer(createDirectBuffer(input)).tokenizeParallel(tokenBuffer, ForkJoinPool.commonPool(), chunkSize);
+		return format(tokenBuffer);
+	}
+
+	static List<String> format(TokenBuffer tokens) {
+		List<String> result = new ArrayList<>();
+		for (int i = 0; i < tokens.size(); i++) {
+			result.add(LexerDriver.format(tokens.getTokenType(i), tokens.getLexeme(i), tokens.getLineNumber(i),
+					tokens.getColumnNumber(i)));
+		}
+		return result;
+	}
+
+	static String format(Token token) {
+		return LexerDriver.format(token.getTokenType(), token.getValue(), token.getLineNumber(),
+				token.getColumnNumber());
+	}
+
+	private static ByteBuffer createDirectBuffer(String input) {
+		byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes).flip();
+		return buffer;
+	}
+}
@@ -0,0 +1,43 @@
+package generated;
+
+import io.lateralus.lexergenerator.codegenerator.LexerDriver;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Driver for a push lexer on UTF-8 bytes.
+ */
+public class Utf8PushDriver implements LexerDriver {
+
+	@Override
+	public List<String> push(String input, int chunkSize) throws Exception {
+		return push(input, chunkSize, false);
+	}
+
+	@Override
+	public List<String> pushWithTrivia(String input, int chunkSize) throws Exception {
+		return push(input, chunkSize, true);
+	}
+
+	private static List<String> push(String input, int chunkSize, boolean trivia) throws Exception {
+		List<String> tokens = new ArrayList<>();
+		TestPushLexer lexer = new TestPushLexer(token -> tokens.add(format(token)));
+		if (trivia) {
+			LexerDriver.setTriviaConsumer(lexer, (Token token) -> tokens.add(format(token)));
+		}
+		byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < bytes.length; i += chunkSize) {
+			lexer.feed(ByteBuffer.wrap(bytes, i, Math.min(chunkSize, bytes.length - i)));
+		}
+		lexer.endOfInput();
+		return tokens;
+	}
+
+	static String format(Token token) {
+		return LexerDriver.format(token.getTokenType(), token.getValue(), token.getLineNumber(),
+				token.getColumnNumber());
+	}
+}
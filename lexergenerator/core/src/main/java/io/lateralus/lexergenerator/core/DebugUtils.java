@@ -28,9 +28,10 @@ public class DebugUtils {
 		System.out.println("}");
 	}
 
-	public static void printAutomaton(Automaton automaton, int[] alphabetIntervals, int errorState, boolean skipErrorState) {
+	public static void printAutomaton(Automaton automaton, int[] alphabetIntervals, int[] alphabetClasses,
+			int errorState, boolean skipErrorState) {
 
-		String acceptingStates = automaton.getAcceptingStates().stream().map(Object::toString)
+		String acceptingStates = automaton.getAcceptingStates().stream().mapToObj(Integer::toString)
 				.collect(Collectors.joining(" "));
 
 		System.out.println("digraph finite_state_machine {\n" +
@@ -41,33 +42,51 @@ public class DebugUtils {
 				"\tnode [shape = circle];\n" +
 				"\t\"\" -> " + automaton.getStartState());
 
-		for (Automaton.Transition transition : automaton.getTransitions()) {
-			if (skipErrorState && transition.toState == errorState) {
-				continue;
-			}
-
-			String input;
-			if (transition.fromState == automaton.getStartState()) {
-				input = "ls:" + transition.input;
-			} else {
-				input = determineInput(transition.input, alphabetIntervals);
+		int[] offsets = automaton.getOffsets();
+		int[] targets = automaton.getTargets();
+		int[] inputs = automaton.getInputs();
+
+		for (int fromState = 0; fromState < automaton.getStateCount(); fromState++) {
+			for (int i = offsets[fromState]; i < offsets[fromState + 1]; i++) {
+				int toState = targets[i];
+				if (skipErrorState && toState == errorState) {
+					continue;
+				}
+
+				String input;
+				if (fromState == automaton.getStartState()) {
+					input = "ls:" + inputs[i];
+				} else {
+					input = determineInput(inputs[i], alphabetIntervals, alphabetClasses);
+				}
+
+				System.out.println("\t" + fromState + " -> " + toState + " [ label = \"" + input + "\" ];");
 			}
-
-			System.out.println("\t" + transition.fromState + " -> " + transition.toState + " [ label = \"" + input + "\" ];");
 		}
 
 		System.out.println("}");
 	}
 
-	private static String determineInput(int input, int[] alphabetIntervals) {
+	private static String determineInput(int input, int[] alphabetIntervals, int[] alphabetClasses) {
 		if (input < 0) {
 			return "&epsilon;";
 		}
 
-		int start = alphabetIntervals[input * 2];
-		int end = alphabetIntervals[input * 2 + 1];
+		// Print all intervals of the equivalence class.
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < alphabetClasses.length; i++) {
+			if (alphabetClasses[i] != input) {
+				continue;
+			}
+			if (builder.length() > 0) {
+				builder.append(",");
+			}
+			int start = alphabetIntervals[i * 2];
+			int end = alphabetIntervals[i * 2 + 1];
+			builder.append(String.format("%02x", start)).append("..").append(String.format("%02x", end));
+		}
 
-		return String.format("%02x", start) + ".." + String.format("%02x", end);
+		return builder.toString();
 	}
 
 }
@@ -1,9 +1,7 @@
 package io.lateralus.lexergenerator.core.automaton;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.BitSet;
 
 /**
  * Represents a Finite State Automaton (FSA).
@@ -13,62 +11,24 @@ import java.util.Set;
  * <p>
  * In this implementation every state is represented by an integer.
  * To transition between states we use a positive integer as input or {@code -1} for the epsilon transition.
+ * <p>
+ * Transitions are stored in primitive arrays. While the automaton is being built they are appended to an edge list,
+ * the first time they are read they are compacted into a compressed sparse row (CSR) representation: the transitions
+ * of state {@code s} are found at the indices {@code offsets[s]} (inclusive) until {@code offsets[s + 1]} (exclusive)
+ * of the {@code targets} and {@code inputs} arrays. Within a state the transitions are sorted on their input (and then
+ * on their target), so the epsilon transitions of a state always come first. Duplicate transitions are removed.
  */
 public class Automaton {
 
 	/**
-	 * Object representing a transition between states.
-	 * <p>
-	 * A transition is triggered by an input symbol in the interval of code points.
-	 */
-	public static class Transition {
-
-		/**
-		 * The state to transition from.
-		 */
-		public final int fromState;
-
-		/**
-		 * The state to transition to.
-		 */
-		public final int toState;
-
-		/**
-		 * The input for this transition. The input -1 is the epsilon.
-		 */
-		public final int input;
-
-		/**
-		 * Constructor.
-		 * @param toState The state to transition to.
-		 * @param input The input for this transition.
-		 */
-		public Transition(final int fromState, final int toState, final int input) {
-			this.fromState = fromState;
-			this.toState = toState;
-			this.input = input;
-		}
-
-		@Override
-		public boolean equals(Object o) {
-			if (this == o) return true;
-			if (o == null || getClass() != o.getClass()) return false;
-
-			Transition that = (Transition) o;
-
-			if (fromState != that.fromState) return false;
-			if (toState != that.toState) return false;
-			return input == that.input;
-		}
+	 * The input that is used for epsilon transitions.
+	 */
+	public static final int EPSILON = -1;
 
-		@Override
-		public int hashCode() {
-			int result = fromState;
-			result = 31 * result + toState;
-			result = 31 * result + input;
-			return result;
-		}
-	}
+	/**
+	 * The initial capacity of the arrays holding the transitions.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
 
 	/**
 	 * The number of states.
@@ -76,20 +36,41 @@ public class Automaton {
 	private int stateCount;
 
 	/**
-	 * Per state a set of possible transitions from that state.
+	 * The states the transitions start from.
+	 */
+	private int[] fromStates;
+
+	/**
+	 * The states the transitions go to.
 	 */
-	private List<Set<Transition>> transitionSetList;
+	private int[] toStates;
 
 	/**
-	 * List of all transitions.
+	 * The inputs of the transitions. The input -1 is the epsilon.
 	 */
-	private Set<Transition> transitions;
+	private int[] transitionInputs;
 
 	/**
 	 * The (total) number of transitions.
 	 */
 	private int transitionCount;
 
+	/**
+	 * Per state the index of its first transition in {@link #targets} and {@link #inputs}. Has {@code stateCount + 1}
+	 * elements. Is {@code null} as long as the transitions are not compacted.
+	 */
+	private int[] offsets;
+
+	/**
+	 * The target states of the transitions, grouped per state.
+	 */
+	private int[] targets;
+
+	/**
+	 * The inputs of the transitions, grouped per state.
+	 */
+	private int[] inputs;
+
 	/**
 	 * The start state.
 	 */
@@ -98,7 +79,7 @@ public class Automaton {
 	/**
 	 * The set of accepting states.
 	 */
-	private Set<Integer> acceptingStates;
+	private final BitSet acceptingStates;
 
 	/**
 	 * The size of the alphabet for this automaton. Since the alphabet is just 0, 1, 2, ... n-1, this number also
@@ -110,9 +91,10 @@ public class Automaton {
 	 * Constructor.
 	 */
 	public Automaton() {
-		transitionSetList = new ArrayList<>();
-		transitions = new HashSet<>();
-		acceptingStates = new HashSet<>();
+		fromStates = new int[INITIAL_CAPACITY];
+		toStates = new int[INITIAL_CAPACITY];
+		transitionInputs = new int[INITIAL_CAPACITY];
+		acceptingStates = new BitSet();
 	}
 
 	/**
@@ -120,12 +102,24 @@ public class Automaton {
 	 * @return The integer representing the state.
 	 */
 	public int addState() {
-		transitionSetList.add(new HashSet<>());
+		offsets = null;
 		return stateCount++;
 	}
 
+	/**
+	 * Adds the given number of states.
+	 * @param count The number of states to add.
+	 * @return The integer representing the first of the added states.
+	 */
+	public int addStates(int count) {
+		offsets = null;
+		int first = stateCount;
+		stateCount += count;
+		return first;
+	}
+
 	public void addAcceptingState(int state) {
-		acceptingStates.add(state);
+		acceptingStates.set(state);
 	}
 
 	/**
@@ -144,10 +138,18 @@ public class Automaton {
 	 * @param input The input for this transition.
 	 */
 	public void addTransition(int fromState, int toState, int input) {
-		Transition transition = new Transition(fromState, toState, input);
-		transitionSetList.get(fromState).add(transition);
-		transitions.add(transition);
+		if (transitionCount == fromStates.length) {
+			int capacity = fromStates.length * 2;
+			fromStates = Arrays.copyOf(fromStates, capacity);
+			toStates = Arrays.copyOf(toStates, capacity);
+			transitionInputs = Arrays.copyOf(transitionInputs, capacity);
+		}
+
+		fromStates[transitionCount] = fromState;
+		toStates[transitionCount] = toState;
+		transitionInputs[transitionCount] = input;
 		transitionCount++;
+		offsets = null;
 	}
 
 	/**
@@ -156,33 +158,92 @@ public class Automaton {
 	 * @param toState The state to go to.
 	 */
 	public void addEpsilonTransition(int fromState, int toState) {
-		addTransition(fromState, toState, -1);
+		addTransition(fromState, toState, EPSILON);
 	}
 
 	public int getStateCount() {
 		return stateCount;
 	}
 
-	public Set<Transition> getTransitions() {
-		return transitions;
-	}
-
 	public int getTransitionCount() {
+		compact();
 		return transitionCount;
 	}
 
-	public List<Set<Transition>> getTransitionSetList() {
-		return transitionSetList;
+	/**
+	 * Returns the offsets of the transitions per state. The transitions of state {@code s} can be found from index
+	 * {@code offsets[s]} up until {@code offsets[s + 1]} in the arrays returned by {@link #getTargets()} and
+	 * {@link #getInputs()}.
+	 * <p>
+	 * Note that the returned array is shared with this automaton and must not be altered.
+	 * @return The offsets.
+	 */
+	public int[] getOffsets() {
+		compact();
+		return offsets;
+	}
+
+	/**
+	 * Returns the target states of all transitions, grouped per state (see {@link #getOffsets()}).
+	 * @return The target states.
+	 */
+	public int[] getTargets() {
+		compact();
+		return targets;
+	}
+
+	/**
+	 * Returns the inputs of all transitions, grouped per state (see {@link #getOffsets()}).
+	 * @return The inputs.
+	 */
+	public int[] getInputs() {
+		compact();
+		return inputs;
+	}
+
+	/**
+	 * Finds the state that is reached from the given state on the given input. Since the transitions of a state are
+	 * sorted on their input this uses a binary search. For non deterministic automata the first matching target is
+	 * returned.
+	 * @param state The state to start from.
+	 * @param input The input.
+	 * @return The target state or {@code -1} if there is no such transition.
+	 */
+	public int findTarget(int state, int input) {
+		compact();
+		int end = offsets[state + 1];
+		int low = offsets[state];
+		int high = end;
+
+		// Find the first transition with an input that is not smaller than the given input.
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (inputs[middle] < input) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low < end && inputs[low] == input ? targets[low] : -1;
 	}
 
 	public int getStartState() {
 		return startState;
 	}
 
-	public Set<Integer> getAcceptingStates() {
+	/**
+	 * Returns the set of accepting states. Note that the returned set is shared with this automaton.
+	 * @return The accepting states.
+	 */
+	public BitSet getAcceptingStates() {
 		return acceptingStates;
 	}
 
+	public boolean isAcceptingState(int state) {
+		return acceptingStates.get(state);
+	}
+
 	public void setAlphabetSize(int alphabetSize) {
 		this.alphabetSize = alphabetSize;
 	}
@@ -190,4 +251,92 @@ public class Automaton {
 	public int getAlphabetSize() {
 		return alphabetSize;
 	}
+
+	/**
+	 * Compacts the edge list into the compressed sparse row representation. The transitions are sorted on (from state,
+	 * input, to state) using three stable counting sorts, after which duplicates are adjacent and can be dropped.
+	 */
+	private void compact() {
+		if (offsets != null) {
+			return;
+		}
+
+		int count = transitionCount;
+		int minInput = 0;
+		int maxInput = 0;
+		for (int i = 0; i < count; i++) {
+			minInput = Math.min(minInput, transitionInputs[i]);
+			maxInput = Math.max(maxInput, transitionInputs[i]);
+		}
+
+		// Sort the indices of the edges; least significant key first.
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		order = countingSort(order, toStates, 0, stateCount);
+		order = countingSort(order, transitionInputs, minInput, maxInput - minInput + 1);
+		order = countingSort(order, fromStates, 0, stateCount);
+
+		int[] newFromStates = new int[Math.max(count, INITIAL_CAPACITY)];
+		int[] newToStates = new int[newFromStates.length];
+		int[] newInputs = new int[newFromStates.length];
+		int[] newOffsets = new int[stateCount + 1];
+
+		int j = 0;
+		for (int i = 0; i < count; i++) {
+			int edge = order[i];
+			int from = fromStates[edge];
+			int to = toStates[edge];
+			int input = transitionInputs[edge];
+
+			// Skip the edge if it is a duplicate of the previous one.
+			if (j > 0 && newFromStates[j - 1] == from && newInputs[j - 1] == input && newToStates[j - 1] == to) {
+				continue;
+			}
+
+			newFromStates[j] = from;
+			newToStates[j] = to;
+			newInputs[j] = input;
+			newOffsets[from + 1]++;
+			j++;
+		}
+
+		for (int s = 0; s < stateCount; s++) {
+			newOffsets[s + 1] += newOffsets[s];
+		}
+
+		fromStates = newFromStates;
+		toStates = newToStates;
+		transitionInputs = newInputs;
+		transitionCount = j;
+
+		// The sorted edge list doubles as the CSR arrays.
+		targets = newToStates;
+		inputs = newInputs;
+		offsets = newOffsets;
+	}
+
+	/**
+	 * Stable counting sort of the given edge indices on the given key.
+	 * @param order The edge indices to sort.
+	 * @param keys The keys per edge.
+	 * @param minKey The smallest key.
+	 * @param range The number of possible keys.
+	 * @return The sorted edge indices.
+	 */
+	private static int[] countingSort(int[] order, int[] keys, int minKey, int range) {
+		int[] counts = new int[range + 1];
+		for (int edge : order) {
+			counts[keys[edge] - minKey + 1]++;
+		}
+		for (int i = 0; i < range; i++) {
+			counts[i + 1] += counts[i];
+		}
+		int[] result = new int[order.length];
+		for (int edge : order) {
+			result[counts[keys[edge] - minKey]++] = edge;
+		}
+		return result;
+	}
 }
@@ -2,11 +2,13 @@ package io.lateralus.lexergenerator.core.automaton;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
 
 /**
  * Responsible for determinizing an {@link Automaton}.
@@ -16,69 +18,83 @@ import java.util.stream.Collectors;
  * (NFA) can be expressed as a deterministic finite automaton (DFA).
  * <br/>
  * This class translates a NFA into a DFA using the powerset construction.
+ * <br/>
+ * The DFA states are processed in breadth-first order. In parallel mode all DFA states of one level are expanded
+ * concurrently (on the common fork-join pool), after which their successors are numbered sequentially in the same
+ * order as in sequential mode. So both modes produce exactly the same DFA.
  */
 public class AutomatonDeterminizer {
 
 	/**
-	 * Inner class that represents a DFA state, which is an element of the powerset of the states of the NFA.
+	 * The NFA.
 	 */
-	private static class DFAState {
-		private int[] states;
-		private int hash;
-
-		private DFAState(int[] states) {
-			this.states = states;
-		}
+	private Automaton nfa;
 
-		@Override
-		public boolean equals(Object o) {
-			DFAState dfaState = (DFAState) o;
+	/**
+	 * The transition offsets per state of the NFA (see {@link Automaton#getOffsets()}).
+	 */
+	private int[] offsets;
 
-			if (this == dfaState) {
-				return true;
-			}
+	/**
+	 * The target states of the transitions of the NFA.
+	 */
+	private int[] targets;
 
-			if (this.states.length != dfaState.states.length) {
-				return false;
-			}
+	/**
+	 * The inputs of the transitions of the NFA.
+	 */
+	private int[] inputs;
 
-			if (this.hashCode() != o.hashCode()) {
-				return false;
-			}
+	/**
+	 * The size of the alphabet of the NFA.
+	 */
+	private int alphabetSize;
 
-			return Arrays.equals(states, dfaState.states);
-		}
+	/**
+	 * Per NFA state its (sorted) epsilon closure. Only the closures that are needed are calculated; those of the start
+	 * state and the targets of the transitions that are not epsilon transitions. The others are {@code null}.
+	 */
+	private int[][] epsilonClosures;
 
-		@Override
-		public int hashCode() {
-			int h = hash;
-			if (h == 0 && states.length > 0) {
-				h = Arrays.hashCode(states);
-				hash = h;
-			}
-			return h;
-		}
-	}
+	/**
+	 * Whether the DFA states of one level are expanded in parallel.
+	 */
+	private final boolean parallel;
 
 	/**
-	 * The NFA.
+	 * The subset calculators that are not in use. Since a calculator holds arrays the size of the NFA they are reused.
 	 */
-	private Automaton nfa;
+	private final Queue<SubsetCalculator> subsetCalculators = new ConcurrentLinkedQueue<>();
 
+	private int[][] newStateOldStateMapping;
 
-	private int[] stateStack;
-	private int[] stateSet;
-	private boolean[] stateSetPresent;
+	/**
+	 * Creates a determinizer that works sequentially.
+	 */
+	public AutomatonDeterminizer() {
+		this(false);
+	}
 
-	private Map<Integer, Set<Integer>> newStateOldStateMapping;
+	/**
+	 * Creates a determinizer.
+	 * @param parallel Whether the determinization should be spread over multiple threads.
+	 */
+	public AutomatonDeterminizer(boolean parallel) {
+		this.parallel = parallel;
+	}
 
 	public Automaton determinize(Automaton nfa) {
 		// Get the starting state.
 		this.nfa = nfa;
+		this.offsets = nfa.getOffsets();
+		this.targets = nfa.getTargets();
+		this.inputs = nfa.getInputs();
 
-		int alphabetSize = nfa.getAlphabetSize();
+		this.alphabetSize = nfa.getAlphabetSize();
 
-		initializeForEpsilonClosureCalculation(nfa.getStateCount());
+		// The epsilon closure of a set of states is the union of the closures of its states, which are calculated
+		// once up front.
+		this.epsilonClosures = calculateEpsilonClosures();
 
 		// Create the list and the map that we will use to locally store the DFA states. The map will be used to check
 		// that the DFA states are unique. The list will be needed to check that the DFA states will only be processed
@@ -91,12 +107,13 @@ public class AutomatonDeterminizer {
 		// The mark index indicates the highest processed item in the list with dfa states.
 		int mark = 0;
 
-		List<Automaton.Transition> transitionList = new ArrayList<>();
+		// The transitions of the DFA, stored as (from state, to state, input) triples.
+		int[] transitionArray = new int[3 * 16];
+		int transitionArrayLength = 0;
 
 		// Get
 		int startState = nfa.getStartState();
-		int[] states = calculateEpsilonClosure(new int[]{ startState });
-		DFAState dfaStartState = new DFAState(states);
+		DFAState dfaStartState = new DFAState(epsilonClosures[startState]);
 
 		// Add a new state that will represent the new (DFA) start state.
 		stateList.add(dfaStartState);
@@ -106,38 +123,38 @@ public class AutomatonDeterminizer {
 
 		// While there are unmarked items left.
 		while (mark < stateList.size()) {
-			// Note that mark is also the state number. (See the explanation above.)
-			DFAState dfaState = stateList.get(mark);
-
-			for (int input = 0; input < alphabetSize; input++) {
-				// Calculate the states that can be reached from the states in the current DFA state on input and
-				// allowing for epsilon transitions.
-				states = calculateEpsilonClosure(calculateMove(dfaState.states, input));
-
-				// If no states were found, continue with the next input.
-				if (states.length == 0) {
-					continue;
-				}
-
-				DFAState newDFAState = new DFAState(states);
-
-				int state;
-				// If the DFA state does not yet exist in our DFA add it, otherwise get its state number.
-				if (!dfaStateMap.containsKey(newDFAState)) {
-					stateList.add(newDFAState);
-					state = stateList.size() - 1;
-					dfaStateMap.put(newDFAState, state);
-
-				} else {
-					state = dfaStateMap.get(newDFAState);
+			// In parallel mode all unmarked states are expanded at once, otherwise just the next one.
+			int end = parallel ? stateList.size() : mark + 1;
+
+			// Calculate per state and input the states that can be reached from the states in the DFA state on that
+			// input and allowing for epsilon transitions.
+			Successors[] successors = calculateSuccessors(stateList, mark, end);
+
+			for (int start = mark; mark < end; mark++) {
+				// Note that mark is also the state number. (See the explanation above.)
+				Successors stateSuccessors = successors[mark - start];
+
+				// Only the inputs on which some state can be reached are present.
+				for (int i = 0; i < stateSuccessors.inputs.length; i++) {
+					int input = stateSuccessors.inputs[i];
+					DFAState newDFAState = stateSuccessors.states[i];
+
+					// Intern the DFA state; if it does not yet exist in our DFA add it, otherwise get its state number.
+					Integer state = dfaStateMap.putIfAbsent(newDFAState, stateList.size());
+					if (state == null) {
+						state = stateList.size();
+						stateList.add(newDFAState);
+					}
+
+					// Add the transition.
+					if (transitionArrayLength == transitionArray.length) {
+						transitionArray = Arrays.copyOf(transitionArray, transitionArray.length * 2);
+					}
+					transitionArray[transitionArrayLength++] = mark;
+					transitionArray[transitionArrayLength++] = state;
+					transitionArray[transitionArrayLength++] = input;
 				}
-
-				// Add the transition.
-				transitionList.add(new Automaton.Transition(mark, state, input));
 			}
-
-			// Mark the state as processed.
-			mark++;
 		}
 
 		// Create the resulting automaton.
@@ -146,151 +163,323 @@ public class AutomatonDeterminizer {
 		// By definition the start state is state 0. (See the explanation above.)
 		dfa.setStartState(0);
 
-		newStateOldStateMapping = new HashMap<>();
+		newStateOldStateMapping = new int[stateList.size()][];
 
 		for (DFAState dfaState : stateList) {
 			int i = dfa.addState();
 
-			// Add all states to the
-			newStateOldStateMapping.put(i, Arrays.stream(dfaState.states).boxed().collect(Collectors.toSet()));
+			// Store the NFA states that make up the DFA state.
+			newStateOldStateMapping[i] = dfaState.states;
 
 			if (containsState(dfaState.states, nfa.getAcceptingStates())) {
 				dfa.addAcceptingState(i);
 			}
 		}
 
-		for (Automaton.Transition transition : transitionList) {
-			dfa.addTransition(transition.fromState, transition.toState, transition.input);
+		for (int i = 0; i < transitionArrayLength; i += 3) {
+			dfa.addTransition(transitionArray[i], transitionArray[i + 1], transitionArray[i + 2]);
 		}
 
 		dfa.setAlphabetSize(nfa.getAlphabetSize());
 
+		// The calculators and closures are sized for this NFA.
+		subsetCalculators.clear();
+		epsilonClosures = null;
+
 		return dfa;
 	}
 
 	/**
-	 * Initializes the arrays that are needed to determine the epsilon closure.
-	 * @param totalNrOfStates The total number of states in the NFA.
+	 * Calculates the epsilon closures of the start state and of all states that are the target of a transition that is
+	 * not an epsilon transition, in parallel if enabled. Only these states can be the start of an epsilon closure.
+	 * @return Per NFA state its sorted epsilon closure, or {@code null} if it is not needed.
 	 */
-	private void initializeForEpsilonClosureCalculation(int totalNrOfStates) {
-		stateStack = new int[totalNrOfStates];
-		stateSet = new int[totalNrOfStates];
-		stateSetPresent = new boolean[totalNrOfStates];
+	private int[][] calculateEpsilonClosures() {
+		int stateCount = nfa.getStateCount();
+
+		BitSet closureStates = new BitSet(stateCount);
+		closureStates.set(nfa.getStartState());
+		for (int k = 0; k < offsets[stateCount]; k++) {
+			if (inputs[k] != Automaton.EPSILON) {
+				closureStates.set(targets[k]);
+			}
+		}
+
+		int[][] closures = new int[stateCount][];
+
+		IntStream states = closureStates.stream();
+		if (parallel) {
+			states = states.parallel();
+		}
+
+		states.forEach(state -> {
+			SubsetCalculator calculator = acquireSubsetCalculator();
+			closures[state] = calculator.calculateEpsilonClosure(state);
+			releaseSubsetCalculator(calculator);
+		});
+
+		return closures;
 	}
 
 	/**
-	 * Calculates the epsilon closure over the given set of states.
-	 * @param states A set of states to compute the epsilon closure over.
-	 * @return the epsilon closure
+	 * Calculates the successors of the given DFA states, in parallel if enabled.
+	 * @param stateList The DFA states.
+	 * @param start The index of the first DFA state to calculate the successors for.
+	 * @param end The index after the last DFA state to calculate the successors for.
+	 * @return Per DFA state its successors.
 	 */
-	private int[] calculateEpsilonClosure(int[] states) {
-
-		int[] stateStack = this.stateStack;
-		int[] stateSet = this.stateSet;
-		boolean[] present = this.stateSetPresent;
+	private Successors[] calculateSuccessors(List<DFAState> stateList, int start, int end) {
+		Successors[] successors = new Successors[end - start];
 
-		// Reset the present array.
-		Arrays.fill(present, false);
+		IntStream indices = IntStream.range(start, end);
+		if (parallel && end - start > 1) {
+			indices = indices.parallel();
+		}
 
-		// Index of the state stack.
-		int i = 0;
-		// Index of the state set.
-		int j = 0;
+		indices.forEach(index -> {
+			SubsetCalculator calculator = acquireSubsetCalculator();
+			successors[index - start] = calculator.calculateSuccessors(stateList.get(index).states);
+			releaseSubsetCalculator(calculator);
+		});
 
-		for (; i < states.length; i++) {
-			int state = states[i];
-			stateStack[i] = state;
-			stateSet[j++] = state;
-			present[state] = true;
-		}
+		return successors;
+	}
 
-		// While the stack contains states.
-		while (i > 0) {
-			// Pop the top state from the stack.
-			int state = stateStack[--i];
-			// Get all transitions for the state.
-			Set<Automaton.Transition> transitions = nfa.getTransitionSetList().get(state);
-
-			// Loop over all transitions.
-			for (Automaton.Transition transition : transitions) {
-				// If the transition is not an epsilon transition, skip it.
-				if (transition.input != -1) {
-					continue;
-				}
+	private SubsetCalculator acquireSubsetCalculator() {
+		SubsetCalculator calculator = subsetCalculators.poll();
+		return calculator != null ? calculator : new SubsetCalculator(nfa.getStateCount());
+	}
 
-				// Get the state to transition to.
-				int newState = transition.toState;
+	private void releaseSubsetCalculator(SubsetCalculator calculator) {
+		subsetCalculators.add(calculator);
+	}
 
-				// If the new state is already present in the
-				if (present[newState]) {
-					continue;
-				}
+	/**
+	 * The successors of a DFA state; the inputs on which there is a transition (in ascending order) and the DFA states
+	 * that are reached on them.
+	 */
+	private static class Successors {
+		private final int[] inputs;
+		private final DFAState[] states;
 
-				stateStack[i++] = newState;
-				stateSet[j++] = newState;
-				present[newState] = true;
-			}
+		private Successors(int[] inputs, DFAState[] states) {
+			this.inputs = inputs;
+			this.states = states;
 		}
-
-		// Return the set of states.
-		return Arrays.copyOf(stateSet, j);
 	}
 
 	/**
-	 * Calculates the set of NFA states to which there is a transition from the given states on the given input symbol.
-	 * @param states The states to find the transitions from.
-	 * @param input The input symbol.
-	 * @return the set of NFA states to which there is a transition from the given states on the given input symbol.
+	 * Calculates sets of NFA states. It holds the scratch arrays for the calculations, so an instance must only be used
+	 * by one thread at a time.
 	 */
-	private int[] calculateMove(int[] states, int input) {
-		int[] stateSet = this.stateSet;
-		boolean[] present = this.stateSetPresent;
+	private class SubsetCalculator {
+		private final int[] stateStack;
+
+		/**
+		 * A sparse set of states; the states of the set are stored in {@code stateSet} up until {@code stateSetSize},
+		 * for every state in the set {@code stateSetIndices} holds its index in {@code stateSet}. Unlike a bit set it
+		 * can be cleared in constant time.
+		 */
+		private final int[] stateSet;
+		private final int[] stateSetIndices;
+		private int stateSetSize;
+
+		/**
+		 * Per input the number of transitions on that input, which is turned into the position of the input in
+		 * {@link #moveStates} while collecting the move.
+		 */
+		private final int[] inputCounts;
+
+		/**
+		 * The inputs on which there is at least one transition.
+		 */
+		private final int[] touchedInputs;
+
+		/**
+		 * The targets of the transitions, grouped per input.
+		 */
+		private int[] moveStates = new int[16];
+
+		/**
+		 * Creates a subset calculator.
+		 * @param totalNrOfStates The total number of states in the NFA.
+		 */
+		private SubsetCalculator(int totalNrOfStates) {
+			stateStack = new int[totalNrOfStates];
+			stateSet = new int[totalNrOfStates];
+			stateSetIndices = new int[totalNrOfStates];
+			inputCounts = new int[alphabetSize];
+			touchedInputs = new int[alphabetSize];
+		}
 
-		// Reset the present array.
-		Arrays.fill(present, false);
+		/**
+		 * Calculates for every input the epsilon closure of the move from the given states on that input.
+		 * <br/>
+		 * Instead of looking for the transitions on every input of the alphabet, the transitions of the states are
+		 * bucketed per input in a single pass. So only the inputs that actually occur are visited, which keeps large
+		 * alphabets cheap.
+		 * @param states The NFA states of a DFA state.
+		 * @return The successors.
+		 */
+		private Successors calculateSuccessors(int[] states) {
+			// Count the transitions per input and collect the inputs that occur.
+			int touchedCount = 0;
+			for (int state : states) {
+				for (int k = offsets[state]; k < offsets[state + 1]; k++) {
+					int input = inputs[k];
+					if (input != Automaton.EPSILON && inputCounts[input]++ == 0) {
+						touchedInputs[touchedCount++] = input;
+					}
+				}
+			}
 
-		// Index of the state set.
-		int i = 0;
+			// Process the inputs in ascending order, which keeps the numbering of the DFA states stable.
+			Arrays.sort(touchedInputs, 0, touchedCount);
 
-		// Loop over all states.
-		for (int state : states) {
-			// Get the possible transitions from the current state.
-			Set<Automaton.Transition> transitions = nfa.getTransitionSetList().get(state);
+			// Turn the counts into the positions of the buckets.
+			int moveSize = 0;
+			for (int i = 0; i < touchedCount; i++) {
+				int input = touchedInputs[i];
+				int count = inputCounts[input];
+				inputCounts[input] = moveSize;
+				moveSize += count;
+			}
+			if (moveSize > moveStates.length) {
+				moveStates = new int[Math.max(moveSize, 2 * moveStates.length)];
+			}
 
-			// Loop over all transitions.
-			for (Automaton.Transition transition : transitions) {
-				// Ignore the transition if the input is not the given input.
-				if (transition.input != input) {
-					continue;
+			// Place the targets in the bucket of their input. Afterwards the position of an input is the end of its
+			// bucket.
+			for (int state : states) {
+				for (int k = offsets[state]; k < offsets[state + 1]; k++) {
+					int input = inputs[k];
+					if (input != Automaton.EPSILON) {
+						moveStates[inputCounts[input]++] = targets[k];
+					}
 				}
+			}
+
+			int[] successorInputs = Arrays.copyOf(touchedInputs, touchedCount);
+			DFAState[] successorStates = new DFAState[touchedCount];
+			int bucketStart = 0;
+			for (int i = 0; i < touchedCount; i++) {
+				int input = touchedInputs[i];
+				int bucketEnd = inputCounts[input];
+				successorStates[i] = new DFAState(calculateEpsilonClosure(moveStates, bucketStart, bucketEnd));
+				bucketStart = bucketEnd;
+				inputCounts[input] = 0;
+			}
+
+			return new Successors(successorInputs, successorStates);
+		}
+
+		/**
+		 * Calculates the epsilon closure over the given set of states as the union of the precalculated closures of the
+		 * states. This takes time proportional to the size of the closure rather than the size of the NFA.
+		 * @param states An array with the states to compute the epsilon closure over, may contain duplicates.
+		 * @param from The index of the first state in the array.
+		 * @param to The index after the last state in the array.
+		 * @return the epsilon closure, sorted
+		 */
+		private int[] calculateEpsilonClosure(int[] states, int from, int to) {
+			// A single state is common, its closure is already known.
+			if (to - from == 1) {
+				return epsilonClosures[states[from]];
+			}
 
-				// Get the new state.
-				int newState = transition.toState;
+			stateSetSize = 0;
 
-				// Ignore if the new state is already present in the state set.
-				if (present[newState]) {
+			for (int k = from; k < to; k++) {
+				int state = states[k];
+
+				// If the state is present, then so is its closure.
+				if (containsState(state)) {
 					continue;
 				}
 
-				// Add the state to the state set.
-				stateSet[i++] = newState;
-				present[newState] = true;
+				for (int closureState : epsilonClosures[state]) {
+					addState(closureState);
+				}
 			}
+
+			// Return the set of states in its canonical (sorted) form.
+			int[] result = Arrays.copyOf(stateSet, stateSetSize);
+			Arrays.sort(result);
+			return result;
 		}
 
-		return Arrays.copyOf(stateSet, i);
+		/**
+		 * Calculates the epsilon closure of the given state by following its epsilon transitions.
+		 * @param state The state to compute the epsilon closure of.
+		 * @return the epsilon closure, sorted
+		 */
+		private int[] calculateEpsilonClosure(int state) {
+			stateSetSize = 0;
+
+			// Index of the state stack.
+			int i = 0;
+
+			stateStack[i++] = state;
+			addState(state);
+
+			// While the stack contains states.
+			while (i > 0) {
+				// Pop the top state from the stack.
+				state = stateStack[--i];
+				// Loop over all transitions of the state. Since the transitions are sorted on their input, the epsilon
+				// transitions come first.
+				for (int k = offsets[state]; k < offsets[state + 1]; k++) {
+					// If the transition is not an epsilon transition, we are done with this state.
+					if (inputs[k] != Automaton.EPSILON) {
+						break;
+					}
+
+					// Get the state to transition to.
+					int newState = targets[k];
+
+					// If the new state is already present in the set, its closure is (or will be) as well.
+					if (containsState(newState)) {
+						continue;
+					}
+
+					stateStack[i++] = newState;
+					addState(newState);
+				}
+			}
+
+			// Return the set of states in its canonical (sorted) form.
+			int[] result = Arrays.copyOf(stateSet, stateSetSize);
+			Arrays.sort(result);
+			return result;
+		}
+
+		private boolean containsState(int state) {
+			int index = stateSetIndices[state];
+			return index < stateSetSize && stateSet[index] == state;
+		}
+
+		private void addState(int state) {
+			if (!containsState(state)) {
+				stateSetIndices[state] = stateSetSize;
+				stateSet[stateSetSize++] = state;
+			}
+		}
 	}
 
-	private static boolean containsState(int[] left, Set<Integer> right) {
+	private static boolean containsState(int[] left, BitSet right) {
 		for (int i : left) {
-			if (right.contains(i)) {
+			if (right.get(i)) {
 				return true;
 			}
 		}
 		return false;
 	}
 
-	public Map<Integer, Set<Integer>> getNewStateOldStateMapping() {
+	/**
+	 * Returns per DFA state the NFA states that it consists of.
+	 * @return The mapping from DFA state to NFA states.
+	 */
+	public int[][] getNewStateOldStateMapping() {
 		return newStateOldStateMapping;
 	}
 }
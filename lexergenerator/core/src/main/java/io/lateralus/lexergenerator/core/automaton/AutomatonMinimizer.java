@@ -1,10 +1,9 @@
 package io.lateralus.lexergenerator.core.automaton;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Minimizes an automaton.
@@ -12,55 +11,38 @@ import java.util.Set;
  * To do this it uses Hopcroft's algorithm (see
  * <a href="https://en.wikipedia.org/wiki/DFA_minimization#Hopcroft's_algorithm">
  *     https://en.wikipedia.org/wiki/DFA_minimization#Hopcroft's_algorithm</a>).
+ * <br/>
+ * The partition of the states is stored in int arrays (see {@link Partition}), the predecessors of a state on an input
+ * are found through an inverse transition index and the splitters are kept on a worklist. Whenever a block is split,
+ * the smaller half becomes the new block, which makes the algorithm run in {@code O(n k log n)} time for {@code n}
+ * states and an alphabet of size {@code k}.
  */
 public class AutomatonMinimizer {
 
-	/**
-	 * Class that represents the splitter.
-	 * <br/>
-	 * In Hopcroft's algorithm a splitter is a tuple of a set of states and a character from the alphabet. It is used in
-	 * the refinement process to split a set of states into two new sets.
-	 */
-	private class Splitter {
-		private Set<Integer> clazz;
-		private int input;
-
-		private Splitter(Set<Integer> clazz, int input) {
-			this.clazz = clazz;
-			this.input = input;
-		}
-
-		@Override
-		public boolean equals(Object o) {
-			if (this == o) return true;
-			if (o == null || getClass() != o.getClass()) return false;
-
-			Splitter splitter = (Splitter) o;
-
-			if (input != splitter.input) return false;
-			return clazz != null ? clazz.equals(splitter.clazz) : splitter.clazz == null;
-		}
-
-		@Override
-		public int hashCode() {
-			int result = clazz != null ? clazz.hashCode() : 0;
-			result = 31 * result + input;
-			return result;
-		}
-	}
-
 	/**
 	 * Interface for partitioning the accepting states.
 	 */
 	public interface AcceptingStatePartitioner {
-		Set<Set<Integer>> partitionAcceptingStates(Set<Integer> acceptingStates);
+
+		/**
+		 * Determines the partition of the given accepting state. All accepting states for which the same partition is
+		 * returned start in the same block, i.e. they might be merged.
+		 * @param acceptingState The accepting state.
+		 * @return A key that identifies the partition.
+		 */
+		int determinePartition(int acceptingState);
 	}
 
 	private int[] oldStateNewStateMapping;
 
-	private AcceptingStatePartitioner partitioner;
+	private final AcceptingStatePartitioner partitioner;
 
-	private Automaton dfa;
+	/**
+	 * The worklist with splitters; pairs of a block and an input.
+	 */
+	private int[] work;
+
+	private int workSize;
 
 	public AutomatonMinimizer(AcceptingStatePartitioner partitioner) {
 		this.partitioner = partitioner;
@@ -73,7 +55,6 @@ public class AutomatonMinimizer {
 	 * @return The minimized automaton.
 	 */
 	public Automaton minimize(Automaton dfa) {
-		this.dfa = dfa;
 
 		// The algorithm works by refining a partition of states based on their behaviour.
 
@@ -81,208 +62,177 @@ public class AutomatonMinimizer {
 		int alphabetSize = dfa.getAlphabetSize();
 		int stateCount = dfa.getStateCount();
 
-		// Determine all accepting states.
-		Set<Integer> acceptingStates = dfa.getAcceptingStates();
-
-		// Since the behaviour of an accepting state is defined by its token type, we must split the set of accepting
-		// states into more states. One set of accepting states per token type. (F)
-		Set<Set<Integer>> acceptingStatePartitions = partitioner.partitionAcceptingStates(acceptingStates);
-
-		// Determine all states that are not an accepting state. (Q \ F)
-		Set<Integer> nonAcceptingStates = complement(determineAllStates(stateCount), acceptingStates);
+		// Build an index that gives, per state and input, all states that transition to that state on that input.
+		int[] inverseOffsets = new int[stateCount * alphabetSize + 1];
+		int[] inverseSources = buildInverseTransitionIndex(dfa, inverseOffsets);
 
-		// The initial partitioning is the sets of accepting states and the rest. (P)
-		Set<Set<Integer>> partitions = new HashSet<>(acceptingStatePartitions);
-		partitions.add(nonAcceptingStates);
+		// The initial partitioning is the sets of accepting states (one per partition of the partitioner) and the rest.
+		Partition partition = createInitialPartition(dfa);
 
-		LinkedList<Splitter> work = new LinkedList<>();
-
-		for (Set<Integer> acceptingState : acceptingStatePartitions) {
-			for (int i = 0; i < alphabetSize; i++) {
-				work.add(new Splitter(acceptingState, i));
-			}
+		// Add all splitters for the initial blocks to the work supply (W). One block can be left out.
+		work = new int[16];
+		workSize = 0;
+		for (int block = 1; block < partition.blockCount; block++) {
+			addSplitters(block, alphabetSize);
 		}
 
-		// Add all partitions for the accepting states to the work supply (W).
-		Splitter splitter;
-
-		// Check to see if there is some work left to do.
-		while(!work.isEmpty()) {
-
-			// Get (and remove) the first item from the work supply.
-			splitter = work.removeFirst();
+		Partition.SplitListener listener = newBlock -> addSplitters(newBlock, alphabetSize);
 
-			// Find all states that, given the splitter input, transition to the splitter state.
-			Set<Integer> o = determineOriginStates(splitter, dfa.getTransitions());
+		// Marking moves states within their block, so the states of the splitter block are copied before marking.
+		int[] splitterStates = new int[stateCount];
 
-			// If x is empty, all intersections of x with y will be empty as well. So the loop below will never
-			// partition the set any further. Skip it altogether.
-			if (o.isEmpty()) {
-				continue;
-			}
+		// Check to see if there is some work left to do.
+		while (workSize > 0) {
 
-			// Loop over all (current) partitions.
-			List<Set<Integer>> currentPartitions = new ArrayList<>(partitions);
-			for (Set<Integer> c : currentPartitions) {
+			// Get (and remove) the last item from the work supply.
+			int input = work[--workSize];
+			int block = work[--workSize];
 
-				// Find the intersection (C') between o and c.
-				Set<Integer> intersection = intersect(o, c);
-				if (intersection.isEmpty()) {
-					continue;
-				}
+			int splitterSize = partition.ends[block] - partition.firsts[block];
+			System.arraycopy(partition.elements, partition.firsts[block], splitterStates, 0, splitterSize);
 
-				// Find the complement (C'') of c on o.
-				Set<Integer> complement = complement(c, o);
-				if (complement.isEmpty()) {
-					continue;
+			// Mark all states that, given the splitter input, transition to a state in the splitter block.
+			for (int i = 0; i < splitterSize; i++) {
+				int key = splitterStates[i] * alphabetSize + input;
+				for (int j = inverseOffsets[key]; j < inverseOffsets[key + 1]; j++) {
+					partition.mark(inverseSources[j]);
 				}
-
-				// Refine the partitions; replace y with the intersection and the complement.
-				partitions.remove(c);
-				partitions.add(intersection);
-				partitions.add(complement);
-
-				refineWork(work, c, intersection, complement);
-
 			}
+
+			// Refine the partitions; every block is split in the marked and unmarked states. Since the new block is
+			// always the smaller part, adding it as splitter for every input suffices.
+			partition.split(listener);
 		}
 
 		// Create new states based on the partitions; every partition represents a new state.
-		return buildMinimizedDfa(partitions, dfa);
+		return buildMinimizedDfa(partition, dfa);
 	}
 
 	/**
-	 * Refines the sets of states in the work stack.
-	 * @param work The stack of splitters to process.
-	 * @param original The original partition we are investigating.
-	 * @param c The first part of the partition we split.
-	 * @param d The second part of the partition we split.
+	 * Builds the inverse transition index. The sources of all transitions to state {@code s} on input {@code a} can be
+	 * found in the returned array from index {@code offsets[s * k + a]} up until {@code offsets[s * k + a + 1]}, where
+	 * {@code k} is the size of the alphabet.
+	 * @param dfa The DFA.
+	 * @param offsets The array to fill with offsets, must have {@code n * k + 1} elements.
+	 * @return The source states.
 	 */
-	private void refineWork(LinkedList<Splitter> work, Set<Integer> original, Set<Integer> c, Set<Integer> d) {
+	private static int[] buildInverseTransitionIndex(Automaton dfa, int[] offsets) {
 		int alphabetSize = dfa.getAlphabetSize();
-		Set<Integer> min = c.size() < d.size() ? c : d;
+		int[] dfaOffsets = dfa.getOffsets();
+		int[] targets = dfa.getTargets();
+		int[] inputs = dfa.getInputs();
 
-		for (int x = 0; x < alphabetSize; x++) {
-			Splitter splitter = new Splitter(original, x);
-			while (work.remove(splitter)) {
-				work.add(new Splitter(c, x));
-				work.add(new Splitter(d, x));
+		for (int state = 0; state < dfa.getStateCount(); state++) {
+			for (int i = dfaOffsets[state]; i < dfaOffsets[state + 1]; i++) {
+				offsets[targets[i] * alphabetSize + inputs[i] + 1]++;
 			}
-			work.add(new Splitter(min, x));
 		}
-	}
-
-	/**
-	 * Builds a new DFA. Every partition represents a new states, and all (old) states in a partition are merged
-	 * together.
-	 * @param partitions The refined partitions.
-	 * @param dfa The original {@link Automaton}.
-	 * @return A minimized version of the original Automaton.
-	 */
-	private Automaton buildMinimizedDfa(Set<Set<Integer>> partitions, Automaton dfa) {
-		Set<Integer> acceptingStates = dfa.getAcceptingStates();
-		int startState = dfa.getStartState();
-
-		Automaton minimizedDfa = new Automaton();
-		oldStateNewStateMapping = new int[dfa.getStateCount()];
-
-		// Create new states based on the partitions. Every partition represents a new state.
-		for (Set<Integer> partition : partitions) {
-			int newState = minimizedDfa.addState();
 
-			for (Integer oldState : partition) {
-				oldStateNewStateMapping[oldState] = newState;
-				if (acceptingStates.contains(oldState)) {
-					minimizedDfa.addAcceptingState(newState);
-				}
-				if (oldState == startState) {
-					minimizedDfa.setStartState(newState);
-				}
-			}
+		for (int i = 1; i < offsets.length; i++) {
+			offsets[i] += offsets[i - 1];
 		}
 
-		// For every transition create a new transition.
-		for (Automaton.Transition t : dfa.getTransitions()) {
-			int newFromState = oldStateNewStateMapping[t.fromState];
-			int newToState = oldStateNewStateMapping[t.toState];
+		int[] sources = new int[offsets[offsets.length - 1]];
+		int[] positions = Arrays.copyOf(offsets, offsets.length - 1);
 
-			minimizedDfa.addTransition(newFromState, newToState, t.input);
+		for (int state = 0; state < dfa.getStateCount(); state++) {
+			for (int i = dfaOffsets[state]; i < dfaOffsets[state + 1]; i++) {
+				sources[positions[targets[i] * alphabetSize + inputs[i]]++] = state;
+			}
 		}
 
-		minimizedDfa.setAlphabetSize(dfa.getAlphabetSize());
-
-		return minimizedDfa;
+		return sources;
 	}
 
 	/**
-	 * Builds a set of states for all states from {@code 0} up until {@code stateCount}.
-	 * @param stateCount The number of states that should be in the set.
-	 * @return The set containing the states.
+	 * Creates the initial partition: all non accepting states form one block, the accepting states are divided over
+	 * blocks by the {@link AcceptingStatePartitioner}.
+	 * @param dfa The DFA.
+	 * @return The partition.
 	 */
-	private static Set<Integer> determineAllStates(int stateCount) {
-		Set<Integer> set = new HashSet<>();
-		for (int i = 0; i < stateCount; i++) {
-			set.add(i);
-		}
-		return set;
+	private Partition createInitialPartition(Automaton dfa) {
+		int stateCount = dfa.getStateCount();
+		int[] keys = new int[stateCount];
+		int keyCount = determineAcceptingStateKeys(dfa, partitioner, keys, 1);
+		return new Partition(stateCount, keys, keyCount);
 	}
 
 	/**
-	 * Calculates the intersection ({@code x ∩ y}).
-	 * @param x x
-	 * @param y y
-	 * @return A new set that represents the intersection.
+	 * Determines for every accepting state a key, such that accepting states in the same partition (according to the
+	 * given partitioner) get the same key. The keys are numbered from {@code firstKey} on, the keys of the other states
+	 * are left untouched.
+	 * @param dfa The DFA.
+	 * @param partitioner The partitioner for the accepting states.
+	 * @param keys The array to store the keys in.
+	 * @param firstKey The first key to use.
+	 * @return The number of keys, i.e. the highest key used plus one.
 	 */
-	private static <T> Set<T> intersect(Set<T> x, Set<T> y) {
-		Set<T> small, large;
-
-		if (x.size() < y.size()) {
-			small = x;
-			large = y;
-		} else {
-			small = y;
-			large = x;
-		}
-
-		Set<T> intersection = new HashSet<>();
-
-		for (T element : small) {
-			if (large.contains(element)) {
-				intersection.add(element);
-			}
+	static int determineAcceptingStateKeys(Automaton dfa, AcceptingStatePartitioner partitioner, int[] keys,
+			int firstKey) {
+		BitSet acceptingStates = dfa.getAcceptingStates();
+		Map<Integer, Integer> keyIndices = new HashMap<>();
+
+		for (int state = acceptingStates.nextSetBit(0); state >= 0 && state < dfa.getStateCount();
+				state = acceptingStates.nextSetBit(state + 1)) {
+			keys[state] = firstKey + keyIndices.computeIfAbsent(partitioner.determinePartition(state),
+					k -> keyIndices.size());
 		}
 
-		return intersection;
+		return firstKey + keyIndices.size();
 	}
 
 	/**
-	 * Calculates the complement of y with respect to x ({@code x \ y}).
-	 * @param x x
-	 * @param y y
-	 * @return A new set that represents the complement.
+	 * Adds a splitter to the work supply for every input.
+	 * @param block The block of the splitters.
+	 * @param alphabetSize The size of the alphabet.
 	 */
-	private static <T> Set<T> complement(Set<T> x, Set<T> y) {
-		Set<T> result = new HashSet<>(x);
-		result.removeAll(y);
-
-		return result;
+	private void addSplitters(int block, int alphabetSize) {
+		if (workSize + 2 * alphabetSize > work.length) {
+			work = Arrays.copyOf(work, Math.max(work.length * 2, workSize + 2 * alphabetSize));
+		}
+		for (int input = 0; input < alphabetSize; input++) {
+			work[workSize++] = block;
+			work[workSize++] = input;
+		}
 	}
 
 	/**
-	 * Determines all states that given the input from the splitter lead to a state in the splitter.
-	 * @param splitter The splitter for which to find the origin states.
-	 * @param transitions A set containing all transitions in the DFA.
-	 * @return The set of origin states.
+	 * Builds a new DFA. Every partition represents a new states, and all (old) states in a partition are merged
+	 * together.
+	 * @param partition The refined partition.
+	 * @param dfa The original {@link Automaton}.
+	 * @return A minimized version of the original Automaton.
 	 */
-	private static Set<Integer> determineOriginStates(Splitter splitter, Set<Automaton.Transition> transitions) {
-		Set<Integer> result = new HashSet<>();
+	private Automaton buildMinimizedDfa(Partition partition, Automaton dfa) {
+		int[] offsets = dfa.getOffsets();
+		int[] targets = dfa.getTargets();
+		int[] inputs = dfa.getInputs();
+
+		Automaton minimizedDfa = new Automaton();
+		minimizedDfa.addStates(partition.blockCount);
 
-		for (Automaton.Transition t : transitions) {
-			if (t.input == splitter.input && splitter.clazz.contains(t.toState)) {
-				result.add(t.fromState);
+		// Every block represents a new state.
+		oldStateNewStateMapping = Arrays.copyOf(partition.blocks, dfa.getStateCount());
+
+		minimizedDfa.setStartState(oldStateNewStateMapping[dfa.getStartState()]);
+
+		// All states in a block behave the same, so the transitions of the first state of a block are the transitions
+		// of the new state.
+		for (int block = 0; block < partition.blockCount; block++) {
+			int state = partition.elements[partition.firsts[block]];
+
+			if (dfa.isAcceptingState(state)) {
+				minimizedDfa.addAcceptingState(block);
+			}
+
+			for (int i = offsets[state]; i < offsets[state + 1]; i++) {
+				minimizedDfa.addTransition(block, oldStateNewStateMapping[targets[i]], inputs[i]);
 			}
 		}
-		return result;
+
+		minimizedDfa.setAlphabetSize(dfa.getAlphabetSize());
+
+		return minimizedDfa;
 	}
 
 	public int[] getOldStateNewStateMapping() {
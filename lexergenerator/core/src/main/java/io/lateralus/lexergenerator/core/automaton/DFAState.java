@@ -0,0 +1,53 @@
+package io.lateralus.lexergenerator.core.automaton;
+
+import java.util.Arrays;
+
+/**
+ * A DFA state during a subset construction, which is an element of the powerset of the states of the NFA (or of the
+ * positions of a regular expression).
+ * <br/>
+ * The NFA states are kept in a sorted array, so every subset has exactly one representation no matter in which
+ * order its states were found. Next to that a 64-bit hash is computed up front, which makes comparing two different
+ * subsets almost always a matter of comparing two longs.
+ */
+class DFAState {
+	final int[] states;
+	private final long hash;
+
+	/**
+	 * Creates a DFA state.
+	 * @param states The NFA states, which must be sorted and unique.
+	 */
+	DFAState(int[] states) {
+		this.states = states;
+		this.hash = hash(states);
+	}
+
+	private static long hash(int[] states) {
+		long h = states.length;
+		for (int state : states) {
+			h = (h + state) * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 32;
+		}
+		// Final avalanche step of MurmurHash3.
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+
+		DFAState dfaState = (DFAState) o;
+		return hash == dfaState.hash && Arrays.equals(states, dfaState.states);
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (hash ^ (hash >>> 32));
+	}
+}
@@ -0,0 +1,188 @@
+package io.lateralus.lexergenerator.core.automaton;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a DFA from regular expressions using Brzozowski derivatives.
+ * <br/>
+ * Every DFA state is a (normalized) {@link RegExTerm}; the state that is reached on some input is the derivative of
+ * the term with respect to that input. Since the terms are normalized by the {@link RegExTermFactory}, equivalent
+ * states often end up being the same term, so the resulting DFA usually is (close to) minimal.
+ * <br/>
+ * Instead of computing the derivative for every input of the alphabet, the inputs are grouped by the sets that can
+ * match the first input of the term. All inputs in a group have the same derivative, so it is computed only once per
+ * group. Inputs that are in none of these sets lead to {@code &empty;}, for which no transition is added.
+ * <br/>
+ * Like the NFA of Thompson's construction the DFA starts in a state that only has transitions on the lexer class
+ * indices, which lead to the terms of the lexer classes.
+ */
+public class DerivativeDeterminizer {
+
+	private final RegExTermFactory factory;
+
+	/**
+	 * Per state the lowest index of the tokens it accepts, or {@code -1} if it does not accept.
+	 */
+	private int[] acceptedTokens;
+
+	/**
+	 * Per input the group it is in during the grouping of the inputs of a term, or {@code -1} if it is in no group.
+	 */
+	private int[] inputGroups;
+
+	/**
+	 * The inputs that are in a group.
+	 */
+	private int[] groupedInputs;
+
+	public DerivativeDeterminizer(RegExTermFactory factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * Builds the DFA.
+	 * @param lexerClassTerms Per lexer class index the term that matches all tokens of the lexer class.
+	 * @param alphabetSize The size of the alphabet.
+	 * @return The DFA.
+	 */
+	public Automaton determinize(RegExTerm[] lexerClassTerms, int alphabetSize) {
+		inputGroups = new int[alphabetSize];
+		Arrays.fill(inputGroups, -1);
+		groupedInputs = new int[alphabetSize];
+
+		// The terms of the DFA states, the index in the list is the number of the state. State 0 is the start state,
+		// which has no term.
+		Map<RegExTerm, Integer> termStates = new HashMap<>();
+		List<RegExTerm> stateList = new ArrayList<>();
+		stateList.add(null);
+
+		// The transitions of the DFA, stored as (from state, to state, input) triples.
+		int[] transitionArray = new int[3 * 16];
+		int transitionArrayLength = 0;
+
+		for (int mark = 0; mark < stateList.size(); mark++) {
+			RegExTerm term = stateList.get(mark);
+
+			// Determine the targets per input; for the start state these are the terms of the lexer classes.
+			int inputCount;
+			RegExTerm[] targets;
+			if (mark == 0) {
+				inputCount = 0;
+				targets = new RegExTerm[lexerClassTerms.length];
+				for (int lexerClass = 0; lexerClass < lexerClassTerms.length; lexerClass++) {
+					if (lexerClassTerms[lexerClass] != null && !lexerClassTerms[lexerClass].isEmpty()) {
+						groupedInputs[inputCount] = lexerClass;
+						targets[inputCount++] = lexerClassTerms[lexerClass];
+					}
+				}
+			} else {
+				inputCount = groupInputs(term);
+				targets = calculateDerivatives(term, inputCount);
+			}
+
+			for (int i = 0; i < inputCount; i++) {
+				RegExTerm target = targets[i];
+				if (target.isEmpty()) {
+					continue;
+				}
+
+				Integer state = termStates.putIfAbsent(target, stateList.size());
+				if (state == null) {
+					state = stateList.size();
+					stateList.add(target);
+				}
+
+				if (transitionArrayLength == transitionArray.length) {
+					transitionArray = Arrays.copyOf(transitionArray, transitionArray.length * 2);
+				}
+				transitionArray[transitionArrayLength++] = mark;
+				transitionArray[transitionArrayLength++] = state;
+				transitionArray[transitionArrayLength++] = groupedInputs[i];
+			}
+		}
+
+		// Create the resulting automaton.
+		Automaton dfa = new Automaton();
+		dfa.addStates(stateList.size());
+		dfa.setStartState(0);
+		dfa.setAlphabetSize(alphabetSize);
+
+		acceptedTokens = new int[stateList.size()];
+		acceptedTokens[0] = -1;
+		for (int state = 1; state < stateList.size(); state++) {
+			acceptedTokens[state] = stateList.get(state).getAcceptedToken();
+			if (acceptedTokens[state] != -1) {
+				dfa.addAcceptingState(state);
+			}
+		}
+
+		for (int i = 0; i < transitionArrayLength; i += 3) {
+			dfa.addTransition(transitionArray[i], transitionArray[i + 1], transitionArray[i + 2]);
+		}
+
+		return dfa;
+	}
+
+	/**
+	 * Groups the inputs that can start the given term, such that all inputs in a group are in exactly the same first
+	 * sets of the term. The group of every input is stored in {@link #inputGroups} and the inputs themselves are stored
+	 * in ascending order in {@link #groupedInputs}.
+	 * @param term The term.
+	 * @return The number of grouped inputs.
+	 */
+	private int groupInputs(RegExTerm term) {
+		List<RegExTerm> firstSets = new ArrayList<>();
+		factory.collectFirstSets(term, firstSets);
+
+		// Refine the groups with every set; the inputs of a group that are in the set get a new group, which is
+		// identified by the old group and the set.
+		Map<Long, Integer> refinedGroups = new HashMap<>();
+		int inputCount = 0;
+		for (int i = 0; i < firstSets.size(); i++) {
+			for (int input : firstSets.get(i).inputs) {
+				int group = inputGroups[input];
+				if (group == -1) {
+					groupedInputs[inputCount++] = input;
+				}
+				long key = ((long) (group + 1) << 32) | i;
+				Integer refinedGroup = refinedGroups.putIfAbsent(key, refinedGroups.size());
+				inputGroups[input] = refinedGroup != null ? refinedGroup : refinedGroups.size() - 1;
+			}
+		}
+
+		// Process the inputs in ascending order, which keeps the numbering of the DFA states stable.
+		Arrays.sort(groupedInputs, 0, inputCount);
+		return inputCount;
+	}
+
+	/**
+	 * Calculates the derivative of the given term for every grouped input, once per group. Afterwards the groups are
+	 * reset.
+	 * @param term The term.
+	 * @param inputCount The number of grouped inputs.
+	 * @return Per grouped input the derivative.
+	 */
+	private RegExTerm[] calculateDerivatives(RegExTerm term, int inputCount) {
+		Map<Integer, RegExTerm> groupDerivatives = new HashMap<>();
+		RegExTerm[] derivatives = new RegExTerm[inputCount];
+		for (int i = 0; i < inputCount; i++) {
+			int input = groupedInputs[i];
+			derivatives[i] = groupDerivatives.computeIfAbsent(inputGroups[input],
+					group -> factory.derivative(term, input));
+			inputGroups[input] = -1;
+		}
+		return derivatives;
+	}
+
+	/**
+	 * Returns per state of the DFA the lowest index of the tokens it accepts.
+	 * @return The accepted tokens, {@code -1} for states that do not accept.
+	 */
+	public int[] getAcceptedTokens() {
+		return acceptedTokens;
+	}
+}
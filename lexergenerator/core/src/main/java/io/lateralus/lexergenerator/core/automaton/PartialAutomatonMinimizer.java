@@ -0,0 +1,244 @@
+package io.lateralus.lexergenerator.core.automaton;
+
+import io.lateralus.lexergenerator.core.automaton.AutomatonMinimizer.AcceptingStatePartitioner;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Minimizes a partial automaton, i.e. an automaton that does not need to have a transition for every input in every
+ * state. Every missing transition is regarded as a transition to an implicit error state (the sink). States from which
+ * no accepting state can be reached are equivalent to that sink and are removed.
+ * <br/>
+ * To do this it uses the algorithm of Valmari and Lehtinen (see
+ * <a href="https://arxiv.org/abs/0802.2826">Efficient minimization of DFAs with partial transition functions</a>).
+ * Next to the partition of the states (the blocks) it keeps a partition of the transitions (the cords). Initially
+ * there is a cord per input. Every cord splits the blocks in states with and without a transition in that cord, every
+ * block splits the cords in transitions that go to that block and transitions that do not. Both partitions are refined
+ * until they are stable, in {@code O(n + m log m)} time for {@code n} states and {@code m} transitions. The missing
+ * transitions are never materialized.
+ */
+public class PartialAutomatonMinimizer {
+
+	private int[] oldStateNewStateMapping;
+
+	private final AcceptingStatePartitioner partitioner;
+
+	public PartialAutomatonMinimizer(AcceptingStatePartitioner partitioner) {
+		this.partitioner = partitioner;
+	}
+
+	/**
+	 * Minimizes the given (partial) automaton.
+	 * @param dfa The deterministic automaton to minimize.
+	 * @return The minimized automaton, which is again partial.
+	 */
+	public Automaton minimize(Automaton dfa) {
+		int stateCount = dfa.getStateCount();
+		int[] offsets = dfa.getOffsets();
+		int[] targets = dfa.getTargets();
+		int[] inputs = dfa.getInputs();
+
+		// Determine the states from which an accepting state can be reached. All other states are dead.
+		BitSet liveStates = determineLiveStates(dfa);
+
+		// Collect the transitions between live states, transitions to dead states are regarded as missing. Their tails
+		// (the states they start from) are stored as well.
+		int[] transitions = new int[dfa.getTransitionCount()];
+		int[] tails = new int[transitions.length];
+		int transitionCount = 0;
+		for (int state = liveStates.nextSetBit(0); state >= 0; state = liveStates.nextSetBit(state + 1)) {
+			for (int i = offsets[state]; i < offsets[state + 1]; i++) {
+				if (liveStates.get(targets[i])) {
+					transitions[transitionCount] = i;
+					tails[transitionCount] = state;
+					transitionCount++;
+				}
+			}
+		}
+
+		// Build the adjacency per head; for every state the (live) transitions that go to that state.
+		int[] incomingOffsets = new int[stateCount + 1];
+		for (int t = 0; t < transitionCount; t++) {
+			incomingOffsets[targets[transitions[t]] + 1]++;
+		}
+		for (int state = 0; state < stateCount; state++) {
+			incomingOffsets[state + 1] += incomingOffsets[state];
+		}
+		int[] incoming = new int[transitionCount];
+		int[] positions = Arrays.copyOf(incomingOffsets, stateCount);
+		for (int t = 0; t < transitionCount; t++) {
+			incoming[positions[targets[transitions[t]]]++] = t;
+		}
+
+		// The initial blocks: the dead states, the live non accepting states and a block per accepting state partition.
+		int[] stateKeys = new int[stateCount];
+		for (int state = 0; state < stateCount; state++) {
+			stateKeys[state] = liveStates.get(state) ? 1 : 0;
+		}
+		int stateKeyCount = AutomatonMinimizer.determineAcceptingStateKeys(dfa, partitioner, stateKeys, 2);
+		Partition blocks = new Partition(stateCount, stateKeys, stateKeyCount);
+
+		// The initial cords: a cord per input.
+		int[] transitionKeys = new int[transitionCount];
+		int transitionKeyCount = 0;
+		for (int t = 0; t < transitionCount; t++) {
+			transitionKeys[t] = inputs[transitions[t]];
+			transitionKeyCount = Math.max(transitionKeyCount, transitionKeys[t] + 1);
+		}
+		Partition cords = new Partition(transitionCount, transitionKeys, transitionKeyCount);
+
+		// Refine the blocks and cords until both are stable. The first block does not need to be used as splitter.
+		int block = 1;
+		int cord = 0;
+		while (cord < cords.blockCount) {
+			// Split the blocks on whether their states have a transition in the cord.
+			for (int i = cords.firsts[cord]; i < cords.ends[cord]; i++) {
+				blocks.mark(tails[cords.elements[i]]);
+			}
+			blocks.split();
+			cord++;
+
+			// Split the cords on whether their transitions go to the block.
+			while (block < blocks.blockCount) {
+				for (int i = blocks.firsts[block]; i < blocks.ends[block]; i++) {
+					int state = blocks.elements[i];
+					for (int j = incomingOffsets[state]; j < incomingOffsets[state + 1]; j++) {
+						cords.mark(incoming[j]);
+					}
+				}
+				cords.split();
+				block++;
+			}
+		}
+
+		return buildMinimizedDfa(blocks, dfa, liveStates);
+	}
+
+	/**
+	 * Determines the live states; the states from which an accepting state can be reached.
+	 * @param dfa The DFA.
+	 * @return The live states.
+	 */
+	private static BitSet determineLiveStates(Automaton dfa) {
+		int stateCount = dfa.getStateCount();
+		int[] offsets = dfa.getOffsets();
+		int[] targets = dfa.getTargets();
+
+		// Build the reversed graph.
+		int[] reverseOffsets = new int[stateCount + 1];
+		for (int state = 0; state < stateCount; state++) {
+			for (int i = offsets[state]; i < offsets[state + 1]; i++) {
+				reverseOffsets[targets[i] + 1]++;
+			}
+		}
+		for (int state = 0; state < stateCount; state++) {
+			reverseOffsets[state + 1] += reverseOffsets[state];
+		}
+		int[] sources = new int[reverseOffsets[stateCount]];
+		int[] positions = Arrays.copyOf(reverseOffsets, stateCount);
+		for (int state = 0; state < stateCount; state++) {
+			for (int i = offsets[state]; i < offsets[state + 1]; i++) {
+				sources[positions[targets[i]]++] = state;
+			}
+		}
+
+		// Walk the reversed graph from the accepting states.
+		BitSet liveStates = new BitSet(stateCount);
+		int[] stack = new int[stateCount];
+		int size = 0;
+		BitSet acceptingStates = dfa.getAcceptingStates();
+		for (int state = acceptingStates.nextSetBit(0); state >= 0 && state < stateCount;
+				state = acceptingStates.nextSetBit(state + 1)) {
+			liveStates.set(state);
+			stack[size++] = state;
+		}
+
+		while (size > 0) {
+			int state = stack[--size];
+			for (int i = reverseOffsets[state]; i < reverseOffsets[state + 1]; i++) {
+				int source = sources[i];
+				if (!liveStates.get(source)) {
+					liveStates.set(source);
+					stack[size++] = source;
+				}
+			}
+		}
+
+		return liveStates;
+	}
+
+	/**
+	 * Builds a new DFA. Every block of live states represents a new state, the dead states are dropped and their
+	 * mapping is {@code -1}.
+	 * @param blocks The refined partition of the states.
+	 * @param dfa The original {@link Automaton}.
+	 * @param liveStates The live states.
+	 * @return A minimized version of the original Automaton.
+	 */
+	private Automaton buildMinimizedDfa(Partition blocks, Automaton dfa, BitSet liveStates) {
+		int[] offsets = dfa.getOffsets();
+		int[] targets = dfa.getTargets();
+		int[] inputs = dfa.getInputs();
+
+		// Number the blocks of live states in the order of their first state, which keeps the numbering stable.
+		int[] blockStates = new int[blocks.blockCount];
+		Arrays.fill(blockStates, -1);
+		oldStateNewStateMapping = new int[dfa.getStateCount()];
+		int newStateCount = 0;
+		for (int state = 0; state < dfa.getStateCount(); state++) {
+			if (!liveStates.get(state)) {
+				oldStateNewStateMapping[state] = -1;
+				continue;
+			}
+			int block = blocks.blocks[state];
+			if (blockStates[block] == -1) {
+				blockStates[block] = newStateCount++;
+			}
+			oldStateNewStateMapping[state] = blockStates[block];
+		}
+
+		Automaton minimizedDfa = new Automaton();
+		minimizedDfa.addStates(newStateCount);
+		minimizedDfa.setAlphabetSize(dfa.getAlphabetSize());
+
+		if (liveStates.get(dfa.getStartState())) {
+			minimizedDfa.setStartState(oldStateNewStateMapping[dfa.getStartState()]);
+		} else {
+			// Nothing is accepted at all; the result is a single state without transitions.
+			minimizedDfa.setStartState(minimizedDfa.addState());
+		}
+
+		// All states in a block behave the same, so the transitions of the first state of a block are the transitions
+		// of the new state.
+		for (int state = 0; state < dfa.getStateCount(); state++) {
+			int newState = oldStateNewStateMapping[state];
+			if (newState == -1 || blockStates[blocks.blocks[state]] == -2) {
+				continue;
+			}
+			blockStates[blocks.blocks[state]] = -2;
+
+			if (dfa.isAcceptingState(state)) {
+				minimizedDfa.addAcceptingState(newState);
+			}
+
+			for (int i = offsets[state]; i < offsets[state + 1]; i++) {
+				int newTarget = oldStateNewStateMapping[targets[i]];
+				if (newTarget != -1) {
+					minimizedDfa.addTransition(newState, newTarget, inputs[i]);
+				}
+			}
+		}
+
+		return minimizedDfa;
+	}
+
+	/**
+	 * Returns the mapping from the states of the original automaton to the states of the minimized automaton. States
+	 * that are dropped (because no accepting state can be reached from them) are mapped to {@code -1}.
+	 * @return The mapping.
+	 */
+	public int[] getOldStateNewStateMapping() {
+		return oldStateNewStateMapping;
+	}
+}
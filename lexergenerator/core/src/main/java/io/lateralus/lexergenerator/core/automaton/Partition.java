@@ -0,0 +1,183 @@
+package io.lateralus.lexergenerator.core.automaton;
+
+/**
+ * A refinable partition of the integers {@code 0} up until {@code size}.
+ * <p>
+ * The elements are stored in a single array such that the elements of every block are contiguous. Marking an
+ * element moves it to the front of its block, so splitting a block in its marked and unmarked part is just a matter
+ * of moving a boundary.
+ */
+class Partition {
+
+	/**
+	 * The elements, ordered per block.
+	 */
+	final int[] elements;
+
+	/**
+	 * The index of every element in {@link #elements}.
+	 */
+	final int[] locations;
+
+	/**
+	 * The block of every element.
+	 */
+	final int[] blocks;
+
+	/**
+	 * Per block the index of its first element.
+	 */
+	final int[] firsts;
+
+	/**
+	 * Per block the index after its last element.
+	 */
+	final int[] ends;
+
+	/**
+	 * Per block the number of marked elements.
+	 */
+	final int[] markedCounts;
+
+	/**
+	 * The blocks that contain marked elements.
+	 */
+	final int[] touchedBlocks;
+
+	int touchedCount;
+
+	/**
+	 * The number of blocks.
+	 */
+	int blockCount;
+
+	/**
+	 * Creates a partition with a single block containing all elements.
+	 * @param size The number of elements.
+	 */
+	Partition(int size) {
+		this(size, new int[size], 1);
+	}
+
+	/**
+	 * Creates a partition with a block per key. Every element is placed in the block of its key, keys without elements
+	 * do not get a block. The blocks are numbered in the order of their keys.
+	 * @param size The number of elements.
+	 * @param keys The key per element, a number from {@code 0} up until {@code keyCount}.
+	 * @param keyCount The number of keys.
+	 */
+	Partition(int size, int[] keys, int keyCount) {
+		elements = new int[size];
+		locations = new int[size];
+		blocks = new int[size];
+		firsts = new int[size + 1];
+		ends = new int[size + 1];
+		markedCounts = new int[size + 1];
+		touchedBlocks = new int[size + 1];
+
+		// Count the elements per key and determine the start of every key.
+		int[] starts = new int[keyCount + 1];
+		for (int i = 0; i < size; i++) {
+			starts[keys[i] + 1]++;
+		}
+		for (int key = 0; key < keyCount; key++) {
+			starts[key + 1] += starts[key];
+		}
+
+		// Create a block for every key with elements.
+		int[] keyBlocks = new int[keyCount];
+		for (int key = 0; key < keyCount; key++) {
+			if (starts[key] < starts[key + 1]) {
+				keyBlocks[key] = blockCount;
+				firsts[blockCount] = starts[key];
+				ends[blockCount] = starts[key + 1];
+				blockCount++;
+			}
+		}
+
+		// Place the elements.
+		for (int i = 0; i < size; i++) {
+			int location = starts[keys[i]]++;
+			elements[location] = i;
+			locations[i] = location;
+			blocks[i] = keyBlocks[keys[i]];
+		}
+	}
+
+	/**
+	 * Marks the given element.
+	 * @param element The element to mark.
+	 */
+	void mark(int element) {
+		int block = blocks[element];
+		int marked = firsts[block] + markedCounts[block];
+		int location = locations[element];
+
+		// The element is already marked.
+		if (location < marked) {
+			return;
+		}
+
+		// Swap the element with the first unmarked element of its block.
+		int other = elements[marked];
+		elements[location] = other;
+		locations[other] = location;
+		elements[marked] = element;
+		locations[element] = marked;
+
+		if (markedCounts[block]++ == 0) {
+			touchedBlocks[touchedCount++] = block;
+		}
+	}
+
+	/**
+	 * Splits every block with marked elements into its marked and unmarked part, the smaller part becomes a new
+	 * block. Afterwards no element is marked.
+	 * @param listener Receives the index of every new block.
+	 */
+	void split(SplitListener listener) {
+		while (touchedCount > 0) {
+			int block = touchedBlocks[--touchedCount];
+			int marked = firsts[block] + markedCounts[block];
+			markedCounts[block] = 0;
+
+			// If all elements are marked there is nothing to split.
+			if (marked == ends[block]) {
+				continue;
+			}
+
+			int newBlock = blockCount++;
+			if (marked - firsts[block] <= ends[block] - marked) {
+				// The marked part is the smaller part.
+				firsts[newBlock] = firsts[block];
+				ends[newBlock] = marked;
+				firsts[block] = marked;
+			} else {
+				// The unmarked part is the smaller part.
+				firsts[newBlock] = marked;
+				ends[newBlock] = ends[block];
+				ends[block] = marked;
+			}
+
+			for (int i = firsts[newBlock]; i < ends[newBlock]; i++) {
+				blocks[elements[i]] = newBlock;
+			}
+
+			listener.blockCreated(newBlock);
+		}
+	}
+
+	/**
+	 * Splits every block with marked elements into its marked and unmarked part (see {@link #split(SplitListener)}).
+	 */
+	void split() {
+		split(newBlock -> { });
+	}
+
+	/**
+	 * Callback for newly created blocks.
+	 */
+	interface SplitListener {
+		void blockCreated(int block);
+	}
+}
@@ -0,0 +1,161 @@
+package io.lateralus.lexergenerator.core.automaton;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A position automaton (also known as Glushkov automaton) of a set of regular expressions.
+ * <br/>
+ * Every occurrence of a character set in a regular expression is a position. A position has the inputs it matches and
+ * the positions that can follow it (its <em>followpos</em>). Accepting positions (the end markers of the regular
+ * expressions) have no inputs. Unlike the NFA of Thompson's construction the position automaton has no
+ * &epsilon;-transitions, it is turned into a DFA directly by the {@link PositionAutomatonDeterminizer}.
+ */
+public class PositionAutomaton {
+
+	/**
+	 * Per position its inputs, sorted and unique.
+	 */
+	private int[][] positionInputs = new int[16][];
+
+	/**
+	 * Per position the positions that can follow it. The array is only sorted and unique after {@link #compact()}.
+	 */
+	private int[][] followPositions = new int[16][];
+
+	/**
+	 * Per position the number of elements of {@link #followPositions} that are in use.
+	 */
+	private int[] followPositionCounts = new int[16];
+
+	private int positionCount;
+
+	private final BitSet acceptingPositions = new BitSet();
+
+	private int[] startPositions = new int[0];
+
+	private int alphabetSize;
+
+	/**
+	 * Whether every followpos array is sorted, unique and trimmed to its size.
+	 */
+	private boolean compact = true;
+
+	/**
+	 * Adds a position.
+	 * @param inputs The inputs the position matches, may be unsorted and contain duplicates.
+	 * @return The new position.
+	 */
+	public int addPosition(int[] inputs) {
+		if (positionCount == positionInputs.length) {
+			int capacity = positionInputs.length * 2;
+			positionInputs = Arrays.copyOf(positionInputs, capacity);
+			followPositions = Arrays.copyOf(followPositions, capacity);
+			followPositionCounts = Arrays.copyOf(followPositionCounts, capacity);
+		}
+
+		positionInputs[positionCount] = sortUnique(inputs.clone(), inputs.length);
+		followPositions[positionCount] = new int[0];
+		return positionCount++;
+	}
+
+	/**
+	 * Adds an accepting position. An accepting position has no inputs and no positions that follow it.
+	 * @return The new position.
+	 */
+	public int addAcceptingPosition() {
+		int position = addPosition(new int[0]);
+		acceptingPositions.set(position);
+		return position;
+	}
+
+	/**
+	 * Adds the given positions to the positions that can follow the given position.
+	 * @param position The position.
+	 * @param positions The positions that can follow it.
+	 */
+	public void addFollowPositions(int position, int[] positions) {
+		int count = followPositionCounts[position];
+		int[] follow = followPositions[position];
+		if (count + positions.length > follow.length) {
+			follow = Arrays.copyOf(follow, Math.max(2 * follow.length, count + positions.length));
+			followPositions[position] = follow;
+		}
+		System.arraycopy(positions, 0, follow, count, positions.length);
+		followPositionCounts[position] = count + positions.length;
+		compact = false;
+	}
+
+	/**
+	 * Sorts the followpos of every position and removes the duplicates.
+	 */
+	private void compact() {
+		if (compact) {
+			return;
+		}
+		for (int position = 0; position < positionCount; position++) {
+			int[] follow = sortUnique(followPositions[position], followPositionCounts[position]);
+			followPositions[position] = follow;
+			followPositionCounts[position] = follow.length;
+		}
+		compact = true;
+	}
+
+	private static int[] sortUnique(int[] values, int count) {
+		Arrays.sort(values, 0, count);
+		int size = 0;
+		for (int i = 0; i < count; i++) {
+			if (size == 0 || values[size - 1] != values[i]) {
+				values[size++] = values[i];
+			}
+		}
+		return size == values.length ? values : Arrays.copyOf(values, size);
+	}
+
+	public int getPositionCount() {
+		return positionCount;
+	}
+
+	/**
+	 * Returns the inputs of the given position.
+	 * @param position The position.
+	 * @return The sorted inputs, must not be modified.
+	 */
+	public int[] getInputs(int position) {
+		return positionInputs[position];
+	}
+
+	/**
+	 * Returns the positions that can follow the given position.
+	 * @param position The position.
+	 * @return The sorted positions, must not be modified.
+	 */
+	public int[] getFollowPositions(int position) {
+		compact();
+		return followPositions[position];
+	}
+
+	public boolean isAcceptingPosition(int position) {
+		return acceptingPositions.get(position);
+	}
+
+	public int[] getStartPositions() {
+		return startPositions;
+	}
+
+	/**
+	 * Sets the positions the automaton starts in.
+	 * @param startPositions The start positions, may be unsorted.
+	 */
+	public void setStartPositions(int[] startPositions) {
+		this.startPositions = sortUnique(startPositions.clone(), startPositions.length);
+	}
+
+	public int getAlphabetSize() {
+		return alphabetSize;
+	}
+
+	public void setAlphabetSize(int alphabetSize) {
+		this.alphabetSize = alphabetSize;
+	}
+}
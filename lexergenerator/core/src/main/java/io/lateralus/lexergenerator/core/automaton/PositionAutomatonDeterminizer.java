@@ -0,0 +1,215 @@
+package io.lateralus.lexergenerator.core.automaton;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Responsible for turning a {@link PositionAutomaton} into a DFA.
+ * <br/>
+ * Every DFA state is a set of positions. The DFA state that is reached from a set of positions on some input is the
+ * union of the followpos of all positions in the set that match that input. This is the direct construction of a DFA
+ * from a regular expression as described in the dragon book (section 3.9); no &epsilon;-closures are needed. The
+ * start state is the set of start positions and a DFA state is accepting if it contains an accepting position.
+ */
+public class PositionAutomatonDeterminizer {
+
+	private PositionAutomaton positionAutomaton;
+
+	/**
+	 * Per input the number of positions that match it, which is turned into the position of the input in
+	 * {@link #movePositions} while collecting the move.
+	 */
+	private int[] inputCounts;
+
+	/**
+	 * The inputs that are matched by at least one position.
+	 */
+	private int[] touchedInputs;
+
+	/**
+	 * The positions that match an input, grouped per input.
+	 */
+	private int[] movePositions = new int[16];
+
+	/**
+	 * A sparse set of positions; the positions of the set are stored in {@code positionSet} up until
+	 * {@code positionSetSize}, for every position in the set {@code positionSetIndices} holds its index in
+	 * {@code positionSet}.
+	 */
+	private int[] positionSet;
+	private int[] positionSetIndices;
+	private int positionSetSize;
+
+	private int[][] newStateOldStateMapping;
+
+	public Automaton determinize(PositionAutomaton positionAutomaton) {
+		this.positionAutomaton = positionAutomaton;
+
+		int alphabetSize = positionAutomaton.getAlphabetSize();
+		int positionCount = positionAutomaton.getPositionCount();
+
+		inputCounts = new int[alphabetSize];
+		touchedInputs = new int[alphabetSize];
+		positionSet = new int[positionCount];
+		positionSetIndices = new int[positionCount];
+
+		// The DFA states, the index in the list is the number of the DFA state. The map is used to intern them.
+		Map<DFAState, Integer> dfaStateMap = new HashMap<>();
+		List<DFAState> stateList = new ArrayList<>();
+
+		// The transitions of the DFA, stored as (from state, to state, input) triples.
+		int[] transitionArray = new int[3 * 16];
+		int transitionArrayLength = 0;
+
+		DFAState dfaStartState = new DFAState(positionAutomaton.getStartPositions());
+		stateList.add(dfaStartState);
+		dfaStateMap.put(dfaStartState, 0);
+
+		// Process the DFA states in the order in which they are found.
+		for (int mark = 0; mark < stateList.size(); mark++) {
+			int[] positions = stateList.get(mark).states;
+
+			int touchedCount = collectMove(positions);
+
+			int bucketStart = 0;
+			for (int i = 0; i < touchedCount; i++) {
+				int input = touchedInputs[i];
+				int bucketEnd = inputCounts[input];
+				inputCounts[input] = 0;
+
+				int[] followPositions = calculateFollowPositions(bucketStart, bucketEnd);
+				bucketStart = bucketEnd;
+
+				// If no positions can follow, there is no transition.
+				if (followPositions.length == 0) {
+					continue;
+				}
+
+				DFAState newDFAState = new DFAState(followPositions);
+
+				// Intern the DFA state; if it does not yet exist in our DFA add it, otherwise get its state number.
+				Integer state = dfaStateMap.putIfAbsent(newDFAState, stateList.size());
+				if (state == null) {
+					state = stateList.size();
+					stateList.add(newDFAState);
+				}
+
+				if (transitionArrayLength == transitionArray.length) {
+					transitionArray = Arrays.copyOf(transitionArray, transitionArray.length * 2);
+				}
+				transitionArray[transitionArrayLength++] = mark;
+				transitionArray[transitionArrayLength++] = state;
+				transitionArray[transitionArrayLength++] = input;
+			}
+		}
+
+		// Create the resulting automaton.
+		Automaton dfa = new Automaton();
+		dfa.addStates(stateList.size());
+		dfa.setStartState(0);
+		dfa.setAlphabetSize(alphabetSize);
+
+		newStateOldStateMapping = new int[stateList.size()][];
+		for (int state = 0; state < stateList.size(); state++) {
+			int[] positions = stateList.get(state).states;
+			newStateOldStateMapping[state] = positions;
+
+			for (int position : positions) {
+				if (positionAutomaton.isAcceptingPosition(position)) {
+					dfa.addAcceptingState(state);
+					break;
+				}
+			}
+		}
+
+		for (int i = 0; i < transitionArrayLength; i += 3) {
+			dfa.addTransition(transitionArray[i], transitionArray[i + 1], transitionArray[i + 2]);
+		}
+
+		return dfa;
+	}
+
+	/**
+	 * Groups the given positions per input they match, in a single pass over their inputs. Afterwards the touched
+	 * inputs are sorted and the positions for the {@code i}th touched input are found in {@link #movePositions} from
+	 * the end of the bucket of the previous touched input (or {@code 0}) up until
+	 * {@code inputCounts[touchedInputs[i]]}.
+	 * @param positions The positions of a DFA state.
+	 * @return The number of touched inputs.
+	 */
+	private int collectMove(int[] positions) {
+		int touchedCount = 0;
+		int moveSize = 0;
+		for (int position : positions) {
+			for (int input : positionAutomaton.getInputs(position)) {
+				if (inputCounts[input]++ == 0) {
+					touchedInputs[touchedCount++] = input;
+				}
+				moveSize++;
+			}
+		}
+
+		// Process the inputs in ascending order, which keeps the numbering of the DFA states stable.
+		Arrays.sort(touchedInputs, 0, touchedCount);
+
+		// Turn the counts into the positions of the buckets.
+		int bucketStart = 0;
+		for (int i = 0; i < touchedCount; i++) {
+			int input = touchedInputs[i];
+			int count = inputCounts[input];
+			inputCounts[input] = bucketStart;
+			bucketStart += count;
+		}
+		if (moveSize > movePositions.length) {
+			movePositions = new int[Math.max(moveSize, 2 * movePositions.length)];
+		}
+
+		for (int position : positions) {
+			for (int input : positionAutomaton.getInputs(position)) {
+				movePositions[inputCounts[input]++] = position;
+			}
+		}
+
+		return touchedCount;
+	}
+
+	/**
+	 * Calculates the union of the followpos of the positions in {@link #movePositions} from {@code from} up until
+	 * {@code to}.
+	 * @param from The index of the first position.
+	 * @param to The index after the last position.
+	 * @return The sorted positions.
+	 */
+	private int[] calculateFollowPositions(int from, int to) {
+		// A single position is common, its followpos is already sorted.
+		if (to - from == 1) {
+			return positionAutomaton.getFollowPositions(movePositions[from]);
+		}
+
+		positionSetSize = 0;
+		for (int i = from; i < to; i++) {
+			for (int position : positionAutomaton.getFollowPositions(movePositions[i])) {
+				int index = positionSetIndices[position];
+				if (index >= positionSetSize || positionSet[index] != position) {
+					positionSetIndices[position] = positionSetSize;
+					positionSet[positionSetSize++] = position;
+				}
+			}
+		}
+
+		int[] result = Arrays.copyOf(positionSet, positionSetSize);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * Returns per DFA state the positions that it consists of.
+	 * @return The mapping from DFA state to positions.
+	 */
+	public int[][] getNewStateOldStateMapping() {
+		return newStateOldStateMapping;
+	}
+}
@@ -0,0 +1,151 @@
+package io.lateralus.lexergenerator.core.automaton;
+
+/**
+ * An immutable regular expression over the inputs of an alphabet, used to build a DFA using derivatives (see
+ * {@link DerivativeDeterminizer}).
+ * <br/>
+ * Terms can only be created by a {@link RegExTermFactory}, which normalizes and interns them. So two terms created by
+ * the same factory are equal if and only if they are the same instance, and comparing terms is a matter of comparing
+ * references (or ids).
+ * <br/>
+ * Next to the usual regular expression operators there is an accept term, which matches the empty string and marks
+ * the end of a token. The DFA state of a set of tokens is the union of the token's expressions each followed by its
+ * accept term, a DFA state accepts the token with the lowest index whose accept term can be reached without input.
+ */
+public final class RegExTerm {
+
+	/**
+	 * The kinds of terms.
+	 */
+	enum Kind {
+		/**
+		 * Matches nothing.
+		 */
+		EMPTY,
+
+		/**
+		 * Matches the empty string.
+		 */
+		EPSILON,
+
+		/**
+		 * Matches a single input from a set.
+		 */
+		SET,
+
+		/**
+		 * Matches the first operand followed by the second.
+		 */
+		CONCAT,
+
+		/**
+		 * Matches any of its (two or more) operands.
+		 */
+		UNION,
+
+		/**
+		 * Matches zero or more repetitions of its operand.
+		 */
+		STAR,
+
+		/**
+		 * Matches the empty string and marks the end of a token.
+		 */
+		ACCEPT
+	}
+
+	/**
+	 * The number of the term within its factory.
+	 */
+	final int id;
+
+	final Kind kind;
+
+	/**
+	 * The sorted inputs of a set term.
+	 */
+	final int[] inputs;
+
+	/**
+	 * The operands of a concat, union or star term. The operands of a union are sorted on their id.
+	 */
+	final RegExTerm[] operands;
+
+	/**
+	 * The index of the token of an accept term.
+	 */
+	final int token;
+
+	/**
+	 * Whether the term matches the empty string.
+	 */
+	final boolean nullable;
+
+	/**
+	 * The lowest index of the tokens that are accepted on the empty string, or {@code -1} if there is none.
+	 */
+	final int acceptedToken;
+
+	RegExTerm(int id, Kind kind, int[] inputs, RegExTerm[] operands, int token) {
+		this.id = id;
+		this.kind = kind;
+		this.inputs = inputs;
+		this.operands = operands;
+		this.token = token;
+
+		switch (kind) {
+			case EPSILON:
+			case STAR:
+				nullable = true;
+				acceptedToken = -1;
+				break;
+			case ACCEPT:
+				nullable = true;
+				acceptedToken = token;
+				break;
+			case CONCAT:
+				nullable = operands[0].nullable && operands[1].nullable;
+				acceptedToken = operands[0].nullable ? min(operands[0].acceptedToken, operands[1].acceptedToken) : -1;
+				break;
+			case UNION:
+				boolean anyNullable = false;
+				int lowestToken = -1;
+				for (RegExTerm operand : operands) {
+					anyNullable |= operand.nullable;
+					lowestToken = min(lowestToken, operand.acceptedToken);
+				}
+				nullable = anyNullable;
+				acceptedToken = lowestToken;
+				break;
+			default:
+				nullable = false;
+				acceptedToken = -1;
+		}
+	}
+
+	/**
+	 * Returns the lowest of the given token indices, where {@code -1} means no token.
+	 */
+	private static int min(int lhs, int rhs) {
+		if (lhs == -1) {
+			return rhs;
+		}
+		return rhs == -1 ? lhs : Math.min(lhs, rhs);
+	}
+
+	/**
+	 * Returns whether the term matches nothing.
+	 * @return {@code true} if the term matches nothing.
+	 */
+	public boolean isEmpty() {
+		return kind == Kind.EMPTY;
+	}
+
+	/**
+	 * Returns the lowest index of the tokens that are accepted by this term on the empty string.
+	 * @return The token index, or {@code -1} if no token is accepted.
+	 */
+	public int getAcceptedToken() {
+		return acceptedToken;
+	}
+}
@@ -0,0 +1,290 @@
+package io.lateralus.lexergenerator.core.automaton;
+
+import io.lateralus.lexergenerator.core.automaton.RegExTerm.Kind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates {@link RegExTerm}s and computes their derivatives.
+ * <br/>
+ * All terms are created through smart constructors, which apply the following rules (where {@code r}, {@code s} and
+ * {@code t} are terms):
+ * <ul>
+ *     <li>{@code &empty;r = r&empty; = &empty;}, {@code &epsilon;r = r&epsilon; = r} and {@code (rs)t = r(st)},</li>
+ *     <li>unions are flattened, {@code &empty;} is removed, all sets are merged into one set, and the operands are
+ *     sorted and made unique, so union is associative, commutative and idempotent,</li>
+ *     <li>{@code &empty;* = &epsilon;* = &epsilon;} and {@code (r*)* = r*} and</li>
+ *     <li>an empty set is {@code &empty;}.</li>
+ * </ul>
+ * The resulting terms are interned, so equal terms are the same instance. These rules guarantee that every regular
+ * expression only has a finite number of different derivatives.
+ */
+public class RegExTermFactory {
+
+	/**
+	 * The key of a term in the intern map.
+	 */
+	private static class Key {
+		private final Kind kind;
+		private final int[] data;
+		private final int hash;
+
+		private Key(Kind kind, int[] data) {
+			this.kind = kind;
+			this.data = data;
+			this.hash = 31 * kind.hashCode() + Arrays.hashCode(data);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			Key key = (Key) o;
+			return kind == key.kind && Arrays.equals(data, key.data);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	private final Map<Key, RegExTerm> terms = new HashMap<>();
+
+	/**
+	 * The derivatives that have been computed, keyed by term id and input.
+	 */
+	private final Map<Long, RegExTerm> derivatives = new HashMap<>();
+
+	private final RegExTerm empty = intern(Kind.EMPTY, new int[0], null, null, -1);
+
+	private final RegExTerm epsilon = intern(Kind.EPSILON, new int[0], null, null, -1);
+
+	private RegExTerm intern(Kind kind, int[] data, int[] inputs, RegExTerm[] operands, int token) {
+		return terms.computeIfAbsent(new Key(kind, data),
+				key -> new RegExTerm(terms.size(), kind, inputs, operands, token));
+	}
+
+	private static int[] ids(RegExTerm... operands) {
+		int[] ids = new int[operands.length];
+		for (int i = 0; i < operands.length; i++) {
+			ids[i] = operands[i].id;
+		}
+		return ids;
+	}
+
+	public RegExTerm empty() {
+		return empty;
+	}
+
+	public RegExTerm epsilon() {
+		return epsilon;
+	}
+
+	/**
+	 * Creates a term that matches a single input from the given inputs.
+	 * @param inputs The inputs, may be unsorted and contain duplicates.
+	 * @return The term.
+	 */
+	public RegExTerm set(int[] inputs) {
+		int[] sorted = inputs.clone();
+		Arrays.sort(sorted);
+		int size = 0;
+		for (int input : sorted) {
+			if (size == 0 || sorted[size - 1] != input) {
+				sorted[size++] = input;
+			}
+		}
+		if (size == 0) {
+			return empty;
+		}
+		int[] unique = Arrays.copyOf(sorted, size);
+		return intern(Kind.SET, unique, unique, null, -1);
+	}
+
+	/**
+	 * Creates a term that accepts the given token.
+	 * @param token The index of the token.
+	 * @return The term.
+	 */
+	public RegExTerm accept(int token) {
+		return intern(Kind.ACCEPT, new int[] { token }, null, null, token);
+	}
+
+	public RegExTerm concat(RegExTerm lhs, RegExTerm rhs) {
+		if (lhs == empty || rhs == empty) {
+			return empty;
+		}
+		if (lhs == epsilon) {
+			return rhs;
+		}
+		if (rhs == epsilon) {
+			return lhs;
+		}
+		if (lhs.kind == Kind.CONCAT) {
+			// Keep concatenations right associative.
+			return concat(lhs.operands[0], concat(lhs.operands[1], rhs));
+		}
+		return intern(Kind.CONCAT, ids(lhs, rhs), null, new RegExTerm[] { lhs, rhs }, -1);
+	}
+
+	public RegExTerm union(RegExTerm lhs, RegExTerm rhs) {
+		return union(Arrays.asList(lhs, rhs));
+	}
+
+	/**
+	 * Creates the union of the given terms.
+	 * @param operands The terms.
+	 * @return The term.
+	 */
+	public RegExTerm union(List<RegExTerm> operands) {
+		// Flatten the unions, drop the empty terms and collect the inputs of the sets.
+		List<RegExTerm> flattened = new ArrayList<>();
+		int[] setInputs = new int[0];
+		for (RegExTerm operand : operands) {
+			RegExTerm[] members = operand.kind == Kind.UNION ? operand.operands : new RegExTerm[] { operand };
+			for (RegExTerm member : members) {
+				if (member.kind == Kind.SET) {
+					setInputs = concat(setInputs, member.inputs);
+				} else if (member != empty) {
+					flattened.add(member);
+				}
+			}
+		}
+		if (setInputs.length > 0) {
+			flattened.add(set(setInputs));
+		}
+
+		// Sort the operands and remove the duplicates.
+		flattened.sort((a, b) -> Integer.compare(a.id, b.id));
+		int size = 0;
+		for (RegExTerm operand : flattened) {
+			if (size == 0 || flattened.get(size - 1) != operand) {
+				flattened.set(size++, operand);
+			}
+		}
+
+		if (size == 0) {
+			return empty;
+		}
+		if (size == 1) {
+			return flattened.get(0);
+		}
+		RegExTerm[] unique = flattened.subList(0, size).toArray(new RegExTerm[0]);
+		return intern(Kind.UNION, ids(unique), null, unique, -1);
+	}
+
+	public RegExTerm star(RegExTerm operand) {
+		if (operand == empty || operand == epsilon) {
+			return epsilon;
+		}
+		if (operand.kind == Kind.STAR) {
+			return operand;
+		}
+		return intern(Kind.STAR, ids(operand), null, new RegExTerm[] { operand }, -1);
+	}
+
+	public RegExTerm plus(RegExTerm operand) {
+		return concat(operand, star(operand));
+	}
+
+	public RegExTerm optional(RegExTerm operand) {
+		return union(epsilon, operand);
+	}
+
+	private static int[] concat(int[] lhs, int[] rhs) {
+		int[] result = Arrays.copyOf(lhs, lhs.length + rhs.length);
+		System.arraycopy(rhs, 0, result, lhs.length, rhs.length);
+		return result;
+	}
+
+	/**
+	 * Computes the (Brzozowski) derivative of the given term with respect to the given input; the term that matches
+	 * all strings {@code w} for which the given term matches {@code input w}.
+	 * @param term The term.
+	 * @param input The input.
+	 * @return The derivative.
+	 */
+	public RegExTerm derivative(RegExTerm term, int input) {
+		switch (term.kind) {
+			case EMPTY:
+			case EPSILON:
+			case ACCEPT:
+				return empty;
+			case SET:
+				return Arrays.binarySearch(term.inputs, input) >= 0 ? epsilon : empty;
+			default:
+				break;
+		}
+
+		Long key = ((long) term.id << 32) | input;
+		RegExTerm derivative = derivatives.get(key);
+		if (derivative == null) {
+			derivative = calculateDerivative(term, input);
+			derivatives.put(key, derivative);
+		}
+		return derivative;
+	}
+
+	private RegExTerm calculateDerivative(RegExTerm term, int input) {
+		RegExTerm[] operands = term.operands;
+		switch (term.kind) {
+			case CONCAT:
+				RegExTerm derivative = concat(derivative(operands[0], input), operands[1]);
+				if (operands[0].nullable) {
+					derivative = union(derivative, derivative(operands[1], input));
+				}
+				return derivative;
+			case UNION:
+				List<RegExTerm> derivatives = new ArrayList<>(operands.length);
+				for (RegExTerm operand : operands) {
+					derivatives.add(derivative(operand, input));
+				}
+				return union(derivatives);
+			case STAR:
+				return concat(derivative(operands[0], input), term);
+			default:
+				throw new IllegalStateException("Unexpected term kind " + term.kind);
+		}
+	}
+
+	/**
+	 * Collects the set terms that can match the first input of the given term. Only these sets determine the
+	 * derivatives of the term; inputs that are in exactly the same collected sets have the same derivative.
+	 * @param term The term.
+	 * @param sets The list to add the sets to.
+	 */
+	void collectFirstSets(RegExTerm term, List<RegExTerm> sets) {
+		switch (term.kind) {
+			case SET:
+				sets.add(term);
+				break;
+			case CONCAT:
+				collectFirstSets(term.operands[0], sets);
+				if (term.operands[0].nullable) {
+					collectFirstSets(term.operands[1], sets);
+				}
+				break;
+			case UNION:
+				for (RegExTerm operand : term.operands) {
+					collectFirstSets(operand, sets);
+				}
+				break;
+			case STAR:
+				collectFirstSets(term.operands[0], sets);
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Returns the number of different terms created by this factory.
+	 * @return The number of terms.
+	 */
+	public int getTermCount() {
+		return terms.size();
+	}
+}
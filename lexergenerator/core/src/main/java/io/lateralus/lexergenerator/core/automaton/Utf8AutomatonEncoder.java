@@ -0,0 +1,270 @@
+package io.lateralus.lexergenerator.core.automaton;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Encodes a DFA on code points into a DFA on the bytes of the UTF-8 encoding of the code points. The transitions of a
+ * state on a range of code points are split into sequences of byte ranges (following the RFC3629 syntax of UTF-8), the
+ * sequences of a state share their prefixes, so the result is again deterministic. The states of the DFA keep their
+ * numbers, the states that are added for the prefixes are numbered after them and do not accept. The surrogate code
+ * points can not be encoded and are dropped.
+ * <br/>
+ * The transitions of the start state are not on code points but on the indices of the lexer classes, they are copied
+ * as they are. The inputs of the encoded DFA are equivalence classes of bytes, which can be retrieved after the
+ * encoding as an alphabet of byte intervals.
+ */
+public class Utf8AutomatonEncoder {
+
+	/**
+	 * The highest code point per length of the encoding, the encodings of higher code points take more bytes.
+	 */
+	private static final int[] MAX_CODE_POINTS = { 0x7F, 0x7FF, 0xFFFF };
+
+	private final int[] alphabetIntervals;
+
+	private final int[] alphabetClasses;
+
+	private int[] byteIntervals;
+
+	private int[] byteClasses;
+
+	/**
+	 * Constructor.
+	 * @param alphabetIntervals The alphabet of the DFA to encode.
+	 * @param alphabetClasses Per alphabet interval its equivalence class, which is the input of the DFA.
+	 */
+	public Utf8AutomatonEncoder(int[] alphabetIntervals, int[] alphabetClasses) {
+		this.alphabetIntervals = alphabetIntervals;
+		this.alphabetClasses = alphabetClasses;
+	}
+
+	/**
+	 * Encodes the given DFA.
+	 * @param dfa The deterministic automaton on code points.
+	 * @return The deterministic automaton on the bytes of the UTF-8 encoding.
+	 */
+	public Automaton encode(Automaton dfa) {
+		int[] offsets = dfa.getOffsets();
+		int[] targets = dfa.getTargets();
+		int[] inputs = dfa.getInputs();
+		int startState = dfa.getStartState();
+
+		// The transitions on byte ranges, as (from state, to state, first byte, last byte).
+		List<int[]> byteTransitions = new ArrayList<>();
+
+		// The states for the prefixes of the byte sequences, by their state, first byte and last byte.
+		Map<Long, Integer> prefixStates = new HashMap<>();
+		int stateCount = dfa.getStateCount();
+
+		int[] classTargets = new int[dfa.getAlphabetSize()];
+		List<int[]> sequences = new ArrayList<>();
+		for (int state = 0; state < dfa.getStateCount(); state++) {
+			if (state == startState) {
+				continue;
+			}
+
+			Arrays.fill(classTargets, -1);
+			for (int i = offsets[state]; i < offsets[state + 1]; i++) {
+				classTargets[inputs[i]] = targets[i];
+			}
+
+			for (int i = 0; i < alphabetClasses.length; i++) {
+				int target = classTargets[alphabetClasses[i]];
+				if (target == -1) {
+					continue;
+				}
+
+				sequences.clear();
+				addSequences(alphabetIntervals[2 * i], alphabetIntervals[2 * i + 1], sequences);
+				for (int[] sequence : sequences) {
+					// Follow (or create) the states for all but the last byte range of the sequence.
+					int current = state;
+					for (int k = 0; k < sequence.length - 2; k += 2) {
+						long key = ((long) current << 16) | (sequence[k] << 8) | sequence[k + 1];
+						Integer next = prefixStates.get(key);
+						if (next == null) {
+							next = stateCount++;
+							prefixStates.put(key, next);
+							byteTransitions.add(new int[] { current, next, sequence[k], sequence[k + 1] });
+						}
+						current = next;
+					}
+					byteTransitions.add(new int[] { current, target, sequence[sequence.length - 2],
+							sequence[sequence.length - 1] });
+				}
+			}
+		}
+
+		int[] byteToClass = createByteClasses(byteTransitions);
+		int byteClassCount = Arrays.stream(byteToClass).max().orElse(-1) + 1;
+
+		Automaton encodedDfa = new Automaton();
+		encodedDfa.addStates(stateCount);
+		encodedDfa.setStartState(startState);
+		encodedDfa.getAcceptingStates().or(dfa.getAcceptingStates());
+
+		int lexerClassCount = 0;
+		for (int i = offsets[startState]; i < offsets[startState + 1]; i++) {
+			encodedDfa.addTransition(startState, targets[i], inputs[i]);
+			lexerClassCount = Math.max(lexerClassCount, inputs[i] + 1);
+		}
+		encodedDfa.setAlphabetSize(Math.max(byteClassCount, lexerClassCount));
+
+		// Duplicate transitions (for bytes of the same class) are removed by the automaton.
+		for (int[] transition : byteTransitions) {
+			for (int b = transition[2]; b <= transition[3]; b++) {
+				encodedDfa.addTransition(transition[0], transition[1], byteToClass[b]);
+			}
+		}
+
+		return encodedDfa;
+	}
+
+	/**
+	 * Returns the alphabet of the encoded DFA; the intervals of bytes that are part of some transition.
+	 * @return The byte intervals.
+	 */
+	public int[] getByteIntervals() {
+		return byteIntervals;
+	}
+
+	/**
+	 * Returns per byte interval its equivalence class, which is the input of the encoded DFA.
+	 * @return The byte classes.
+	 */
+	public int[] getByteClasses() {
+		return byteClasses;
+	}
+
+	/**
+	 * Divides the bytes into equivalence classes; bytes are in the same class if they have the same transitions. Also
+	 * determines the byte intervals and their classes.
+	 * @param byteTransitions The transitions on byte ranges.
+	 * @return Per byte its class, or -1 if it is not part of any transition.
+	 */
+	private int[] createByteClasses(List<int[]> byteTransitions) {
+		// The bytes at which the transitions change.
+		TreeSet<Integer> boundaries = new TreeSet<>();
+		for (int[] transition : byteTransitions) {
+			boundaries.add(transition[2]);
+			boundaries.add(transition[3] + 1);
+		}
+
+		// Per byte the transitions it is part of.
+		List<List<Integer>> signatures = new ArrayList<>();
+		for (int b = 0; b < 256; b++) {
+			signatures.add(new ArrayList<>());
+		}
+		for (int[] transition : byteTransitions) {
+			for (int b = transition[2]; b <= transition[3]; b++) {
+				signatures.get(b).add(transition[0]);
+				signatures.get(b).add(transition[1]);
+			}
+		}
+
+		int[] byteToClass = new int[256];
+		Map<List<Integer>, Integer> classes = new HashMap<>();
+		List<Integer> intervals = new ArrayList<>();
+		List<Integer> intervalClasses = new ArrayList<>();
+		for (int b = 0; b < 256; b++) {
+			List<Integer> signature = signatures.get(b);
+			if (signature.isEmpty()) {
+				byteToClass[b] = -1;
+				continue;
+			}
+			signature.sort(null);
+			byteToClass[b] = classes.computeIfAbsent(signature, s -> classes.size());
+
+			// Start a new interval at a boundary or after a byte without transitions.
+			if (boundaries.contains(b) || byteToClass[b - 1] == -1) {
+				intervals.add(b);
+				intervals.add(b);
+				intervalClasses.add(byteToClass[b]);
+			} else {
+				intervals.set(intervals.size() - 1, b);
+			}
+		}
+
+		byteIntervals = intervals.stream().mapToInt(Integer::intValue).toArray();
+		byteClasses = intervalClasses.stream().mapToInt(Integer::intValue).toArray();
+		return byteToClass;
+	}
+
+	/**
+	 * Adds the sequences of byte ranges that encode the given range of code points.
+	 * @param first The first code point of the range.
+	 * @param last The last code point of the range.
+	 * @param sequences The list to add the sequences to, as arrays of (first byte, last byte) pairs.
+	 */
+	static void addSequences(int first, int last, List<int[]> sequences) {
+		// Drop the surrogates.
+		if (first < 0xD800 && last > 0xDFFF) {
+			addSequences(first, 0xD7FF, sequences);
+			addSequences(0xE000, last, sequences);
+			return;
+		} else if (first >= 0xD800 && first <= 0xDFFF) {
+			if (last > 0xDFFF) {
+				addSequences(0xE000, last, sequences);
+			}
+			return;
+		} else if (last >= 0xD800 && last <= 0xDFFF) {
+			addSequences(first, 0xD7FF, sequences);
+			return;
+		}
+
+		// Split the range where the length of the encoding changes.
+		for (int max : MAX_CODE_POINTS) {
+			if (first <= max && last > max) {
+				addSequences(first, max, sequences);
+				addSequences(max + 1, last, sequences);
+				return;
+			}
+		}
+
+		// Split the range until all but the first byte ranges are either a single byte or all continuation bytes.
+		for (int i = 1; i < 4; i++) {
+			int mask = (1 << (6 * i)) - 1;
+			if ((first & ~mask) != (last & ~mask)) {
+				if ((first & mask) != 0) {
+					addSequences(first, first | mask, sequences);
+					addSequences((first | mask) + 1, last, sequences);
+					return;
+				}
+				if ((last & mask) != mask) {
+					addSequences(first, (last & ~mask) - 1, sequences);
+					addSequences(last & ~mask, last, sequences);
+					return;
+				}
+			}
+		}
+
+		int[] firstBytes = encode(first);
+		int[] lastBytes = encode(last);
+		int[] sequence = new int[2 * firstBytes.length];
+		for (int k = 0; k < firstBytes.length; k++) {
+			sequence[2 * k] = firstBytes[k];
+			sequence[2 * k + 1] = lastBytes[k];
+		}
+		sequences.add(sequence);
+	}
+
+	/**
+	 * Returns the bytes of the UTF-8 encoding of the given code point.
+	 */
+	private static int[] encode(int codePoint) {
+		if (codePoint <= 0x7F) {
+			return new int[] { codePoint };
+		} else if (codePoint <= 0x7FF) {
+			return new int[] { 0xC0 | (codePoint >> 6), 0x80 | (codePoint & 0x3F) };
+		} else if (codePoint <= 0xFFFF) {
+			return new int[] { 0xE0 | (codePoint >> 12), 0x80 | ((codePoint >> 6) & 0x3F), 0x80 | (codePoint & 0x3F) };
+		}
+		return new int[] { 0xF0 | (codePoint >> 18), 0x80 | ((codePoint >> 12) & 0x3F),
+				0x80 | ((codePoint >> 6) & 0x3F), 0x80 | (codePoint & 0x3F) };
+	}
+}
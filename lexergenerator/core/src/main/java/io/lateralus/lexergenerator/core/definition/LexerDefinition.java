@@ -16,11 +16,17 @@ public class LexerDefinition {
 		private int ordinal;
 		private String name;
 		private int lexerClass;
+		private boolean skip;
 
 		public TokenType(int ordinal, String name, int lexerClass) {
+			this(ordinal, name, lexerClass, false);
+		}
+
+		public TokenType(int ordinal, String name, int lexerClass, boolean skip) {
 			this.ordinal = ordinal;
 			this.name = name;
 			this.lexerClass = lexerClass;
+			this.skip = skip;
 		}
 
 		public int ordinal() {
@@ -35,6 +41,14 @@ public class LexerDefinition {
 			return name;
 		}
 
+		/**
+		 * Returns whether tokens of this type are skipped; the generated lexer consumes them instead of returning them.
+		 * @return Whether the tokens are skipped.
+		 */
+		public boolean isSkip() {
+			return skip;
+		}
+
 		@Override
 		public boolean equals(Object o) {
 			if (this == o) return true;
@@ -42,12 +56,13 @@ public class LexerDefinition {
 			TokenType tokenType = (TokenType) o;
 			return ordinal == tokenType.ordinal &&
 					lexerClass == tokenType.lexerClass &&
+					skip == tokenType.skip &&
 					Objects.equals(name, tokenType.name);
 		}
 
 		@Override
 		public int hashCode() {
-			return Objects.hash(ordinal, name, lexerClass);
+			return Objects.hash(ordinal, name, lexerClass, skip);
 		}
 	}
 
@@ -55,6 +70,8 @@ public class LexerDefinition {
 
 	private int[] alphabetIntervals;
 
+	private int[] alphabetClasses;
+
 	private List<TokenType> tokenTypeList;
 
 	private Map<Integer, TokenType> acceptingStateTokenTypes;
@@ -65,6 +82,8 @@ public class LexerDefinition {
 
 	private int errorState;
 
+	private boolean utf8;
+
 	public String[] getLexerClassNames() {
 		return lexerClassNames;
 	}
@@ -81,10 +100,31 @@ public class LexerDefinition {
 		this.alphabetIntervals = alphabetRanges;
 	}
 
+	/**
+	 * Returns per alphabet interval the input of the automaton, i.e. the equivalence class of the interval. Multiple
+	 * intervals can share the same input.
+	 * @return The inputs of the alphabet intervals.
+	 */
+	public int[] getAlphabetClasses() {
+		return alphabetClasses;
+	}
+
+	public void setAlphabetClasses(int[] alphabetClasses) {
+		this.alphabetClasses = alphabetClasses;
+	}
+
 	public List<TokenType> getTokenTypeList() {
 		return tokenTypeList;
 	}
 
+	/**
+	 * Returns whether the tokens of some token type are skipped.
+	 * @return Whether there are skip tokens.
+	 */
+	public boolean hasSkipTokens() {
+		return tokenTypeList.stream().anyMatch(TokenType::isSkip);
+	}
+
 	public void setTokenTypeList(List<TokenType> tokenTypeList) {
 		this.tokenTypeList = tokenTypeList;
 	}
@@ -120,4 +160,17 @@ public class LexerDefinition {
 	public void setErrorState(int errorState) {
 		this.errorState = errorState;
 	}
+
+	/**
+	 * Returns whether the DFA works on the bytes of the UTF-8 encoding of the input instead of on code points. The
+	 * alphabet is then an alphabet of bytes.
+	 * @return Whether the DFA works on UTF-8 bytes.
+	 */
+	public boolean isUtf8() {
+		return utf8;
+	}
+
+	public void setUtf8(boolean utf8) {
+		this.utf8 = utf8;
+	}
 }
@@ -2,14 +2,24 @@ package io.lateralus.lexergenerator.core.definition;
 
 import io.lateralus.lexergenerator.core.automaton.Automaton;
 import io.lateralus.lexergenerator.core.automaton.AutomatonDeterminizer;
-import io.lateralus.lexergenerator.core.automaton.AutomatonMinimizer;
+import io.lateralus.lexergenerator.core.automaton.DerivativeDeterminizer;
+import io.lateralus.lexergenerator.core.automaton.PartialAutomatonMinimizer;
+import io.lateralus.lexergenerator.core.automaton.PositionAutomaton;
+import io.lateralus.lexergenerator.core.automaton.PositionAutomatonDeterminizer;
+import io.lateralus.lexergenerator.core.automaton.RegExTerm;
+import io.lateralus.lexergenerator.core.automaton.RegExTermFactory;
+import io.lateralus.lexergenerator.core.automaton.Utf8AutomatonEncoder;
 import io.lateralus.lexergenerator.core.parser.nodes.LexerClassNode;
 import io.lateralus.lexergenerator.core.parser.nodes.LexerDescriptionNode;
 import io.lateralus.lexergenerator.core.parser.nodes.LexerTokenNode;
+import io.lateralus.lexergenerator.core.parser.visitors.AlphabetClassCollector;
 import io.lateralus.lexergenerator.core.parser.visitors.IntervalCollector;
+import io.lateralus.lexergenerator.core.parser.visitors.PositionConstructor;
+import io.lateralus.lexergenerator.core.parser.visitors.RegExTermConstructor;
 import io.lateralus.lexergenerator.core.parser.visitors.ThompsonConstructor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -21,6 +31,28 @@ import java.util.Set;
  */
 public class LexerDefinitionBuilder {
 
+	/**
+	 * The ways in which the DFA can be constructed from the regular expressions. All engines result in the same lexer.
+	 */
+	public enum Engine {
+		/**
+		 * Builds an NFA using Thompson's construction and determinizes it using the powerset construction.
+		 */
+		THOMPSON,
+
+		/**
+		 * Builds the DFA directly from the positions of the regular expressions (using followpos), without an NFA with
+		 * &epsilon;-transitions.
+		 */
+		FOLLOWPOS,
+
+		/**
+		 * Builds the DFA directly from the regular expressions using Brzozowski derivatives. Since the derivatives are
+		 * normalized the DFA is usually (close to) minimal.
+		 */
+		DERIVATIVES
+	}
+
 	/**
 	 * The error state for the lexer. Note that the concept of an error state is something that is required for a lexer,
 	 * but does not exist in the definition of automata. Therefor we store this state here.
@@ -55,6 +87,70 @@ public class LexerDefinitionBuilder {
 	 */
 	private int nrOfClasses;
 
+	/**
+	 * Whether the NFA is determinized using multiple threads.
+	 */
+	private boolean parallel;
+
+	/**
+	 * The engine used to construct the DFA.
+	 */
+	private Engine engine = Engine.THOMPSON;
+
+	/**
+	 * Whether the DFA is minimized.
+	 */
+	private boolean minimize = true;
+
+	/**
+	 * Whether the DFA works on the bytes of the UTF-8 encoding of the input.
+	 */
+	private boolean utf8;
+
+	/**
+	 * Sets whether the NFA should be determinized using multiple threads. Note that this does not affect the result.
+	 * @param parallel Whether to determinize in parallel.
+	 * @return This builder.
+	 */
+	public LexerDefinitionBuilder parallel(boolean parallel) {
+		this.parallel = parallel;
+		return this;
+	}
+
+	/**
+	 * Sets the engine used to construct the DFA, the default is {@link Engine#THOMPSON}. Note that determinizing in
+	 * parallel is only supported by the Thompson engine.
+	 * @param engine The engine.
+	 * @return This builder.
+	 */
+	public LexerDefinitionBuilder engine(Engine engine) {
+		this.engine = engine;
+		return this;
+	}
+
+	/**
+	 * Sets whether the DFA should be minimized, the default is {@code true}. Without minimization the lexer still
+	 * behaves the same, but it might have more states than needed.
+	 * @param minimize Whether to minimize the DFA.
+	 * @return This builder.
+	 */
+	public LexerDefinitionBuilder minimize(boolean minimize) {
+		this.minimize = minimize;
+		return this;
+	}
+
+	/**
+	 * Sets whether the DFA should work on the bytes of the UTF-8 encoding of the input instead of on code points, the
+	 * default is {@code false}. The DFA on code points is encoded into a DFA on bytes (see
+	 * {@link Utf8AutomatonEncoder}), so a lexer can read UTF-8 encoded input without decoding it.
+	 * @param utf8 Whether the DFA works on UTF-8 bytes.
+	 * @return This builder.
+	 */
+	public LexerDefinitionBuilder utf8(boolean utf8) {
+		this.utf8 = utf8;
+		return this;
+	}
+
 	/**
 	 * Builds a lexer definition.
 	 * @param node The lexer definition node to build the lexer definition from.
@@ -65,10 +161,67 @@ public class LexerDefinitionBuilder {
 		// Determine the alphabet.
 		int[] alphabetIntervals = IntervalCollector.collectIntervals(node);
 
-		Automaton nfa = new Automaton();
+		// Merge the intervals that behave the same into equivalence classes, which are the inputs of the automata.
+		int[] alphabetClasses = AlphabetClassCollector.collectAlphabetClasses(node, alphabetIntervals);
+		int alphabetClassCount = Arrays.stream(alphabetClasses).max().orElse(-1) + 1;
 
 		// Determine the size of the alphabet.
-		int alphabetSize = Math.max(alphabetIntervals.length / 2, node.getLexerClassNodeList().size());
+		int alphabetSize = Math.max(alphabetClassCount, node.getLexerClassNodeList().size());
+
+		Automaton dfa;
+		switch (engine) {
+			case FOLLOWPOS:
+				// Construct the DFA directly from the positions of the regular expressions.
+				dfa = constructPositionDfa(node, alphabetSize, alphabetIntervals, alphabetClasses);
+				break;
+			case DERIVATIVES:
+				// Construct the DFA directly from the derivatives of the regular expressions.
+				dfa = constructDerivativeDfa(node, alphabetSize, alphabetIntervals, alphabetClasses);
+				break;
+			default:
+				// Construct an NFA and determinize it to get a DFA.
+				dfa = determinize(constructNfa(node, alphabetSize, alphabetIntervals, alphabetClasses));
+				break;
+		}
+
+		// Minimize the DFA. Since the DFA is partial there is no need to complete it first.
+		if (minimize) {
+			dfa = minimize(dfa);
+		}
+
+		// Encode the DFA on the bytes of the UTF-8 encoding, the alphabet becomes an alphabet of bytes. The encoding
+		// adds states for the prefixes of the byte sequences, many of which are equivalent.
+		if (utf8) {
+			Utf8AutomatonEncoder encoder = new Utf8AutomatonEncoder(alphabetIntervals, alphabetClasses);
+			dfa = encoder.encode(dfa);
+			alphabetIntervals = encoder.getByteIntervals();
+			alphabetClasses = encoder.getByteClasses();
+			if (minimize) {
+				dfa = minimize(dfa);
+			}
+		}
+
+		// Add the error state.
+		dfa = addErrorState(dfa);
+
+		Map<LexerDefinition.TokenType, Set<Integer>> newMap = new HashMap<>();
+		acceptingStateTokenTypeMap.forEach((i, t) -> newMap.computeIfAbsent(t, t2 -> new HashSet<>()).add(i));
+
+		// Create the lexer definition.
+		return createLexerDefinition(dfa, alphabetIntervals, alphabetClasses, node.getStartLexerStateName());
+	}
+
+	/**
+	 * Constructs an NFA for all lexer classes using Thompson's construction.
+	 * @param node The lexer definition node.
+	 * @param alphabetSize The size of the alphabet.
+	 * @param alphabetIntervals The alphabet.
+	 * @param alphabetClasses Per alphabet interval its equivalence class.
+	 * @return The NFA.
+	 */
+	private Automaton constructNfa(LexerDescriptionNode node, int alphabetSize, int[] alphabetIntervals,
+			int[] alphabetClasses) {
+		Automaton nfa = new Automaton();
 		nfa.setAlphabetSize(alphabetSize);
 
 		// Create a start state.
@@ -76,23 +229,104 @@ public class LexerDefinitionBuilder {
 
 		// Add an NFA for every lexer class node in the definition.
 		for (LexerClassNode lexerClassNode : node.getLexerClassNodeList()) {
-			processLexerClass(lexerClassNode, nfa, alphabetIntervals);
+			processLexerClass(lexerClassNode, nfa, alphabetIntervals, alphabetClasses);
+		}
+
+		return nfa;
+	}
+
+	/**
+	 * Constructs the DFA for all lexer classes directly from the positions of the regular expressions.
+	 * <br/>
+	 * For every lexer class there is a start position that only matches the index of the lexer class, it is followed by
+	 * the first positions of all tokens of the class. The DFA starts in the set of these start positions, so the input
+	 * of a lexer class brings it to the start state of that lexer class, just like in the NFA.
+	 * @param node The lexer definition node.
+	 * @param alphabetSize The size of the alphabet.
+	 * @param alphabetIntervals The alphabet.
+	 * @param alphabetClasses Per alphabet interval its equivalence class.
+	 * @return The DFA.
+	 */
+	private Automaton constructPositionDfa(LexerDescriptionNode node, int alphabetSize, int[] alphabetIntervals,
+			int[] alphabetClasses) {
+		PositionAutomaton positionAutomaton = new PositionAutomaton();
+		positionAutomaton.setAlphabetSize(alphabetSize);
+
+		int[] startPositions = new int[node.getLexerClassNodeList().size()];
+		int i = 0;
+
+		for (LexerClassNode lexerClassNode : node.getLexerClassNodeList()) {
+			int lexerClassIndex = determineLexerClassIndex(lexerClassNode.getName());
+			int lexerClassStartPosition = positionAutomaton.addPosition(new int[] { lexerClassIndex });
+			startPositions[i++] = lexerClassStartPosition;
+
+			for (LexerTokenNode lexerToken : lexerClassNode.getLexerTokenList()) {
+				PositionConstructor constructor = new PositionConstructor(positionAutomaton, alphabetIntervals,
+						alphabetClasses);
+				constructor.construct(lexerToken.getRegEx());
+
+				positionAutomaton.addFollowPositions(lexerClassStartPosition, constructor.getFirstPositions());
+
+				// The end position identifies the token.
+				registerTokenType(lexerToken, constructor.getEndPosition());
+			}
 		}
 
-		// Determinize the NFA to get a DFA.
-		Automaton dfa = determinize(nfa);
+		positionAutomaton.setStartPositions(startPositions);
 
-		// Complete the DFA.
-		dfa = complete(dfa);
+		PositionAutomatonDeterminizer determinizer = new PositionAutomatonDeterminizer();
+		Automaton dfa = determinizer.determinize(positionAutomaton);
 
-		// Minimize the DFA.
-		dfa = minimize(dfa);
+		// After determinization we need to update our accepting states.
+		resolveAcceptingStates(determinizer.getNewStateOldStateMapping(), positionAutomaton.getPositionCount());
 
-		Map<LexerDefinition.TokenType, Set<Integer>> newMap = new HashMap<>();
-		acceptingStateTokenTypeMap.forEach((i, t) -> newMap.computeIfAbsent(t, t2 -> new HashSet<>()).add(i));
+		return dfa;
+	}
 
-		// Create the lexer definition.
-		return createLexerDefinition(dfa, alphabetIntervals, node.getStartLexerStateName());
+	/**
+	 * Constructs the DFA for all lexer classes using derivatives.
+	 * <br/>
+	 * Every token is represented by its regular expression followed by a term that accepts the token. The term of a
+	 * lexer class is the union of the terms of its tokens.
+	 * @param node The lexer definition node.
+	 * @param alphabetSize The size of the alphabet.
+	 * @param alphabetIntervals The alphabet.
+	 * @param alphabetClasses Per alphabet interval its equivalence class.
+	 * @return The DFA.
+	 */
+	private Automaton constructDerivativeDfa(LexerDescriptionNode node, int alphabetSize, int[] alphabetIntervals,
+			int[] alphabetClasses) {
+		RegExTermFactory factory = new RegExTermFactory();
+		RegExTermConstructor constructor = new RegExTermConstructor(factory, alphabetIntervals, alphabetClasses);
+
+		RegExTerm[] lexerClassTerms = new RegExTerm[alphabetSize];
+
+		for (LexerClassNode lexerClassNode : node.getLexerClassNodeList()) {
+			int lexerClassIndex = determineLexerClassIndex(lexerClassNode.getName());
+			List<RegExTerm> tokenTerms = new ArrayList<>();
+
+			for (LexerTokenNode lexerToken : lexerClassNode.getLexerTokenList()) {
+				// The index of the token is used as its accepting state.
+				int token = tokenTypeList.size();
+				tokenTerms.add(factory.concat(constructor.construct(lexerToken.getRegEx()), factory.accept(token)));
+				registerTokenType(lexerToken, token);
+			}
+
+			lexerClassTerms[lexerClassIndex] = factory.union(tokenTerms);
+		}
+
+		DerivativeDeterminizer determinizer = new DerivativeDeterminizer(factory);
+		Automaton dfa = determinizer.determinize(lexerClassTerms, alphabetSize);
+
+		// Every DFA state accepts at most one token.
+		int[] acceptedTokens = determinizer.getAcceptedTokens();
+		int[][] mapping = new int[acceptedTokens.length][];
+		for (int state = 0; state < acceptedTokens.length; state++) {
+			mapping[state] = acceptedTokens[state] != -1 ? new int[] { acceptedTokens[state] } : new int[0];
+		}
+		resolveAcceptingStates(mapping, tokenTypeList.size());
+
+		return dfa;
 	}
 
 	/**
@@ -100,10 +334,12 @@ public class LexerDefinitionBuilder {
 	 *
 	 * @param dfa The DFA to create the definition from.
 	 * @param alphabetIntervals The alphabet.
+	 * @param alphabetClasses Per alphabet interval its equivalence class.
 	 * @param startLexerStateName The name of the lexer state to start in.
 	 * @return The lexer definition.
 	 */
-	private LexerDefinition createLexerDefinition(Automaton dfa, int[] alphabetIntervals, String startLexerStateName) {
+	private LexerDefinition createLexerDefinition(Automaton dfa, int[] alphabetIntervals, int[] alphabetClasses,
+			String startLexerStateName) {
 		String[] lexerClassNames = new String[lexerClassIndexMap.size()];
 
 		for (Map.Entry<String, Integer> entry : lexerClassIndexMap.entrySet()) {
@@ -116,13 +352,43 @@ public class LexerDefinitionBuilder {
 		lexerDefinition.setDfa(dfa);
 		lexerDefinition.setTokenTypeList(tokenTypeList);
 		lexerDefinition.setAcceptingStateTokenTypes(acceptingStateTokenTypeMap);
-		lexerDefinition.setAlphabetIntervals(alphabetIntervals);
+		setAlphabet(lexerDefinition, alphabetIntervals, alphabetClasses);
 		lexerDefinition.setStartLexerState(lexerClassIndexMap.get(startLexerStateName));
 		lexerDefinition.setErrorState(lexerErrorState);
+		lexerDefinition.setUtf8(utf8);
 
 		return lexerDefinition;
 	}
 
+	/**
+	 * Sets the alphabet of the lexer definition. Adjacent intervals that are in the same equivalence class are merged,
+	 * which reduces the number of intervals the generated lexer has to map.
+	 * @param lexerDefinition The lexer definition.
+	 * @param alphabetIntervals The alphabet.
+	 * @param alphabetClasses Per alphabet interval its equivalence class.
+	 */
+	private static void setAlphabet(LexerDefinition lexerDefinition, int[] alphabetIntervals, int[] alphabetClasses) {
+		int[] mergedIntervals = new int[alphabetIntervals.length];
+		int[] mergedClasses = new int[alphabetClasses.length];
+		int count = 0;
+
+		for (int i = 0; i < alphabetClasses.length; i++) {
+			int start = alphabetIntervals[2 * i];
+			boolean adjacent = count > 0 && mergedIntervals[2 * count - 1] + 1 == start;
+			if (adjacent && mergedClasses[count - 1] == alphabetClasses[i]) {
+				// Extend the previous interval.
+				mergedIntervals[2 * count - 1] = alphabetIntervals[2 * i + 1];
+			} else {
+				mergedIntervals[2 * count] = start;
+				mergedIntervals[2 * count + 1] = alphabetIntervals[2 * i + 1];
+				mergedClasses[count++] = alphabetClasses[i];
+			}
+		}
+
+		lexerDefinition.setAlphabetIntervals(Arrays.copyOf(mergedIntervals, 2 * count));
+		lexerDefinition.setAlphabetClasses(Arrays.copyOf(mergedClasses, count));
+	}
+
 	/**
 	 * Processes the given lexer class node:
 	 * <ol>
@@ -135,8 +401,9 @@ public class LexerDefinitionBuilder {
 	 * @param node The node to process.
 	 * @param nfa The {@link Automaton} to add the NFA to.
 	 * @param alphabetIntervals The alphabet.
+	 * @param alphabetClasses Per alphabet interval its equivalence class.
 	 */
-	private void processLexerClass(LexerClassNode node, Automaton nfa, int[] alphabetIntervals) {
+	private void processLexerClass(LexerClassNode node, Automaton nfa, int[] alphabetIntervals, int[] alphabetClasses) {
 		int lexerClassIndex = determineLexerClassIndex(node.getName());
 		int lexerClassStartState = determineLexerClassStartState(nfa, lexerClassIndex);
 
@@ -144,7 +411,7 @@ public class LexerDefinitionBuilder {
 
 		for (LexerTokenNode lexerToken : node.getLexerTokenList()) {
 			int localStartState = nfa.addState();
-			processLexerTokenNode(lexerToken, nfa, localStartState, alphabetIntervals);
+			processLexerTokenNode(lexerToken, nfa, localStartState, alphabetIntervals, alphabetClasses);
 			// end en start zijn gezet.
 			nfa.addEpsilonTransition(lexerClassStartState, localStartState);
 		}
@@ -171,11 +438,13 @@ public class LexerDefinitionBuilder {
 	 * @param nfa The {@link Automaton} to add the NFA to.
 	 * @param startState The start state for the added NFA.
 	 * @param alphabetIntervals The alphabet.
+	 * @param alphabetClasses Per alphabet interval its equivalence class.
 	 */
-	private void processLexerTokenNode(LexerTokenNode node, Automaton nfa, int startState, int[] alphabetIntervals) {
+	private void processLexerTokenNode(LexerTokenNode node, Automaton nfa, int startState, int[] alphabetIntervals,
+			int[] alphabetClasses) {
 
 		// Create the ThompsonConstructor and have it add the NFA for the regular expression to the automaton.
-		ThompsonConstructor constructor = new ThompsonConstructor(nfa, startState, alphabetIntervals);
+		ThompsonConstructor constructor = new ThompsonConstructor(nfa, startState, alphabetIntervals, alphabetClasses);
 		constructor.construct(node.getRegEx());
 
 		// Get the end state of the regex we just visited.
@@ -184,13 +453,23 @@ public class LexerDefinitionBuilder {
 		// Register the accepting state.
 		nfa.addAcceptingState(endState);
 
+		registerTokenType(node, endState);
+	}
+
+	/**
+	 * Creates and registers the token type of the given lexer token node.
+	 * @param node The lexer token node.
+	 * @param acceptingState The state (or position) that accepts the token.
+	 */
+	private void registerTokenType(LexerTokenNode node, int acceptingState) {
 		// Determine the lexer class index of the token, add the class if it does not exist.
 		int lexerClassIndex = determineLexerClassIndex(node.getResultClassName());
-		LexerDefinition.TokenType currentTokenType = new LexerDefinition.TokenType(tokenTypeList.size(), node.getName(), lexerClassIndex);
+		LexerDefinition.TokenType currentTokenType = new LexerDefinition.TokenType(tokenTypeList.size(), node.getName(),
+				lexerClassIndex, node.isSkip());
 
 		tokenTypeList.add(currentTokenType);
 
-		acceptingStateTokenTypeMap.put(endState, currentTokenType);
+		acceptingStateTokenTypeMap.put(acceptingState, currentTokenType);
 	}
 
 	/**
@@ -202,118 +481,61 @@ public class LexerDefinitionBuilder {
 		return lexerClassIndexMap.computeIfAbsent(className, s -> nrOfClasses++);
 	}
 
-	/**
-	 * Completes the given DFA ({@link Automaton}) i.e. makes sure that the automaton has a transition for every state
-	 * for every element in the alphabet. Missing transitions are regarded as a transition to the error state.
-	 *
-	 * @param dfa The DFA to complete.
-	 * @return The completed DFA.
-	 */
-	private Automaton complete(Automaton dfa) {
-
-		// We make use of the fact that a int[][] is initialized with 0's. We create a table with an extra state (0)
-		// that will represent the error state.
-		int[][] table = new int[dfa.getStateCount() + 1][dfa.getAlphabetSize()];
-
-		// The error state is 0.
-		lexerErrorState = 0;
-
-		// Fill the table with all transitions. All transitions (from state / input combinations) that are not filled
-		// now will automatically be a transition to the error state.
-		for (Automaton.Transition t : dfa.getTransitions()) {
-			table[t.fromState + 1][t.input] = t.toState + 1;
-		}
-
-		// Create the automaton that represents the new DFA.
-		Automaton newDfa = new Automaton();
-
-		// Add a state for every state in the old DFA.
-		for (int i = 0; i < dfa.getStateCount() + 1; i++) {
-			newDfa.addState();
-		}
-
-		// Add a transition for every element in the table.
-		for (int i = 0; i < table.length; i++) {
-			for (int j = 0; j < table[i].length; j++) {
-				newDfa.addTransition(i, table[i][j], j);
-			}
-		}
-
-		// The start state is the previous start state plus 1.
-		newDfa.setStartState(dfa.getStartState() + 1);
-
-		// All the accepting states are the previous accepting states plus 1.
-		for (int i : dfa.getAcceptingStates()) {
-			newDfa.addAcceptingState(i + 1);
-		}
-
-		// Alphabet size of the new DFA remains the same.
-		newDfa.setAlphabetSize(dfa.getAlphabetSize());
-
-		Map<Integer, LexerDefinition.TokenType> newAcceptingStateTokenTypeMap = new HashMap<>();
-
-		// Loop over all current accepting states with a token type.
-		for (Map.Entry<Integer, LexerDefinition.TokenType> oldEntry : acceptingStateTokenTypeMap.entrySet()) {
-			newAcceptingStateTokenTypeMap.put(oldEntry.getKey() + 1, oldEntry.getValue());
-		}
-
-		acceptingStateTokenTypeMap = newAcceptingStateTokenTypeMap;
-
-		return newDfa;
-	}
-
 	/**
 	 * Determinizes the given NFA using the powerset construction.
 	 * @param nfa The non deterministic finite automaton to determinize.
 	 * @return The DFA.
 	 */
 	private Automaton determinize(Automaton nfa) {
-		AutomatonDeterminizer determinizer = new AutomatonDeterminizer();
+		AutomatonDeterminizer determinizer = new AutomatonDeterminizer(parallel);
 		Automaton dfa = determinizer.determinize(nfa);
 
 		// After determinization we need to update our accepting states.
-		Map<Integer, Set<Integer>> mapping = determinizer.getNewStateOldStateMapping();
+		resolveAcceptingStates(determinizer.getNewStateOldStateMapping(), nfa.getStateCount());
+
+		return dfa;
+	}
+
+	/**
+	 * Replaces the token types of the old (NFA) states by the token types of the DFA states. A DFA state gets the
+	 * token type with the lowest ordinal of its old states.
+	 * @param mapping Per DFA state the old states it consists of.
+	 * @param oldStateCount The number of old states.
+	 */
+	private void resolveAcceptingStates(int[][] mapping, int oldStateCount) {
+		// Store the token types of the NFA states in an array, so we can look them up quickly.
+		LexerDefinition.TokenType[] nfaTokenTypes = new LexerDefinition.TokenType[oldStateCount];
+		acceptingStateTokenTypeMap.forEach((state, tokenType) -> nfaTokenTypes[state] = tokenType);
 
 		Map<Integer, LexerDefinition.TokenType> newAcceptingStateTokenTypeMap = new HashMap<>();
 
-		// Loop over all current accepting states with a token type.
-		for (Map.Entry<Integer, LexerDefinition.TokenType> oldEntry : acceptingStateTokenTypeMap.entrySet()) {
-			int oldState = oldEntry.getKey();
-			for (Map.Entry<Integer, Set<Integer>> mappingEntry : mapping.entrySet()) {
-				if (mappingEntry.getValue().contains(oldState)) {
-					Integer newState = mappingEntry.getKey();
-					LexerDefinition.TokenType tokenType = newAcceptingStateTokenTypeMap.get(newState);
-					if (tokenType == null || tokenType.ordinal() > oldEntry.getValue().ordinal()) {
-						newAcceptingStateTokenTypeMap.put(newState, oldEntry.getValue());
-					}
+		// Loop over all DFA states and determine the token type with the lowest ordinal of its NFA states.
+		for (int newState = 0; newState < mapping.length; newState++) {
+			LexerDefinition.TokenType tokenType = null;
+			for (int oldState : mapping[newState]) {
+				LexerDefinition.TokenType oldTokenType = nfaTokenTypes[oldState];
+				if (oldTokenType != null && (tokenType == null || tokenType.ordinal() > oldTokenType.ordinal())) {
+					tokenType = oldTokenType;
 				}
 			}
+			if (tokenType != null) {
+				newAcceptingStateTokenTypeMap.put(newState, tokenType);
+			}
 		}
 
 		acceptingStateTokenTypeMap = newAcceptingStateTokenTypeMap;
-		return dfa;
 	}
 
 	/**
-	 * Minimizes the given (complete) DFA using Hopcroft's algorithm.
+	 * Minimizes the given (partial) DFA using the algorithm of Valmari and Lehtinen.
 	 * @param dfa The deterministic finite automaton to minimize.
 	 * @return The minimized DFA.
 	 */
 	private Automaton minimize(Automaton dfa) {
 
-		AutomatonMinimizer minimizer = new AutomatonMinimizer(acceptingStates -> {
-			// We will create a new partition of states per token type.
-			Map<LexerDefinition.TokenType, Set<Integer>> tokenTypeAcceptingStates = new HashMap<>();
-
-			for (Integer state : acceptingStates) {
-				// Determine the token type for the accepting state.
-				LexerDefinition.TokenType tokenType = acceptingStateTokenTypeMap.get(state);
-
-				// Determine the set of integers for the token type and add the state.
-				tokenTypeAcceptingStates.computeIfAbsent(tokenType, x -> new HashSet<>()).add(state);
-			}
-			return new HashSet<>(tokenTypeAcceptingStates.values());
-		});
+		// We will create a new partition of states per token type.
+		PartialAutomatonMinimizer minimizer =
+				new PartialAutomatonMinimizer(state -> acceptingStateTokenTypeMap.get(state).ordinal());
 
 		dfa = minimizer.minimize(dfa);
 
@@ -326,8 +548,18 @@ public class LexerDefinitionBuilder {
 		}
 
 		acceptingStateTokenTypeMap = newAcceptingStateTokenTypeMap;
-		lexerErrorState = mapping[lexerErrorState];
 
 		return dfa;
 	}
+
+	/**
+	 * Adds the error state to the given (partial) DFA. Note that we do not add any transitions to the error state; all
+	 * missing transitions are regarded as a transition to the error state.
+	 * @param dfa The DFA to add the error state to.
+	 * @return The DFA.
+	 */
+	private Automaton addErrorState(Automaton dfa) {
+		lexerErrorState = dfa.addState();
+		return dfa;
+	}
 }
@@ -38,11 +38,29 @@ public class LexerClassNodeBuilder {
 	 */
 	public LexerClassNodeBuilder addLexerToken(final String name, final String regex, final String className)
 			throws RegExException {
+		return addLexerToken(name, regex, className, false);
+	}
+
+	/**
+	 * Adds a lexer token to the class node that is skipped; the lexer consumes it instead of returning it.
+	 * @param name The name of the lexer token.
+	 * @param regex The regex that defines the structure of the token.
+	 * @param className The name of the lexer class that the lexer should transition to after a match of this type.
+	 * @return The current instance of this class, so that this method can be chained.
+	 */
+	public LexerClassNodeBuilder addSkipToken(final String name, final String regex, final String className)
+			throws RegExException {
+		return addLexerToken(name, regex, className, true);
+	}
+
+	private LexerClassNodeBuilder addLexerToken(final String name, final String regex, final String className,
+			final boolean skip) throws RegExException {
 		final AbstractRegExNode node = new RegExParser(regex).parse();
 		final LexerTokenNode lexerTokenNode = new LexerTokenNode();
 		lexerTokenNode.setName(name);
 		lexerTokenNode.setRegEx(node);
 		lexerTokenNode.setResultClassName(className);
+		lexerTokenNode.setSkip(skip);
 
 		lexerTokenNodeList.add(lexerTokenNode);
 
@@ -1,6 +1,7 @@
 package io.lateralus.lexergenerator.core.parser;
 
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Util class containing functions on intervals.
@@ -140,4 +141,35 @@ public class IntervalUtils {
 		}
 		return Arrays.copyOf(subIntervalArray, i);
 	}
+
+	/**
+	 * Finds the inputs that match the given intervals. The input of a code point is the equivalence class of the
+	 * alphabet interval that contains it.
+	 * @param intervalList The intervals to find the inputs for, e.g. the intervals of a character set.
+	 * @param intervalArray The array containing the alphabet intervals. Every even index holds the start of an
+	 *                      interval, the following odd index holds the end of that interval.
+	 * @param intervalClasses Per alphabet interval the index of its equivalence class.
+	 * @return The sorted array with the distinct inputs.
+	 */
+	public static int[] findInputs(List<Interval> intervalList, int[] intervalArray, int[] intervalClasses) {
+		int[] inputs = new int[0];
+		for (Interval interval : intervalList) {
+			int[] subIntervalArray = findSubIntervals(interval.getStart(), interval.getEnd(), intervalArray);
+			int length = inputs.length;
+			inputs = Arrays.copyOf(inputs, length + subIntervalArray.length);
+			for (int i = 0; i < subIntervalArray.length; i++) {
+				inputs[length + i] = intervalClasses[subIntervalArray[i]];
+			}
+		}
+
+		// Sort the inputs and remove the duplicates.
+		Arrays.sort(inputs);
+		int size = 0;
+		for (int input : inputs) {
+			if (size == 0 || inputs[size - 1] != input) {
+				inputs[size++] = input;
+			}
+		}
+		return Arrays.copyOf(inputs, size);
+	}
 }
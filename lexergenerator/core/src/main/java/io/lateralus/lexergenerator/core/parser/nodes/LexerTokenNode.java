@@ -8,6 +8,8 @@ public class LexerTokenNode implements LexerNode {
 
 	private String resultClassName;
 
+	private boolean skip;
+
 	public String getName() {
 		return name;
 	}
@@ -31,4 +33,12 @@ public class LexerTokenNode implements LexerNode {
 	public void setResultClassName(String resultClassName) {
 		this.resultClassName = resultClassName;
 	}
+
+	public boolean isSkip() {
+		return skip;
+	}
+
+	public void setSkip(boolean skip) {
+		this.skip = skip;
+	}
 }
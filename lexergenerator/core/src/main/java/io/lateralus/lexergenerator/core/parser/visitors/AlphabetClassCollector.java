@@ -0,0 +1,205 @@
+package io.lateralus.lexergenerator.core.parser.visitors;
+
+import io.lateralus.lexergenerator.core.parser.Interval;
+import io.lateralus.lexergenerator.core.parser.IntervalUtils;
+import io.lateralus.lexergenerator.core.parser.nodes.AbstractRegExNode;
+import io.lateralus.lexergenerator.core.parser.nodes.CharSetNode;
+import io.lateralus.lexergenerator.core.parser.nodes.ConcatNode;
+import io.lateralus.lexergenerator.core.parser.nodes.LexerClassNode;
+import io.lateralus.lexergenerator.core.parser.nodes.LexerDescriptionNode;
+import io.lateralus.lexergenerator.core.parser.nodes.LexerTokenNode;
+import io.lateralus.lexergenerator.core.parser.nodes.OptionalNode;
+import io.lateralus.lexergenerator.core.parser.nodes.PlusNode;
+import io.lateralus.lexergenerator.core.parser.nodes.StarNode;
+import io.lateralus.lexergenerator.core.parser.nodes.UnionNode;
+
+import java.util.Arrays;
+
+/**
+ * Divides the alphabet intervals into equivalence classes. Two intervals are in the same class if every character set
+ * of the lexer description either contains both or none of them. Since the automata can not distinguish between the
+ * intervals of a class, the classes can be used as the inputs of the automata instead of the intervals themselves.
+ * <br/>
+ * The classes are found by partition refinement; every character set splits the classes that it partially contains.
+ */
+public class AlphabetClassCollector implements RegExNodeVisitor<Void, VisitingException> {
+
+	/**
+	 * Array containing the alphabet intervals.
+	 */
+	private final int[] alphabetIntervals;
+
+	/**
+	 * Per interval the class it is in.
+	 */
+	private final int[] intervalClasses;
+
+	/**
+	 * Per class the number of intervals in it.
+	 */
+	private final int[] classSizes;
+
+	/**
+	 * Per class the number of intervals in it that are contained by the current character set.
+	 */
+	private final int[] containedCounts;
+
+	/**
+	 * Per class the class that the contained intervals are moved to, or {@code -1} if they are not moved (yet).
+	 */
+	private final int[] splitClasses;
+
+	/**
+	 * The intervals that are contained by the current character set.
+	 */
+	private final int[] containedIntervals;
+
+	/**
+	 * Per contained interval the class it was in before the current character set was processed.
+	 */
+	private final int[] containedClasses;
+
+	/**
+	 * Per interval the number of the last character set that contained it, used to ignore duplicates.
+	 */
+	private final int[] intervalMarks;
+
+	private int classCount;
+
+	private int charSetCount;
+
+	private AlphabetClassCollector(int[] alphabetIntervals) {
+		int intervalCount = alphabetIntervals.length / 2;
+		this.alphabetIntervals = alphabetIntervals;
+		this.intervalClasses = new int[intervalCount];
+		this.classSizes = new int[intervalCount];
+		this.containedCounts = new int[intervalCount];
+		this.splitClasses = new int[intervalCount];
+		this.containedIntervals = new int[intervalCount];
+		this.containedClasses = new int[intervalCount];
+		this.intervalMarks = new int[intervalCount];
+
+		// Start with all intervals in one class.
+		Arrays.fill(splitClasses, -1);
+		if (intervalCount > 0) {
+			classSizes[0] = intervalCount;
+			classCount = 1;
+		}
+	}
+
+	/**
+	 * Determines the equivalence class of every alphabet interval. The classes are numbered in the order of their first
+	 * interval.
+	 * @param node The lexer description.
+	 * @param alphabetIntervals The alphabet intervals, as returned by {@link IntervalCollector#collectIntervals}.
+	 * @return Per interval the index of its class.
+	 */
+	public static int[] collectAlphabetClasses(LexerDescriptionNode node, int[] alphabetIntervals) {
+		AlphabetClassCollector collector = new AlphabetClassCollector(alphabetIntervals);
+
+		for (LexerClassNode lexerClassNode : node.getLexerClassNodeList()) {
+			for (LexerTokenNode lexerTokenNode : lexerClassNode.getLexerTokenList()) {
+				collector.collectAlphabetClasses(lexerTokenNode.getRegEx());
+			}
+		}
+
+		// Renumber the classes in the order of their first interval.
+		int[] intervalClasses = collector.intervalClasses;
+		int[] renumbering = new int[collector.classCount];
+		Arrays.fill(renumbering, -1);
+		int classCount = 0;
+		for (int i = 0; i < intervalClasses.length; i++) {
+			if (renumbering[intervalClasses[i]] == -1) {
+				renumbering[intervalClasses[i]] = classCount++;
+			}
+			intervalClasses[i] = renumbering[intervalClasses[i]];
+		}
+
+		return intervalClasses;
+	}
+
+	private void collectAlphabetClasses(AbstractRegExNode regExNode) {
+		try {
+			regExNode.accept(this);
+		} catch (VisitingException e) {
+			// None of the visit methods of this class throw a VisitException.
+			throw new IllegalStateException(
+					"Caught visiting exception while the alphabet class collector never throws: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public Void visit(CharSetNode node) {
+		int mark = ++charSetCount;
+
+		// Collect the (distinct) intervals of the character set and count them per class.
+		int containedCount = 0;
+		for (Interval interval : node.getIntervalList()) {
+			for (int i : IntervalUtils.findSubIntervals(interval.getStart(), interval.getEnd(), alphabetIntervals)) {
+				if (intervalMarks[i] != mark) {
+					intervalMarks[i] = mark;
+					containedIntervals[containedCount] = i;
+					containedClasses[containedCount++] = intervalClasses[i];
+					containedCounts[intervalClasses[i]]++;
+				}
+			}
+		}
+
+		// Move the contained intervals of the classes that are only partially contained to a new class.
+		for (int j = 0; j < containedCount; j++) {
+			int intervalClass = containedClasses[j];
+			if (containedCounts[intervalClass] != classSizes[intervalClass]) {
+				if (splitClasses[intervalClass] == -1) {
+					splitClasses[intervalClass] = classCount++;
+				}
+				intervalClasses[containedIntervals[j]] = splitClasses[intervalClass];
+			}
+		}
+
+		// Update the class sizes and reset the administration for the next character set.
+		for (int j = 0; j < containedCount; j++) {
+			int oldClass = containedClasses[j];
+			int newClass = intervalClasses[containedIntervals[j]];
+			if (newClass != oldClass) {
+				classSizes[oldClass]--;
+				classSizes[newClass]++;
+			}
+			containedCounts[oldClass] = 0;
+			splitClasses[oldClass] = -1;
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visit(ConcatNode node) throws VisitingException {
+		node.getLhs().accept(this);
+		node.getRhs().accept(this);
+		return null;
+	}
+
+	@Override
+	public Void visit(OptionalNode node) throws VisitingException {
+		node.getOperand().accept(this);
+		return null;
+	}
+
+	@Override
+	public Void visit(PlusNode node) throws VisitingException {
+		node.getOperand().accept(this);
+		return null;
+	}
+
+	@Override
+	public Void visit(StarNode node) throws VisitingException {
+		node.getOperand().accept(this);
+		return null;
+	}
+
+	@Override
+	public Void visit(UnionNode node) throws VisitingException {
+		node.getLhs().accept(this);
+		node.getRhs().accept(this);
+		return null;
+	}
+}
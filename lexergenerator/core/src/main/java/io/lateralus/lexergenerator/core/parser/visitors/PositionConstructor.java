@@ -0,0 +1,201 @@
+package io.lateralus.lexergenerator.core.parser.visitors;
+
+import io.lateralus.lexergenerator.core.automaton.PositionAutomaton;
+import io.lateralus.lexergenerator.core.parser.IntervalUtils;
+import io.lateralus.lexergenerator.core.parser.nodes.AbstractRegExNode;
+import io.lateralus.lexergenerator.core.parser.nodes.AbstractUnaryNode;
+import io.lateralus.lexergenerator.core.parser.nodes.CharSetNode;
+import io.lateralus.lexergenerator.core.parser.nodes.ConcatNode;
+import io.lateralus.lexergenerator.core.parser.nodes.OptionalNode;
+import io.lateralus.lexergenerator.core.parser.nodes.PlusNode;
+import io.lateralus.lexergenerator.core.parser.nodes.StarNode;
+import io.lateralus.lexergenerator.core.parser.nodes.UnionNode;
+
+import java.util.Arrays;
+
+/**
+ * Adds the positions of a given regular expression to a {@link PositionAutomaton}, by computing nullable, firstpos,
+ * lastpos and followpos for every node (see section 3.9 of the dragon book).
+ * <br/>
+ * Every character set becomes a position. The regular expression is terminated with an accepting end position, so the
+ * end position is in the followpos of every position in lastpos of the regular expression.
+ */
+public class PositionConstructor implements RegExNodeVisitor<Void, VisitingException> {
+
+	/**
+	 * Whether the current regex node matches the empty string.
+	 */
+	private boolean nullable;
+
+	/**
+	 * The positions that can match the first character of the current regex node.
+	 */
+	private int[] firstPositions;
+
+	/**
+	 * The positions that can match the last character of the current regex node.
+	 */
+	private int[] lastPositions;
+
+	/**
+	 * The end position of the regular expression.
+	 */
+	private int endPosition;
+
+	/**
+	 * The automaton where the positions are being added to.
+	 */
+	private final PositionAutomaton automaton;
+
+	/**
+	 * Array containing the alphabet intervals.
+	 */
+	private final int[] alphabetIntervals;
+
+	/**
+	 * Array containing per alphabet interval the input (equivalence class) it belongs to.
+	 */
+	private final int[] alphabetClasses;
+
+	public PositionConstructor(PositionAutomaton automaton, int[] alphabetIntervals, int[] alphabetClasses) {
+		this.automaton = automaton;
+		this.alphabetIntervals = alphabetIntervals;
+		this.alphabetClasses = alphabetClasses;
+	}
+
+	/**
+	 * Adds the positions of the regular expression followed by an end position.
+	 * @param node The node that represents the regular expression.
+	 */
+	public void construct(AbstractRegExNode node) {
+		try {
+			node.accept(this);
+		} catch (VisitingException e) {
+			// The methods in this class never throw an exception, thus we should never reach this catch.
+			throw new IllegalStateException("Caught visiting exception while the position constructor never throws: "
+					+ e.getMessage());
+		}
+
+		// Terminate the regular expression with the end position.
+		endPosition = automaton.addAcceptingPosition();
+		int[] endPositions = { endPosition };
+		for (int position : lastPositions) {
+			automaton.addFollowPositions(position, endPositions);
+		}
+		if (nullable) {
+			firstPositions = concat(firstPositions, endPositions);
+		}
+	}
+
+	@Override
+	public Void visit(CharSetNode node) {
+		// Collect the inputs of all intervals of the character set.
+		int[] inputs = IntervalUtils.findInputs(node.getIntervalList(), alphabetIntervals, alphabetClasses);
+
+		int position = automaton.addPosition(inputs);
+
+		nullable = false;
+		firstPositions = new int[] { position };
+		lastPositions = firstPositions;
+
+		return null;
+	}
+
+	@Override
+	public Void visit(ConcatNode node) throws VisitingException {
+		node.getLhs().accept(this);
+		boolean lhsNullable = nullable;
+		int[] lhsFirstPositions = firstPositions;
+		int[] lhsLastPositions = lastPositions;
+
+		node.getRhs().accept(this);
+
+		// Everything the rhs can start with, can follow the end of the lhs.
+		for (int position : lhsLastPositions) {
+			automaton.addFollowPositions(position, firstPositions);
+		}
+
+		// Since the positions of the lhs and rhs are distinct, a union is just a concatenation.
+		if (lhsNullable) {
+			firstPositions = concat(lhsFirstPositions, firstPositions);
+		} else {
+			firstPositions = lhsFirstPositions;
+		}
+		if (nullable) {
+			lastPositions = concat(lhsLastPositions, lastPositions);
+		}
+		nullable = lhsNullable && nullable;
+
+		return null;
+	}
+
+	@Override
+	public Void visit(OptionalNode node) throws VisitingException {
+		node.getOperand().accept(this);
+		nullable = true;
+		return null;
+	}
+
+	@Override
+	public Void visit(PlusNode node) throws VisitingException {
+		addRepetition(node);
+		return null;
+	}
+
+	@Override
+	public Void visit(StarNode node) throws VisitingException {
+		addRepetition(node);
+
+		// This is the only difference between the plus and star node.
+		nullable = true;
+
+		return null;
+	}
+
+	@Override
+	public Void visit(UnionNode node) throws VisitingException {
+		node.getLhs().accept(this);
+		boolean lhsNullable = nullable;
+		int[] lhsFirstPositions = firstPositions;
+		int[] lhsLastPositions = lastPositions;
+
+		node.getRhs().accept(this);
+
+		nullable = lhsNullable || nullable;
+		firstPositions = concat(lhsFirstPositions, firstPositions);
+		lastPositions = concat(lhsLastPositions, lastPositions);
+
+		return null;
+	}
+
+	/**
+	 * Adds the positions of the operand and lets everything the operand can start with follow its end.
+	 * @param node The repeated node.
+	 */
+	private void addRepetition(AbstractUnaryNode node) throws VisitingException {
+		node.getOperand().accept(this);
+
+		for (int position : lastPositions) {
+			automaton.addFollowPositions(position, firstPositions);
+		}
+	}
+
+	private static int[] concat(int[] lhs, int[] rhs) {
+		int[] result = Arrays.copyOf(lhs, lhs.length + rhs.length);
+		System.arraycopy(rhs, 0, result, lhs.length, rhs.length);
+		return result;
+	}
+
+	/**
+	 * Returns the positions that can match the first character of the regular expression, including the end position if
+	 * the regular expression matches the empty string.
+	 * @return The first positions.
+	 */
+	public int[] getFirstPositions() {
+		return firstPositions;
+	}
+
+	public int getEndPosition() {
+		return endPosition;
+	}
+}
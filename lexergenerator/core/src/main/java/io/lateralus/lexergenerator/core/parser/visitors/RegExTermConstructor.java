@@ -0,0 +1,85 @@
+package io.lateralus.lexergenerator.core.parser.visitors;
+
+import io.lateralus.lexergenerator.core.automaton.RegExTerm;
+import io.lateralus.lexergenerator.core.automaton.RegExTermFactory;
+import io.lateralus.lexergenerator.core.parser.IntervalUtils;
+import io.lateralus.lexergenerator.core.parser.nodes.AbstractRegExNode;
+import io.lateralus.lexergenerator.core.parser.nodes.CharSetNode;
+import io.lateralus.lexergenerator.core.parser.nodes.ConcatNode;
+import io.lateralus.lexergenerator.core.parser.nodes.OptionalNode;
+import io.lateralus.lexergenerator.core.parser.nodes.PlusNode;
+import io.lateralus.lexergenerator.core.parser.nodes.StarNode;
+import io.lateralus.lexergenerator.core.parser.nodes.UnionNode;
+
+/**
+ * Constructs a {@link RegExTerm} from a given regular expression. Character sets are translated to the inputs of the
+ * alphabet, so the term works on the equivalence classes of the alphabet instead of on code points.
+ */
+public class RegExTermConstructor implements RegExNodeVisitor<RegExTerm, VisitingException> {
+
+	/**
+	 * The factory that creates (and normalizes) the terms.
+	 */
+	private final RegExTermFactory factory;
+
+	/**
+	 * Array containing the alphabet intervals.
+	 */
+	private final int[] alphabetIntervals;
+
+	/**
+	 * Array containing per alphabet interval the input (equivalence class) it belongs to.
+	 */
+	private final int[] alphabetClasses;
+
+	public RegExTermConstructor(RegExTermFactory factory, int[] alphabetIntervals, int[] alphabetClasses) {
+		this.factory = factory;
+		this.alphabetIntervals = alphabetIntervals;
+		this.alphabetClasses = alphabetClasses;
+	}
+
+	/**
+	 * Constructs the term.
+	 * @param node The node that represents the regular expression to construct the term from.
+	 * @return The term.
+	 */
+	public RegExTerm construct(AbstractRegExNode node) {
+		try {
+			return node.accept(this);
+		} catch (VisitingException e) {
+			// The methods in this class never throw an exception, thus we should never reach this catch.
+			throw new IllegalStateException("Caught visiting exception while the term constructor never throws: "
+					+ e.getMessage());
+		}
+	}
+
+	@Override
+	public RegExTerm visit(CharSetNode node) {
+		return factory.set(IntervalUtils.findInputs(node.getIntervalList(), alphabetIntervals, alphabetClasses));
+	}
+
+	@Override
+	public RegExTerm visit(ConcatNode node) throws VisitingException {
+		return factory.concat(node.getLhs().accept(this), node.getRhs().accept(this));
+	}
+
+	@Override
+	public RegExTerm visit(OptionalNode node) throws VisitingException {
+		return factory.optional(node.getOperand().accept(this));
+	}
+
+	@Override
+	public RegExTerm visit(PlusNode node) throws VisitingException {
+		return factory.plus(node.getOperand().accept(this));
+	}
+
+	@Override
+	public RegExTerm visit(StarNode node) throws VisitingException {
+		return factory.star(node.getOperand().accept(this));
+	}
+
+	@Override
+	public RegExTerm visit(UnionNode node) throws VisitingException {
+		return factory.union(node.getLhs().accept(this), node.getRhs().accept(this));
+	}
+}
@@ -1,7 +1,6 @@
 package io.lateralus.lexergenerator.core.parser.visitors;
 
 import io.lateralus.lexergenerator.core.automaton.Automaton;
-import io.lateralus.lexergenerator.core.parser.Interval;
 import io.lateralus.lexergenerator.core.parser.IntervalUtils;
 import io.lateralus.lexergenerator.core.parser.nodes.AbstractRegExNode;
 import io.lateralus.lexergenerator.core.parser.nodes.AbstractUnaryNode;
@@ -38,10 +37,16 @@ public class ThompsonConstructor implements RegExNodeVisitor<Void, VisitingExcep
 	 */
 	private int[] alphabetIntervals;
 
-	public ThompsonConstructor(Automaton nfa, int startState, int[] alphabetIntervals) {
+	/**
+	 * Array containing per alphabet interval the input (equivalence class) it belongs to.
+	 */
+	private int[] alphabetClasses;
+
+	public ThompsonConstructor(Automaton nfa, int startState, int[] alphabetIntervals, int[] alphabetClasses) {
 		this.nfa = nfa;
 		this.startState = startState;
 		this.alphabetIntervals = alphabetIntervals;
+		this.alphabetClasses = alphabetClasses;
 	}
 
 	/**
@@ -63,14 +68,9 @@ public class ThompsonConstructor implements RegExNodeVisitor<Void, VisitingExcep
 		// Create the end state for this node.
 		endState = nfa.addState();
 
-		// Loop over all ranges.
-		for (Interval interval : node.getIntervalList()) {
-			// Get all intervals from the interval array that make up this interval.
-			int[] subIntervalArray = IntervalUtils.findSubIntervals(interval.getStart(), interval.getEnd(), alphabetIntervals);
-
-			for (int input : subIntervalArray) {
-				nfa.addTransition(startState, endState, input);
-			}
+		// Add a transition for every input that matches one of the intervals.
+		for (int input : IntervalUtils.findInputs(node.getIntervalList(), alphabetIntervals, alphabetClasses)) {
+			nfa.addTransition(startState, endState, input);
 		}
 
 		return null;
@@ -0,0 +1,109 @@
+package io.lateralus.lexergenerator.core.automaton;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AutomatonDeterminizerTest {
+
+	@Test
+	public void testSubsetsFoundInDifferentOrderAreTheSameState() {
+		int a = 0;
+		int b = 1;
+		int c = 2;
+
+		Automaton nfa = new Automaton();
+		nfa.addStates(10);
+		nfa.setAlphabetSize(3);
+		nfa.setStartState(0);
+
+		// On a the NFA goes to {1, 4}, on b to {2, 3}.
+		nfa.addTransition(0, 1, a);
+		nfa.addTransition(0, 4, a);
+		nfa.addTransition(0, 2, b);
+		nfa.addTransition(0, 3, b);
+
+		// From both subsets c leads to {8, 9}, but the states are found in a different order.
+		nfa.addTransition(1, 9, c);
+		nfa.addTransition(4, 8, c);
+		nfa.addTransition(2, 8, c);
+		nfa.addTransition(3, 9, c);
+		nfa.addAcceptingState(8);
+		nfa.addAcceptingState(9);
+
+		AutomatonDeterminizer determinizer = new AutomatonDeterminizer();
+		Automaton dfa = determinizer.determinize(nfa);
+
+		assertEquals(4, dfa.getStateCount());
+
+		int stateA = dfa.findTarget(0, a);
+		int stateB = dfa.findTarget(0, b);
+		assertEquals(dfa.findTarget(stateA, c), dfa.findTarget(stateB, c));
+		assertArrayEquals(new int[] { 8, 9 }, determinizer.getNewStateOldStateMapping()[dfa.findTarget(stateA, c)]);
+	}
+
+	@Test
+	public void testEpsilonClosuresFollowCycles() {
+		Automaton nfa = new Automaton();
+		nfa.addStates(6);
+		nfa.setAlphabetSize(1);
+		nfa.setStartState(0);
+
+		// States 0, 1 and 2 form an epsilon cycle.
+		nfa.addEpsilonTransition(0, 1);
+		nfa.addEpsilonTransition(1, 2);
+		nfa.addEpsilonTransition(2, 0);
+		nfa.addTransition(2, 3, 0);
+		nfa.addTransition(1, 5, 0);
+		nfa.addEpsilonTransition(3, 4);
+		nfa.addEpsilonTransition(4, 5);
+		nfa.addAcceptingState(5);
+
+		AutomatonDeterminizer determinizer = new AutomatonDeterminizer();
+		Automaton dfa = determinizer.determinize(nfa);
+
+		assertEquals(2, dfa.getStateCount());
+		assertArrayEquals(new int[] { 0, 1, 2 }, determinizer.getNewStateOldStateMapping()[0]);
+		assertArrayEquals(new int[] { 3, 4, 5 }, determinizer.getNewStateOldStateMapping()[1]);
+	}
+
+	@Test
+	public void testParallelDeterminizationGivesTheSameDfa() {
+		// The NFA for (a|b)*a(a|b){10}, with an epsilon transition between every two positions. The DFA for this
+		// language has 2^11 states, so every level of the subset construction is wide.
+		int a = 0;
+		int b = 1;
+		int positionCount = 10;
+
+		Automaton nfa = new Automaton();
+		nfa.addStates(2 * positionCount + 2);
+		nfa.setAlphabetSize(2);
+		nfa.setStartState(0);
+		nfa.addTransition(0, 0, a);
+		nfa.addTransition(0, 0, b);
+		nfa.addTransition(0, 1, a);
+		for (int position = 0; position < positionCount; position++) {
+			int state = 2 * position + 1;
+			nfa.addEpsilonTransition(state, state + 1);
+			nfa.addTransition(state + 1, state + 2, a);
+			nfa.addTransition(state + 1, state + 2, b);
+		}
+		nfa.addAcceptingState(2 * positionCount + 1);
+
+		AutomatonDeterminizer sequentialDeterminizer = new AutomatonDeterminizer();
+		Automaton sequentialDfa = sequentialDeterminizer.determinize(nfa);
+		AutomatonDeterminizer parallelDeterminizer = new AutomatonDeterminizer(true);
+		Automaton parallelDfa = parallelDeterminizer.determinize(nfa);
+
+		assertEquals(2 << positionCount, sequentialDfa.getStateCount());
+		assertEquals(sequentialDfa.getStateCount(), parallelDfa.getStateCount());
+		assertEquals(sequentialDfa.getTransitionCount(), parallelDfa.getTransitionCount());
+		assertEquals(sequentialDfa.getAcceptingStates(), parallelDfa.getAcceptingStates());
+		assertArrayEquals(sequentialDfa.getOffsets(), parallelDfa.getOffsets());
+		assertArrayEquals(sequentialDfa.getTargets(), parallelDfa.getTargets());
+		assertArrayEquals(sequentialDfa.getInputs(), parallelDfa.getInputs());
+		assertArrayEquals(sequentialDeterminizer.getNewStateOldStateMapping(),
+				parallelDeterminizer.getNewStateOldStateMapping());
+	}
+}
@@ -0,0 +1,74 @@
+package io.lateralus.lexergenerator.core.automaton;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AutomatonMinimizerTest {
+
+	/**
+	 * The DFA for {@code (a|b)*abb} from the subset construction in the dragon book (figure 3.36), states A to E.
+	 */
+	private static Automaton createDragonBookDfa() {
+		Automaton dfa = new Automaton();
+		dfa.addStates(5);
+		dfa.setAlphabetSize(2);
+		dfa.setStartState(0);
+
+		int a = 0;
+		int b = 1;
+		dfa.addTransition(0, 1, a);
+		dfa.addTransition(0, 2, b);
+		dfa.addTransition(1, 1, a);
+		dfa.addTransition(1, 3, b);
+		dfa.addTransition(2, 1, a);
+		dfa.addTransition(2, 2, b);
+		dfa.addTransition(3, 1, a);
+		dfa.addTransition(3, 4, b);
+		dfa.addTransition(4, 1, a);
+		dfa.addTransition(4, 2, b);
+		dfa.addAcceptingState(4);
+
+		return dfa;
+	}
+
+	@Test
+	public void testMinimize() {
+		AutomatonMinimizer minimizer = new AutomatonMinimizer(state -> 0);
+		Automaton minimizedDfa = minimizer.minimize(createDragonBookDfa());
+
+		// States A and C are equivalent.
+		assertEquals(4, minimizedDfa.getStateCount());
+		assertEquals(8, minimizedDfa.getTransitionCount());
+
+		int[] mapping = minimizer.getOldStateNewStateMapping();
+		assertEquals(mapping[0], mapping[2]);
+		assertEquals(mapping[0], minimizedDfa.getStartState());
+		assertTrue(minimizedDfa.isAcceptingState(mapping[4]));
+		assertEquals(mapping[4], minimizedDfa.findTarget(mapping[3], 1));
+	}
+
+	@Test
+	public void testAcceptingStatesArePartitioned() {
+		Automaton dfa = new Automaton();
+		dfa.addStates(3);
+		dfa.setAlphabetSize(1);
+		dfa.addTransition(0, 1, 0);
+		dfa.addTransition(1, 2, 0);
+		dfa.addTransition(2, 2, 0);
+		dfa.addAcceptingState(1);
+		dfa.addAcceptingState(2);
+
+		// With one partition the two accepting states are equivalent.
+		AutomatonMinimizer minimizer = new AutomatonMinimizer(state -> 0);
+		assertEquals(2, minimizer.minimize(dfa).getStateCount());
+
+		// With a partition per state they must be kept apart.
+		minimizer = new AutomatonMinimizer(state -> state);
+		assertEquals(3, minimizer.minimize(dfa).getStateCount());
+		int[] mapping = minimizer.getOldStateNewStateMapping();
+		assertNotEquals(mapping[1], mapping[2]);
+	}
+}
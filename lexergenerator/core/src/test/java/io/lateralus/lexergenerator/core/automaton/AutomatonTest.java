@@ -0,0 +1,65 @@
+package io.lateralus.lexergenerator.core.automaton;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AutomatonTest {
+
+	@Test
+	public void testTransitionsAreGroupedSortedAndUnique() {
+		Automaton automaton = new Automaton();
+		automaton.addStates(3);
+
+		automaton.addTransition(2, 0, 1);
+		automaton.addTransition(0, 2, 3);
+		automaton.addTransition(0, 1, 1);
+		automaton.addEpsilonTransition(0, 2);
+		automaton.addTransition(0, 1, 1);
+		automaton.addTransition(2, 1, 0);
+
+		assertEquals(5, automaton.getTransitionCount());
+
+		int[] offsets = automaton.getOffsets();
+		assertArrayEquals(new int[] { 0, 3, 3, 5 }, offsets);
+
+		int[] inputs = automaton.getInputs();
+		int[] targets = automaton.getTargets();
+
+		// The epsilon transition comes first, then the transitions sorted on input.
+		assertEquals(Automaton.EPSILON, inputs[0]);
+		assertEquals(2, targets[0]);
+		assertEquals(1, inputs[1]);
+		assertEquals(1, targets[1]);
+		assertEquals(3, inputs[2]);
+		assertEquals(2, targets[2]);
+		assertEquals(0, inputs[3]);
+		assertEquals(1, targets[3]);
+		assertEquals(1, inputs[4]);
+		assertEquals(0, targets[4]);
+	}
+
+	@Test
+	public void testFindTarget() {
+		Automaton automaton = new Automaton();
+		automaton.addStates(2);
+		automaton.addTransition(0, 1, 4);
+		automaton.addTransition(0, 0, 2);
+		automaton.addAcceptingState(1);
+
+		assertEquals(0, automaton.findTarget(0, 2));
+		assertEquals(1, automaton.findTarget(0, 4));
+		assertEquals(-1, automaton.findTarget(0, 3));
+		assertEquals(-1, automaton.findTarget(1, 4));
+
+		// Adding a transition after reading must be reflected in the next read.
+		automaton.addTransition(1, 0, 3);
+		assertEquals(0, automaton.findTarget(1, 3));
+
+		assertTrue(automaton.isAcceptingState(1));
+		assertFalse(automaton.isAcceptingState(0));
+	}
+}
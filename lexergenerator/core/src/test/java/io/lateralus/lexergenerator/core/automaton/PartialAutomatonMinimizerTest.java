@@ -0,0 +1,105 @@
+package io.lateralus.lexergenerator.core.automaton;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class PartialAutomatonMinimizerTest {
+
+	@Test
+	public void testDeadStatesAreRemoved() {
+		// Recognizes "ab" and "cb"; state 4 is dead.
+		Automaton dfa = new Automaton();
+		dfa.addStates(5);
+		dfa.setAlphabetSize(4);
+		dfa.addTransition(0, 1, 0);
+		dfa.addTransition(0, 2, 2);
+		dfa.addTransition(1, 3, 1);
+		dfa.addTransition(2, 3, 1);
+		dfa.addTransition(0, 4, 3);
+		dfa.addTransition(4, 4, 3);
+		dfa.addAcceptingState(3);
+
+		PartialAutomatonMinimizer minimizer = new PartialAutomatonMinimizer(state -> 0);
+		Automaton minimizedDfa = minimizer.minimize(dfa);
+
+		assertEquals(3, minimizedDfa.getStateCount());
+		assertEquals(3, minimizedDfa.getTransitionCount());
+
+		int[] mapping = minimizer.getOldStateNewStateMapping();
+		assertEquals(mapping[1], mapping[2]);
+		assertEquals(-1, mapping[4]);
+		assertEquals(-1, minimizedDfa.findTarget(mapping[0], 3));
+	}
+
+	@Test
+	public void testMissingTransitionsDistinguishStates() {
+		// States 1 and 2 only differ in a missing transition.
+		Automaton dfa = new Automaton();
+		dfa.addStates(4);
+		dfa.setAlphabetSize(2);
+		dfa.addTransition(0, 1, 0);
+		dfa.addTransition(0, 2, 1);
+		dfa.addTransition(1, 3, 0);
+		dfa.addTransition(1, 3, 1);
+		dfa.addTransition(2, 3, 0);
+		dfa.addAcceptingState(3);
+
+		PartialAutomatonMinimizer minimizer = new PartialAutomatonMinimizer(state -> 0);
+		assertEquals(4, minimizer.minimize(dfa).getStateCount());
+
+		int[] mapping = minimizer.getOldStateNewStateMapping();
+		assertNotEquals(mapping[1], mapping[2]);
+	}
+
+	@Test
+	public void testAgreesWithHopcroftOnCompletedAutomata() {
+		Random random = new Random(42);
+
+		for (int run = 0; run < 200; run++) {
+			int stateCount = 1 + random.nextInt(30);
+			int alphabetSize = 1 + random.nextInt(4);
+
+			Automaton partialDfa = new Automaton();
+			partialDfa.addStates(stateCount);
+			partialDfa.setAlphabetSize(alphabetSize);
+
+			// The completed DFA has an extra sink state.
+			Automaton completeDfa = new Automaton();
+			completeDfa.addStates(stateCount + 1);
+			completeDfa.setAlphabetSize(alphabetSize);
+
+			for (int state = 0; state < stateCount; state++) {
+				if (random.nextInt(3) == 0) {
+					partialDfa.addAcceptingState(state);
+					completeDfa.addAcceptingState(state);
+				}
+				for (int input = 0; input < alphabetSize; input++) {
+					int target = random.nextInt(2) == 0 ? random.nextInt(stateCount) : -1;
+					if (target != -1) {
+						partialDfa.addTransition(state, target, input);
+					}
+					completeDfa.addTransition(state, target != -1 ? target : stateCount, input);
+				}
+			}
+			for (int input = 0; input < alphabetSize; input++) {
+				completeDfa.addTransition(stateCount, stateCount, input);
+			}
+
+			PartialAutomatonMinimizer partialMinimizer = new PartialAutomatonMinimizer(state -> state % 2);
+			partialMinimizer.minimize(partialDfa);
+			long liveClassCount = Arrays.stream(partialMinimizer.getOldStateNewStateMapping())
+					.filter(state -> state != -1)
+					.distinct()
+					.count();
+			int completeCount = new AutomatonMinimizer(state -> state % 2).minimize(completeDfa).getStateCount();
+
+			// The sink and all dead states form a single class in the minimized complete DFA.
+			assertEquals(completeCount, liveClassCount + 1);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package io.lateralus.lexergenerator.core.automaton;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class Utf8AutomatonEncoderTest {
+
+	@Test
+	public void testAllCodePointsGiveTheUtf8Syntax() {
+		// RFC3629 chapter 4, the syntax of the UTF-8 byte sequences.
+		int[][] expected = {
+				{ 0x00, 0x7F },
+				{ 0xC2, 0xDF, 0x80, 0xBF },
+				{ 0xE0, 0xE0, 0xA0, 0xBF, 0x80, 0xBF },
+				{ 0xE1, 0xEC, 0x80, 0xBF, 0x80, 0xBF },
+				{ 0xED, 0xED, 0x80, 0x9F, 0x80, 0xBF },
+				{ 0xEE, 0xEF, 0x80, 0xBF, 0x80, 0xBF },
+				{ 0xF0, 0xF0, 0x90, 0xBF, 0x80, 0xBF, 0x80, 0xBF },
+				{ 0xF1, 0xF3, 0x80, 0xBF, 0x80, 0xBF, 0x80, 0xBF },
+				{ 0xF4, 0xF4, 0x80, 0x8F, 0x80, 0xBF, 0x80, 0xBF }
+		};
+
+		List<int[]> sequences = new ArrayList<>();
+		Utf8AutomatonEncoder.addSequences(0, Character.MAX_CODE_POINT, sequences);
+
+		assertEquals(expected.length, sequences.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertArrayEquals(expected[i], sequences.get(i), "Sequence " + i);
+		}
+	}
+
+	@Test
+	public void testSingleCodePoints() {
+		assertSequences(0x41, 0x41, new int[] { 0x41, 0x41 });
+		assertSequences(0x20AC, 0x20AC, new int[] { 0xE2, 0xE2, 0x82, 0x82, 0xAC, 0xAC });
+		assertSequences(0x1D400, 0x1D400, new int[] { 0xF0, 0xF0, 0x9D, 0x9D, 0x90, 0x90, 0x80, 0x80 });
+	}
+
+	@Test
+	public void testSurrogatesAreDropped() {
+		assertSequences(0xD800, 0xDFFF);
+		assertSequences(0xD7FF, 0xE000,
+				new int[] { 0xED, 0xED, 0x9F, 0x9F, 0xBF, 0xBF },
+				new int[] { 0xEE, 0xEE, 0x80, 0x80, 0x80, 0x80 });
+		assertEncodesExactly(0xD000, 0xDBFF);
+		assertEncodesExactly(0xDC00, 0xE100);
+	}
+
+	@Test
+	public void testRangesEncodeExactlyTheirCodePoints() {
+		// The ranges around the boundaries of the encoding lengths and of the continuation bytes.
+		int[] boundaries = { 0x00, 0x7F, 0x80, 0x7FF, 0x800, 0xFFF, 0x1000, 0xFFFF, 0x10000, 0x3FFFF, 0x40000,
+				0x10FFFF };
+		for (int first : boundaries) {
+			for (int last : boundaries) {
+				if (first <= last) {
+					assertEncodesExactly(first, last);
+				}
+			}
+		}
+
+		Random random = new Random(42);
+		for (int i = 0; i < 200; i++) {
+			int first = random.nextInt(Character.MAX_CODE_POINT + 1);
+			int last = Math.min(Character.MAX_CODE_POINT, first + random.nextInt(i % 2 == 0 ? 0x100 : 0x20000));
+			assertEncodesExactly(first, last);
+		}
+	}
+
+	private static void assertSequences(int first, int last, int[]... expected) {
+		List<int[]> sequences = new ArrayList<>();
+		Utf8AutomatonEncoder.addSequences(first, last, sequences);
+
+		assertEquals(expected.length, sequences.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertArrayEquals(expected[i], sequences.get(i), "Sequence " + i);
+		}
+	}
+
+	/**
+	 * Asserts that every byte sequence that matches the sequences of byte ranges of the given range of code points is
+	 * the UTF-8 encoding of a code point of the range, and that every code point of the range (except the surrogates)
+	 * is matched exactly once.
+	 */
+	private static void assertEncodesExactly(int first, int last) {
+		List<int[]> sequences = new ArrayList<>();
+		Utf8AutomatonEncoder.addSequences(first, last, sequences);
+
+		String range = Integer.toHexString(first) + "-" + Integer.toHexString(last);
+		BitSet matched = new BitSet();
+		for (int[] sequence : sequences) {
+			int[] bytes = new int[sequence.length / 2];
+			for (int k = 0; k < bytes.length; k++) {
+				bytes[k] = sequence[2 * k];
+			}
+			do {
+				int codePoint = decode(bytes);
+				assertTrue(codePoint >= first && codePoint <= last, range + ": " + Integer.toHexString(codePoint));
+				assertFalse(matched.get(codePoint), range + ": " + Integer.toHexString(codePoint));
+				matched.set(codePoint);
+			} while (next(bytes, sequence));
+		}
+
+		int expected = last - first + 1;
+		expected -= Math.max(0, Math.min(last, 0xDFFF) - Math.max(first, 0xD800) + 1);
+		assertEquals(expected, matched.cardinality(), range);
+	}
+
+	/**
+	 * Decodes the given bytes, which must be the (shortest) UTF-8 encoding of a single code point.
+	 */
+	private static int decode(int[] bytes) {
+		byte[] encoded = new byte[bytes.length];
+		for (int k = 0; k < bytes.length; k++) {
+			encoded[k] = (byte) bytes[k];
+		}
+		String decoded = new String(encoded, StandardCharsets.UTF_8);
+		int codePoint = decoded.codePointAt(0);
+		assertEquals(decoded.length(), Character.charCount(codePoint), "Not a single code point");
+		assertArrayEquals(encoded, decoded.getBytes(StandardCharsets.UTF_8), "Not a valid encoding: "
+				+ Arrays.toString(bytes));
+		return codePoint;
+	}
+
+	/**
+	 * Moves the given bytes to the next byte sequence within the byte ranges, like an odometer.
+	 * @return False if all sequences have been visited.
+	 */
+	private static boolean next(int[] bytes, int[] sequence) {
+		for (int k = bytes.length - 1; k >= 0; k--) {
+			if (bytes[k] < sequence[2 * k + 1]) {
+				bytes[k]++;
+				return true;
+			}
+			bytes[k] = sequence[2 * k];
+		}
+		return false;
+	}
+}
@@ -0,0 +1,96 @@
+package io.lateralus.lexergenerator.core.definition;
+
+import io.lateralus.lexergenerator.core.description.LexerClassNodeBuilder;
+import io.lateralus.lexergenerator.core.description.LexerDescriptionBuilder;
+import io.lateralus.lexergenerator.core.parser.RegExException;
+import io.lateralus.lexergenerator.core.parser.nodes.LexerDescriptionNode;
+
+/**
+ * Compares the DFA construction engines of the {@link LexerDefinitionBuilder} on the same (synthetic) lexer
+ * description. For every engine it prints the average build time and the number of DFA states with and without
+ * minimization.
+ * <br/>
+ * This is not a unit test; run it manually with the test classpath, optionally passing the number of keywords.
+ */
+public class EngineBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 5;
+
+	private static final int ITERATIONS = 10;
+
+	public static void main(String[] args) throws RegExException {
+		int keywordCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+		for (LexerDefinitionBuilder.Engine engine : LexerDefinitionBuilder.Engine.values()) {
+			for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+				build(engine, true, keywordCount);
+			}
+
+			long start = System.nanoTime();
+			LexerDefinition definition = null;
+			for (int i = 0; i < ITERATIONS; i++) {
+				definition = build(engine, true, keywordCount);
+			}
+			double milliseconds = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+
+			LexerDefinition unminimized = build(engine, false, keywordCount);
+
+			System.out.printf("%-12s %10.2f ms  %6d states  %6d states without minimization%n", engine, milliseconds,
+					definition.getDfa().getStateCount(), unminimized.getDfa().getStateCount());
+		}
+	}
+
+	private static LexerDefinition build(LexerDefinitionBuilder.Engine engine, boolean minimize, int keywordCount)
+			throws RegExException {
+		return new LexerDefinitionBuilder()
+				.engine(engine)
+				.minimize(minimize)
+				.build(createLexerDescription(keywordCount));
+	}
+
+	/**
+	 * Creates a lexer description with a lot of keywords that overlap with the identifiers, a couple of operators and
+	 * two extra lexer classes for strings and comments.
+	 */
+	private static LexerDescriptionNode createLexerDescription(int keywordCount) throws RegExException {
+		LexerClassNodeBuilder defaultClass = new LexerDescriptionBuilder()
+				.lexerStartStateName("DEFAULT")
+				.startLexerClass("DEFAULT");
+
+		for (int i = 0; i < keywordCount; i++) {
+			defaultClass.addLexerToken("KEYWORD_" + i, keyword(i), "DEFAULT");
+		}
+
+		return defaultClass
+					.addLexerToken("WHITE_SPACE", "( |\\t)+", "DEFAULT")
+					.addLexerToken("NEW_LINE", "\\r\\n|\\r|\\n", "DEFAULT")
+					.addLexerToken("IDENTIFIER", "[a-zA-Z_][a-zA-Z0-9_]*", "DEFAULT")
+					.addLexerToken("NUMBER", "[0-9]+(\\.[0-9]+)?([eE][+\\-]?[0-9]+)?", "DEFAULT")
+					.addLexerToken("HEX_NUMBER", "0[xX][0-9a-fA-F]+", "DEFAULT")
+					.addLexerToken("OPERATOR", "\\+=?|\\-=?|\\*=?|/=?|==?|!=?|<<?=?|>>?=?|&&?|\\|\\|?", "DEFAULT")
+					.addLexerToken("STRING_START", "\"", "STRING")
+					.addLexerToken("COMMENT_START", "/\\*", "COMMENT")
+				.end()
+				.startLexerClass("STRING")
+					.addLexerToken("STRING_CONTENT", "([^\"\\\\]|\\\\.)+", "STRING")
+					.addLexerToken("STRING_END", "\"", "DEFAULT")
+				.end()
+				.startLexerClass("COMMENT")
+					.addLexerToken("COMMENT_CONTENT", "([^*]|\\*+[^*/])+", "COMMENT")
+					.addLexerToken("COMMENT_END", "\\*+/", "DEFAULT")
+				.end()
+				.build();
+	}
+
+	/**
+	 * Creates a keyword from the given number, such that the keywords share a lot of prefixes.
+	 */
+	private static String keyword(int number) {
+		StringBuilder keyword = new StringBuilder("k");
+		do {
+			keyword.append((char) ('a' + number % 7));
+			number /= 7;
+		} while (number > 0);
+		return keyword.toString();
+	}
+}
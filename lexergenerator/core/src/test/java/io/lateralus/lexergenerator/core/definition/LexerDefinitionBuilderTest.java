@@ -0,0 +1,294 @@
+package io.lateralus.lexergenerator.core.definition;
+
+import io.lateralus.lexergenerator.core.automaton.Automaton;
+import io.lateralus.lexergenerator.core.description.LexerDescriptionBuilder;
+import io.lateralus.lexergenerator.core.parser.RegExException;
+import io.lateralus.lexergenerator.core.parser.nodes.LexerDescriptionNode;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LexerDefinitionBuilderTest {
+
+	private static LexerDescriptionNode createExpressionLexerDescription() throws RegExException {
+		return new LexerDescriptionBuilder()
+				.lexerStartStateName("DEFAULT")
+				.startLexerClass("DEFAULT")
+					.addLexerToken("WHITE_SPACE", "( |\\t)+", "DEFAULT")
+					.addLexerToken("NEW_LINE", "\\r\\n|\\r|\\n", "DEFAULT")
+					.addLexerToken("BOOLEAN", "true|false", "DEFAULT")
+					.addLexerToken("IDENTIFIER", "([a-zA-Z_])[a-zA-Z0-9_]*", "DEFAULT")
+					.addLexerToken("NUMBER", "[0-9]+(\\.[0-9]+)?([eE][+\\-]?[0-9]+)?", "DEFAULT")
+					.addLexerToken("OPERATOR", "\\+|\\-|\\*|/|==|=|<=?|>=?", "DEFAULT")
+					.addLexerToken("COMMENT", "//[^\\r\\n]*", "DEFAULT")
+					.addLexerToken("STRING_START", "'", "STRING")
+				.end()
+				.startLexerClass("STRING")
+					.addLexerToken("STRING_CONTENT", "([^'\\\\]|\\\\.)*", "STRING")
+					.addLexerToken("STRING_END", "'", "DEFAULT")
+				.end()
+				.build();
+	}
+
+	@Test
+	public void testFollowposEngineGivesTheSameLexer() throws RegExException {
+		LexerDefinition thompson = new LexerDefinitionBuilder()
+				.engine(LexerDefinitionBuilder.Engine.THOMPSON)
+				.build(createExpressionLexerDescription());
+		LexerDefinition followpos = new LexerDefinitionBuilder()
+				.engine(LexerDefinitionBuilder.Engine.FOLLOWPOS)
+				.build(createExpressionLexerDescription());
+
+		assertEquivalent(thompson, followpos);
+	}
+
+	@Test
+	public void testDerivativeEngineGivesTheSameLexer() throws RegExException {
+		LexerDefinition thompson = new LexerDefinitionBuilder()
+				.engine(LexerDefinitionBuilder.Engine.THOMPSON)
+				.build(createExpressionLexerDescription());
+		LexerDefinition derivatives = new LexerDefinitionBuilder()
+				.engine(LexerDefinitionBuilder.Engine.DERIVATIVES)
+				.build(createExpressionLexerDescription());
+
+		assertEquivalent(thompson, derivatives);
+	}
+
+	@Test
+	public void testDerivativeEngineWithoutMinimizationIsMinimal() throws RegExException {
+		LexerDefinition minimized = new LexerDefinitionBuilder()
+				.engine(LexerDefinitionBuilder.Engine.DERIVATIVES)
+				.build(createExpressionLexerDescription());
+		LexerDefinition unminimized = new LexerDefinitionBuilder()
+				.engine(LexerDefinitionBuilder.Engine.DERIVATIVES)
+				.minimize(false)
+				.build(createExpressionLexerDescription());
+
+		assertEquivalent(minimized, unminimized);
+	}
+
+	@Test
+	public void testIntervalsWithTheSameBehaviourShareAnInput() throws RegExException {
+		LexerDescriptionNode node = new LexerDescriptionBuilder()
+				.lexerStartStateName("DEFAULT")
+				.startLexerClass("DEFAULT")
+					.addLexerToken("IDENTIFIER", "[a-z]+", "DEFAULT")
+					.addLexerToken("NUMBER", "[0-9]+", "DEFAULT")
+					.addLexerToken("X", "x", "DEFAULT")
+					.addLexerToken("HALVES", "[a-mn-z]", "DEFAULT")
+				.end()
+				.build();
+
+		LexerDefinition lexerDefinition = new LexerDefinitionBuilder().build(node);
+
+		// The intervals [a-m], [n-w] and [y-z] can not be distinguished, so [a-w] is merged and shares its input with
+		// [y-z].
+		assertArrayEquals(new int[] { '0', '9', 'a', 'w', 'x', 'x', 'y', 'z' }, lexerDefinition.getAlphabetIntervals());
+		assertArrayEquals(new int[] { 0, 1, 2, 1 }, lexerDefinition.getAlphabetClasses());
+		assertEquals(3, lexerDefinition.getDfa().getAlphabetSize());
+	}
+
+	@Test
+	public void testParallelDeterminizationGivesTheSameLexer() throws RegExException {
+		LexerDefinition sequential = new LexerDefinitionBuilder()
+				.build(createExpressionLexerDescription());
+		LexerDefinition parallel = new LexerDefinitionBuilder()
+				.parallel(true)
+				.build(createExpressionLexerDescription());
+
+		assertEquivalent(sequential, parallel);
+	}
+
+	@Test
+	public void testUtf8LexerFindsTheSameTokens() throws RegExException {
+		LexerDefinition codePoints = new LexerDefinitionBuilder()
+				.build(createExpressionLexerDescription());
+		LexerDefinition bytes = new LexerDefinitionBuilder()
+				.utf8(true)
+				.build(createExpressionLexerDescription());
+
+		assertTrue(bytes.isUtf8());
+		for (String input : new String[] { "x = 'caf\u00e9 \u20ac\ud83d\ude00' // \u00fcber", "'\u07ff\u0800\uffff'",
+				"'\ud800\udc00\udbff\udfff' y" }) {
+			int[] codePointInput = input.codePoints().toArray();
+			int[] byteInput = toInts(input.getBytes(StandardCharsets.UTF_8));
+			assertEquals(tokenize(codePoints, codePointInput, false), tokenize(bytes, byteInput, true));
+		}
+	}
+
+	@Test
+	public void testUtf8LexerMatchesEveryCodePoint() throws RegExException {
+		LexerDescriptionNode node = new LexerDescriptionBuilder()
+				.lexerStartStateName("DEFAULT")
+				.startLexerClass("DEFAULT")
+					.addLexerToken("ANY", "[^']", "DEFAULT")
+				.end()
+				.build();
+		LexerDefinition bytes = new LexerDefinitionBuilder()
+				.utf8(true)
+				.build(node);
+
+		for (int codePoint = 0; codePoint <= Character.MAX_CODE_POINT; codePoint++) {
+			if (codePoint == '\'' || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+				continue;
+			}
+			int[] input = toInts(new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8));
+			assertEquals(input.length, longestMatch(bytes, input, 0, 0)[1]);
+		}
+
+		// Bytes that do not form a valid encoding are not matched.
+		assertEquals(0, longestMatch(bytes, new int[] { 0xC0, 0x80 }, 0, 0)[1]);
+		assertEquals(0, longestMatch(bytes, new int[] { 0xED, 0xA0, 0x80 }, 0, 0)[1]);
+		assertEquals(0, longestMatch(bytes, new int[] { 0xF4, 0x90, 0x80, 0x80 }, 0, 0)[1]);
+		assertEquals(0, longestMatch(bytes, new int[] { 0x80 }, 0, 0)[1]);
+	}
+
+	@Test
+	public void testSkipTokensAreMarked() throws RegExException {
+		LexerDescriptionNode node = new LexerDescriptionBuilder()
+				.lexerStartStateName("DEFAULT")
+				.startLexerClass("DEFAULT")
+					.addSkipToken("WHITE_SPACE", "( |\\t)+", "DEFAULT")
+					.addLexerToken("IDENTIFIER", "([a-zA-Z_])[a-zA-Z0-9_]*", "DEFAULT")
+					.addSkipToken("COMMENT_START", "/\\*", "COMMENT")
+				.end()
+				.startLexerClass("COMMENT")
+					.addSkipToken("COMMENT_TEXT", "([^*]|\\*+[^*/])+", "COMMENT")
+					.addSkipToken("COMMENT_END", "\\*+/", "DEFAULT")
+				.end()
+				.build();
+
+		LexerDefinition lexerDefinition = new LexerDefinitionBuilder().build(node);
+		for (LexerDefinition.TokenType tokenType : lexerDefinition.getTokenTypeList()) {
+			assertEquals(!tokenType.getName().equals("IDENTIFIER"), tokenType.isSkip(), tokenType.getName());
+		}
+
+		// The skip tokens are still found by the lexer, in the lexer classes they lead to.
+		assertEquals(Arrays.asList("IDENTIFIER", "a", "WHITE_SPACE", " ", "COMMENT_START", "/*", "COMMENT_TEXT", " b ",
+				"COMMENT_END", "*/", "IDENTIFIER", "c"),
+				tokenize(lexerDefinition, "a /* b */c".codePoints().toArray(), false));
+	}
+
+	/**
+	 * Splits the input in tokens by repeatedly finding the longest match, like a generated lexer does.
+	 * @return The names of the token types followed by their lexemes.
+	 */
+	private static List<String> tokenize(LexerDefinition lexerDefinition, int[] input, boolean utf8) {
+		List<String> tokens = new ArrayList<>();
+		int lexerClass = lexerDefinition.getStartLexerState();
+		int index = 0;
+		while (index < input.length) {
+			int[] match = longestMatch(lexerDefinition, input, index, lexerClass);
+			assertTrue(match[1] > 0);
+
+			LexerDefinition.TokenType tokenType = lexerDefinition.getTokenTypeList().get(match[0]);
+			int[] lexeme = Arrays.copyOfRange(input, index, index + match[1]);
+			byte[] lexemeBytes = new byte[lexeme.length];
+			for (int i = 0; i < lexeme.length; i++) {
+				lexemeBytes[i] = (byte) lexeme[i];
+			}
+			tokens.add(tokenType.getName());
+			tokens.add(utf8 ? new String(lexemeBytes, StandardCharsets.UTF_8) : new String(lexeme, 0, lexeme.length));
+
+			lexerClass = tokenType.getLexerClass();
+			index += match[1];
+		}
+		return tokens;
+	}
+
+	/**
+	 * Finds the longest match at the given index of the input.
+	 * @return The ordinal of the token type and the length of the match, which is 0 if there is no match.
+	 */
+	private static int[] longestMatch(LexerDefinition lexerDefinition, int[] input, int index, int lexerClass) {
+		Automaton dfa = lexerDefinition.getDfa();
+		int[] intervals = lexerDefinition.getAlphabetIntervals();
+		int[] classes = lexerDefinition.getAlphabetClasses();
+
+		int[] match = { -1, 0 };
+		int state = dfa.findTarget(dfa.getStartState(), lexerClass);
+		for (int i = index; i < input.length && state != -1; i++) {
+			int inputClass = -1;
+			for (int j = 0; j < classes.length; j++) {
+				if (intervals[2 * j] <= input[i] && input[i] <= intervals[2 * j + 1]) {
+					inputClass = classes[j];
+				}
+			}
+			state = inputClass != -1 ? dfa.findTarget(state, inputClass) : -1;
+
+			LexerDefinition.TokenType tokenType = lexerDefinition.getAcceptingStateTokenTypes().get(state);
+			if (tokenType != null) {
+				match[0] = tokenType.ordinal();
+				match[1] = i + 1 - index;
+			}
+		}
+		return match;
+	}
+
+	private static int[] toInts(byte[] bytes) {
+		int[] ints = new int[bytes.length];
+		for (int i = 0; i < bytes.length; i++) {
+			ints[i] = bytes[i] & 0xFF;
+		}
+		return ints;
+	}
+
+	/**
+	 * Asserts that the two lexer definitions describe the same lexer, i.e. that their (minimal) DFAs are isomorphic
+	 * and corresponding states accept the same token type.
+	 */
+	static void assertEquivalent(LexerDefinition expected, LexerDefinition actual) {
+		assertArrayEquals(expected.getAlphabetIntervals(), actual.getAlphabetIntervals());
+		assertArrayEquals(expected.getAlphabetClasses(), actual.getAlphabetClasses());
+		assertArrayEquals(expected.getLexerClassNames(), actual.getLexerClassNames());
+		assertEquals(expected.getTokenTypeList(), actual.getTokenTypeList());
+
+		Automaton expectedDfa = expected.getDfa();
+		Automaton actualDfa = actual.getDfa();
+		assertEquals(expectedDfa.getStateCount(), actualDfa.getStateCount());
+		assertEquals(expectedDfa.getTransitionCount(), actualDfa.getTransitionCount());
+
+		// Walk both DFAs simultaneously and build the isomorphism.
+		int[] mapping = new int[expectedDfa.getStateCount()];
+		Arrays.fill(mapping, -1);
+		mapping[expectedDfa.getStartState()] = actualDfa.getStartState();
+		Deque<Integer> work = new ArrayDeque<>();
+		work.add(expectedDfa.getStartState());
+
+		while (!work.isEmpty()) {
+			int expectedState = work.remove();
+			int actualState = mapping[expectedState];
+
+			assertEquals(expected.getAcceptingStateTokenTypes().get(expectedState),
+					actual.getAcceptingStateTokenTypes().get(actualState));
+
+			int[] expectedOffsets = expectedDfa.getOffsets();
+			int[] actualOffsets = actualDfa.getOffsets();
+			assertEquals(expectedOffsets[expectedState + 1] - expectedOffsets[expectedState],
+					actualOffsets[actualState + 1] - actualOffsets[actualState]);
+
+			for (int i = expectedOffsets[expectedState]; i < expectedOffsets[expectedState + 1]; i++) {
+				int input = expectedDfa.getInputs()[i];
+				int expectedTarget = expectedDfa.getTargets()[i];
+				int actualTarget = actualDfa.findTarget(actualState, input);
+				assertTrue(actualTarget != -1);
+
+				if (mapping[expectedTarget] == -1) {
+					mapping[expectedTarget] = actualTarget;
+					work.add(expectedTarget);
+				} else {
+					assertEquals(mapping[expectedTarget], actualTarget);
+				}
+			}
+		}
+	}
+}
@@ -26,19 +26,26 @@ public class TestLexerBuilder {
 		int alphabetSize = lexerDefinition.getDfa().getAlphabetSize();
 		int[][] table = new int[stateCount][alphabetSize + 1];
 
-		// Initialize the table here with the error state. Because an input of 0 should lead to the error state.
+		// Initialize the table here with the error state. Because an input of 0 should lead to the error state, and all
+		// transitions that are missing from the (partial) automaton as well.
 		for (int i = 0; i < stateCount; i++) {
-			table[i][0] = lexerDefinition.getErrorState();
+			Arrays.fill(table[i], lexerDefinition.getErrorState());
 		}
 
-		// Since the automaton is complete, we fill the rest of the table here.
-		for (Automaton.Transition t : lexerDefinition.getDfa().getTransitions()) {
-			table[t.fromState][t.input + 1] = t.toState;
+		// Fill the existing transitions.
+		Automaton dfa = lexerDefinition.getDfa();
+		int[] offsets = dfa.getOffsets();
+		int[] targets = dfa.getTargets();
+		int[] inputs = dfa.getInputs();
+		for (int state = 0; state < stateCount; state++) {
+			for (int i = offsets[state]; i < offsets[state + 1]; i++) {
+				table[state][inputs[i] + 1] = targets[i];
+			}
 		}
 
 		boolean[] isEndState = new boolean[stateCount];
-		for (int acceptingState : lexerDefinition.getDfa().getAcceptingStates()) {
-			isEndState[acceptingState] = true;
+		for (int i = 0; i < stateCount; i++) {
+			isEndState[i] = dfa.isAcceptingState(i);
 		}
 
 		TestTokenType[] testTokenTypes = new TestTokenType[stateCount];
@@ -48,6 +55,7 @@ public class TestLexerBuilder {
 		}
 
 		int[] intervals = lexerDefinition.getAlphabetIntervals();
+		int[] classes = lexerDefinition.getAlphabetClasses();
 
 		// Translates a unicode codepoint to the correct input element from the alphabet.
 		int[] alphabetMap = new int[0x110000];
@@ -59,8 +67,8 @@ public class TestLexerBuilder {
 			// Add one to the end, because the value from intervals is including, but the toIndex is not.
 			int toIndex = intervals[i + 1] + 1;
 
-			// The input is the number of the current range plus one (0 input will lead to the error state).
-			int input = (i >> 1) + 1;
+			// The input is the class of the current range plus one (0 input will lead to the error state).
+			int input = classes[i >> 1] + 1;
 
 			// Fill the range.
 			Arrays.fill(alphabetMap, fromIndex, toIndex, input);
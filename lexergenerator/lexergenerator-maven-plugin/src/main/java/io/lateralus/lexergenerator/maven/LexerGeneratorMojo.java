@@ -2,6 +2,7 @@ package io.lateralus.lexergenerator.maven;
 
 import io.lateralus.lexergenerator.codegenerator.simple.BasicLexerCodeGenerator;
 import io.lateralus.lexergenerator.codegenerator.simple.BasicLexerCodeGenerator.Properties;
+import io.lateralus.lexergenerator.core.definition.LexerDefinitionBuilder.Engine;
 import io.lateralus.lexergenerator.main.LexerGenerator;
 import io.lateralus.shared.generator.GeneratorException;
 import io.lateralus.shared.generator.SourceFileSaver;
@@ -40,6 +41,60 @@ public class LexerGeneratorMojo extends AbstractMojo {
 	@Parameter(property = "package", required = true)
 	private String packageName;
 
+	/**
+	 * Boolean indicating whether the transition table of the lexer should be compressed. Defaults to false.
+	 */
+	@Parameter(property = "compress-transitions", defaultValue = "false")
+	private boolean compressTransitions;
+
+	/**
+	 * Boolean indicating whether the tables of the lexer should be written to a resource instead of being inlined in
+	 * the code. Defaults to false.
+	 */
+	@Parameter(property = "table-resource", defaultValue = "false")
+	private boolean tableResource;
+
+	/**
+	 * The target directory for the resources. Defaults to "${project.build.directory}/generated-resources/lexer".
+	 */
+	@Parameter(property = "resources-target", defaultValue = "${project.build.directory}/generated-resources/lexer",
+			required = true)
+	private File resourcesTargetDirectory;
+
+	/**
+	 * Boolean indicating whether the lexer should read into its own buffer instead of using a LexerReader. Defaults to
+	 * false.
+	 */
+	@Parameter(property = "fuse-reader", defaultValue = "false")
+	private boolean fuseReader;
+
+	/**
+	 * Boolean indicating whether the lexer should determine the line and column numbers of the tokens only when they
+	 * are requested. Defaults to false.
+	 */
+	@Parameter(property = "lazy-positions", defaultValue = "false")
+	private boolean lazyPositions;
+
+	/**
+	 * Boolean indicating whether a push lexer, to which the input is fed in chunks, should be generated next to the
+	 * lexer. Defaults to false.
+	 */
+	@Parameter(property = "push-lexer", defaultValue = "false")
+	private boolean pushLexer;
+
+	/**
+	 * Boolean indicating whether the lexer should read the UTF-8 encoded bytes of its input instead of chars. Defaults
+	 * to false.
+	 */
+	@Parameter(property = "utf8", defaultValue = "false")
+	private boolean utf8;
+
+	/**
+	 * The engine that constructs the DFA of the lexer: THOMPSON, FOLLOWPOS or DERIVATIVES. Defaults to THOMPSON.
+	 */
+	@Parameter(property = "engine", defaultValue = "THOMPSON")
+	private Engine engine;
+
 	/**
 	 * The target directory. Defaults to "${project.build.directory}/generated-sources/lexer".
 	 */
@@ -52,9 +107,15 @@ public class LexerGeneratorMojo extends AbstractMojo {
 		getLog().info("Generating sources from: '" + definitionFile + "' to '" + targetDirectory + "'.");
 
 		SourceFileSaver sourceFileSaver = new SourceFileSaver(targetDirectory.toPath(), overwriteExisting);
-		LexerGenerator lexerGenerator = new LexerGenerator(sourceFileSaver);
+		LexerGenerator lexerGenerator = new LexerGenerator(sourceFileSaver).engine(engine).utf8(utf8);
 		try {
-			lexerGenerator.generate(new BasicLexerCodeGenerator(new Properties(lexerName, packageName)), definitionFile);
+			Properties properties = new Properties(lexerName, packageName)
+					.compressTransitions(compressTransitions)
+					.tableResourceDirectory(tableResource ? resourcesTargetDirectory.getAbsolutePath() : null)
+					.fuseReader(fuseReader)
+					.lazyPositions(lazyPositions)
+					.pushLexer(pushLexer);
+			lexerGenerator.generate(new BasicLexerCodeGenerator(properties), definitionFile);
 		} catch (GeneratorException e) {
 			throw new MojoFailureException("The lexer could not be generated.", e);
 		}
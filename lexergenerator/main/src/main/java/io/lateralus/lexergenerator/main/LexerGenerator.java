@@ -2,6 +2,7 @@ package io.lateralus.lexergenerator.main;
 
 import io.lateralus.lexergenerator.core.definition.LexerDefinition;
 import io.lateralus.lexergenerator.core.definition.LexerDefinitionBuilder;
+import io.lateralus.lexergenerator.core.definition.LexerDefinitionBuilder.Engine;
 import io.lateralus.lexergenerator.core.parser.nodes.LexerDescriptionNode;
 import io.lateralus.lexergenerator.parser.LexerDescriptionParser;
 import io.lateralus.lexergenerator.parser.ParserException;
@@ -22,17 +23,47 @@ import java.nio.charset.StandardCharsets;
  */
 public class LexerGenerator extends Generator<LexerDefinition> {
 
+	private Engine engine = Engine.THOMPSON;
+
+	private boolean utf8;
+
 	public LexerGenerator(SourceFileSaver sourceFileSaver) {
 		super(sourceFileSaver);
 	}
 
+	/**
+	 * Sets the engine that constructs the DFA of the lexer, the default is {@link Engine#THOMPSON}. All engines result
+	 * in the same lexer.
+	 * @param engine The engine.
+	 * @return This generator.
+	 */
+	public LexerGenerator engine(Engine engine) {
+		this.engine = engine;
+		return this;
+	}
+
+	/**
+	 * Sets whether the lexer works on the bytes of UTF-8 encoded input instead of on code points, the default is
+	 * {@code false}.
+	 * @param utf8 Whether the lexer works on UTF-8 bytes.
+	 * @return This generator.
+	 */
+	public LexerGenerator utf8(boolean utf8) {
+		this.utf8 = utf8;
+		return this;
+	}
+
 	@Override
 	protected LexerDefinition createDefinition(File definitionFile) throws GeneratorException {
 		final Reader reader = createFileReader(definitionFile);
 
 		final LexerDescriptionNode node = buildLexerDescriptionNode(reader);
 
-		return new LexerDefinitionBuilder().build(node);
+		return new LexerDefinitionBuilder()
+				.parallel(true)
+				.engine(engine)
+				.utf8(utf8)
+				.build(node);
 	}
 
 	private static Reader createFileReader(File definitionFile) throws GeneratorException {
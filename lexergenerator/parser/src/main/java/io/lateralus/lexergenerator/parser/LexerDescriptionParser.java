@@ -20,9 +20,22 @@ import java.util.List;
 
 /**
  * Parses a lexer description file and returns a {@link LexerDescriptionNode} that represents that file.
+ * <p>
+ * The file holds lexer classes, a class is a name followed by its tokens. A token is a name in angle brackets, a
+ * regular expression in single quotes and, after {@code ->}, the lexer class that the lexer moves to:
+ * <pre>
+ * DEFAULT
+ *   &lt;WHITE_SPACE&gt; '( |\t)+' -&gt; DEFAULT skip
+ *   &lt;NAME&gt;        '[a-z]+'  -&gt; DEFAULT
+ * </pre>
+ * A token is marked as skipped by writing {@code skip} after its target class, on the same line. The word is only
+ * read as this keyword there; a {@code skip} on the next line starts a lexer class of that name, and it can be used as
+ * a class name and as a target class like any other name.
  */
 public class LexerDescriptionParser {
 
+	private static final String SKIP_KEYWORD = "skip";
+
 	private Token token;
 
 	private final Lexer lexer;
@@ -85,8 +98,16 @@ public class LexerDescriptionParser {
 			expect(token, TokenType.LEXER_CLASS);
 			lexerTokenNode.setResultClassName(token.getValue());
 
-			lexerTokenNodeList.add(lexerTokenNode);
+			// The token may be marked as skipped by the keyword on the same line as the target class. Anywhere else,
+			// including on the next line where it would start a lexer class, it is an ordinary name.
+			Token resultClass = token;
 			token = nextToken();
+			if (isSkipKeyword(token, resultClass)) {
+				lexerTokenNode.setSkip(true);
+				token = nextToken();
+			}
+
+			lexerTokenNodeList.add(lexerTokenNode);
 		}
 
 		return lexerTokenNodeList;
@@ -108,6 +129,11 @@ public class LexerDescriptionParser {
 		}
 	}
 
+	private static boolean isSkipKeyword(Token token, Token resultClass) {
+		return token.is(TokenType.LEXER_CLASS) && SKIP_KEYWORD.equals(token.getValue())
+				&& token.getLineNumber() == resultClass.getLineNumber();
+	}
+
 	private static String determineTokenName(Token token) {
 		String rawName = token.getValue();
 		return rawName.substring(1, rawName.length() - 1);
@@ -0,0 +1,67 @@
+package io.lateralus.lexergenerator.parser;
+
+import io.lateralus.lexergenerator.core.parser.nodes.LexerClassNode;
+import io.lateralus.lexergenerator.core.parser.nodes.LexerDescriptionNode;
+import io.lateralus.lexergenerator.core.parser.nodes.LexerTokenNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LexerDescriptionParserTest {
+
+	@Test
+	public void testSkipKeywordMarksTheToken() throws ParserException {
+		LexerDescriptionNode description = parse(
+				"DEFAULT\n" +
+				"  <WHITE_SPACE> '( |\\t)+'  -> DEFAULT skip\n" +
+				"  <IDENTIFIER>  '[a-z]+'    -> DEFAULT\n");
+
+		List<LexerTokenNode> tokens = description.getLexerClassNodeList().get(0).getLexerTokenList();
+		assertEquals(2, tokens.size());
+		assertEquals("WHITE_SPACE", tokens.get(0).getName());
+		assertEquals("DEFAULT", tokens.get(0).getResultClassName());
+		assertTrue(tokens.get(0).isSkip());
+		assertEquals("IDENTIFIER", tokens.get(1).getName());
+		assertFalse(tokens.get(1).isSkip());
+	}
+
+	@Test
+	public void testLexerClassNamedSkip() throws ParserException {
+		LexerDescriptionNode description = parse(
+				"skip\n" +
+				"  <COMMENT_START> '/\\*'     -> skip\n" +
+				"  <IDENTIFIER>    '[a-z]+'   -> skip skip\n" +
+				"skip_not\n" +
+				"  <OTHER>         'x'        -> skip\n" +
+				"skip\n" +
+				"  <COMMENT_END>   '\\*/'     -> skip_not\n");
+
+		List<LexerClassNode> lexerClasses = description.getLexerClassNodeList();
+		assertEquals("skip", description.getStartLexerStateName());
+		assertEquals(3, lexerClasses.size());
+		assertEquals("skip", lexerClasses.get(0).getName());
+		assertEquals("skip_not", lexerClasses.get(1).getName());
+		assertEquals("skip", lexerClasses.get(2).getName());
+
+		List<LexerTokenNode> tokens = lexerClasses.get(0).getLexerTokenList();
+		assertEquals("skip", tokens.get(0).getResultClassName());
+		assertFalse(tokens.get(0).isSkip());
+		assertEquals("skip", tokens.get(1).getResultClassName());
+		assertTrue(tokens.get(1).isSkip());
+
+		// The class name on the line after a target class is not the keyword.
+		LexerTokenNode other = lexerClasses.get(1).getLexerTokenList().get(0);
+		assertEquals("skip", other.getResultClassName());
+		assertFalse(other.isSkip());
+		assertEquals("COMMENT_END", lexerClasses.get(2).getLexerTokenList().get(0).getName());
+	}
+
+	private static LexerDescriptionNode parse(String description) throws ParserException {
+		return new LexerDescriptionParser(new StringReader(description)).parse();
+	}
+}
@@ -16,6 +16,7 @@ import io.lateralus.parsergenerator.core.grammar.Symbol;
 import io.lateralus.parsergenerator.core.grammar.Terminal;
 import io.lateralus.shared.codegenerator.ByteArraySourceFile;
 import io.lateralus.shared.codegenerator.CodeGenerationException;
+import io.lateralus.shared.codegenerator.ElementType;
 import io.lateralus.shared.codegenerator.SourceFile;
 import io.lateralus.shared.codegenerator.freemarker.AbstractFreeMarkerCodeGenerator;
 
@@ -34,6 +35,7 @@ import java.util.stream.Collectors;
 import static com.google.common.base.CaseFormat.LOWER_CAMEL;
 import static com.google.common.base.CaseFormat.UPPER_CAMEL;
 import static com.google.common.base.CaseFormat.UPPER_UNDERSCORE;
+import static io.lateralus.shared.codegenerator.VarIntEncoder.encode;
 import static java.util.function.Predicate.not;
 
 /**
@@ -55,13 +57,15 @@ public class BasicParserCodeGenerator extends AbstractFreeMarkerCodeGenerator<Pa
 
 		sourceFiles.addAll(createNodes(parserDefinition));
 		sourceFiles.addAll(createVisitor(parserDefinition));
-		sourceFiles.addAll(createParser(parserDefinition));
-		sourceFiles.addAll(createParserTable(parserDefinition));
+		int[] table = createTable(parserDefinition);
+		sourceFiles.addAll(createParser(parserDefinition, table));
+		sourceFiles.addAll(createParserTable(parserDefinition, table));
 
 		return sourceFiles;
 	}
 
-	private Set<SourceFile> createParser(ParserDefinition parserDefinition) throws CodeGenerationException {
+	private Set<SourceFile> createParser(ParserDefinition parserDefinition, int[] table)
+			throws CodeGenerationException {
 		Set<SourceFile> result = new HashSet<>();
 
 		Map<String, Object> model = createBaseModel();
@@ -81,12 +85,32 @@ public class BasicParserCodeGenerator extends AbstractFreeMarkerCodeGenerator<Pa
 		model.put("productionNonTerminalIdJava", productionNonTerminalIdJava);
 		model.put("reductionList", createReductions(parserDefinition.getGrammar()));
 		model.put("tableWidth", symbolList.size());
+		model.put("tableType", ElementType.of(table));
+		model.put("tokenBuffer", properties.isTokenBuffer());
 		result.add(createSourceFile("parser.ftl", "Parser.java", "", model));
 
 		return result;
 	}
 
-	private Set<SourceFile> createParserTable(ParserDefinition parserDefinition) throws CodeGenerationException {
+	private Set<SourceFile> createParserTable(ParserDefinition parserDefinition, int[] table) {
+		int height = parserDefinition.getCanonicalCollection().size();
+		int width = parserDefinition.getOrderedTerminalList().size() +
+				parserDefinition.getGrammar().getNonTerminals().size();
+
+		// The encoding clears the skip columns, so encode a copy of the table.
+		ByteArrayOutputStream baos = encodeTable(table.clone(), height, width);
+
+		String name = properties.generatedResourcesDirectory + File.separator + packageDirectoryName(null) +
+				File.separator + "parser.table";
+		SourceFile sourceFile = new ByteArraySourceFile(name, baos.toByteArray());
+
+		return Set.of(sourceFile);
+	}
+
+	/**
+	 * Creates the parser table, per state the action for every terminal followed by the goto for every non terminal.
+	 */
+	private int[] createTable(ParserDefinition parserDefinition) throws CodeGenerationException {
 		List<State> stateList = new ArrayList<>(parserDefinition.getCanonicalCollection());
 		Map<State, Integer> stateIntegerMap = new HashMap<>();
 		for (int i = 0; i < stateList.size(); i++) {
@@ -127,13 +151,7 @@ public class BasicParserCodeGenerator extends AbstractFreeMarkerCodeGenerator<Pa
 			}
 		}
 
-		ByteArrayOutputStream baos = encodeTable(table, height, width);
-
-		String name = properties.generatedResourcesDirectory + File.separator + packageDirectoryName(null) +
-				File.separator + "parser.table";
-		SourceFile sourceFile = new ByteArraySourceFile(name, baos.toByteArray());
-
-		return Set.of(sourceFile);
+		return table;
 	}
 
 	private ByteArrayOutputStream encodeTable(int[] table, int height, int width) {
@@ -175,15 +193,6 @@ public class BasicParserCodeGenerator extends AbstractFreeMarkerCodeGenerator<Pa
 		return baos;
 	}
 
-	public static void encode(int value, ByteArrayOutputStream out) {
-		value = (value << 1) ^ (value >> 31);
-		if(value > 0x0FFFFFFF || value < 0) out.write((byte)(0x80 | ((value >>> 28))));
-		if(value > 0x1FFFFF || value < 0)   out.write((byte)(0x80 | ((value >>> 21) & 0x7F)));
-		if(value > 0x3FFF || value < 0)     out.write((byte)(0x80 | ((value >>> 14) & 0x7F)));
-		if(value > 0x7F || value < 0)       out.write((byte)(0x80 | ((value >>>  7) & 0x7F)));
-		out.write((byte)(value & 0x7F));
-	}
-
 	private String createProductionSizeJava(Collection<Production> productions) {
 		String sizes = productions.stream()
 				.map(Production::getRhs)
@@ -438,6 +447,8 @@ public class BasicParserCodeGenerator extends AbstractFreeMarkerCodeGenerator<Pa
 		final private String generatedSourcesDirectory;
 		final private String generatedResourcesDirectory;
 
+		private boolean tokenBuffer;
+
 		public Properties(String parserName, String parserPackageName, String lexerPackageName,
 				String generatedSourcesDirectory, String generatedResourcesDirectory) {
 			this.parserName = parserName;
@@ -458,6 +469,23 @@ public class BasicParserCodeGenerator extends AbstractFreeMarkerCodeGenerator<Pa
 		public String getLexerPackageName() {
 			return lexerPackageName;
 		}
+
+		/**
+		 * Sets whether the generated parser can parse the tokens of a {@code TokenBuffer}, the default is
+		 * {@code false}. Such a buffer is generated for lexers that fuse the reader and for lexers on UTF-8 bytes;
+		 * the parser only uses the methods that both buffers have. The parser only creates tokens for the tokens that
+		 * it shifts, the tokens that it skips stay in the buffer.
+		 * @param tokenBuffer Whether the parser can parse a token buffer.
+		 * @return These properties.
+		 */
+		public Properties tokenBuffer(boolean tokenBuffer) {
+			this.tokenBuffer = tokenBuffer;
+			return this;
+		}
+
+		public boolean isTokenBuffer() {
+			return tokenBuffer;
+		}
 	}
 
 
@@ -3,6 +3,9 @@ package ${parserPackageName};
 import ${lexerPackageName}.Lexer;
 import ${lexerPackageName}.LexerException;
 import ${lexerPackageName}.Token;
+<#if tokenBuffer>
+import ${lexerPackageName}.TokenBuffer;
+</#if>
 import ${parserPackageName}.nodes.*;
 
 import java.io.IOException;
@@ -11,60 +14,76 @@ import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Deque;
 
-import test.lexer.LexerReaderImpl;
-import test.lexer.SuperLexer;
-import java.io.StringReader;
-import test.parser.visitor.NodeVisitor;
-import test.parser.visitor.VisitingException;
-
 public class Parser {
 
 	protected static final int[] PRODUCTION_SIZE = ${productionSizeJava};
 	protected static final int[] PRODUCTION_NON_TERMINAL_ID = ${productionNonTerminalIdJava};
 	protected static final int TABLE_WIDTH = ${tableWidth};
-	protected static final int[] TABLE = readTable();
+	protected static final ${tableType}[] TABLE = readTable();
 	protected static final int PARSER_ACTION_ACCEPT = 1;
 	protected static final int PARSER_ACTION_SKIP = 2;
 	protected static final int ACTION_PRODUCTION_OFFSET = 3;
 
 	protected final Lexer lexer;
+<#if tokenBuffer>
+	protected final TokenBuffer tokenBuffer;
+	protected int tokenIndex;
+</#if>
 
 	protected int state;
 	protected Deque<Integer> stateStack;
 	protected Deque<Object> nodeStack;
+	protected Token token;
 
 	public Parser(Lexer lexer) {
 		this.lexer = lexer;
+<#if tokenBuffer>
+		this.tokenBuffer = null;
+</#if>
+	}
+<#if tokenBuffer>
+
+	/**
+	 * Creates a parser for the tokens of the given buffer. The parser only creates {@link Token}s for the tokens that
+	 * it shifts, the tokens that it skips stay in the buffer.
+	 */
+	public Parser(TokenBuffer tokenBuffer) {
+		this.lexer = null;
+		this.tokenBuffer = tokenBuffer;
 	}
+</#if>
 
 	public Node parse() throws ParserException {
 		stateStack = new ArrayDeque<>();
 		stateStack.push(0);
 		nodeStack = new ArrayDeque<>();
+<#if tokenBuffer>
+		tokenIndex = -1;
+</#if>
 
-		Token token = nextToken();
+		int tokenType = nextTokenType();
 
 		while (true) {
 			state = stateStack.peek();
-			int action = TABLE[state * TABLE_WIDTH + token.getTokenType().ordinal()];
+			int action = TABLE[state * TABLE_WIDTH + tokenType];
 
 			if (action == PARSER_ACTION_SKIP) {
-				token = nextToken();
+				tokenType = nextTokenType();
 			} else if (action == PARSER_ACTION_ACCEPT) {
 				return (Node)nodeStack.pop();
 			} else if (action < 0) {
-				nodeStack.push(token);
+				nodeStack.push(currentToken());
 				stateStack.push(~action);
-				token = nextToken();
+				tokenType = nextTokenType();
 			} else if (action > 0) {
 				int productionId = action - ACTION_PRODUCTION_OFFSET;
 				int productionSize = PRODUCTION_SIZE[productionId];
 				Object[] nodes = popNodes(nodeStack, productionSize);
 				nodeStack.push(reduce(productionId, nodes));
 				state = popStates(stateStack, productionSize);
-				stateStack.push(TABLE[state * TABLE_WIDTH + PRODUCTION_NON_TERMINAL_ID[productionId]]);
+				stateStack.push((int) TABLE[state * TABLE_WIDTH + PRODUCTION_NON_TERMINAL_ID[productionId]]);
 			} else {
-				handleSyntaxError(token);
+				handleSyntaxError(currentToken());
 			}
 		}
 	}
@@ -73,14 +92,39 @@ public class Parser {
 		throw new ParserSyntaxException("Syntax error", token);
 	}
 
-	private Token nextToken() throws ParserException {
+	/**
+	 * Moves to the next token and returns the ordinal of its type.
+	 */
+	private int nextTokenType() throws ParserException {
+<#if tokenBuffer>
+		if (tokenBuffer != null) {
+			// The buffer also holds the skip tokens that the lexer consumes, pass them by.
+			do {
+				tokenIndex++;
+			} while (tokenBuffer.getTokenType(tokenIndex).isSkip());
+			return tokenBuffer.getTokenTypeOrdinal(tokenIndex);
+		}
+</#if>
 		try {
-			return lexer.nextToken();
+			token = lexer.nextToken();
+			return token.getTokenType().ordinal();
 		} catch (LexerException e) {
 			throw new ParserException("LexerException during parse: ", e);
 		}
 	}
 
+	/**
+	 * Returns the current token.
+	 */
+	private Token currentToken() {
+<#if tokenBuffer>
+		if (tokenBuffer != null) {
+			return tokenBuffer.getToken(tokenIndex);
+		}
+</#if>
+		return token;
+	}
+
 	private static Object[] popNodes(Deque<Object> stack, int size) {
 		Object[] nodes = new Object[size];
 		for (int i = size - 1; i >= 0; i--) {
@@ -117,22 +161,22 @@ public class Parser {
 		}
 	}
 
-	private static int[] readTable() {
+	private static ${tableType}[] readTable() {
 		try {
 			// Open the parser.table so we can compare the results with the TABLE static property.
 			InputStream is = Parser.class.getResourceAsStream("parser.table");
 			int height = 0;
 			height = readInt(is);
 			int width = readInt(is);
-			int[] table = new int[height * width];
+			${tableType}[] table = new ${tableType}[height * width];
 			int index = 0;
 			while (index < height * width) {
 				int value = readInt(is);
 				if (value == Integer.MIN_VALUE) {
 					int count = readInt(is);
-					Arrays.fill(table, index, index += count, 0);
+					Arrays.fill(table, index, index += count, (${tableType}) 0);
 				} else {
-					table[index++] = value;
+					table[index++] = (${tableType}) value;
 				}
 			}
 			// Read the number of skip columns.
@@ -140,7 +184,7 @@ public class Parser {
 			for (int i = 0; i < count; i++) {
 				int column = readInt(is);
 				for (int row = 0; row < height; row++) {
-					table[row * width + column] = PARSER_ACTION_SKIP;
+					table[row * width + column] = (${tableType}) PARSER_ACTION_SKIP;
 				}
 			}
 			return table;
@@ -0,0 +1,143 @@
+package io.lateralus.parsergenerator.codegenerator;
+
+import io.lateralus.lexergenerator.codegenerator.simple.BasicLexerCodeGenerator;
+import io.lateralus.lexergenerator.core.definition.LexerDefinition;
+import io.lateralus.lexergenerator.core.definition.LexerDefinitionBuilder;
+import io.lateralus.lexergenerator.core.description.LexerClassNodeBuilder;
+import io.lateralus.lexergenerator.core.description.LexerDescriptionBuilder;
+import io.lateralus.parsergenerator.codegenerator.BasicParserCodeGenerator.Properties;
+import io.lateralus.parsergenerator.core.definition.ParserDefinition;
+import io.lateralus.parsergenerator.core.definition.ParserDefinitionBuilder;
+import io.lateralus.parsergenerator.core.definition.closer.KnuthCloser;
+import io.lateralus.parsergenerator.core.grammar.Grammar;
+import io.lateralus.parsergenerator.core.grammar.Terminal;
+import io.lateralus.parsergenerator.parser.GrammarParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static io.lateralus.parsergenerator.codegenerator.ParserCompiler.createParserProperties;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Generates parsers together with their lexers, compiles them and checks the trees that they build.
+ */
+public class BasicParserCodeGeneratorTest {
+
+	private static final String EXPRESSION_GRAMMAR = String.join("\n",
+			"Expression -> Expression(lhs) PLUS Term(rhs) : Plus binary | Term",
+			"Term -> Term(lhs) TIMES Factor(rhs) : Product binary | Factor",
+			"Factor -> LPAREN Expression RPAREN : Paren | NUMBER : Number");
+
+	@Test
+	public void testExpressionParser() throws Exception {
+		ParserCompiler parser = compile("expression", createLexerProperties(), createParserProperties(),
+				createExpressionLexer(false), EXPRESSION_GRAMMAR, "ExpressionFormatter", "ExpressionDriver");
+
+		// The few states and productions fit in a byte.
+		assertTrue(parser.getSource("Parser").contains("protected static final byte[] TABLE"));
+
+		ParserDriver driver = parser.getDriver("ExpressionDriver");
+		assertEquals("((1 + (2 * [(3 + 4)])) + 5)", driver.parse("1 + 2 * (3 + 4) + 5"));
+		assertEquals("42", driver.parse("42"));
+		Exception exception = assertThrows(Exception.class, () -> driver.parse("1 + * 2"));
+		assertEquals("ParserSyntaxException", exception.getClass().getSimpleName());
+	}
+
+	@Test
+	public void testTokenBuffer() throws Exception {
+		// The parser skips the white space in the buffer, and creates tokens for the other tokens only. The buffer of
+		// the fused lexer holds the text of the tokens, the buffer of the UTF-8 lexer refers to the input.
+		ParserDriver[] drivers = {
+				compile("expression-token-buffer", createLexerProperties().fuseReader(true),
+						createParserProperties().tokenBuffer(true), createExpressionLexer(false), EXPRESSION_GRAMMAR,
+						"ExpressionFormatter", "TokenBufferDriver").getDriver("TokenBufferDriver"),
+				compile("expression-utf8-token-buffer", createLexerProperties(),
+						createParserProperties().tokenBuffer(true), createExpressionLexer(true), EXPRESSION_GRAMMAR,
+						"ExpressionFormatter", "Utf8TokenBufferDriver").getDriver("Utf8TokenBufferDriver")
+		};
+		for (ParserDriver driver : drivers) {
+			assertEquals("((1 + (2 * [(3 + 4)])) + 5)", driver.parse("1 + 2 * (3 + 4) + 5"));
+			assertEquals("42", driver.parse("  42 "));
+			Exception exception = assertThrows(Exception.class, () -> driver.parse("1 + * 2"));
+			assertEquals("ParserSyntaxException", exception.getClass().getSimpleName());
+		}
+	}
+
+	@Test
+	public void testIntTable() throws Exception {
+		// The chain of A is lexed in the canonical LR(1) collection once for every terminal that can follow it, which
+		// gives more states than a short can hold.
+		int terminalCount = 140;
+		int chainLength = 240;
+		LexerClassNodeBuilder lexerClass = new LexerDescriptionBuilder()
+				.lexerStartStateName("DEFAULT")
+				.startLexerClass("DEFAULT")
+					.addLexerToken("WHITE_SPACE", " +", "DEFAULT")
+					.addLexerToken("X", "x", "DEFAULT");
+		StringBuilder grammar = new StringBuilder("S ->");
+		for (int i = 1; i <= terminalCount; i++) {
+			lexerClass.addLexerToken("T" + i, "t" + i, "DEFAULT");
+			grammar.append(i == 1 ? " " : " | ").append("T" + i + "(open) A T" + i + "(close) : S" + i);
+		}
+		grammar.append("\nA ->");
+		for (int i = 1; i <= chainLength; i++) {
+			grammar.append(" X(x" + i + ")");
+		}
+		grammar.append(" : Chain");
+		LexerDefinition lexerDefinition = new LexerDefinitionBuilder().build(lexerClass.end().build());
+		ParserCompiler parser = compile("int-table", createLexerProperties(), createParserProperties(),
+				lexerDefinition, grammar.toString(), "ChainDriver");
+
+		assertTrue(parser.getSource("Parser").contains("protected static final int[] TABLE"));
+
+		ParserDriver driver = parser.getDriver("ChainDriver");
+		String chain = " x".repeat(chainLength);
+		assertEquals("S1Node 1:1 't1'", driver.parse("t1" + chain + " t1"));
+		assertEquals("S140Node 1:1 't140'", driver.parse("t140" + chain + " t140"));
+		Exception exception = assertThrows(Exception.class, () -> driver.parse("t7" + chain + " t8"));
+		assertEquals("ParserSyntaxException", exception.getClass().getSimpleName());
+	}
+
+	private static LexerDefinition createExpressionLexer(boolean utf8) throws Exception {
+		return new LexerDefinitionBuilder().utf8(utf8).build(new LexerDescriptionBuilder()
+				.lexerStartStateName("DEFAULT")
+				.startLexerClass("DEFAULT")
+					.addLexerToken("WHITE_SPACE", " +", "DEFAULT")
+					.addLexerToken("PLUS", "\\+", "DEFAULT")
+					.addLexerToken("TIMES", "\\*", "DEFAULT")
+					.addLexerToken("LPAREN", "\\(", "DEFAULT")
+					.addLexerToken("RPAREN", "\\)", "DEFAULT")
+					.addLexerToken("NUMBER", "[0-9]+", "DEFAULT")
+				.end()
+				.build());
+	}
+
+	private static BasicLexerCodeGenerator.Properties createLexerProperties() {
+		return new BasicLexerCodeGenerator.Properties(ParserCompiler.LEXER_NAME, ParserCompiler.LEXER_PACKAGE_NAME);
+	}
+
+	/**
+	 * Generates and compiles a parser for the given grammar, with the white space as skip terminal. The terminals of
+	 * the grammar are the token types of the lexer, in the same order.
+	 */
+	private static ParserCompiler compile(String name, BasicLexerCodeGenerator.Properties lexerProperties,
+			Properties parserProperties, LexerDefinition lexerDefinition, String grammarString, String... driverNames)
+			throws Exception {
+		Grammar grammar = GrammarParser.from(grammarString);
+		List<Terminal> orderedTerminalList = new ArrayList<>();
+		orderedTerminalList.add(Terminal.EOF);
+		for (LexerDefinition.TokenType tokenType : lexerDefinition.getTokenTypeList()) {
+			orderedTerminalList.add(new Terminal(tokenType.getName()));
+		}
+		ParserDefinition parserDefinition = new ParserDefinitionBuilder(new KnuthCloser(grammar))
+				.build(grammar, orderedTerminalList, Set.of(new Terminal("WHITE_SPACE")));
+
+		return new ParserCompiler(name, new BasicLexerCodeGenerator(lexerProperties), lexerDefinition, parserProperties,
+				parserDefinition, driverNames);
+	}
+}
@@ -0,0 +1,161 @@
+package io.lateralus.parsergenerator.codegenerator;
+
+import io.lateralus.lexergenerator.core.definition.LexerDefinition;
+import io.lateralus.parsergenerator.codegenerator.BasicParserCodeGenerator.Properties;
+import io.lateralus.parsergenerator.core.definition.ParserDefinition;
+import io.lateralus.shared.codegenerator.CodeGenerator;
+import io.lateralus.shared.codegenerator.SourceFile;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates the source files of a parser and of its lexer, compiles them together with the drivers for the parser and
+ * loads the drivers, so a test can run the generated parser. The files of a parser are written to a directory of its
+ * own under {@code target/generated-test-parsers}, where they can be inspected when a test fails.
+ */
+public class ParserCompiler {
+
+	/**
+	 * The package of the generated lexers.
+	 */
+	public static final String LEXER_PACKAGE_NAME = "test.lexer";
+
+	/**
+	 * The name of the generated lexers, the lexer class is called {@code SuperLexer}.
+	 */
+	public static final String LEXER_NAME = "Super";
+
+	/**
+	 * The package of the generated parsers and of the drivers.
+	 */
+	public static final String PARSER_PACKAGE_NAME = "test.parser";
+
+	private static final Path ROOT_DIRECTORY = Paths.get("target", "generated-test-parsers");
+
+	private final Path directory;
+
+	private final ClassLoader classLoader;
+
+	/**
+	 * Generates and compiles a parser and its lexer.
+	 * @param name The name of the parser, which is also the name of its directory.
+	 * @param lexerGenerator The generator of the lexer.
+	 * @param lexerDefinition The definition of the lexer.
+	 * @param parserProperties The properties of the parser, as created by {@link #createParserProperties()}.
+	 * @param parserDefinition The definition of the parser.
+	 * @param driverNames The names of the drivers, which are read from the {@code drivers} resources.
+	 */
+	public ParserCompiler(String name, CodeGenerator<LexerDefinition> lexerGenerator, LexerDefinition lexerDefinition,
+			Properties parserProperties, ParserDefinition parserDefinition, String... driverNames) throws Exception {
+		directory = ROOT_DIRECTORY.resolve(name);
+		deleteDirectory(directory);
+
+		for (SourceFile sourceFile : lexerGenerator.generate(lexerDefinition)) {
+			write(directory.resolve(sourceFile.getName()), sourceFile.getContents());
+		}
+		for (SourceFile sourceFile : new BasicParserCodeGenerator(parserProperties).generate(parserDefinition)) {
+			write(directory.resolve(sourceFile.getName()), sourceFile.getContents());
+		}
+		for (String driverName : driverNames) {
+			String fileName = driverName + ".java";
+			try (InputStream inputStream = ParserCompiler.class.getResourceAsStream("/drivers/" + fileName)) {
+				write(packageDirectory().resolve(fileName), inputStream.readAllBytes());
+			}
+		}
+
+		compile(directory);
+		classLoader = new URLClassLoader(new URL[] { directory.toUri().toURL() },
+				ParserCompiler.class.getClassLoader());
+	}
+
+	/**
+	 * Creates the properties of a parser. The generated files are written relative to the directory of the parser, so
+	 * the parser finds its table as a resource next to its classes.
+	 * @return The properties.
+	 */
+	public static Properties createParserProperties() {
+		return new Properties("Test", PARSER_PACKAGE_NAME, LEXER_PACKAGE_NAME, ".", ".");
+	}
+
+	/**
+	 * Creates an instance of the given driver.
+	 * @param driverName The name of the driver.
+	 * @return The driver.
+	 */
+	public ParserDriver getDriver(String driverName) throws ReflectiveOperationException {
+		return (ParserDriver) classLoader.loadClass(PARSER_PACKAGE_NAME + "." + driverName)
+				.getDeclaredConstructor()
+				.newInstance();
+	}
+
+	/**
+	 * Returns the generated source of the given class of the parser package.
+	 * @param className The simple name of the class.
+	 * @return The source.
+	 */
+	public String getSource(String className) throws IOException {
+		Path path = packageDirectory().resolve(className + ".java");
+		return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+	}
+
+	private Path packageDirectory() {
+		return directory.resolve(PARSER_PACKAGE_NAME.replace('.', '/'));
+	}
+
+	private static void compile(Path directory) throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+				Stream<Path> paths = Files.walk(directory)) {
+			List<Path> sources = paths.filter(path -> path.toString().endsWith(".java")).collect(Collectors.toList());
+
+			// The drivers implement the driver interface of the tests.
+			URL testClasses = ParserDriver.class.getProtectionDomain().getCodeSource().getLocation();
+			String classPath = Paths.get(testClasses.toURI()).toString();
+			List<String> options = Arrays.asList("-d", directory.toString(), "-classpath", classPath, "-nowarn",
+					"-encoding", "UTF-8");
+			boolean success = compiler.getTask(null, fileManager, diagnostics, options, null,
+					fileManager.getJavaFileObjectsFromPaths(sources)).call();
+			if (!success) {
+				throw new IllegalStateException("The generated parser in " + directory + " does not compile:\n" +
+						diagnostics.getDiagnostics().stream()
+								.filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+								.map(Object::toString)
+								.collect(Collectors.joining("\n")));
+			}
+		}
+	}
+
+	private static void write(Path path, byte[] contents) throws IOException {
+		Files.createDirectories(path.getParent());
+		Files.write(path, contents);
+	}
+
+	private static void deleteDirectory(Path directory) throws IOException {
+		if (Files.exists(directory)) {
+			try (Stream<Path> paths = Files.walk(directory)) {
+				for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+					Files.delete(path);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package io.lateralus.parsergenerator.codegenerator;
+
+/**
+ * Runs a generated parser on an input. A driver is compiled together with the parser by the {@link ParserCompiler}.
+ */
+public interface ParserDriver {
+
+	/**
+	 * Parses the input.
+	 * @param input The input.
+	 * @return The parse tree, formatted by the driver.
+	 */
+	String parse(String input) throws Exception;
+}
@@ -0,0 +1,23 @@
+package test.parser;
+
+import io.lateralus.parsergenerator.codegenerator.ParserDriver;
+import test.lexer.LexerReaderImpl;
+import test.lexer.SuperLexer;
+import test.lexer.Token;
+import test.parser.nodes.Node;
+
+import java.io.StringReader;
+
+/**
+ * Driver for the parser of the chain grammar, which formats the type and the first token of the root node.
+ */
+public class ChainDriver implements ParserDriver {
+
+	@Override
+	public String parse(String input) throws Exception {
+		Node node = new Parser(new SuperLexer(new LexerReaderImpl(new StringReader(input)))).parse();
+		Token token = node.getToken();
+		return node.getClass().getSimpleName() + " " + token.getLineNumber() + ":" + token.getColumnNumber() + " '" +
+				token.getValue() + "'";
+	}
+}
@@ -0,0 +1,19 @@
+package test.parser;
+
+import io.lateralus.parsergenerator.codegenerator.ParserDriver;
+import test.lexer.LexerReaderImpl;
+import test.lexer.SuperLexer;
+
+import java.io.StringReader;
+
+/**
+ * Driver for the parser of the expression grammar, with a lexer that reads from a {@code LexerReader}.
+ */
+public class ExpressionDriver implements ParserDriver {
+
+	@Override
+	public String parse(String input) throws Exception {
+		Parser parser = new Parser(new SuperLexer(new LexerReaderImpl(new StringReader(input))));
+		return parser.parse().accept(new ExpressionFormatter());
+	}
+}
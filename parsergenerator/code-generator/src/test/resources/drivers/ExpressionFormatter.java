@@ -0,0 +1,34 @@
+package test.parser;
+
+import test.parser.nodes.NumberNode;
+import test.parser.nodes.ParenNode;
+import test.parser.nodes.PlusNode;
+import test.parser.nodes.ProductNode;
+import test.parser.visitor.NodeVisitor;
+import test.parser.visitor.VisitingException;
+
+/**
+ * Formats the tree of the expression grammar, with the operations in brackets.
+ */
+public class ExpressionFormatter implements NodeVisitor<String, VisitingException> {
+
+	@Override
+	public String visit(PlusNode node) throws VisitingException {
+		return "(" + node.getLhs().accept(this) + " + " + node.getRhs().accept(this) + ")";
+	}
+
+	@Override
+	public String visit(ProductNode node) throws VisitingException {
+		return "(" + node.getLhs().accept(this) + " * " + node.getRhs().accept(this) + ")";
+	}
+
+	@Override
+	public String visit(ParenNode node) throws VisitingException {
+		return "[" + node.getExpression().accept(this) + "]";
+	}
+
+	@Override
+	public String visit(NumberNode node) {
+		return node.getNumber().getValue();
+	}
+}
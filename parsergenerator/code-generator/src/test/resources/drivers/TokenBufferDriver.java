@@ -0,0 +1,19 @@
+package test.parser;
+
+import io.lateralus.parsergenerator.codegenerator.ParserDriver;
+import test.lexer.SuperLexer;
+import test.lexer.TokenBuffer;
+
+import java.io.StringReader;
+
+/**
+ * Driver for the parser of the expression grammar, which parses the tokens of a {@code TokenBuffer}.
+ */
+public class TokenBufferDriver implements ParserDriver {
+
+	@Override
+	public String parse(String input) throws Exception {
+		TokenBuffer tokenBuffer = new SuperLexer(new StringReader(input)).tokenizeAll();
+		return new Parser(tokenBuffer).parse().accept(new ExpressionFormatter());
+	}
+}
@@ -0,0 +1,19 @@
+package test.parser;
+
+import io.lateralus.parsergenerator.codegenerator.ParserDriver;
+import test.lexer.SuperLexer;
+import test.lexer.TokenBuffer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Driver for the parser of the expression grammar, which parses the tokens of a {@code TokenBuffer} on UTF-8 bytes.
+ */
+public class Utf8TokenBufferDriver implements ParserDriver {
+
+	@Override
+	public String parse(String input) throws Exception {
+		TokenBuffer tokenBuffer = new SuperLexer(input.getBytes(StandardCharsets.UTF_8)).tokenizeAll();
+		return new Parser(tokenBuffer).parse().accept(new ExpressionFormatter());
+	}
+}
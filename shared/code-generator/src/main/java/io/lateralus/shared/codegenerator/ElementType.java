@@ -0,0 +1,51 @@
+package io.lateralus.shared.codegenerator;
+
+import java.util.Arrays;
+
+/**
+ * The primitive types that the element of a table in generated code can have. The smallest type that can hold all
+ * values of a table is used, so the tables of small lexers and parsers take less memory and are more cache friendly.
+ */
+public enum ElementType {
+	BYTE("byte", Byte.MIN_VALUE, Byte.MAX_VALUE),
+	CHAR("char", Character.MIN_VALUE, Character.MAX_VALUE),
+	SHORT("short", Short.MIN_VALUE, Short.MAX_VALUE),
+	INT("int", Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+	private final String name;
+	private final int minValue;
+	private final int maxValue;
+
+	ElementType(String name, int minValue, int maxValue) {
+		this.name = name;
+		this.minValue = minValue;
+		this.maxValue = maxValue;
+	}
+
+	/**
+	 * Determines the smallest type that can hold all given values.
+	 * @param values The values.
+	 * @return The type.
+	 */
+	public static ElementType of(int... values) {
+		int min = Arrays.stream(values).min().orElse(0);
+		int max = Arrays.stream(values).max().orElse(0);
+		return Arrays.stream(values())
+				.filter(type -> type.minValue <= min && max <= type.maxValue)
+				.findFirst()
+				.orElse(INT);
+	}
+
+	/**
+	 * Returns the Java keyword of the type.
+	 * @return The name of the type.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
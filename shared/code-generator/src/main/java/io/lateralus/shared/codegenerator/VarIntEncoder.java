@@ -0,0 +1,38 @@
+package io.lateralus.shared.codegenerator;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Encodes integers with a variable length, used for the binary tables that generated code reads as a resource.
+ * <br/>
+ * The value is first zigzag encoded, so small negative values are small as well, and then written in groups of 7 bits,
+ * the most significant group first. All bytes except the last one have their high bit set. Such a value is read by:
+ * <pre>
+ *     int value = b &amp; 0x7F;
+ *     while ((b &amp; 0x80) != 0) {
+ *         b = in.read();
+ *         value = (value &lt;&lt; 7) | (b &amp; 0x7F);
+ *     }
+ *     return (value &gt;&gt;&gt; 1) ^ -(value &amp; 1);
+ * </pre>
+ * The first byte of an encoded value is never {@code 0x80}, so that byte can be used as a marker.
+ */
+public final class VarIntEncoder {
+
+	private VarIntEncoder() {
+	}
+
+	/**
+	 * Writes the given value to the given stream.
+	 * @param value The value to encode.
+	 * @param out The stream to write the encoded value to.
+	 */
+	public static void encode(int value, ByteArrayOutputStream out) {
+		value = (value << 1) ^ (value >> 31);
+		if(value > 0x0FFFFFFF || value < 0) out.write((byte)(0x80 | ((value >>> 28))));
+		if(value > 0x1FFFFF || value < 0)   out.write((byte)(0x80 | ((value >>> 21) & 0x7F)));
+		if(value > 0x3FFF || value < 0)     out.write((byte)(0x80 | ((value >>> 14) & 0x7F)));
+		if(value > 0x7F || value < 0)       out.write((byte)(0x80 | ((value >>>  7) & 0x7F)));
+		out.write((byte)(value & 0x7F));
+	}
+}
@@ -0,0 +1,28 @@
+package io.lateralus.shared.codegenerator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ElementTypeTest {
+
+	@Test
+	public void testSmallestTypeThatHoldsAllValues() {
+		assertEquals(ElementType.BYTE, ElementType.of());
+		assertEquals(ElementType.BYTE, ElementType.of(0, 1, 127));
+		assertEquals(ElementType.BYTE, ElementType.of(-128, 5));
+		assertEquals(ElementType.CHAR, ElementType.of(0, 128));
+		assertEquals(ElementType.CHAR, ElementType.of(65535));
+		assertEquals(ElementType.SHORT, ElementType.of(-1, 128));
+		assertEquals(ElementType.SHORT, ElementType.of(-32768, 32767));
+		assertEquals(ElementType.INT, ElementType.of(-1, 32768));
+		assertEquals(ElementType.INT, ElementType.of(65536));
+		assertEquals(ElementType.INT, ElementType.of(Integer.MIN_VALUE, Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testName() {
+		assertEquals("byte", ElementType.BYTE.getName());
+		assertEquals("char", ElementType.CHAR.toString());
+	}
+}